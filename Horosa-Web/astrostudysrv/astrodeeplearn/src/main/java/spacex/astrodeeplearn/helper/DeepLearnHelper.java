@@ -8,6 +8,7 @@ import java.util.Map;
 import boundless.io.FileUtility;
 import boundless.types.ICache;
 import boundless.types.cache.CacheFactory;
+import boundless.types.cache.Projection;
 import boundless.utility.JsonUtility;
 
 public class DeepLearnHelper {
@@ -21,6 +22,11 @@ public class DeepLearnHelper {
 	static private Map<String, Object> map30000;
 	static private Map<String, Object> map40000;
 	
+	static private Projection proj10000;
+	static private Projection proj20000;
+	static private Projection proj30000;
+	static private Projection proj40000;
+	
 	static private Map<String, Object> defFateEvents = new HashMap<String, Object>();
 	
 	static private ICache cache10000;
@@ -36,9 +42,13 @@ public class DeepLearnHelper {
 		json40000 = FileUtility.getStringFromClassPath("spacex/astrodeeplearn/helper/40000.json");
 		
 		map10000 = JsonUtility.toDictionary(json10000);
+		proj10000 = Projection.include(map10000.keySet());
 		map20000 = JsonUtility.toDictionary(json20000);
+		proj20000 = Projection.include(map20000.keySet());
 		map30000 = JsonUtility.toDictionary(json30000);
+		proj30000 = Projection.include(map30000.keySet());
 		map40000 = JsonUtility.toDictionary(json40000);
+		proj40000 = Projection.include(map40000.keySet());
 		
 		cache10000 = CacheFactory.getCache("dlsample10000");
 		cache20000 = CacheFactory.getCache("dlsample20000");
@@ -86,7 +96,7 @@ public class DeepLearnHelper {
 	}
 	
 	static public Map<String, Object> getSample10000(String cid){
-		Map<String, Object> map = cache10000.getMap(cid);
+		Map<String, Object> map = cache10000.getMap(cid, proj10000);
 		if(map == null || map.isEmpty()) {
 			map = getSample(map10000);
 			return map;
@@ -97,7 +107,7 @@ public class DeepLearnHelper {
 	}
 	
 	static public Map<String, Object> getSample20000(String cid){
-		Map<String, Object> map = cache20000.getMap(cid);
+		Map<String, Object> map = cache20000.getMap(cid, proj20000);
 		if(map == null || map.isEmpty()) {
 			map = getSample(map20000);
 			return map;
@@ -108,7 +118,7 @@ public class DeepLearnHelper {
 	}
 	
 	static public Map<String, Object> getSample30000(String cid){
-		Map<String, Object> map = cache30000.getMap(cid);
+		Map<String, Object> map = cache30000.getMap(cid, proj30000);
 		if(map == null || map.isEmpty()) {
 			map = getSample(map30000);
 			return map;
@@ -119,7 +129,7 @@ public class DeepLearnHelper {
 	}
 	
 	static public Map<String, Object> getSample40000(String cid){
-		Map<String, Object> map = cache40000.getMap(cid);
+		Map<String, Object> map = cache40000.getMap(cid, proj40000);
 		if(map == null || map.isEmpty()) {
 			map = getSample(map40000);
 			return map;
@@ -1,5 +1,8 @@
 package spacex.astroreader.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 
@@ -37,8 +40,12 @@ public class ReaderController {
 		}
 		
 		MultipartObject obj = multiobj[0];
-		byte[] raw = obj.getBytes();
-		FileType ftype = FileType.fromBytes(raw);
+		FileType ftype;
+		try(InputStream in = obj.getInputStream()) {
+			ftype = FileType.fromBytes(in.readNBytes(16));
+		}catch(IOException e) {
+			throw new ErrorCodeException(700010, e);
+		}
 		if(ftype != FileType.UNKNOWN) {
 			throw new ErrorCodeException(700001, "filetype.error");
 		}
@@ -50,9 +57,9 @@ public class ReaderController {
 			bookName = parts[0];			
 		}
 		try {
-			String txt = new String(raw, encode);
+			Charset charset = Charset.forName(encode);
 			IUser user = TransData.getCurrentUser();
-			ReaderHelper.saveBook(user, bookName, author, txt);			
+			ReaderHelper.saveBook(user, bookName, author, obj::getInputStream, charset);
 			List<Map<String, Object>> books = ReaderHelper.getUserBooks(user);
 			TransData.set("Books", books);
 		}catch(Exception e) {
@@ -61,6 +68,13 @@ public class ReaderController {
 		}
 	}
 	
+	@ResponseBody
+	@RequestMapping("/uploadprogress")
+	public void uploadProgress() {
+		IUser user = TransData.getCurrentUser();
+		TransData.set("Progress", ReaderHelper.getUploadProgress(user));
+	}
+	
 	@ResponseBody
 	@RequestMapping("/listbooks")
 	public void listBooks() {
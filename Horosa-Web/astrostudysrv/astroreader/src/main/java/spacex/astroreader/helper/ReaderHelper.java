@@ -1,18 +1,27 @@
 package spacex.astroreader.helper;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import boundless.io.FileUtility;
 import boundless.log.AppLoggers;
 import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
 import boundless.types.ICache;
 import boundless.types.OutParameter;
 import boundless.types.Tuple4;
@@ -31,103 +40,233 @@ public class ReaderHelper {
 	static private ICache cacheBooks = CacheFactory.getCache("books");
 	static private ICache cacheShelf = CacheFactory.getCache("userbooks");
 	
+	private static final String Numerals = "0123456789〇零一二三四五六七八九十两百千万";
+	private static final Pattern ChapterPattern = Pattern.compile("^\\s{0,2}(([\\S]{0,8})|正文\\s{0,2})第(([" + Numerals + "]{1,10})([章节卷集部篇回讲季\\.]{1,1})(.{0,32})|([" + Numerals + "]{1,10})(\\s{0,4})(.{0,32}))(\\s*)$");
+	private static final Pattern NumberedChapterPattern = Pattern.compile("^([" + Numerals + "]{1,10})([章节卷集部篇回讲季\\.]{0,1})(、|([\\s]{1,2}))(.{0,32})(\\s*)");
+	/**
+	 * ChapterPattern中“第”之前最多2个空白加8个字符
+	 */
+	private static final int ChapterPrefixMax = 10;
+
+	/**
+	 * 章节批量写入的条数与字数上限，任一达到即写入
+	 */
+	private static final int ChapterBatchSize = PropertyPlaceholder.getPropertyAsInt("reader.chapter.batch.size", 64);
+	private static final int ChapterBatchWords = PropertyPlaceholder.getPropertyAsInt("reader.chapter.batch.words", 1024 * 1024);
+
+	/**
+	 * books的keyfield为_id
+	 */
+	private static final String ChapterKeyField = "_id";
+
+	private static Map<String, Map<String, Object>> uploadProgress = new ConcurrentHashMap<String, Map<String, Object>>();
+
+	interface BookSource {
+		BufferedReader open() throws IOException;
+	}
+
+	/**
+	 * 从上传的字节流按charset解码，无法解码的字节替换为U+FFFD，与new String(bytes, charset)一致
+	 */
+	static BookSource streamSource(Supplier<InputStream> input, Charset charset) {
+		return ()->{
+			CharsetDecoder decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			return new BufferedReader(new InputStreamReader(input.get(), decoder));
+		};
+	}
+
+	/**
+	 * 正则匹配前先用“第”的位置与首字符筛掉绝大多数正文行
+	 */
 	private static boolean isNewChapter(String bookName, String line) {
-		String pattern = "^\\s{0,2}(([\\S]{0,8})|正文\\s{0,2})第(([0123456789〇零一二三四五六七八九十两百千万]{1,10})([章节卷集部篇回讲季\\.]{1,1})(.{0,32})|([0123456789〇零一二三四五六七八九十两百千万]{1,10})(\\s{0,4})(.{0,32}))(\\s*)$";
-		Pattern p = Pattern.compile(pattern);
-		Matcher matcher = p.matcher(line);
-		boolean flag = matcher.find();
-		if(!flag && !StringUtility.isNullOrEmpty(bookName)) {
+		int idx = line.indexOf('第');
+		if(idx >= 0 && idx <= ChapterPrefixMax && ChapterPattern.matcher(line).find()) {
+			return true;
+		}
+		if(!StringUtility.isNullOrEmpty(bookName)) {
 			int len = bookName.length() + 8;
-			if(line.trim().startsWith(bookName) && line.length() < len) {
+			if(line.length() < len && line.trim().startsWith(bookName)) {
 				return true;
 			}
 		}
-		if(!flag) {
-			pattern = "^([0123456789〇零一二三四五六七八九十两百千万]{1,10})([章节卷集部篇回讲季\\.]{0,1})(、|([\\s]{1,2}))(.{0,32})(\\s*)";
-			p = Pattern.compile(pattern);
-			matcher = p.matcher(line);
-			flag = matcher.find();
+		if(line.isEmpty() || Numerals.indexOf(line.charAt(0)) < 0) {
+			return false;
 		}
-		return flag;
+		return NumberedChapterPattern.matcher(line).find();
 	}
 
-	public static List<Tuple4<String, List<String>, Integer, Integer>> splitChapter(String bookName, String txt, OutParameter<Integer> wordsparam, OutParameter<Integer> chaptersparam) {
-		BufferedReader reader = new BufferedReader(new StringReader(txt));
-		List<Tuple4<String, List<String>, Integer, Integer>> list = new LinkedList<Tuple4<String, List<String>, Integer, Integer>>();
+	/**
+	 * 逐行读取，每分出一章即交给consumer，不保留已分出的章节
+	 * @return 章数
+	 */
+	private static int scanChapters(String bookName, BufferedReader reader, Consumer<Tuple4<String, List<String>, Integer, Integer>> consumer, OutParameter<Integer> wordsparam) throws IOException {
 		int total = 0;
 		int chapters = 0;
-		try {
-			String line = reader.readLine();
-			Tuple4<String, List<String>, Integer, Integer> tuple = new Tuple4<String, List<String>, Integer, Integer>(null, new ArrayList<String>(), 0, 0);
-			while(line != null) {
-				if(isNewChapter(bookName, line)) {
-					if(tuple.item1() != null) {
-						list.add(tuple);	
-						chapters++;
-					}
-					List<String> sb = new ArrayList<String>();
-					sb.add(line);
-					tuple = new Tuple4<String, List<String>, Integer, Integer>(line, sb, 0, 0);
-				}else {
-					tuple.item2().add(line);
-					if(tuple.item1() == null) {
-						if(!StringUtility.isNullOrEmpty(line)) {
-							tuple.item1(line);
-						}
+		String line = reader.readLine();
+		Tuple4<String, List<String>, Integer, Integer> tuple = new Tuple4<String, List<String>, Integer, Integer>(null, new ArrayList<String>(), 0, 0);
+		while(line != null) {
+			if(isNewChapter(bookName, line)) {
+				if(tuple.item1() != null) {
+					consumer.accept(tuple);
+					chapters++;
+				}
+				List<String> sb = new ArrayList<String>();
+				sb.add(line);
+				tuple = new Tuple4<String, List<String>, Integer, Integer>(line, sb, 0, 0);
+			}else {
+				tuple.item2().add(line);
+				if(tuple.item1() == null) {
+					if(!StringUtility.isNullOrEmpty(line)) {
+						tuple.item1(line);
 					}
 				}
-				int cnt = tuple.item3() + 1;
-				tuple.item3(cnt);
-				int linewords = line.length();
-				int words = tuple.item4() + linewords;
-				tuple.item4(words);
-				total += linewords;
-
-				line = reader.readLine();
-			}
-			
-			list.add(tuple);
-			chapters++;
-			
-			if(wordsparam != null) {
-				wordsparam.value = total;
 			}
+			int cnt = tuple.item3() + 1;
+			tuple.item3(cnt);
+			int linewords = line.length();
+			int words = tuple.item4() + linewords;
+			tuple.item4(words);
+			total += linewords;
+
+			line = reader.readLine();
+		}
+
+		consumer.accept(tuple);
+		chapters++;
+
+		if(wordsparam != null) {
+			wordsparam.value = total;
+		}
+		return chapters;
+	}
+
+	public static List<Tuple4<String, List<String>, Integer, Integer>> splitChapter(String bookName, String txt, OutParameter<Integer> wordsparam, OutParameter<Integer> chaptersparam) {
+		List<Tuple4<String, List<String>, Integer, Integer>> list = new ArrayList<Tuple4<String, List<String>, Integer, Integer>>();
+		try(BufferedReader reader = new BufferedReader(new StringReader(txt))) {
+			int chapters = scanChapters(bookName, reader, list::add, wordsparam);
 			if(chaptersparam != null) {
 				chaptersparam.value = chapters;
 			}
 			return list;
-		}catch(Exception e) {
+		}catch(IOException e) {
 			throw new RuntimeException(e);
-		}finally {
+		}
+	}
+
+	static int countWords(BookSource source) throws IOException {
+		int total = 0;
+		try(BufferedReader reader = source.open()) {
+			String line = reader.readLine();
+			while(line != null) {
+				total += line.length();
+				line = reader.readLine();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * 攒够一批章节后一次写入，同时生成目录并回报进度
+	 */
+	static class ChapterWriter {
+		final String bookid;
+		final int totalWords;
+		final Consumer<Map<String, Object>> progress;
+		final List<Map<String, Object>> catalog = new ArrayList<Map<String, Object>>();
+		List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>();
+		int batchWords = 0;
+		int ord = 0;
+		int pos = 0;
+
+		ChapterWriter(String bookid, int totalWords, Consumer<Map<String, Object>> progress) {
+			this.bookid = bookid;
+			this.totalWords = totalWords;
+			this.progress = progress;
+		}
+
+		void add(Tuple4<String, List<String>, Integer, Integer> tuple) {
+			double percent = pos*100.0 / totalWords;
+			percent = Math.floor(percent) + (Math.round(percent*1000) % 1000) * 0.001;
+
+			Map<String, Object> map = new HashMap<String, Object>();
+			String id = getChapterId(bookid, ord);
+			map.put(ChapterKeyField, id);
+			map.put("chapterId", id);
+			map.put("title", tuple.item1());
+			map.put("content", tuple.item2());
+			map.put("lines", tuple.item3());
+			map.put("words", tuple.item4());
+			map.put("ord", ord);
+			map.put("bookId", bookid);
+			map.put("pos", pos);
+			map.put("percent", percent);
+			batch.add(map);
+			batchWords += tuple.item4();
+
+			Map<String, Object> sumap = new HashMap<String, Object>();
+			sumap.put("title", tuple.item1());
+			sumap.put("ord", ord);
+			sumap.put("words", tuple.item4());
+			catalog.add(sumap);
+
+			ord++;
+			pos += tuple.item4();
+			if(batch.size() >= ChapterBatchSize || batchWords >= ChapterBatchWords) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if(batch.isEmpty()) {
+				return;
+			}
+			Map<Object, Map<String, Object>> maps = new LinkedHashMap<Object, Map<String, Object>>(batch.size() * 4 / 3 + 1);
+			for(Map<String, Object> map : batch) {
+				maps.put(map.get("chapterId"), map);
+			}
 			try {
-				reader.close();				
+				write(maps);
 			}catch(Exception e) {
+				QueueLog.error(AppLoggers.ErrorLogger, "txt file error.");
+				for(Map<String, Object> map : batch) {
+					map.remove("content");
+					QueueLog.error(AppLoggers.ErrorLogger, JsonUtility.encodePretty(map));
+				}
+				throw new RuntimeException(e);
+			}
+			batch = new ArrayList<Map<String, Object>>();
+			batchWords = 0;
+
+			if(progress != null) {
+				Map<String, Object> map = new HashMap<String, Object>();
+				map.put("bookId", bookid);
+				map.put("chapters", ord);
+				map.put("words", pos);
+				map.put("totalWords", totalWords);
+				map.put("percent", totalWords == 0 ? 100 : Math.floor(pos * 1000.0 / totalWords) / 10);
+				progress.accept(map);
 			}
 		}
+
+		void write(Map<Object, Map<String, Object>> maps) {
+			cacheBooks.setMaps(maps);
+		}
 	}
-	
-	private static void saveChapter(Tuple4<String, List<String>, Integer, Integer> tuple, int ord, String bookid, int pos, double percent){
-		Map<String, Object> map = new HashMap<String, Object>();
-		String id = getChapterId(bookid, ord);
-		map.put("chapterId", id);
-		map.put("title", tuple.item1());
-		map.put("content", tuple.item2());
-		map.put("lines", tuple.item3());
-		map.put("words", tuple.item4());
-		map.put("ord", ord);
-		map.put("bookId", bookid);
-		map.put("pos", pos);
-		map.put("percent", percent);
-		try {
-			cacheBooks.setMap(id, map);			
-		}catch(Exception e) {
-			map.remove("content");
-			QueueLog.error(AppLoggers.ErrorLogger, "txt file error.");
-			QueueLog.error(AppLoggers.ErrorLogger, JsonUtility.encodePretty(map));
-			throw new RuntimeException(e);
+
+	/**
+	 * 第二遍读取：分章并交给writer写入
+	 * @return 章数
+	 */
+	static int writeChapters(String bookName, BookSource source, ChapterWriter writer) throws IOException {
+		try(BufferedReader reader = source.open()) {
+			int chapters = scanChapters(bookName, reader, writer::add, null);
+			writer.flush();
+			return chapters;
 		}
 	}
-	
+
 	private static Map<String, Object> genBook(String bookname, int words, int chapters, String author) {
 		Map<String, Object> map = new HashMap<String, Object>();
 		String bookid = StringUtility.getUUID();
@@ -171,33 +310,56 @@ public class ReaderHelper {
 	public static void saveBook(IUser user, String bookName, String author, String txt) {
 		saveBook(user.getLoginId(), bookName, author, txt);
 	}
-	
+
 	public static void saveBook(String userid, String bookName, String author, String txt) {
-		OutParameter<Integer> total = new OutParameter<Integer>();
-		OutParameter<Integer> chapters = new OutParameter<Integer>();
-		List<Tuple4<String, List<String>, Integer, Integer>> list = splitChapter(bookName, txt, total, chapters);
-		int words = total.value;
-		int totalchapters = chapters.value;
-		Map<String, Object> book = genBook(bookName, words, totalchapters, author);
+		saveBook(userid, bookName, author, ()->new BufferedReader(new StringReader(txt)), null);
+	}
+
+	/**
+	 * 流式导入：先扫一遍统计字数，再边解码边分章，章节按批写入，内存占用与书的大小无关。
+	 * 导入过程中可通过getUploadProgress查看进度
+	 * @param input 每次调用返回一个从头开始的新流
+	 */
+	public static void saveBook(IUser user, String bookName, String author, Supplier<InputStream> input, Charset charset) {
+		String userid = user.getLoginId();
+		try {
+			saveBook(userid, bookName, author, streamSource(input, charset), (map)->uploadProgress.put(userid, map));
+		}finally {
+			uploadProgress.remove(userid);
+		}
+	}
+
+	public static Map<String, Object> getUploadProgress(IUser user) {
+		return uploadProgress.get(user.getLoginId());
+	}
+
+	private static void saveBook(String userid, String bookName, String author, BookSource source, Consumer<Map<String, Object>> progress) {
+		int words;
+		try {
+			words = countWords(source);
+		}catch(IOException e) {
+			throw new RuntimeException(e);
+		}
+		Map<String, Object> book = genBook(bookName, words, 0, author);
 		String bookid = (String) book.get("bookId");
-		int ord = 0;
-		int pos = 0;
-		List<Map<String, Object>> catalog = new ArrayList<Map<String, Object>>(list.size());
-		for(Tuple4<String, List<String>, Integer, Integer> tuple : list) {
-			double percent = pos*100.0 / words;
-			percent = Math.floor(percent) + (Math.round(percent*1000) % 1000) * 0.001;
-			saveChapter(tuple, ord, bookid, pos, percent);
-			
-			Map<String, Object> sumap = new HashMap<String, Object>();
-			sumap.put("title", tuple.item1());
-			sumap.put("ord", ord);
-			sumap.put("words", tuple.item4());
-			catalog.add(sumap);
-			
-			ord++;
-			pos += tuple.item4();
+		ChapterWriter writer = new ChapterWriter(bookid, words, progress);
+		int totalchapters;
+		try {
+			totalchapters = writeChapters(bookName, source, writer);
+		}catch(Exception e) {
+			try {
+				cacheBooks.remove(new FilterCond("bookId", CondOperator.Eq, bookid));
+			}catch(Exception ex) {
+				QueueLog.error(AppLoggers.ErrorLogger, ex);
+			}
+			if(e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			throw new RuntimeException(e);
 		}
-		
+
+		List<Map<String, Object>> catalog = writer.catalog;
+		book.put("chapters", totalchapters);
 		book.put("catalog", catalog);
 		cacheBooks.setMap(bookid, book);
 		
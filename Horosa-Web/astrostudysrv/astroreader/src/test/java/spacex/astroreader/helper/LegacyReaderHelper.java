@@ -0,0 +1,139 @@
+package spacex.astroreader.helper;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import boundless.types.OutParameter;
+import boundless.types.Tuple4;
+import boundless.utility.StringUtility;
+
+/**
+ * 流式导入之前的分章与章节生成，整本书先解码为String。只用于对照，不写缓存
+ */
+public class LegacyReaderHelper {
+
+	private static boolean isNewChapter(String bookName, String line) {
+		String pattern = "^\\s{0,2}(([\\S]{0,8})|正文\\s{0,2})第(([0123456789〇零一二三四五六七八九十两百千万]{1,10})([章节卷集部篇回讲季\\.]{1,1})(.{0,32})|([0123456789〇零一二三四五六七八九十两百千万]{1,10})(\\s{0,4})(.{0,32}))(\\s*)$";
+		Pattern p = Pattern.compile(pattern);
+		Matcher matcher = p.matcher(line);
+		boolean flag = matcher.find();
+		if(!flag && !StringUtility.isNullOrEmpty(bookName)) {
+			int len = bookName.length() + 8;
+			if(line.trim().startsWith(bookName) && line.length() < len) {
+				return true;
+			}
+		}
+		if(!flag) {
+			pattern = "^([0123456789〇零一二三四五六七八九十两百千万]{1,10})([章节卷集部篇回讲季\\.]{0,1})(、|([\\s]{1,2}))(.{0,32})(\\s*)";
+			p = Pattern.compile(pattern);
+			matcher = p.matcher(line);
+			flag = matcher.find();
+		}
+		return flag;
+	}
+
+	public static List<Tuple4<String, List<String>, Integer, Integer>> splitChapter(String bookName, String txt, OutParameter<Integer> wordsparam, OutParameter<Integer> chaptersparam) {
+		BufferedReader reader = new BufferedReader(new StringReader(txt));
+		List<Tuple4<String, List<String>, Integer, Integer>> list = new LinkedList<Tuple4<String, List<String>, Integer, Integer>>();
+		int total = 0;
+		int chapters = 0;
+		try {
+			String line = reader.readLine();
+			Tuple4<String, List<String>, Integer, Integer> tuple = new Tuple4<String, List<String>, Integer, Integer>(null, new ArrayList<String>(), 0, 0);
+			while(line != null) {
+				if(isNewChapter(bookName, line)) {
+					if(tuple.item1() != null) {
+						list.add(tuple);
+						chapters++;
+					}
+					List<String> sb = new ArrayList<String>();
+					sb.add(line);
+					tuple = new Tuple4<String, List<String>, Integer, Integer>(line, sb, 0, 0);
+				}else {
+					tuple.item2().add(line);
+					if(tuple.item1() == null) {
+						if(!StringUtility.isNullOrEmpty(line)) {
+							tuple.item1(line);
+						}
+					}
+				}
+				int cnt = tuple.item3() + 1;
+				tuple.item3(cnt);
+				int linewords = line.length();
+				int words = tuple.item4() + linewords;
+				tuple.item4(words);
+				total += linewords;
+
+				line = reader.readLine();
+			}
+
+			list.add(tuple);
+			chapters++;
+
+			if(wordsparam != null) {
+				wordsparam.value = total;
+			}
+			if(chaptersparam != null) {
+				chaptersparam.value = chapters;
+			}
+			return list;
+		}catch(Exception e) {
+			throw new RuntimeException(e);
+		}finally {
+			try {
+				reader.close();
+			}catch(Exception e) {
+			}
+		}
+	}
+
+	private static Map<String, Object> chapter(Tuple4<String, List<String>, Integer, Integer> tuple, int ord, String bookid, int pos, double percent){
+		Map<String, Object> map = new HashMap<String, Object>();
+		String id = String.format("%s_%d", bookid, ord);
+		map.put("chapterId", id);
+		map.put("title", tuple.item1());
+		map.put("content", tuple.item2());
+		map.put("lines", tuple.item3());
+		map.put("words", tuple.item4());
+		map.put("ord", ord);
+		map.put("bookId", bookid);
+		map.put("pos", pos);
+		map.put("percent", percent);
+		return map;
+	}
+
+	/**
+	 * 旧saveBook中除写缓存外的部分：章节依次放入chapters，目录放入catalog
+	 * @return 总字数
+	 */
+	public static int saveBook(String bookName, String txt, String bookid, List<Map<String, Object>> chapters, List<Map<String, Object>> catalog) {
+		OutParameter<Integer> total = new OutParameter<Integer>();
+		List<Tuple4<String, List<String>, Integer, Integer>> list = splitChapter(bookName, txt, total, null);
+		int words = total.value;
+		int ord = 0;
+		int pos = 0;
+		for(Tuple4<String, List<String>, Integer, Integer> tuple : list) {
+			double percent = pos*100.0 / words;
+			percent = Math.floor(percent) + (Math.round(percent*1000) % 1000) * 0.001;
+			chapters.add(chapter(tuple, ord, bookid, pos, percent));
+
+			Map<String, Object> sumap = new HashMap<String, Object>();
+			sumap.put("title", tuple.item1());
+			sumap.put("ord", ord);
+			sumap.put("words", tuple.item4());
+			catalog.add(sumap);
+
+			ord++;
+			pos += tuple.item4();
+		}
+		return words;
+	}
+
+}
@@ -0,0 +1,130 @@
+package spacex.astroreader.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import boundless.io.FileUtility;
+import boundless.types.OutParameter;
+import boundless.types.Tuple4;
+
+/**
+ * 流式导入与旧实现（整本解码为String后分章）对照：字数、章节内容、位置、百分比与目录须完全一致
+ */
+public class ReaderHelperTest {
+	private static final String BookName = "星语";
+	private static final String BookId = "book";
+
+	private static class RecordingWriter extends ReaderHelper.ChapterWriter {
+		final List<Map<String, Object>> chapters = new ArrayList<Map<String, Object>>();
+		int flushes = 0;
+
+		RecordingWriter(int totalWords) {
+			super(BookId, totalWords, null);
+		}
+
+		@Override
+		void write(Map<Object, Map<String, Object>> maps) {
+			for(Map.Entry<Object, Map<String, Object>> entry : maps.entrySet()) {
+				Map<String, Object> map = entry.getValue();
+				assertEquals(entry.getKey(), map.get("chapterId"));
+				assertEquals(map.get("chapterId"), map.remove("_id"));
+				chapters.add(map);
+			}
+			flushes++;
+		}
+	}
+
+	private static byte[] fixture(String name) throws Exception {
+		return FileUtility.getBytesFromClassPath("spacex/astroreader/helper/" + name);
+	}
+
+	private static RecordingWriter assertSameAsLegacy(byte[] raw, Charset charset) throws Exception {
+		String txt = new String(raw, charset);
+		List<Map<String, Object>> chapters = new ArrayList<Map<String, Object>>();
+		List<Map<String, Object>> catalog = new ArrayList<Map<String, Object>>();
+		int words = LegacyReaderHelper.saveBook(BookName, txt, BookId, chapters, catalog);
+
+		ReaderHelper.BookSource source = ReaderHelper.streamSource(()->new ByteArrayInputStream(raw), charset);
+		int total = ReaderHelper.countWords(source);
+		RecordingWriter writer = new RecordingWriter(total);
+		int count = ReaderHelper.writeChapters(BookName, source, writer);
+
+		assertEquals(words, total);
+		assertEquals(chapters.size(), count);
+		assertEquals(chapters, writer.chapters);
+		assertEquals(catalog, writer.catalog);
+
+		OutParameter<Integer> oldWords = new OutParameter<Integer>();
+		OutParameter<Integer> newWords = new OutParameter<Integer>();
+		List<Tuple4<String, List<String>, Integer, Integer>> expected = LegacyReaderHelper.splitChapter(BookName, txt, oldWords, null);
+		List<Tuple4<String, List<String>, Integer, Integer>> actual = ReaderHelper.splitChapter(BookName, txt, newWords, null);
+		assertEquals(oldWords.value, newWords.value);
+		assertEquals(expected.size(), actual.size());
+		for(int i=0; i<expected.size(); i++) {
+			assertEquals(expected.get(i).item1(), actual.get(i).item1());
+			assertEquals(expected.get(i).item2(), actual.get(i).item2());
+			assertEquals(expected.get(i).item3(), actual.get(i).item3());
+			assertEquals(expected.get(i).item4(), actual.get(i).item4());
+		}
+		return writer;
+	}
+
+	@Test
+	public void fixtureBooksMatchLegacy() throws Exception {
+		RecordingWriter writer = assertSameAsLegacy(fixture("book-utf8.txt"), StandardCharsets.UTF_8);
+		assertTrue(writer.chapters.size() > 10);
+		assertSameAsLegacy(fixture("book-gbk.txt"), Charset.forName("GBK"));
+	}
+
+	@Test
+	public void emptyFileMatchesLegacy() throws Exception {
+		RecordingWriter writer = assertSameAsLegacy(fixture("empty.txt"), StandardCharsets.UTF_8);
+		assertEquals(1, writer.chapters.size());
+		assertEquals(0, writer.chapters.get(0).get("words"));
+	}
+
+	@Test
+	public void malformedChapterMatchesLegacy() throws Exception {
+		RecordingWriter writer = assertSameAsLegacy(fixture("malformed.txt"), StandardCharsets.UTF_8);
+		boolean replaced = false;
+		for(Map<String, Object> map : writer.catalog) {
+			replaced |= ((String) map.get("title")).indexOf('\uFFFD') >= 0;
+		}
+		assertTrue("invalid bytes in a title must be replaced", replaced);
+		assertSameAsLegacy(fixture("malformed.txt"), Charset.forName("GBK"));
+	}
+
+	@Test
+	public void randomBookAcrossBatchesMatchesLegacy() throws Exception {
+		String[] heads = {"第%d章 ", "  第%d节", "正文 第%d回 ", "%d、", "%d. ", "第%d", BookName + " %d"};
+		String[] body = {"天", "地", "人", "第", "章", "一", "2", " ", "　", "、", "."};
+		Random rnd = new Random(18);
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<400; i++) {
+			sb.append(String.format(heads[rnd.nextInt(heads.length)], i)).append('\n');
+			int lines = rnd.nextInt(6);
+			for(int k=0; k<lines; k++) {
+				int len = rnd.nextInt(60);
+				for(int c=0; c<len; c++) {
+					sb.append(body[rnd.nextInt(body.length)]);
+				}
+				sb.append(rnd.nextInt(10) == 0 ? "\r\n" : "\n");
+			}
+		}
+		byte[] raw = sb.toString().getBytes(StandardCharsets.UTF_8);
+		RecordingWriter writer = assertSameAsLegacy(raw, StandardCharsets.UTF_8);
+		assertTrue("book must span several batches", writer.flushes > 2);
+		assertSameAsLegacy(sb.toString().getBytes("GBK"), Charset.forName("GBK"));
+	}
+
+}
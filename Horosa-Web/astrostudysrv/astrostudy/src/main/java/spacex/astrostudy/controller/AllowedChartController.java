@@ -1,5 +1,6 @@
 package spacex.astrostudy.controller;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -50,4 +51,41 @@ public class AllowedChartController {
 		
 	}
 	
+	/**
+	 * 按名字拼音分页，翻页时带上返回的Next游标
+	 */
+	@ResponseBody
+	@RequestMapping("/allowedcharts/page")
+	public void page(){
+		String creator = null;
+		String token = TransData.getToken();
+		if(token != null && !token.equalsIgnoreCase("null")) {
+			IUser user = PrivilegeHelper.getUser(token);
+			if(user != null) {
+				creator = user.getLoginId();
+			}
+		}
+		String tag = TransData.getValueAsString("tag");
+		String name = TransData.getValueAsString("name");
+		if(StringUtility.isNullOrEmpty(name) || name.equalsIgnoreCase("null")) {
+			name = null;
+			if(StringUtility.isNullOrEmpty(creator)) {
+				TransData.set("List", new LinkedList<Map<String, Object>>());
+				return;
+			}
+		}
+		String afterKey = TransData.containsParam("afterKey") ? TransData.getValueAsString("afterKey") : null;
+		String afterCid = TransData.getValueAsString("afterCid");
+		int size = AstroCacheHelper.chartPageSize(TransData.getPageSize());
+		List<Map<String, Object>> list = AstroCacheHelper.getChartPage(tag, name, creator, afterKey, afterCid, size);
+		TransData.set("List", list);
+		if(!list.isEmpty() && list.size() >= size) {
+			Map<String, Object> last = list.get(list.size() - 1);
+			Map<String, Object> next = new HashMap<String, Object>();
+			next.put("afterKey", AstroCacheHelper.chartCursorKey(last));
+			next.put("afterCid", last.get("cid"));
+			TransData.set("Next", next);
+		}
+	}
+	
 }
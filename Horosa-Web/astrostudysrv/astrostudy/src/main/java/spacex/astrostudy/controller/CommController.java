@@ -1,6 +1,7 @@
 package spacex.astrostudy.controller;
 
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.springframework.stereotype.Controller;
@@ -9,9 +10,12 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import boundless.exception.ErrorCodeException;
 import boundless.spring.help.interceptor.TransData;
+import boundless.types.cache.CacheInvalidationJob;
+import boundless.types.cache.CacheInvalidationJob.Step;
 import boundless.utility.StringUtility;
 import spacex.astrostudy.constants.StemBranch;
 import spacex.astrostudy.helper.AstroCacheHelper;
+import spacex.astrostudy.helper.AstroSrvClient;
 import spacex.astrostudy.helper.BaZiHelper;
 import spacex.astrostudy.helper.BaZiPithyHelper;
 import spacex.astrostudy.helper.CacheHelper;
@@ -39,6 +43,44 @@ public class CommController {
 		TransData.set("total", cnt);
 	}
 	
+	/**
+	 * 与delquerycaches清理相同的缓存，在后台执行，立即返回任务，进度由/common/cachejob查询
+	 */
+	@RequestMapping("/delquerycachesasync")
+	@ResponseBody
+	public void delQueryCachesAsync(){
+		LinkedHashMap<String, Step> steps = new LinkedHashMap<String, Step>();
+		steps.put("/jieqi/", (progress)->CacheHelper.deleteCacheKey("/jieqi/", progress));
+		steps.put("/bazi/", (progress)->CacheHelper.deleteCacheKey("/bazi/", progress));
+		steps.put("predictive", (progress)->AstroCacheHelper.deleteCacheKey());
+		for(String scope : new String[] {"_bazi_", "_liureng_", "_jieqi_", "_chart", "_india_chart"}) {
+			steps.put(scope, (progress)->ParamHashCacheHelper.clearByScope(scope, progress));
+		}
+		CacheInvalidationJob job = CacheInvalidationJob.submit("delquerycaches", steps);
+		TransData.set("job", job.toMap());
+	}
+	
+	@RequestMapping("/cachejob")
+	@ResponseBody
+	public void cacheJob(){
+		String id = TransData.getValueAsString("JobId");
+		if(StringUtility.isNullOrEmpty(id)) {
+			TransData.set("jobs", CacheInvalidationJob.recent());
+			return;
+		}
+		CacheInvalidationJob job = CacheInvalidationJob.get(id);
+		if(job == null) {
+			throw new ErrorCodeException(3333002, "cache.job.not.found");
+		}
+		TransData.set("job", job.toMap());
+	}
+	
+	@RequestMapping("/astrosrvstats")
+	@ResponseBody
+	public void astroSrvStats() {
+		TransData.set("stats", AstroSrvClient.stats());
+	}
+	
 	@RequestMapping("/naying")
 	@ResponseBody
 	public void naying() {
@@ -1,7 +1,10 @@
 package spacex.astrostudy.controller;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.stereotype.Controller;
@@ -10,12 +13,28 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import boundless.exception.ErrorCodeException;
 import boundless.spring.help.interceptor.TransData;
+import boundless.types.KeyValuePair;
 import boundless.utility.JsonUtility;
 import spacex.astrostudy.helper.AstroHelper;
 
 @Controller
 @RequestMapping("/predict")
 public class PredictiveController {
+	private static final Map<String, String> BatchPaths = new HashMap<String, String>();
+
+	static {
+		BatchPaths.put("solararc", AstroHelper.SolarArc);
+		BatchPaths.put("planetaryarc", AstroHelper.PlanetaryArc);
+		BatchPaths.put("dist", AstroHelper.Distribution);
+		BatchPaths.put("agepoint", AstroHelper.AgePoint);
+		BatchPaths.put("solarreturn", AstroHelper.SolarReturn);
+		BatchPaths.put("lunarreturn", AstroHelper.LunarReturn);
+		BatchPaths.put("givenyear", AstroHelper.GivenYear);
+		BatchPaths.put("profection", AstroHelper.Profection);
+		BatchPaths.put("pd", AstroHelper.PrimaryDirection);
+		BatchPaths.put("pdchart", AstroHelper.PrimaryDirectionChart);
+		BatchPaths.put("zr", AstroHelper.ZodiacalRelease);
+	}
 
 	private Map<String, Object> getParams(){
 		Map<String, Object> params = new HashMap<String, Object>();
@@ -213,6 +232,44 @@ public class PredictiveController {
 		TransData.set(res);
 	}
 	
+	/**
+	 * 同一盘的多种推运一次取回，types为推运类型列表，结果按类型返回
+	 */
+	@ResponseBody
+	@RequestMapping("/batch")
+	public void batch(){
+		if(!TransData.containsParam("types")) {
+			throw new ErrorCodeException(200009, "miss.types");
+		}
+		Object typesobj = TransData.get("types");
+		List<String> types;
+		if(typesobj instanceof String) {
+			types = JsonUtility.decodeList((String)typesobj, String.class);
+		}else {
+			types = (List<String>)typesobj;
+		}
+		Map<String, Object> params = getParams();
+		List<String> names = new ArrayList<String>();
+		List<KeyValuePair<String, Map<String, Object>>> reqs = new ArrayList<KeyValuePair<String, Map<String, Object>>>();
+		for(String type : types) {
+			String path = BatchPaths.get(type);
+			if(path == null) {
+				throw new ErrorCodeException(200010, "unsupported.type." + type);
+			}
+			if(names.contains(type)) {
+				continue;
+			}
+			names.add(type);
+			reqs.add(new KeyValuePair<String, Map<String, Object>>(path, new HashMap<String, Object>(params)));
+		}
+		List<Map<String, Object>> list = AstroHelper.requestBatch(reqs);
+		Map<String, Object> res = new LinkedHashMap<String, Object>();
+		for(int i=0; i<names.size(); i++) {
+			res.put(names.get(i), list.get(i));
+		}
+		TransData.set(res);
+	}
+
 	@ResponseBody
 	@RequestMapping("/dice")
 	public void dice(){
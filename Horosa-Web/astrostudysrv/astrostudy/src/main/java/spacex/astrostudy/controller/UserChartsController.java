@@ -44,6 +44,28 @@ public class UserChartsController {
 		}
 	}
 	
+	/**
+	 * 按名字拼音分页，翻页时带上返回的Next游标
+	 */
+	@RequestMapping("/charts/page")
+	@ResponseBody
+	public void chartPage(){
+		IUser user = TransData.getCurrentUser();
+		String tag = TransData.getValueAsString("tag");
+		String afterKey = TransData.containsParam("afterKey") ? TransData.getValueAsString("afterKey") : null;
+		String afterCid = TransData.getValueAsString("afterCid");
+		int size = AstroCacheHelper.chartPageSize(TransData.getPageSize());
+		List<Map<String, Object>> list = AstroCacheHelper.getChartPage(tag, null, user.getLoginId(), afterKey, afterCid, size);
+		TransData.set("List", list);
+		if(!list.isEmpty() && list.size() >= size) {
+			Map<String, Object> last = list.get(list.size() - 1);
+			Map<String, Object> next = new HashMap<String, Object>();
+			next.put("afterKey", AstroCacheHelper.chartCursorKey(last));
+			next.put("afterCid", last.get("cid"));
+			TransData.set("Next", next);
+		}
+	}
+	
 	@RequestMapping("/charts/update")
 	@ResponseBody
 	public void updateChart() {
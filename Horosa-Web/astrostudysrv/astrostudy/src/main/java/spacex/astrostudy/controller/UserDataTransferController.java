@@ -34,6 +34,11 @@ import spacex.astrostudy.service.UserService;
 @RequestMapping("/user")
 public class UserDataTransferController {
 
+	/**
+	 * 导入命盘时每批写入的条数
+	 */
+	private static final int ImportBatchSize = 500;
+
 	@Autowired
 	private UserService service;
 	
@@ -120,6 +125,7 @@ public class UserDataTransferController {
 		}
 		int i=-1;
 		Set<String> tags = new HashSet<String>();
+		List<Map<String, Object>> charts = new ArrayList<Map<String, Object>>(rows.size());
 		for(Object[] row : rows) {
 			i++;
 			if(i == 0) {
@@ -152,11 +158,15 @@ public class UserDataTransferController {
 					}
 				}
 			}
+			charts.add(params);
+		}
+		for(int from=0; from<charts.size(); from+=ImportBatchSize) {
+			List<Map<String, Object>> batch = charts.subList(from, Math.min(charts.size(), from + ImportBatchSize));
 			try {
-				AstroCacheHelper.saveChart(params);				
+				retlist.addAll(AstroCacheHelper.saveCharts(batch));
 			}catch(Exception e) {
 				QueueLog.error(AppLoggers.ErrorLogger, e);
-				retlist.add(params);
+				retlist.addAll(batch);
 			}
 		}
 		service.saveUser(user);
@@ -1,29 +1,42 @@
 package spacex.astrostudy.helper;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import boundless.exception.ErrorCodeException;
 import boundless.log.AppLoggers;
 import boundless.log.QueueLog;
 import boundless.security.SecurityUtility;
+import boundless.spring.help.PropertyPlaceholder;
 import boundless.types.ICache;
 import boundless.types.cache.CacheFactory;
+import boundless.types.cache.FilterAndCond;
 import boundless.types.cache.FilterCond;
 import boundless.types.cache.FilterOrCond;
+import boundless.types.cache.Projection;
 import boundless.types.cache.SortCond;
 import boundless.types.cache.FilterCond.CondOperator;
 import boundless.types.cache.SortCond.SortType;
+import boundless.utility.CalculatePool;
 import boundless.utility.ConvertUtility;
 import boundless.utility.StringUtility;
 import spacex.astrostudy.constants.MemoType;
 import spacex.astrostudy.model.AstroUser;
 
 public class AstroCacheHelper {
-	private static int DefaultLimit = 5000000;
+	public static final String SortKeyField = "sortKey";
+	private static final Projection ListProjection = Projection.include("cid", "name", "tags", "updateTime", SortKeyField);
+	private static final Projection GpsProjection = Projection.include("cid", "gpsLon", "gpsLat", "lon", "lat", "birth", "name", "gender");
+	private static final int PageLimit = PropertyPlaceholder.getPropertyAsInt("chart.page.limit", 1000);
+	private static final int BackfillBatches = PropertyPlaceholder.getPropertyAsInt("chart.sortkey.backfill.batches", 1000);
+	private static final AtomicBoolean sortKeysBackfilled = new AtomicBoolean(false);
 	
 	private static ICache translogCache = CacheFactory.getCache("translogmongo");
 	private static ICache chartCache = CacheFactory.getCache("chart");
@@ -40,6 +53,16 @@ public class AstroCacheHelper {
 			if(translogCache != null) {
 				translogCache.createIndex("tm", true);				
 			}
+			if(chartCache != null) {
+				chartCache.createIndex("creator", false);
+				chartCache.createIndex("updateTime", false);
+				chartCache.createCompoundIndex("creator", SortKeyField, "cid");
+				CalculatePool.queueUserWorkItem(()->{
+					backfillSortKeys();
+				}, (e)->{
+					QueueLog.error(AppLoggers.ErrorLogger, e);
+				});
+			}
 		}catch(Exception e) {
 			QueueLog.error(AppLoggers.ErrorLogger, e);
 		}
@@ -140,46 +163,162 @@ public class AstroCacheHelper {
 	}
 	
 	public static List<Map<String, Object>> getCharts(String tag, String name, String creator){
-		if(StringUtility.isNullOrEmpty(creator)) {
-			return getCharts(tag, name);
+		return collectCharts(chartConds(tag, name, creator));
+	}
+	
+	/**
+	 * 命盘的排序键：名字的无声调小写拼音，空名为空串，排在最前
+	 */
+	public static String chartSortKey(Object name) {
+		if(name == null) {
+			return "";
 		}
-		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(DefaultLimit);
+		return StringUtility.toPinYin(name.toString());
+	}
+	
+	/**
+	 * 作为翻页游标的排序键，补齐之前没有sortKey的命盘按空串处理
+	 */
+	public static String chartCursorKey(Map<String, Object> chart) {
+		Object key = chart.get(SortKeyField);
+		return key == null ? "" : key.toString();
+	}
+	
+	/**
+	 * 按排序键分页列出命盘，游标为上一页最后一条的sortKey与cid，首页传null。
+	 * 只返回列表所需字段cid、name、tags、updateTime及游标用的sortKey
+	 * @param limit 每页条数，不超过chart.page.limit
+	 * @param name 为null时列出creator的命盘，否则按名字查找公开的及creator的命盘
+	 */
+	public static List<Map<String, Object>> getChartPage(String tag, String name, String creator, String afterKey, String afterCid, int limit){
+		int sz = chartPageSize(limit);
+		FilterCond[] conds = chartConds(tag, name, creator);
+		return chartCache.findValues(sz, chartSort(), ListProjection, afterCursor(conds, afterKey, afterCid));
+	}
+	
+	public static int chartPageSize(int limit) {
+		return limit <= 0 || limit > PageLimit ? PageLimit : limit;
+	}
+	
+	/**
+	 * 按排序键逐页读取完整命盘交给consumer，内存中只保留一页。
+	 * 游标没有前进时（不应发生）记日志后停止，以免反复读同一页
+	 */
+	public static void forEachChartPage(FilterCond[] conds, Consumer<List<Map<String, Object>>> consumer) {
+		String afterKey = null;
+		String afterCid = null;
 		int sz = 0;
-		long updtm = 0;
 		do {
-			List<Map<String, Object>> list = getCharts(tag, name, creator, DefaultLimit, updtm);
-			res.addAll(list);
+			List<Map<String, Object>> list = chartCache.findValues(PageLimit, chartSort(), afterCursor(conds, afterKey, afterCid));
 			sz = list.size();
-			if(sz == DefaultLimit) {
-				Map<String, Object> map = (Map<String, Object>) list.get(sz - 1);
-				updtm = (long) map.get("updateTime");
+			if(sz == 0) {
+				break;
 			}
-		}while(sz == DefaultLimit);
-		
-		sortCharts(res);
+			consumer.accept(list);
+			Map<String, Object> last = list.get(sz - 1);
+			String key = chartCursorKey(last);
+			String cid = ConvertUtility.getValueAsString(last.get("cid"));
+			if(key.equals(afterKey) && (cid == null ? afterCid == null : cid.equals(afterCid))) {
+				QueueLog.warn(AppLoggers.WarnLogger, "chart page cursor not advancing at sortKey {} cid {}", key, cid);
+				break;
+			}
+			afterKey = key;
+			afterCid = cid;
+		}while(sz == PageLimit);
+	}
+	
+	private static List<Map<String, Object>> collectCharts(FilterCond[] conds) {
+		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>();
+		forEachChartPage(conds, res::addAll);
 		return res;
 	}
 	
-	public static void sortCharts(List<Map<String, Object>> res) {
-		res.sort((e1, e2)->{
-			String name1 = (String) e1.get("name");
-			String name2 = (String) e2.get("name");
-			if(StringUtility.isNullOrEmpty(name1)) {
-				if(StringUtility.isNullOrEmpty(name2)) {
-					return 0;
-				}else {
-					return -1;
-				}
+	private static FilterCond[] chartConds(String tag, String name, String creator) {
+		List<FilterCond> conds = new ArrayList<FilterCond>();
+		if(name == null) {
+			conds.add(new FilterCond("creator", CondOperator.Eq, creator));
+		}else {
+			Pattern pattern = Pattern.compile(name, Pattern.CASE_INSENSITIVE);
+			conds.add(new FilterCond("name", CondOperator.Like, pattern));
+			FilterCond pubCond = new FilterCond("isPub", CondOperator.Eq, 1);
+			if(StringUtility.isNullOrEmpty(creator)) {
+				conds.add(pubCond);
 			}else {
-				if(StringUtility.isNullOrEmpty(name2)) {
-					return 1;
-				}else {
-					String py1 = StringUtility.toPinYin(name1);
-					String py2 = StringUtility.toPinYin(name2);
-					return py1.compareTo(py2);
+				conds.add(new FilterOrCond(pubCond, new FilterCond("creator", CondOperator.Eq, creator)));
+			}
+		}
+		if(!StringUtility.isNullOrEmpty(tag) && !tag.equalsIgnoreCase("null")) {
+			Pattern tagpattern = Pattern.compile(tag, Pattern.CASE_INSENSITIVE);
+			conds.add(new FilterCond("tags", CondOperator.Like, tagpattern));
+		}
+		return conds.toArray(new FilterCond[conds.size()]);
+	}
+	
+	private static SortCond chartSort() {
+		SortCond sort = new SortCond(SortKeyField, SortType.Asc);
+		sort.and(new SortCond("cid", SortType.Asc));
+		return sort;
+	}
+	
+	private static FilterCond[] afterCursor(FilterCond[] conds, String afterKey, String afterCid) {
+		if(afterKey == null) {
+			return conds;
+		}
+		FilterCond keyCond = new FilterCond(SortKeyField, CondOperator.Gt, afterKey);
+		FilterCond sameKey = new FilterAndCond(new FilterCond(SortKeyField, CondOperator.Eq, afterKey), 
+				new FilterCond("cid", CondOperator.Gt, afterCid == null ? "" : afterCid));
+		FilterCond[] res = Arrays.copyOf(conds, conds.length + 1);
+		res[conds.length] = new FilterOrCond(keyCond, sameKey);
+		return res;
+	}
+	
+	/**
+	 * 给保存排序键之前写入的命盘补上sortKey，每个进程只执行一次，启动时在后台调用。
+	 * 按cid递增逐批处理，最多chart.sortkey.backfill.batches批；
+	 * 没有cid的命盘查不到，写入失败的记日志后跳过，游标已越过它们，不会反复处理
+	 * @return 补齐的条数，已执行过时返回0
+	 */
+	public static int backfillSortKeys() {
+		if(chartCache == null || !sortKeysBackfilled.compareAndSet(false, true)) {
+			return 0;
+		}
+		FilterCond missing = new FilterCond(SortKeyField, CondOperator.Exists, false);
+		SortCond sort = new SortCond("cid", SortType.Asc);
+		Projection proj = Projection.include("cid", "name");
+		String afterCid = "";
+		int fixed = 0;
+		int skipped = 0;
+		for(int batch=0; batch<BackfillBatches; batch++) {
+			List<Map<String, Object>> list = chartCache.findValues(PageLimit, sort, proj, missing, new FilterCond("cid", CondOperator.Gt, afterCid));
+			for(Map<String, Object> chart : list) {
+				Object cid = chart.get("cid");
+				afterCid = ConvertUtility.getValueAsString(cid);
+				try {
+					chartCache.putFieldValue(cid, SortKeyField, chartSortKey(chart.get("name")));
+					fixed++;
+				}catch(Exception e) {
+					skipped++;
+					QueueLog.error(AppLoggers.ErrorLogger, "chart {} sortKey backfill failed: {}", cid, e.getMessage());
 				}
 			}
-		});		
+			if(list.size() < PageLimit) {
+				QueueLog.info(AppLoggers.InfoLogger, "chart sortKey backfill done, {} fixed, {} skipped", fixed, skipped);
+				return fixed;
+			}
+		}
+		QueueLog.warn(AppLoggers.WarnLogger, "chart sortKey backfill stopped after {} batches at cid {}, {} fixed, {} skipped", BackfillBatches, afterCid, fixed, skipped);
+		return fixed;
+	}
+	
+	/**
+	 * 每次保存都写sortKey，没有名字的为空串；只更新部分字段时按已保存的名字计算
+	 */
+	private static void setSortKey(Map<String, Object> chart, Map<String, Object> oldchart) {
+		Object name = chart.get("name");
+		if(!chart.containsKey("name") && oldchart != null) {
+			name = oldchart.get("name");
+		}
+		chart.put(SortKeyField, chartSortKey(name));
 	}
 	
 	public static Map<String, Object> getChart(String cid){
@@ -189,57 +328,15 @@ public class AstroCacheHelper {
 	}
 	
 	public static List<Map<String, Object>> getChartsByCreator(String creator){
-		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(DefaultLimit);
-		int sz = 0;
-		long updtm = 0;
-		do {
-			List<Map<String, Object>> list = getChartsByCreator(null, creator, DefaultLimit, updtm);
-			res.addAll(list);
-			sz = list.size();
-			if(sz == DefaultLimit) {
-				Map<String, Object> map = (Map<String, Object>) list.get(sz - 1);
-				updtm = (long) map.get("updateTime");
-			}
-		}while(sz == DefaultLimit);
-		
-		sortCharts(res);
-		return res;
+		return collectCharts(chartConds(null, null, creator));
 	}
 	
 	public static List<Map<String, Object>> getChartsByCreator(String tag, String creator){
-		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(DefaultLimit);
-		int sz = 0;
-		long updtm = 0;
-		do {
-			List<Map<String, Object>> list = getChartsByCreator(tag, creator, DefaultLimit, updtm);
-			res.addAll(list);
-			sz = list.size();
-			if(sz == DefaultLimit) {
-				Map<String, Object> map = (Map<String, Object>) list.get(sz - 1);
-				updtm = (long) map.get("updateTime");
-			}
-		}while(sz == DefaultLimit);
-		
-		sortCharts(res);
-		return res;
+		return collectCharts(chartConds(tag, null, creator));
 	}
 	
 	public static List<Map<String, Object>> getCharts(String tag, String name){
-		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(DefaultLimit);
-		int sz = 0;
-		long updtm = 0;
-		do {
-			List<Map<String, Object>> list = getCharts(tag, name, DefaultLimit, updtm);
-			res.addAll(list);
-			sz = list.size();
-			if(sz == DefaultLimit) {
-				Map<String, Object> map = (Map<String, Object>) list.get(sz - 1);
-				updtm = (long) map.get("updateTime");
-			}
-		}while(sz == DefaultLimit);
-		
-		sortCharts(res);
-		return res;
+		return collectCharts(chartConds(tag, name, null));
 	}
 	
 	public static AstroUser getUser(String loginId, String pwd) {
@@ -267,10 +364,10 @@ public class AstroCacheHelper {
 		List<Map<String, Object>> list = null;
 		SortCond sort = new SortCond("uid", SortType.Asc);
 		if(StringUtility.isNullOrEmpty(uid)) {
-			list = userCache.findValues(sort);
+			list = userCache.findValues(-1, sort, Projection.include("uid"));
 		}else {
 			FilterCond idCond = new FilterCond("uid", CondOperator.Like, uid);
-			list = userCache.findValues(sort, idCond);			
+			list = userCache.findValues(-1, sort, Projection.include("uid"), idCond);			
 		}
 		List<String> res = new ArrayList<String>(list.size());
 		for(Map<String, Object> map : list) {
@@ -301,7 +398,7 @@ public class AstroCacheHelper {
 		}
 		FilterCond[] aryconds = new FilterCond[conds.size()];
 		conds.toArray(aryconds);
-		list = userCache.findValues(sort, aryconds);	
+		list = userCache.findValues(-1, sort, Projection.include("uid", "admin", "privilege"), aryconds);	
 		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(list.size());
 		if(privi != null) {
 			for(Map<String, Object> map : list) {
@@ -360,9 +457,56 @@ public class AstroCacheHelper {
 			}
 			oldchart.putAll(chart);
 		}
+		setSortKey(chart, oldchart);
 		chartCache.setMap(key, chart);
 	}
-	
+
+	/**
+	 * 批量保存命盘：一次查出已存在的命盘核对创建者，其余用一次setMaps写入。
+	 * 批量写入出错时逐个重写，以找出具体失败的命盘
+	 * @return 不属于创建者或写入失败的命盘
+	 */
+	public static List<Map<String, Object>> saveCharts(List<Map<String, Object>> charts) {
+		List<Map<String, Object>> failed = new ArrayList<Map<String, Object>>();
+		if(charts.isEmpty()) {
+			return failed;
+		}
+		List<Object> cids = new ArrayList<Object>(charts.size());
+		for(Map<String, Object> chart : charts) {
+			cids.add(chart.get("cid"));
+		}
+		Map<String, Map<String, Object>> olds = new HashMap<String, Map<String, Object>>();
+		for(Map<String, Object> oldchart : chartCache.findValues(new FilterCond("cid", CondOperator.In, cids))) {
+			olds.put((String) oldchart.get("cid"), oldchart);
+		}
+		Map<Object, Map<String, Object>> maps = new LinkedHashMap<Object, Map<String, Object>>(charts.size() * 4 / 3 + 1);
+		for(Map<String, Object> chart : charts) {
+			String key = (String) chart.get("cid");
+			String creator = (String) chart.get("creator");
+			Map<String, Object> oldchart = olds.get(key);
+			if(oldchart != null && !creator.equalsIgnoreCase((String) oldchart.get("creator"))) {
+				failed.add(chart);
+				continue;
+			}
+			setSortKey(chart, oldchart);
+			maps.put(key, chart);
+		}
+		try {
+			chartCache.setMaps(maps);
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+			for(Map.Entry<Object, Map<String, Object>> entry : maps.entrySet()) {
+				try {
+					chartCache.setMap(entry.getKey(), entry.getValue());
+				}catch(Exception ex) {
+					QueueLog.error(AppLoggers.ErrorLogger, ex);
+					failed.add(entry.getValue());
+				}
+			}
+		}
+		return failed;
+	}
+
 	public static void saveMemo(String cid, int type, String memo, String uid) {
 		Map<String, Object> oldchart = getChart(cid);
 		if(oldchart != null) {
@@ -448,7 +592,7 @@ public class AstroCacheHelper {
 	public static Map<String, Object> getFirstChart(){
 		ICache cache = AstroCacheHelper.getChartCache();
 		SortCond sort = new SortCond("updateTime", SortType.Asc);
-		List<Map<String, Object>> list = cache.findValues(1, sort);
+		List<Map<String, Object>> list = cache.findValues(1, sort, Projection.include("cid", "updateTime"));
 		if(list.isEmpty()) {
 			return null;
 		}
@@ -470,13 +614,13 @@ public class AstroCacheHelper {
 		FilterCond tmcond = new FilterCond("updateTime", CondOperator.Gte, tm);
 		FilterCond edtmcond = new FilterCond("updateTime", CondOperator.Lt, edtm);
 
-		return cache.findValues(sort, tmcond, edtmcond);
+		return cache.findValues(-1, sort, GpsProjection, tmcond, edtmcond);
 	}
 	
 	public static Map<String, Object> getFirstChartByCid(){
 		ICache cache = AstroCacheHelper.getChartCache();
 		SortCond sort = new SortCond("cid", SortType.Asc);
-		List<Map<String, Object>> list = cache.findValues(1, sort);
+		List<Map<String, Object>> list = cache.findValues(1, sort, Projection.include("cid"));
 		if(list.isEmpty()) {
 			return null;
 		}
@@ -496,7 +640,7 @@ public class AstroCacheHelper {
 		SortCond sort = new SortCond("cid", SortType.Asc);
 		FilterCond cond = new FilterCond("cid", CondOperator.Gt, id);
 
-		return cache.findValues(limit, sort, cond);
+		return cache.findValues(limit, sort, GpsProjection, cond);
 	}
 	
 	
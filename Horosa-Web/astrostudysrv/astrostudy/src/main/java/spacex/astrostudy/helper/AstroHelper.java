@@ -1,17 +1,27 @@
 package spacex.astrostudy.helper;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import boundless.exception.ErrorCodeException;
-import boundless.net.http.HttpClientUtility;
 import boundless.spring.help.PropertyPlaceholder;
-import boundless.utility.JsonUtility;
+import boundless.types.KeyValuePair;
+import boundless.utility.CalculatePool;
+import boundless.utility.MetricsRegistry;
 
 public class AstroHelper {
 	private static final boolean Debug = PropertyPlaceholder.getPropertyAsBool("devmode", false);
 	private static final boolean DisableRequestCache = PropertyPlaceholder.getPropertyAsBool("astrohelper.disable.request.cache", false);
 	private static final int RequestCacheExpInSec = PropertyPlaceholder.getPropertyAsInt("astrohelper.request.cache.expireinsecond", 86400);
+	private static final int BatchParallel = Math.max(1, PropertyPlaceholder.getPropertyAsInt("astrosrv.batch.parallel", 4));
+	private static final int BatchWaitMs = PropertyPlaceholder.getPropertyAsInt("astrosrv.batch.wait.ms", 120000);
 
 	public static final String AstroSrvUrl = PropertyPlaceholder.getProperty("astrosrv", "http://127.0.0.1:8899");
 	public static final String SolarReturn = PropertyPlaceholder.getProperty("solarreturn", "/predict/solarreturn");
@@ -54,19 +64,120 @@ public class AstroHelper {
 		if(Debug || DisableRequestCache) {
 			return requestNoCache(path, params);
 		}
-		Object obj = ParamHashCacheHelper.get(path, params, (args)->{
-			return requestNoCache(path, args);
-		}, RequestCacheExpInSec);
-		return (Map<String, Object>)obj;
+		long st = System.nanoTime();
+		boolean[] miss = new boolean[1];
+		boolean error = true;
+		try {
+			Object obj = ParamHashCacheHelper.get(path, params, (args)->{
+				miss[0] = true;
+				return requestNoCache(path, args);
+			}, RequestCacheExpInSec);
+			error = false;
+			return (Map<String, Object>)obj;
+		}finally {
+			// 命中缓存与回源astrosrv分开记录
+			MetricsRegistry.latency((miss[0] ? "astro.miss:" : "astro.hit:") + path).recordNanos(System.nanoTime() - st, error);
+		}
 	}
 	
+	/**
+	 * 批量请求：缓存用一次批量读取，未命中的项以有限并发发往astrosrv
+	 * @param reqs 每项为路径与参数
+	 * @return 与reqs顺序一致的结果
+	 */
+	public static List<Map<String, Object>> requestBatch(List<KeyValuePair<String, Map<String, Object>>> reqs){
+		List<Object> list;
+		if(Debug || DisableRequestCache) {
+			List<Integer> idxs = new ArrayList<Integer>(reqs.size());
+			for(int i=0; i<reqs.size(); i++) {
+				idxs.add(i);
+			}
+			list = fanOut(reqs, idxs);
+		}else {
+			list = ParamHashCacheHelper.getBatch(reqs, (idxs)->{
+				return fanOut(reqs, idxs);
+			}, RequestCacheExpInSec);
+		}
+		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(list.size());
+		for(Object obj : list) {
+			res.add((Map<String, Object>)obj);
+		}
+		return res;
+	}
+
+	/**
+	 * astrosrv没有批量接口，这里由调用线程与至多BatchParallel-1个后台任务共同消费下标，
+	 * 后台任务被拒绝或还没开始时调用线程独自做完，只等待已在执行的后台任务；任一项失败则整批失败
+	 */
+	private static List<Object> fanOut(List<KeyValuePair<String, Map<String, Object>>> reqs, List<Integer> idxs){
+		int n = idxs.size();
+		Object[] res = new Object[n];
+		AtomicInteger cursor = new AtomicInteger();
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Runnable worker = ()->{
+			int i;
+			while(error.get() == null && (i = cursor.getAndIncrement()) < n) {
+				try {
+					KeyValuePair<String, Map<String, Object>> item = reqs.get(idxs.get(i));
+					res[i] = requestNoCache(item.getKey(), item.getValue());
+				}catch(Throwable e) {
+					error.compareAndSet(null, e);
+				}
+			}
+		};
+		int helpers = Math.min(BatchParallel, n) - 1;
+		CountDownLatch done = new CountDownLatch(helpers);
+		// 每个后台任务只由先认领者计数一次：任务自己开始执行、被计算池拒绝，或调用线程做完后发现它还没开始
+		AtomicBoolean[] claimed = new AtomicBoolean[helpers];
+		for(int k=0; k<helpers; k++) {
+			AtomicBoolean claim = new AtomicBoolean();
+			claimed[k] = claim;
+			CalculatePool.queueUserWorkItem(()->{
+				if(!claim.compareAndSet(false, true)) {
+					return;
+				}
+				try {
+					worker.run();
+				}finally {
+					done.countDown();
+				}
+			}, (ex)->{
+				if(claim.compareAndSet(false, true)) {
+					done.countDown();
+				}
+			});
+		}
+		worker.run();
+		for(AtomicBoolean claim : claimed) {
+			if(claim.compareAndSet(false, true)) {
+				done.countDown();
+			}
+		}
+		try {
+			if(!done.await(BatchWaitMs, TimeUnit.MILLISECONDS)) {
+				throw new ErrorCodeException(200001, "astrosrv batch timeout");
+			}
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		Throwable e = error.get();
+		if(e instanceof RuntimeException) {
+			throw (RuntimeException)e;
+		}
+		if(e != null) {
+			throw new RuntimeException(e);
+		}
+		List<Object> list = new ArrayList<Object>(n);
+		Collections.addAll(list, res);
+		return list;
+	}
+
 	public static Map<String, Object> requestNoCache(String path, Map<String, Object> params){
-		String url = String.format("%s%s", AstroSrvUrl, path);
-		String jsonData = JsonUtility.encode(params);
-		Map<String, String> headers = new HashMap<String, String>();
-		Map<String, String> respHeadMap = new HashMap<String, String>();
-		String str = HttpClientUtility.uploadString(url, headers, "application/json; charset=UTF-8", jsonData, respHeadMap);
-		Map<String, Object> jsonres = JsonUtility.toDictionary(str);
+		Map<String, Object> jsonres = AstroSrvClient.post(AstroSrvUrl, path, params);
+		if(jsonres == null) {
+			throw new ErrorCodeException(200001, "empty response from astrosrv " + path);
+		}
 		if(jsonres.containsKey("err")) {
 			throw new ErrorCodeException(200001, jsonres.get("err").toString());
 		}
@@ -0,0 +1,131 @@
+package spacex.astrostudy.helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import boundless.exception.ErrorCodeException;
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
+import boundless.utility.JsonUtility;
+import boundless.utility.LatencyHistogram;
+import boundless.utility.MetricsRegistry;
+
+/**
+ * 到python astrosrv的专用http客户端。
+ * 共用一个带keep-alive的连接池，请求参数直接编码为字节，响应从连接流上直接解码，
+ * 不经过中间字符串；按路径统计耗时直方图。
+ */
+public class AstroSrvClient {
+	private static final int PoolMax = PropertyPlaceholder.getPropertyAsInt("astrosrv.pool.max", 64);
+	private static final int ConnectTimeoutMS = PropertyPlaceholder.getPropertyAsInt("astrosrv.connect.timeoutms", 3000);
+	private static final int SocketTimeoutMS = PropertyPlaceholder.getPropertyAsInt("astrosrv.socket.timeoutms", 120000);
+	private static final int KeepAliveMS = PropertyPlaceholder.getPropertyAsInt("astrosrv.keepalive.ms", 30000);
+	private static final boolean Gzip = PropertyPlaceholder.getPropertyAsBool("astrosrv.gzip", false);
+
+	private static final PoolingHttpClientConnectionManager Pool;
+	private static final CloseableHttpClient Client;
+	private static final ConcurrentHashMap<String, LatencyHistogram> Latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	static {
+		Pool = new PoolingHttpClientConnectionManager(KeepAliveMS, TimeUnit.MILLISECONDS);
+		Pool.setMaxTotal(PoolMax);
+		Pool.setDefaultMaxPerRoute(PoolMax);
+		Pool.setValidateAfterInactivity(2000);
+
+		RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(ConnectTimeoutMS)
+				.setConnectionRequestTimeout(SocketTimeoutMS)
+				.setSocketTimeout(SocketTimeoutMS)
+				.build();
+		HttpClientBuilder builder = HttpClientBuilder.create()
+				.setConnectionManager(Pool)
+				.setDefaultRequestConfig(config)
+				.setKeepAliveStrategy((response, context)->{
+					long ms = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+					return ms > 0 ? Math.min(ms, KeepAliveMS) : KeepAliveMS;
+				})
+				.evictExpiredConnections()
+				.evictIdleConnections(KeepAliveMS, TimeUnit.MILLISECONDS);
+		if(!Gzip) {
+			builder.disableContentCompression();
+		}
+		Client = builder.build();
+		MetricsRegistry.registerSource("astrosrv", AstroSrvClient::stats);
+	}
+
+	private AstroSrvClient() {
+	}
+
+	public static Map<String, Object> post(String baseUrl, String path, Map<String, Object> params) {
+		long st = System.currentTimeMillis();
+		boolean error = true;
+		HttpPost post = new HttpPost(baseUrl + path);
+		try {
+			ByteArrayOutputStream body = new ByteArrayOutputStream(512);
+			JsonUtility.encode(params, body);
+			post.setEntity(new ByteArrayEntity(body.toByteArray(), ContentType.APPLICATION_JSON));
+			try(CloseableHttpResponse response = Client.execute(post)) {
+				HttpEntity entity = response.getEntity();
+				int statcode = response.getStatusLine().getStatusCode();
+				if(statcode != 200) {
+					String errmsg = entity == null ? null : EntityUtils.toString(entity, "UTF-8");
+					if(errmsg == null || errmsg.isEmpty()) {
+						errmsg = String.format("Failed : HTTP error code : %d\treason : %s", statcode, response.getStatusLine().getReasonPhrase());
+					}
+					throw new ErrorCodeException(statcode, errmsg);
+				}
+				if(entity == null) {
+					throw new ErrorCodeException(200001, "empty response from astrosrv " + path);
+				}
+				Map<String, Object> res;
+				try(InputStream in = entity.getContent()) {
+					res = JsonUtility.decode(in, Map.class);
+				}
+				error = false;
+				return res;
+			}
+		}catch(ErrorCodeException e) {
+			throw e;
+		}catch(Exception e) {
+			post.abort();
+			QueueLog.error(AppLoggers.ErrorLogger, "astrosrv {} failed: {}", path, e.getMessage());
+			throw new RuntimeException(e);
+		}finally {
+			latency(path).record(System.currentTimeMillis() - st, error);
+		}
+	}
+
+	public static LatencyHistogram latency(String path) {
+		return Latencies.computeIfAbsent(path, (k)->new LatencyHistogram());
+	}
+
+	/**
+	 * @return 每个路径的耗时统计，以及连接池状态
+	 */
+	public static Map<String, Object> stats() {
+		Map<String, Object> map = new TreeMap<String, Object>();
+		for(Map.Entry<String, LatencyHistogram> entry : Latencies.entrySet()) {
+			map.put(entry.getKey(), entry.getValue().toMap());
+		}
+		map.put("_pool", Pool.getTotalStats().toString());
+		return map;
+	}
+
+}
@@ -2,6 +2,7 @@ package spacex.astrostudy.helper;
 
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 
 import boundless.spring.help.PropertyPlaceholder;
@@ -94,5 +95,10 @@ public class CacheHelper {
 		String key = String.format("%s%s*", Prefix, keyprefix);
 		return cache.removeMany(key);
 	}
+
+	public static long deleteCacheKey(final String keyprefix, LongConsumer progress) {
+		String key = String.format("%s%s*", Prefix, keyprefix);
+		return cache.removeMany(key, progress);
+	}
 	
 }
@@ -0,0 +1,567 @@
+package spacex.astrostudy.helper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
+import boundless.utility.ConvertUtility;
+import boundless.utility.DateTimeUtility;
+
+/**
+ * 离线生成的节气与朔日表，内存映射只读。所有时刻均为世界时儒略日，各时区的本地时刻在这里换算。
+ * 文件格式（大端）：magic(int) + 版本(int) + 起始年(int，天文纪年，公元前1年为0) + 年数(int) + 朔日数(int) + 保留(int)，
+ * 之后每年24个节气时刻(double，按春分起的黄经顺序)，再之后是升序的朔日时刻(double)。
+ * 表中没有的年份，以及有节气或朔日离本地零点太近的年份返回null，由调用方回退到astrosrv
+ */
+public class JieqiTable {
+	private static final int Magic = 0x4A514E4D;
+	private static final int Version = 1;
+	private static final int HeaderBytes = 24;
+	private static final int TermCount = 24;
+	private static final double GregorianStartJdn = 2299160.5;
+	private static final long FirstAdDayJdn = 1721426;
+
+	/**
+	 * 按黄经0度起的顺序，下标为奇数的是节
+	 */
+	public static final String[] Terms = {
+		"春分", "清明", "谷雨", "立夏", "小满", "芒种", "夏至", "小暑", "大暑", "立秋", "处暑", "白露",
+		"秋分", "寒露", "霜降", "立冬", "小雪", "大雪", "冬至", "小寒", "大寒", "立春", "雨水", "惊蛰",
+	};
+	public static final int DongZhiIdx = 18;
+	private static final int XiaoHanIdx = 19;
+
+	private static final String[] MonthNames = {"正月", "二月", "三月", "四月", "五月", "六月", "七月", "八月", "九月", "十月", "冬月", "腊月"};
+	private static final Map<String, Integer> TermIndex = new HashMap<String, Integer>();
+
+	private static final String TableFile = PropertyPlaceholder.getProperty("nongli.table.file", defaultTableFile());
+	private static final boolean Enabled = PropertyPlaceholder.getPropertyAsBool("nongli.table.enable", true);
+	private static final boolean Generate = PropertyPlaceholder.getPropertyAsBool("nongli.table.generate", true);
+	private static final int GenerateFrom = PropertyPlaceholder.getPropertyAsInt("nongli.table.generate.from", -1000);
+	private static final int GenerateTo = PropertyPlaceholder.getPropertyAsInt("nongli.table.generate.to", 3000);
+
+	/**
+	 * 表按0时区取得，astrosrv按本地时区逼近，两者时刻差几秒；离本地零点不足这个余量时，日期交给astrosrv判定
+	 */
+	private static final double BoundaryDays = PropertyPlaceholder.getPropertyAsInt("nongli.table.boundary.seconds", 120) / 86400.0;
+
+	private static volatile JieqiTable Instance = null;
+	private static volatile boolean loaded = false;
+
+	static {
+		for(int i=0; i<Terms.length; i++) {
+			TermIndex.put(Terms[i], i);
+		}
+	}
+
+	private final ByteBuffer buf;
+	private final int startYear;
+	private final int yearCount;
+	private final int moonCount;
+	private final int moonOffset;
+
+	private JieqiTable(ByteBuffer buf) {
+		if(buf.getInt(0) != Magic || buf.getInt(4) != Version) {
+			throw new IllegalArgumentException("bad jieqi table header");
+		}
+		this.buf = buf;
+		this.startYear = buf.getInt(8);
+		this.yearCount = buf.getInt(12);
+		this.moonCount = buf.getInt(16);
+		this.moonOffset = HeaderBytes + yearCount * TermCount * 8;
+		if(yearCount < 0 || moonCount < 0 || buf.capacity() < moonOffset + moonCount * 8L) {
+			throw new IllegalArgumentException("truncated jieqi table");
+		}
+	}
+
+	private static String defaultTableFile() {
+		String workingDir = System.getProperty("user.dir", ".");
+		return Paths.get(workingDir, ".horosa-cache", "jieqi.tbl").toString();
+	}
+
+	/**
+	 * 启动时调用；nongli.table.enable为false时表为空，全部回退到astrosrv。
+	 * 文件不存在且nongli.table.generate为true时，在后台向astrosrv取数生成，生成完之前同样回退到astrosrv
+	 */
+	public static synchronized void load() {
+		if(loaded) {
+			return;
+		}
+		loaded = true;
+		if(!Enabled) {
+			return;
+		}
+		Path path = Paths.get(TableFile);
+		if(Files.isRegularFile(path)) {
+			loadFile(path);
+		}else if(Generate) {
+			QueueLog.warn(AppLoggers.WarnLogger, "jieqi table {} not found, generating years {}~{} from astrosrv", path, GenerateFrom, GenerateTo);
+			generateAsync(path);
+		}else {
+			QueueLog.warn(AppLoggers.WarnLogger, "jieqi table {} not found, nongli falls back to astrosrv", path);
+		}
+	}
+
+	private static void loadFile(Path path) {
+		try {
+			JieqiTable table = open(path);
+			Instance = table;
+			QueueLog.info(AppLoggers.InfoLogger, "jieqi table {} loaded, years {}~{}, {} new moons", path,
+					labelYear(table.startYear), labelYear(table.startYear + table.yearCount - 1), table.moonCount);
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+	}
+
+	private static void generateAsync(Path path) {
+		Thread worker = new Thread(()->{
+			try {
+				JieqiTableGenerator.generate(path, GenerateFrom, GenerateTo);
+				loadFile(path);
+			}catch(Exception e) {
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			}
+		}, "jieqi-table-generator");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * 打开表文件，不影响全局实例
+	 */
+	static JieqiTable open(Path path) throws IOException {
+		try(FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new JieqiTable(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+		}
+	}
+
+	/**
+	 * 替换全局实例，测试用
+	 */
+	static synchronized void setInstance(JieqiTable table) {
+		Instance = table;
+		loaded = true;
+	}
+
+	public static JieqiTable get() {
+		if(!loaded) {
+			load();
+		}
+		return Instance;
+	}
+
+	/**
+	 * 写出表文件，先写临时文件再改名
+	 * @param startYear 起始年，公元前用负数
+	 * @param terms 每年24个节气时刻，按Terms顺序
+	 * @param moons 升序的朔日时刻
+	 */
+	public static void write(Path path, int startYear, double[][] terms, double[] moons) throws IOException {
+		ByteBuffer out = ByteBuffer.allocate(HeaderBytes + terms.length * TermCount * 8 + moons.length * 8);
+		out.putInt(Magic);
+		out.putInt(Version);
+		out.putInt(astroYear(startYear));
+		out.putInt(terms.length);
+		out.putInt(moons.length);
+		out.putInt(0);
+		for(double[] year : terms) {
+			for(int i=0; i<TermCount; i++) {
+				out.putDouble(year[i]);
+			}
+		}
+		for(double moon : moons) {
+			out.putDouble(moon);
+		}
+		out.flip();
+		if(path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(out.hasRemaining()) {
+				ch.write(out);
+			}
+			ch.force(true);
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static int termIndex(String name) {
+		Integer idx = TermIndex.get(name);
+		return idx == null ? -1 : idx;
+	}
+
+	private static int astroYear(int year) {
+		return year < 0 ? year + 1 : year;
+	}
+
+	private static int labelYear(int astro) {
+		return astro <= 0 ? astro - 1 : astro;
+	}
+
+	private static int prevLabelYear(int year) {
+		return year == 1 ? -1 : year - 1;
+	}
+
+	/**
+	 * @param year 公元前用负数
+	 * @return 世界时儒略日，表中没有时为NaN
+	 */
+	public double termJdn(int year, int idx) {
+		int y = astroYear(year) - startYear;
+		if(y < 0 || y >= yearCount) {
+			return Double.NaN;
+		}
+		return buf.getDouble(HeaderBytes + (y * TermCount + idx) * 8);
+	}
+
+	private double moon(int i) {
+		return buf.getDouble(moonOffset + i * 8);
+	}
+
+	/**
+	 * @return 离jdn最近的朔日时刻，jdn不在表中两个朔日之间时为NaN
+	 */
+	public double nearestNewMoon(double jdn) {
+		if(moonCount < 2 || jdn < moon(0) || jdn > moon(moonCount - 1)) {
+			return Double.NaN;
+		}
+		int lo = 0;
+		int hi = moonCount - 1;
+		while(hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if(moon(mid) <= jdn) {
+				lo = mid;
+			}else {
+				hi = mid;
+			}
+		}
+		double prev = moon(lo);
+		double next = moon(hi);
+		return jdn - prev <= next - jdn ? prev : next;
+	}
+
+	/**
+	 * 与astrosrv的/jieqi/year的jieqi24一致：当年24节气按时刻排序，小寒排在最后时移到最前
+	 * @param year 公元前用负数
+	 * @return 表中没有该年，或有节气离本地零点太近时为null
+	 */
+	public List<Map<String, Object>> getJieqi24(String year, String zone) {
+		int y = ConvertUtility.getValueAsInt(year);
+		if(!hasYear(y)) {
+			return null;
+		}
+		double zoneDays = DateTimeUtility.getZoneJdn(zone);
+		Integer[] idxs = new Integer[TermCount];
+		for(int i=0; i<TermCount; i++) {
+			if(nearMidnight(termJdn(y, i), zoneDays)) {
+				return null;
+			}
+			idxs[i] = i;
+		}
+		Arrays.sort(idxs, (a, b)->Double.compare(termJdn(y, a), termJdn(y, b)));
+		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>(TermCount);
+		if(idxs[TermCount - 1] == XiaoHanIdx) {
+			list.add(termMap(y, XiaoHanIdx, zoneDays));
+			for(int i=0; i<TermCount - 1; i++) {
+				list.add(termMap(y, idxs[i], zoneDays));
+			}
+		}else {
+			for(int i=0; i<TermCount; i++) {
+				list.add(termMap(y, idxs[i], zoneDays));
+			}
+		}
+		return list;
+	}
+
+	private boolean hasYear(int year) {
+		int y = astroYear(year) - startYear;
+		return year != 0 && y >= 0 && y < yearCount;
+	}
+
+	private Map<String, Object> termMap(int year, int idx, double zoneDays) {
+		double jdn = termJdn(year, idx);
+		String[] dt = localDateTime(jdn, zoneDays);
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("ord", (idx + 3) % TermCount);
+		map.put("jieqi", Terms[idx]);
+		map.put("jie", idx % 2 == 1);
+		map.put("time", dt[0] + " " + dt[1]);
+		map.put("jdn", jdn);
+		map.put("ad", adOf(jdn, zoneDays));
+		return map;
+	}
+
+	/**
+	 * 与astrosrv的/jieqi/nongli的months一致：上一个冬月起到本年冬月止的各月朔日，含月名、闰月标记与年干支
+	 * @param year 公元前用负数
+	 * @return 表中覆盖不到，或有朔日、中气离本地零点太近时为null
+	 */
+	public Map<String, Object>[] getNongliMonths(String year, String zone) {
+		int y = ConvertUtility.getValueAsInt(year);
+		int prevy = prevLabelYear(y);
+		if(!hasYear(y) || !hasYear(prevy)) {
+			return null;
+		}
+		double zoneDays = DateTimeUtility.getZoneJdn(zone);
+		double dongZi = termJdn(y, DongZhiIdx);
+		double prevDongZi = termJdn(prevy, DongZhiIdx);
+
+		// 上一年冬至及本年12个中气，按时刻排序
+		List<Double> qi = new ArrayList<Double>(TermCount / 2 + 1);
+		for(int i=0; i<TermCount; i+=2) {
+			qi.add(termJdn(y, i));
+		}
+		qi.sort(null);
+		qi.add(0, prevDongZi);
+
+		double start = DateTimeUtility.getDateNum(String.format("%d-12-21 00:00:00", prevy), zone) - 30;
+		double tm = nearestNewMoon(start);
+		if(Double.isNaN(tm)) {
+			return null;
+		}
+		List<Double> moons = new ArrayList<Double>(16);
+		moons.add(tm);
+		for(int cnt=0; cnt<15; cnt++) {
+			tm = nearestNewMoon(zeroHour(tm + 29, zoneDays));
+			if(Double.isNaN(tm)) {
+				return null;
+			}
+			if(cnt == 0 && localDay(tm, zoneDays) == localDay(prevDongZi, zoneDays)) {
+				moons.clear();
+			}
+			moons.add(tm);
+		}
+		moons.sort(null);
+		for(double jdn : moons) {
+			if(nearMidnight(jdn, zoneDays)) {
+				return null;
+			}
+		}
+		for(double jdn : qi) {
+			if(nearMidnight(jdn, zoneDays)) {
+				return null;
+			}
+		}
+
+		int sz = moons.size();
+		String[] names = new String[sz];
+		int[] leaps = new int[sz];
+		if(!setupMonth(moons, names, leaps, qi, prevDongZi, dongZi, zoneDays)) {
+			return null;
+		}
+
+		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(14);
+		int j = 0;
+		for(int i=0; i<sz; i++) {
+			j = i;
+			if(MonthNames[10].equals(names[i])) {
+				break;
+			}
+		}
+		for(int i=j; i<sz; i++) {
+			double jdn = moons.get(i);
+			String[] dt = localDateTime(jdn, zoneDays);
+			int moonYear = ConvertUtility.getValueAsInt(dt[2]);
+			String ganzi;
+			if(moonYear < y) {
+				ganzi = BaZiHelper.getYearGanzi(moonYear);
+			}else if(i < 3 && (MonthNames[10].equals(names[i]) || MonthNames[11].equals(names[i]))) {
+				ganzi = BaZiHelper.getYearGanzi(moonYear - 1);
+			}else {
+				ganzi = BaZiHelper.getYearGanzi(moonYear);
+			}
+			Map<String, Object> map = new HashMap<String, Object>();
+			map.put("date", dt[0]);
+			map.put("time", dt[1]);
+			map.put("jdn", jdn);
+			map.put("name", names[i]);
+			map.put("year", ganzi);
+			map.put("leap", leaps[i]);
+			map.put("ad", adOf(jdn, zoneDays));
+			res.add(map);
+			if(MonthNames[10].equals(names[i]) && i > 10) {
+				break;
+			}
+		}
+
+		Map<String, Object>[] months = new Map[res.size()];
+		return res.toArray(months);
+	}
+
+	/**
+	 * 按冬至所在月为冬月，两冬至间有13个月时以第一个无中气的月为闰月
+	 */
+	private boolean setupMonth(List<Double> moons, String[] names, int[] leaps, List<Double> qi, double prevDongZi, double dongZi, double zoneDays) {
+		int sidx = 0;
+		int eidx = 0;
+		boolean foundSidx = false;
+		for(int i=0; i<moons.size(); i++) {
+			double m = moons.get(i);
+			if(m >= prevDongZi) {
+				foundSidx = true;
+			}else if(!foundSidx) {
+				sidx = i;
+			}
+			if(m <= dongZi) {
+				eidx = i;
+			}else {
+				break;
+			}
+		}
+
+		int[] md = localMonthDay(moons.get(eidx), zoneDays);
+		if(md[0] < 0) {
+			if(md[1] != 12 && md[1] != 1) {
+				eidx++;
+			}
+		}else if(md[1] != 12 && md[2] != 1) {
+			eidx++;
+		}
+		if(eidx >= moons.size()) {
+			return false;
+		}
+
+		names[eidx] = MonthNames[10];
+		eidx--;
+		boolean noleap = eidx - sidx != 12;
+		boolean foundleap = false;
+		int midx = 10;
+		int idx = 0;
+		for(int i=sidx; i<=eidx; i++) {
+			if(noleap) {
+				names[i] = MonthNames[midx];
+			}else {
+				int[] qires = hasQi(moons.get(i), moons.get(i + 1), idx, qi, zoneDays);
+				if(qires[1] == 1) {
+					names[i] = MonthNames[midx];
+				}else {
+					if(!foundleap) {
+						leaps[i] = 1;
+						midx = (midx + 11) % 12;
+						foundleap = true;
+					}
+					names[i] = MonthNames[midx];
+				}
+				idx = qires[0];
+			}
+			midx = (midx + 1) % 12;
+		}
+
+		if(sidx > 0) {
+			int nidx = indexOfMonth(names[sidx]);
+			names[sidx - 1] = MonthNames[(nidx + 11) % 12];
+		}
+		return true;
+	}
+
+	/**
+	 * @return {下一次查找的起点, 是否有中气(1/0)}
+	 */
+	private int[] hasQi(double m1, double m2, int idx, List<Double> qi, double zoneDays) {
+		double jdn1 = zeroHour(m1, zoneDays);
+		double jdn2 = zeroHour(m2, zoneDays);
+		for(int i=idx; i<qi.size(); i++) {
+			double jdnQi = zeroHour(qi.get(i), zoneDays);
+			if(jdn1 <= jdnQi && jdnQi < jdn2) {
+				return new int[] {i + 1, 1};
+			}else if(jdnQi >= jdn2) {
+				return i == 0 ? new int[] {0, 1} : new int[] {i, 0};
+			}
+		}
+		return new int[] {0, 1};
+	}
+
+	private static int indexOfMonth(String name) {
+		for(int i=0; i<MonthNames.length; i++) {
+			if(MonthNames[i].equals(name)) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return 该时刻所在本地日期的儒略日数
+	 */
+	private static long localDay(double jdn, double zoneDays) {
+		return (long) Math.floor(jdn + zoneDays + 0.5);
+	}
+
+	/**
+	 * @return 该时刻离本地零点是否不足BoundaryDays
+	 */
+	static boolean nearMidnight(double jdn, double zoneDays) {
+		double local = jdn + zoneDays + 0.5;
+		double frac = local - Math.floor(local);
+		return frac < BoundaryDays || frac > 1 - BoundaryDays;
+	}
+
+	/**
+	 * @return 该时刻所在本地日期零点的世界时儒略日
+	 */
+	private static double zeroHour(double jdn, double zoneDays) {
+		return localDay(jdn, zoneDays) - 0.5 - zoneDays;
+	}
+
+	private static int adOf(double jdn, double zoneDays) {
+		return localDay(jdn, zoneDays) >= FirstAdDayJdn ? 1 : -1;
+	}
+
+	/**
+	 * 本地历法日期，1582-10-15之前用儒略历，年份公元前用负数
+	 * @return {年, 月, 日, 秒}
+	 */
+	private static long[] localCalendar(double jdn, double zoneDays) {
+		double local = jdn + zoneDays + 0.5;
+		long z = (long) Math.floor(local);
+		double f = local - z;
+		long a = z;
+		if(local - 0.5 >= GregorianStartJdn) {
+			long alpha = (long) Math.floor((z - 1867216.25) / 36524.25);
+			a = z + 1 + alpha - Math.floorDiv(alpha, 4);
+		}
+		long b = a + 1524;
+		long c = (long) Math.floor((b - 122.1) / 365.25);
+		long d = (long) Math.floor(365.25 * c);
+		long e = (long) Math.floor((b - d) / 30.6001);
+		long day = b - d - (long) Math.floor(30.6001 * e);
+		long month = e < 14 ? e - 1 : e - 13;
+		long year = month > 2 ? c - 4716 : c - 4715;
+		if(year <= 0) {
+			year -= 1;
+		}
+		long secs = Math.min(86399, (long) Math.floor(f * 86400 + 1e-6));
+		return new long[] {year, month, day, secs};
+	}
+
+	private static int[] localMonthDay(double jdn, double zoneDays) {
+		long[] dt = localCalendar(jdn, zoneDays);
+		return new int[] {(int) dt[0], (int) dt[1], (int) dt[2]};
+	}
+
+	/**
+	 * @return {日期, 时间, 年}
+	 */
+	private static String[] localDateTime(double jdn, double zoneDays) {
+		long[] dt = localCalendar(jdn, zoneDays);
+		long secs = dt[3];
+		String date = String.format("%02d-%02d-%02d", dt[0], dt[1], dt[2]);
+		String time = String.format("%02d:%02d:%02d", secs / 3600, (secs / 60) % 60, secs % 60);
+		return new String[] {date, time, String.valueOf(dt[0])};
+	}
+
+}
@@ -0,0 +1,171 @@
+package spacex.astrostudy.helper;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import boundless.utility.ConvertUtility;
+import boundless.utility.JsonUtility;
+
+/**
+ * 生成JieqiTable的表文件：逐年向astrosrv取0时区的节气与朔日，需要astrosrv在运行。表文件不存在时JieqiTable启动后也会在后台调用这里生成。
+ * 用法：JieqiTableGenerator 起始年 结束年 输出文件，公元前用负数。
+ * JieqiTableGenerator golden 输出文件 时区 经度 起始年~结束年... 录制JieqiTableTest用的对照数据：
+ * 每段年份的表数据，以及astrosrv在该时区下逐年的/jieqi/year与/jieqi/nongli结果
+ */
+public class JieqiTableGenerator {
+	private static final String Zone = "+00:00";
+
+	private static class Range {
+		int from;
+		int to;
+		int count;
+		double[][] terms;
+		double[] moons;
+	}
+
+	private static Map<String, Object> params(int year, String zone, String lon) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("year", String.valueOf(year));
+		params.put("zone", zone);
+		params.put("lat", "0n00");
+		params.put("lon", lon);
+		params.put("seedOnly", true);
+		return params;
+	}
+
+	private static int nextYear(int year) {
+		return year == -1 ? 1 : year + 1;
+	}
+
+	private static Range collect(int from, int to) {
+		if(from == 0 || to == 0 || (from < 0 ? from + 1 : from) > (to < 0 ? to + 1 : to)) {
+			throw new IllegalArgumentException("bad year range " + from + "~" + to);
+		}
+
+		Range range = new Range();
+		range.from = from;
+		range.to = to;
+		range.count = (to < 0 ? to + 1 : to) - (from < 0 ? from + 1 : from) + 1;
+		range.terms = new double[range.count][];
+		TreeSet<Double> moons = new TreeSet<Double>();
+		int i = 0;
+		for(int year=from; i<range.count; year=nextYear(year), i++) {
+			Map<String, Object> res = AstroHelper.requestNoCache(AstroHelper.JieQiYear, params(year, Zone, "0e00"));
+			List<Map<String, Object>> list = (List<Map<String, Object>>) res.get("jieqi24");
+			double[] row = new double[JieqiTable.Terms.length];
+			int filled = 0;
+			for(Map<String, Object> jieqi : list) {
+				int idx = JieqiTable.termIndex((String) jieqi.get("jieqi"));
+				if(idx >= 0) {
+					row[idx] = ConvertUtility.getValueAsDouble(jieqi.get("jdn"));
+					filled++;
+				}
+			}
+			if(filled != row.length) {
+				throw new IllegalStateException("year " + year + " has " + filled + " jieqi");
+			}
+			range.terms[i] = row;
+
+			res = AstroHelper.requestNoCache(AstroHelper.Nongli, params(year, Zone, "0e00"));
+			for(Map<String, Object> month : (List<Map<String, Object>>) res.get("months")) {
+				double jdn = ConvertUtility.getValueAsDouble(month.get("jdn"));
+				Double near = moons.ceiling(jdn - 1);
+				if(near == null || near > jdn + 1) {
+					moons.add(jdn);
+				}
+			}
+			if(year % 100 == 0) {
+				System.out.println("jieqi table: year " + year);
+			}
+		}
+
+		range.moons = new double[moons.size()];
+		int k = 0;
+		for(double moon : moons) {
+			range.moons[k++] = moon;
+		}
+		return range;
+	}
+
+	private static List<Map<String, Object>> pick(List<Map<String, Object>> list, String... keys) {
+		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(list.size());
+		for(Map<String, Object> item : list) {
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			for(String key : keys) {
+				map.put(key, item.get(key));
+			}
+			res.add(map);
+		}
+		return res;
+	}
+
+	private static void golden(Path path, String zone, String lon, String[] ranges) throws Exception {
+		List<Map<String, Object>> tables = new ArrayList<Map<String, Object>>();
+		for(String str : ranges) {
+			int sep = str.indexOf('~');
+			Range range = collect(Integer.parseInt(str.substring(0, sep)), Integer.parseInt(str.substring(sep + 1)));
+			List<Map<String, Object>> jieqi = new ArrayList<Map<String, Object>>();
+			List<Map<String, Object>> nongli = new ArrayList<Map<String, Object>>();
+			int i = 0;
+			for(int year=range.from; i<range.count; year=nextYear(year), i++) {
+				Map<String, Object> res = AstroHelper.requestNoCache(AstroHelper.JieQiYear, params(year, zone, lon));
+				Map<String, Object> item = new LinkedHashMap<String, Object>();
+				item.put("year", String.valueOf(year));
+				item.put("jieqi24", pick((List<Map<String, Object>>) res.get("jieqi24"), "ord", "jieqi", "jie", "time", "jdn", "ad"));
+				jieqi.add(item);
+
+				res = AstroHelper.requestNoCache(AstroHelper.Nongli, params(year, zone, lon));
+				item = new LinkedHashMap<String, Object>();
+				item.put("year", String.valueOf(year));
+				item.put("months", pick((List<Map<String, Object>>) res.get("months"), "date", "time", "jdn", "name", "year", "leap", "ad"));
+				nongli.add(item);
+			}
+			Map<String, Object> table = new LinkedHashMap<String, Object>();
+			table.put("from", range.from);
+			table.put("to", range.to);
+			table.put("zone", zone);
+			table.put("terms", range.terms);
+			table.put("moons", range.moons);
+			table.put("jieqi", jieqi);
+			table.put("nongli", nongli);
+			tables.add(table);
+		}
+		Map<String, Object> res = new LinkedHashMap<String, Object>();
+		res.put("tables", tables);
+		Files.write(path, JsonUtility.encodePretty(res).getBytes(StandardCharsets.UTF_8));
+		System.out.println("jieqi golden: " + tables.size() + " ranges written to " + path.toAbsolutePath());
+	}
+
+	/**
+	 * @return 写入的年数
+	 */
+	public static int generate(Path path, int from, int to) throws Exception {
+		Range range = collect(from, to);
+		JieqiTable.write(path, from, range.terms, range.moons);
+		return range.count;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args.length > 4 && "golden".equals(args[0])) {
+			String[] ranges = new String[args.length - 4];
+			System.arraycopy(args, 4, ranges, 0, ranges.length);
+			golden(Paths.get(args[1]), args[2], args[3], ranges);
+			return;
+		}
+
+		int from = args.length > 0 ? Integer.parseInt(args[0]) : -1000;
+		int to = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+		Path path = Paths.get(args.length > 2 ? args[2] : ".horosa-cache/jieqi.tbl");
+		int count = generate(path, from, to);
+		System.out.println("jieqi table: " + count + " years written to " + path.toAbsolutePath());
+	}
+
+}
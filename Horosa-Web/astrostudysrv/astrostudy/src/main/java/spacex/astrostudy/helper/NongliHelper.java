@@ -2,6 +2,7 @@ package spacex.astrostudy.helper;
 
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
@@ -10,6 +11,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import boundless.io.FileUtility;
 import boundless.log.AppLoggers;
 import boundless.log.QueueLog;
+import boundless.types.KeyValuePair;
 import boundless.types.Tuple;
 import boundless.utility.ConvertUtility;
 import boundless.utility.DateTimeUtility;
@@ -210,6 +212,19 @@ public class NongliHelper {
 			return local;
 		}
 
+		Map<String, Object> params = buildJieqiYearParams(year, zone, ad, lon);
+		JieqiYearData data = getJieqiYearDataFromTable(params);
+		if(data == null) {
+			data = buildJieqiYearData(AstroHelper.getJieQiYear(params));
+		}
+		localJieqiYearCache.put(key, data);
+		if(ctx != null) {
+			ctx.jieqiYearCache.put(key, data);
+		}
+		return data;
+	}
+
+	private static Map<String, Object> buildJieqiYearParams(String year, String zone, int ad, String lon){
 		Map<String, Object> params = new HashMap<String, Object>();
 		if(ad < 0 && year.indexOf('-') != 0) {
 			params.put("year", "-"+year);
@@ -219,7 +234,27 @@ public class NongliHelper {
 		params.put("zone", zone);
 		params.put("lat", "0n00");
 		params.put("lon", lon);
-		Map<String, Object> map = AstroHelper.getJieQiYear(params);
+		return params;
+	}
+
+	/**
+	 * 节气只与太阳黄经有关，与经度无关，表中有该年时直接换算本地时刻
+	 */
+	private static JieqiYearData getJieqiYearDataFromTable(Map<String, Object> params) {
+		JieqiTable table = JieqiTable.get();
+		if(table == null) {
+			return null;
+		}
+		List<Map<String, Object>> jieqi24 = table.getJieqi24((String) params.get("year"), (String) params.get("zone"));
+		if(jieqi24 == null) {
+			return null;
+		}
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("jieqi24", jieqi24);
+		return buildJieqiYearData(map);
+	}
+
+	private static JieqiYearData buildJieqiYearData(Map<String, Object> map) {
 		JieqiYearData data = new JieqiYearData();
 		List<Map<String, Object>> list = (List<Map<String, Object>>) map.get("jieqi24");
 		for(Map<String, Object> jieqi : list) {
@@ -232,12 +267,76 @@ public class NongliHelper {
 				data.jieList.add(jieqi);
 			}
 		}
+		return data;
+	}
 
-		localJieqiYearCache.put(key, data);
-		if(ctx != null) {
-			ctx.jieqiYearCache.put(key, data);
+	private static String prevYear(String year) {
+		int y = ConvertUtility.getValueAsInt(year) - 1;
+		if(y == 0) {
+			y = -1;
+		}
+		return String.valueOf(y);
+	}
+
+	/**
+	 * 序列计算前，把各个日期所在年及前一年的节气表一次性批量取回，避免逐年往返astrosrv
+	 */
+	private static void prefetchJieqiYears(int orgad, List<String> births, String zone, String lon, NongliBatchContext ctx) {
+		Map<String, KeyValuePair<String, Integer>> missing = new LinkedHashMap<String, KeyValuePair<String, Integer>>();
+		for(String birth : births) {
+			if(StringUtility.isNullOrEmpty(birth)) {
+				continue;
+			}
+			int ad = birth.startsWith("-") ? -1 : orgad;
+			String date = StringUtility.splitString(birth, ' ')[0];
+			if(ad < 0 && !date.startsWith("-")) {
+				date = '-' + date;
+			}
+			String year = StringUtility.splitString(date, '-')[0];
+			if(date.startsWith("-")) {
+				year = "-" + year;
+			}
+			String prev = prevYear(year);
+			addMissingJieqiYear(missing, year, ad, zone, lon);
+			addMissingJieqiYear(missing, prev, prev.startsWith("-") ? -1 : 1, zone, lon);
+		}
+		if(missing.size() < 2) {
+			return;
+		}
+
+		List<String> keys = new ArrayList<String>(missing.keySet());
+		List<KeyValuePair<String, Map<String, Object>>> reqs = new ArrayList<KeyValuePair<String, Map<String, Object>>>(keys.size());
+		for(String key : keys) {
+			KeyValuePair<String, Integer> item = missing.get(key);
+			reqs.add(new KeyValuePair<String, Map<String, Object>>(AstroHelper.JieQiYear,
+					buildJieqiYearParams(item.getKey(), zone, item.getValue(), lon)));
+		}
+		try {
+			List<Map<String, Object>> list = AstroHelper.requestBatch(reqs);
+			for(int i=0; i<keys.size(); i++) {
+				Map<String, Object> map = list.get(i);
+				if(map == null) {
+					continue;
+				}
+				JieqiYearData data = buildJieqiYearData(map);
+				localJieqiYearCache.put(keys.get(i), data);
+				ctx.jieqiYearCache.put(keys.get(i), data);
+			}
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+	}
+
+	private static void addMissingJieqiYear(Map<String, KeyValuePair<String, Integer>> missing, String year, int ad, String zone, String lon) {
+		String key = buildJieqiYearCacheKey(year, zone, lon);
+		if(!missing.containsKey(key) && !localJieqiYearCache.containsKey(key)) {
+			JieqiYearData data = getJieqiYearDataFromTable(buildJieqiYearParams(year, zone, ad, lon));
+			if(data != null) {
+				localJieqiYearCache.put(key, data);
+			}else {
+				missing.put(key, new KeyValuePair<String, Integer>(year, ad));
+			}
 		}
-		return data;
 	}
 
 	private static Map<String, Object> getMonthJie(String year, String zone, int ad, String lon, double birthjdn, NongliBatchContext ctx){
@@ -255,11 +354,7 @@ public class NongliHelper {
 			return jie;
 		}
 
-		int y = ConvertUtility.getValueAsInt(year) - 1;
-		if(y == 0) {
-			y = -1;
-		}
-		String prevYear = String.valueOf(y);
+		String prevYear = prevYear(year);
 		int prevAd = prevYear.startsWith("-") ? -1 : 1;
 		JieqiYearData prevData = getJieqiYearData(prevYear, zone, prevAd, lon, ctx);
 		for(Map<String, Object> jieqi : prevData.jieList) {
@@ -315,6 +410,16 @@ public class NongliHelper {
 			return localMonths;
 		}
 
+		JieqiTable table = JieqiTable.get();
+		Map<String, Object>[] tableMonths = table == null ? null : table.getNongliMonths(year, zone);
+		if(tableMonths != null) {
+			localMonthCache.put(key, tableMonths);
+			if(ctx != null) {
+				ctx.monthCache.put(key, tableMonths);
+			}
+			return tableMonths;
+		}
+
 		Map<String, Object> params = new HashMap<String, Object>();
 		String lon = getLonFromZone(zone);
 		params.put("year", year);
@@ -419,6 +524,7 @@ public class NongliHelper {
 	public static List<NongLi> getNongLiSeries(int orgad, List<String> births, String zone, String lon, boolean after23NewDay, boolean directTime){
 		List<NongLi> list = new ArrayList<NongLi>(births.size());
 		NongliBatchContext ctx = new NongliBatchContext();
+		prefetchJieqiYears(orgad, births, zone, lon, ctx);
 		for(String birth : births) {
 			list.add(getNongLi(orgad, birth, zone, lon, after23NewDay, directTime, ctx, false));
 		}
@@ -2,23 +2,28 @@ package spacex.astrostudy.helper;
 
 import java.lang.reflect.Array;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 
 import boundless.log.AppLoggers;
@@ -26,9 +31,12 @@ import boundless.log.QueueLog;
 import boundless.security.MD5Utility;
 import boundless.spring.help.PropertyPlaceholder;
 import boundless.types.ICache;
+import boundless.types.KeyValuePair;
+import boundless.utility.CalculatePool;
 import boundless.utility.ConvertUtility;
 import boundless.utility.FormatUtility;
 import boundless.utility.JsonUtility;
+import boundless.utility.MetricsRegistry;
 import boundless.utility.StringUtility;
 
 public class ParamHashCacheHelper {
@@ -40,14 +48,20 @@ public class ParamHashCacheHelper {
 	private static final int ExpireInSec = PropertyPlaceholder.getPropertyAsInt("paramhash.cache.expireinsecond", 86400);
 	private static final int AnnualExpireInSec = PropertyPlaceholder.getPropertyAsInt("paramhash.cache.annual.expireinsecond", 86400 * 180);
 	private static final String LocalDir = PropertyPlaceholder.getProperty("paramhash.cache.local.dir", defaultLocalDir());
+	private static final int RefreshAheadPercent = PropertyPlaceholder.getPropertyAsInt("paramhash.cache.refreshahead.percent", 10);
+	private static final int WaitTimeoutMs = PropertyPlaceholder.getPropertyAsInt("paramhash.cache.wait.ms", 120000);
 	private static final DateTimeFormatter LdtFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
 	private static final ICache RedisCache = CacheHelper.getCache();
-	private static final ConcurrentHashMap<String, Object> KeyLocks = new ConcurrentHashMap<String, Object>();
+	private static final ConcurrentHashMap<String, CompletableFuture<Object>> InFlight = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+	// 后台刷新另行登记：触发刷新的调用方此时仍占着InFlight中的位置
+	private static final Set<String> Refreshing = ConcurrentHashMap.newKeySet();
+	private static final ConcurrentHashMap<String, ParamHashSegmentStore> Stores = new ConcurrentHashMap<String, ParamHashSegmentStore>();
 
 	private static final class LocalPayload {
 		Object value;
 		boolean expired;
+		long expAt;
 	}
 
 	private ParamHashCacheHelper() {
@@ -78,74 +92,336 @@ public class ParamHashCacheHelper {
 			return fun.apply(new HashMap<String, Object>(req));
 		}
 
+		long st = System.nanoTime();
+		String cleanScope = sanitizeScope(scope);
 		String cacheKey = buildCacheKey(scope, req);
 		Object obj = getFromRedis(cacheKey);
 		if(obj != null) {
+			timing("hit.redis", cleanScope, st, false);
 			return obj;
 		}
 
-		String cleanScope = sanitizeScope(scope);
-		String hash = hash(req);
+		// 同一key同时只有一个调用方读本地文件或计算，其余调用方等待其结果
+		CompletableFuture<Object> created = new CompletableFuture<Object>();
+		CompletableFuture<Object> flight = InFlight.putIfAbsent(cacheKey, created);
+		if(flight != null) {
+			boolean error = true;
+			try {
+				obj = await(cacheKey, flight);
+				error = false;
+				return obj;
+			}finally {
+				timing("wait", cleanScope, st, error);
+			}
+		}
+		String outcome = "hit.local";
+		boolean error = true;
+		try {
+			String hash = hash(req);
+			obj = loadLocal(cacheKey, cleanScope, hash, req, fun, expInSec);
+			if(obj == null) {
+				outcome = "miss";
+				obj = compute(cacheKey, cleanScope, hash, req, fun, expInSec);
+			}
+			created.complete(obj);
+			error = false;
+			return obj;
+		}catch(RuntimeException | Error e) {
+			created.completeExceptionally(e);
+			throw e;
+		}finally {
+			InFlight.remove(cacheKey, created);
+			timing(outcome, cleanScope, st, error);
+		}
+	}
+
+	/**
+	 * 按命中层级分开记录耗时：hit.redis、hit.local、wait（等待其他调用方）、miss（调用计算函数）
+	 */
+	private static void timing(String outcome, String cleanScope, long startNanos, boolean error) {
+		MetricsRegistry.latency("paramhash." + outcome + ":" + cleanScope).recordNanos(System.nanoTime() - startNanos, error);
+	}
+
+	/**
+	 * 从本地存储取值并回填redis，临近过期时触发后台刷新
+	 * @return 未命中时返回null
+	 */
+	private static Object loadLocal(String cacheKey, String cleanScope, String hash, Map<String, Object> req,
+			Function<Map<String, Object>, Object> fun, int expInSec) {
 		LocalPayload local = getFromLocal(cleanScope, hash, expInSec);
 		if(local.expired) {
 			removeRedis(cacheKey);
 		}
-		if(local.value != null) {
-			saveToRedis(cacheKey, local.value, expInSec);
+		if(local.value == null) {
+			return null;
+		}
+
+		if(local.expAt <= 0) {
+			saveToRedis(cacheKey, local.value, 0);
 			return local.value;
 		}
+		int remainSec = (int)Math.max(1, (local.expAt - System.currentTimeMillis()) / 1000);
+		int window = refreshWindow(expInSec);
+		if(remainSec > window) {
+			saveToRedis(cacheKey, local.value, remainSec - window);
+		}else {
+			// 临近过期：先返回旧值，后台重新计算
+			saveToRedis(cacheKey, local.value, remainSec);
+			refreshAsync(cacheKey, cleanScope, hash, req, fun, expInSec);
+		}
+		return local.value;
+	}
+
+	private static Object compute(String cacheKey, String cleanScope, String hash, Map<String, Object> req,
+			Function<Map<String, Object>, Object> fun, int expInSec) {
+		Object obj = fun.apply(new HashMap<String, Object>(req));
+		save(cacheKey, cleanScope, hash, obj, expInSec);
+		return obj;
+	}
+
+	private static void save(String cacheKey, String cleanScope, String hash, Object obj, int expInSec) {
+		if(isCacheable(obj)) {
+			saveToRedis(cacheKey, obj, expInSec - refreshWindow(expInSec));
+			saveToLocal(cleanScope, hash, obj, expInSec);
+		}
+	}
+
+	/**
+	 * 批量取值：先用一次redis批量读取所有key，再逐个查本地存储，
+	 * 剩余未命中且没有其他调用方正在计算的项一次性交给loader，与单个get共用同一个single-flight表
+	 * @param reqs 每项为scope与参数
+	 * @param loader 参数为需要计算的项在reqs中的下标，返回与下标一一对应的结果
+	 * @return 与reqs顺序一致的结果
+	 */
+	public static List<Object> getBatch(List<KeyValuePair<String, Map<String, Object>>> reqs,
+			Function<List<Integer>, List<Object>> loader, int expInSec) {
+		int n = reqs.size();
+		List<Object> res = new ArrayList<Object>(Collections.nCopies(n, null));
+		if(n == 0 || loader == null) {
+			return res;
+		}
+		List<Integer> owned = new ArrayList<Integer>();
+		if(!EnableCache) {
+			for(int i=0; i<n; i++) {
+				owned.add(i);
+			}
+			return fill(res, owned, loader.apply(owned));
+		}
+
+		List<String> keys = new ArrayList<String>(n);
+		String[] scopes = new String[n];
+		String[] hashes = new String[n];
+		List<Map<String, Object>> args = new ArrayList<Map<String, Object>>(n);
+		for(int i=0; i<n; i++) {
+			KeyValuePair<String, Map<String, Object>> item = reqs.get(i);
+			Map<String, Object> req = new HashMap<String, Object>();
+			if(item.getValue() != null) {
+				req.putAll(item.getValue());
+			}
+			args.add(req);
+			scopes[i] = sanitizeScope(item.getKey());
+			hashes[i] = hash(req);
+			keys.add(CacheHelper.buildCacheKey(Prefix, scopes[i], hashes[i]));
+		}
 
-		Object keylock = KeyLocks.computeIfAbsent(cacheKey, (k)-> new Object());
+		long st = System.nanoTime();
+		List<Object> cached = getAllFromRedis(keys);
+		int redisHits = 0;
+		int localHits = 0;
+		Map<Integer, CompletableFuture<Object>> waits = new HashMap<Integer, CompletableFuture<Object>>();
+		Map<Integer, CompletableFuture<Object>> flights = new HashMap<Integer, CompletableFuture<Object>>();
+		// 循环中途出错时，前面已登记但尚未计算的项也要结束并移出InFlight，否则等待者会一直挂起
 		try {
-			synchronized (keylock) {
-				obj = getFromRedis(cacheKey);
+			for(int i=0; i<n; i++) {
+				if(cached.get(i) != null) {
+					res.set(i, cached.get(i));
+					redisHits++;
+					continue;
+				}
+				String cacheKey = keys.get(i);
+				CompletableFuture<Object> created = new CompletableFuture<Object>();
+				CompletableFuture<Object> flight = InFlight.putIfAbsent(cacheKey, created);
+				if(flight != null) {
+					waits.put(i, flight);
+					continue;
+				}
+				int idx = i;
+				Object obj = null;
+				try {
+					obj = loadLocal(cacheKey, scopes[i], hashes[i], args.get(i), (a)->{
+						return loader.apply(Collections.singletonList(idx)).get(0);
+					}, expInSec);
+				}catch(RuntimeException | Error e) {
+					created.completeExceptionally(e);
+					InFlight.remove(cacheKey, created);
+					throw e;
+				}
 				if(obj != null) {
-					return obj;
+					res.set(i, obj);
+					localHits++;
+					created.complete(obj);
+					InFlight.remove(cacheKey, created);
+				}else {
+					owned.add(i);
+					flights.put(i, created);
 				}
+			}
+		}catch(RuntimeException | Error e) {
+			for(Map.Entry<Integer, CompletableFuture<Object>> entry : flights.entrySet()) {
+				entry.getValue().completeExceptionally(e);
+				InFlight.remove(keys.get(entry.getKey()), entry.getValue());
+			}
+			throw e;
+		}
 
-				local = getFromLocal(cleanScope, hash, expInSec);
-				if(local.expired) {
-					removeRedis(cacheKey);
+		MetricsRegistry.counter("paramhash.batch.hit.redis").add(redisHits);
+		MetricsRegistry.counter("paramhash.batch.hit.local").add(localHits);
+		MetricsRegistry.counter("paramhash.batch.wait").add(waits.size());
+		MetricsRegistry.counter("paramhash.batch.miss").add(owned.size());
+		MetricsRegistry.latency("paramhash.batch.lookup").recordNanos(System.nanoTime() - st, false);
+		if(!owned.isEmpty()) {
+			long computeSt = System.nanoTime();
+			boolean error = true;
+			try {
+				List<Object> computed = loader.apply(owned);
+				fill(res, owned, computed);
+				for(int idx : owned) {
+					Object obj = res.get(idx);
+					save(keys.get(idx), scopes[idx], hashes[idx], obj, expInSec);
+					flights.get(idx).complete(obj);
 				}
-				if(local.value != null) {
-					saveToRedis(cacheKey, local.value, expInSec);
-					return local.value;
+				error = false;
+			}catch(RuntimeException | Error e) {
+				for(CompletableFuture<Object> created : flights.values()) {
+					created.completeExceptionally(e);
 				}
+				throw e;
+			}finally {
+				for(Map.Entry<Integer, CompletableFuture<Object>> entry : flights.entrySet()) {
+					InFlight.remove(keys.get(entry.getKey()), entry.getValue());
+				}
+				MetricsRegistry.latency("paramhash.batch.compute").recordNanos(System.nanoTime() - computeSt, error);
+			}
+		}
+		for(Map.Entry<Integer, CompletableFuture<Object>> entry : waits.entrySet()) {
+			res.set(entry.getKey(), await(keys.get(entry.getKey()), entry.getValue()));
+		}
+		return res;
+	}
+
+	private static List<Object> fill(List<Object> res, List<Integer> idxs, List<Object> values) {
+		for(int i=0; values != null && i<idxs.size() && i<values.size(); i++) {
+			res.set(idxs.get(i), values.get(i));
+		}
+		return res;
+	}
 
-				obj = fun.apply(new HashMap<String, Object>(req));
-				if(isCacheable(obj)) {
-					saveToRedis(cacheKey, obj, expInSec);
-					saveToLocal(cleanScope, hash, obj, expInSec);
+	/**
+	 * 在计算池中重新计算并覆盖旧值，同一key同时只有一个刷新；
+	 * 刷新期间的调用方照常拿到旧值，不等待刷新结果
+	 */
+	private static void refreshAsync(String cacheKey, String cleanScope, String hash, Map<String, Object> req,
+			Function<Map<String, Object>, Object> fun, int expInSec) {
+		if(!Refreshing.add(cacheKey)) {
+			return;
+		}
+		try {
+			CalculatePool.queueUserWorkItem(()->{
+				try {
+					compute(cacheKey, cleanScope, hash, req, fun, expInSec);
+				}finally {
+					Refreshing.remove(cacheKey);
 				}
-				return obj;
+			}, (e)->{
+				// 计算出错或任务被计算池拒绝、丢弃时都会回调，撤销登记以便下次再刷新
+				Refreshing.remove(cacheKey);
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			});
+		}catch(Exception e) {
+			Refreshing.remove(cacheKey);
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+	}
+
+	/**
+	 * redis中的副本比本地文件早这么多秒过期，以便在本地文件过期前触发后台刷新
+	 */
+	private static int refreshWindow(int expInSec) {
+		if(!EnableLocal || expInSec <= 0 || RefreshAheadPercent <= 0) {
+			return 0;
+		}
+		return (int)Math.min(expInSec / 2L, (long)expInSec * RefreshAheadPercent / 100);
+	}
+
+	/**
+	 * 等待其他调用方的结果，最多等paramhash.cache.wait.ms毫秒；
+	 * 超时说明该项的计算已丢失，移除它以便后续调用方重新计算
+	 */
+	private static Object await(String cacheKey, CompletableFuture<Object> flight) {
+		try {
+			return flight.get(WaitTimeoutMs, TimeUnit.MILLISECONDS);
+		}catch(TimeoutException e) {
+			InFlight.remove(cacheKey, flight);
+			flight.completeExceptionally(e);
+			throw new RuntimeException("paramhash wait timeout: " + cacheKey, e);
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
 			}
-		} finally {
-			Object current = KeyLocks.get(cacheKey);
-			if(current == keylock) {
-				KeyLocks.remove(cacheKey);
+			if(cause instanceof Error) {
+				throw (Error) cause;
 			}
+			throw new RuntimeException(cause);
 		}
 	}
 
 	public static long clearByScope(String scopePrefix) {
-		String scope = sanitizeScope(scopePrefix);
-		long removed = 0;
 		try {
-			String prefix = CacheHelper.buildCacheKey(Prefix, scope);
-			removed += CacheHelper.getCache().removeMany(prefix + "*");
+			return clearByScope(scopePrefix, null);
 		} catch(Exception e) {
 			QueueLog.error(AppLoggers.ErrorLogger, e);
+			return 0;
+		}
+	}
+
+	/**
+	 * @param progress redis部分每批删除后回报累计数，可为null；本地存储在redis之后删除，不单独回报。
+	 * redis部分失败时仍删除本地存储，之后抛出redis的异常
+	 */
+	public static long clearByScope(String scopePrefix, LongConsumer progress) {
+		String scope = sanitizeScope(scopePrefix);
+		long removed = 0;
+		RuntimeException failure = null;
+		if(EnableRedis && RedisCache != null) {
+			try {
+				String prefix = CacheHelper.buildCacheKey(Prefix, scope);
+				removed += RedisCache.removeMany(prefix + "*", progress);
+			} catch(RuntimeException e) {
+				failure = e;
+			}
 		}
 
-		if(!EnableLocal) {
-			return removed;
+		if(EnableLocal) {
+			removed += clearLocalByScope(scope);
+		}
+		if(failure != null) {
+			throw failure;
 		}
+		return removed;
+	}
+
+	private static long clearLocalByScope(String scope) {
+		long removed = 0;
 		try {
 			Path localRoot = Paths.get(LocalDir);
 			if(!Files.exists(localRoot)) {
 				return removed;
 			}
-			List<Path> targets = new ArrayList<Path>();
+			List<String> targets = new ArrayList<String>();
 			try(Stream<Path> list = Files.list(localRoot)) {
 				list.forEach((p)->{
 					if(!Files.isDirectory(p)) {
@@ -153,31 +429,12 @@ public class ParamHashCacheHelper {
 					}
 					String name = p.getFileName().toString();
 					if(name.startsWith(scope)) {
-						targets.add(p);
+						targets.add(name);
 					}
 				});
 			}
-			for(Path target : targets) {
-				List<Path> paths = new ArrayList<Path>();
-				try(Stream<Path> walk = Files.walk(target)) {
-					walk.forEach((p)->{
-						paths.add(p);
-					});
-				}
-				paths.sort((a, b)-> b.getNameCount() - a.getNameCount());
-				for(Path p : paths) {
-					try {
-						if(Files.isDirectory(p)) {
-							Files.deleteIfExists(p);
-						}else {
-							if(Files.deleteIfExists(p)) {
-								removed++;
-							}
-						}
-					}catch(Exception e) {
-						QueueLog.error(AppLoggers.ErrorLogger, e);
-					}
-				}
+			for(String target : targets) {
+				removed += dropStore(target);
 			}
 		}catch(Exception e) {
 			QueueLog.error(AppLoggers.ErrorLogger, e);
@@ -252,26 +509,45 @@ public class ParamHashCacheHelper {
 			return null;
 		}
 		try {
-			Object obj = RedisCache.get(key);
-			if(obj == null) {
-				return null;
-			}
-			if(obj instanceof String) {
-				String str = (String)obj;
-				if(StringUtility.isNullOrEmpty(str)) {
-					return null;
-				}
-				try {
-					return JsonUtility.decode(str, Object.class);
-				}catch(Exception e) {
-					return str;
-				}
+			return decodeRedisValue(RedisCache.get(key));
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+			return null;
+		}
+	}
+
+	private static List<Object> getAllFromRedis(List<String> keys) {
+		List<Object> res = new ArrayList<Object>(Collections.nCopies(keys.size(), null));
+		if(!EnableRedis || RedisCache == null) {
+			return res;
+		}
+		try {
+			List<Object> list = RedisCache.getAll(keys);
+			for(int i=0; list != null && i<list.size() && i<res.size(); i++) {
+				res.set(i, decodeRedisValue(list.get(i)));
 			}
-			return obj;
 		}catch(Exception e) {
 			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+		return res;
+	}
+
+	private static Object decodeRedisValue(Object obj) {
+		if(obj == null) {
 			return null;
 		}
+		if(obj instanceof String) {
+			String str = (String)obj;
+			if(StringUtility.isNullOrEmpty(str)) {
+				return null;
+			}
+			try {
+				return JsonUtility.decode(str, Object.class);
+			}catch(Exception e) {
+				return str;
+			}
+		}
+		return obj;
 	}
 
 	private static void saveToRedis(String key, Object value, int expInSec) {
@@ -300,19 +576,60 @@ public class ParamHashCacheHelper {
 		}
 	}
 
+	static ParamHashSegmentStore store(String scope) {
+		return Stores.computeIfAbsent(scope, (k)->{
+			return new ParamHashSegmentStore(Paths.get(LocalDir, k)).load();
+		});
+	}
+
+	private static int dropStore(String scope) {
+		ParamHashSegmentStore store = Stores.remove(scope);
+		if(store == null) {
+			store = new ParamHashSegmentStore(Paths.get(LocalDir, scope)).load();
+		}
+		return store.drop();
+	}
+
 	private static LocalPayload getFromLocal(String scope, String hash, int expInSec) {
 		LocalPayload payload = new LocalPayload();
 		payload.value = null;
 		payload.expired = false;
-		if(!EnableLocal) {
+		if(!EnableLocal || StringUtility.isNullOrEmpty(LocalDir) || StringUtility.isNullOrEmpty(hash)) {
+			return payload;
+		}
+		ParamHashSegmentStore store = store(scope);
+		ParamHashSegmentStore.Loc loc = store.lookup(hash);
+		if(loc == null) {
+			return getFromLegacyFile(store, scope, hash, expInSec);
+		}
+		long expAt = loc.expAt;
+		if(expAt <= 0 && expInSec > 0) {
+			expAt = loc.createdAt + expInSec * 1000L;
+		}
+		payload.expAt = expAt;
+		if(expAt > 0 && expAt <= System.currentTimeMillis()) {
+			payload.expired = true;
+			store.expire(hash, loc);
 			return payload;
 		}
+		payload.value = store.read(hash, loc);
+		return payload;
+	}
+
+	/**
+	 * 读取旧版按文件存放的json条目，读到后迁入段存储并删除旧文件
+	 */
+	private static LocalPayload getFromLegacyFile(ParamHashSegmentStore store, String scope, String hash, int expInSec) {
+		LocalPayload payload = new LocalPayload();
+		payload.value = null;
+		payload.expired = false;
 		Path path = localPath(scope, hash);
 		if(path == null || !Files.exists(path)) {
 			return payload;
 		}
 		try {
 			String text = Files.readString(path, StandardCharsets.UTF_8);
+			Files.deleteIfExists(path);
 			if(StringUtility.isNullOrEmpty(text)) {
 				return payload;
 			}
@@ -321,21 +638,20 @@ public class ParamHashCacheHelper {
 				return payload;
 			}
 			Map<String, Object> map = (Map<String, Object>) obj;
-			long now = System.currentTimeMillis();
+			long createdAt = ConvertUtility.getValueAsLong(map.get("createdAt"), 0);
 			long expAt = ConvertUtility.getValueAsLong(map.get("expAt"), 0);
 			if(expAt <= 0 && expInSec > 0) {
-				expAt = ConvertUtility.getValueAsLong(map.get("createdAt"), 0) + expInSec * 1000L;
+				expAt = createdAt + expInSec * 1000L;
 			}
-			if(expAt > 0 && expAt <= now) {
+			payload.expAt = expAt;
+			if(expAt > 0 && expAt <= System.currentTimeMillis()) {
 				payload.expired = true;
-				try {
-					Files.deleteIfExists(path);
-				}catch(Exception e) {
-					QueueLog.error(AppLoggers.ErrorLogger, e);
-				}
 				return payload;
 			}
 			payload.value = map.get("value");
+			if(payload.value != null) {
+				store.put(hash, payload.value, createdAt, expAt);
+			}
 			return payload;
 		}catch(Exception e) {
 			QueueLog.error(AppLoggers.ErrorLogger, e);
@@ -344,34 +660,14 @@ public class ParamHashCacheHelper {
 	}
 
 	private static void saveToLocal(String scope, String hash, Object value, int expInSec) {
-		if(!EnableLocal || value == null) {
+		if(!EnableLocal || value == null || StringUtility.isNullOrEmpty(LocalDir) || StringUtility.isNullOrEmpty(hash)) {
 			return;
 		}
 		if(!canPersistLocal(value)) {
 			return;
 		}
-		Path path = localPath(scope, hash);
-		if(path == null) {
-			return;
-		}
-		try {
-			Files.createDirectories(path.getParent());
-			long now = System.currentTimeMillis();
-			Map<String, Object> wrap = new HashMap<String, Object>();
-			wrap.put("createdAt", now);
-			wrap.put("expAt", expInSec > 0 ? now + expInSec * 1000L : 0L);
-			wrap.put("value", value);
-			String json = JsonUtility.encode(wrap);
-			Path tmp = Paths.get(path.toString() + ".tmp");
-			Files.writeString(tmp, json, StandardCharsets.UTF_8);
-			try {
-				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-			}catch(AtomicMoveNotSupportedException e) {
-				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
-			}
-		}catch(Exception e) {
-			QueueLog.error(AppLoggers.ErrorLogger, e);
-		}
+		long now = System.currentTimeMillis();
+		store(scope).put(hash, value, now, expInSec > 0 ? now + expInSec * 1000L : 0L);
 	}
 
 	private static Path localPath(String scope, String hash) {
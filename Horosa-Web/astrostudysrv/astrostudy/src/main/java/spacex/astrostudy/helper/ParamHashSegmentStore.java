@@ -0,0 +1,502 @@
+package spacex.astrostudy.helper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import boundless.io.CompressUtility;
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.utility.CalculatePool;
+import boundless.utility.ConvertUtility;
+import boundless.utility.JsonUtility;
+
+/**
+ * ParamHashCacheHelper的本地存储，每个scope一个实例，对应目录下按序号递增的段文件(seg.N)。
+ * 记录格式：总长度(int) + 创建时刻(long) + 过期时刻(long) + hash长度(short) + hash + gzip压缩的json + crc32(int)。
+ * 段文件只追加不改写，内存中保存hash到记录位置与过期时刻的索引，判断过期无需读取记录。
+ * 被覆盖或已过期的记录计为垃圾，段的垃圾比例超过阈值后由后台把存活记录搬到新段并删除旧段。
+ */
+class ParamHashSegmentStore {
+	private static final String SegmentPrefix = "seg.";
+	private static final long SegmentMaxBytes = 64L * 1024 * 1024;
+	private static final double CompactGarbageRatio = 0.5;
+	private static final long CompactMinGarbageBytes = 4L * 1024 * 1024;
+	private static final long CompactCheckIntervalMs = 60000;
+	private static final int HeaderBytes = 4 + 8 + 8 + 2;
+	private static final int CrcBytes = 4;
+
+	static final class Loc {
+		final long seg;
+		final long offset;
+		final int length;
+		final long createdAt;
+		final long expAt;
+
+		Loc(long seg, long offset, int length, long createdAt, long expAt) {
+			this.seg = seg;
+			this.offset = offset;
+			this.length = length;
+			this.createdAt = createdAt;
+			this.expAt = expAt;
+		}
+
+		boolean isExpired(long now) {
+			return this.expAt > 0 && this.expAt <= now;
+		}
+	}
+
+	private final Path dir;
+	private final ConcurrentHashMap<String, Loc> index = new ConcurrentHashMap<String, Loc>();
+	private final ConcurrentHashMap<Long, FileChannel> readers = new ConcurrentHashMap<Long, FileChannel>();
+	private final ConcurrentHashMap<Long, AtomicLong> segmentBytes = new ConcurrentHashMap<Long, AtomicLong>();
+	private final ConcurrentHashMap<Long, AtomicLong> garbageBytes = new ConcurrentHashMap<Long, AtomicLong>();
+	private final AtomicBoolean compacting = new AtomicBoolean(false);
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private FileChannel writer = null;
+	private long activeSeg = 0;
+	private long activePos = 0;
+	private volatile boolean closed = false;
+	private volatile long lastCompactCheck = System.currentTimeMillis();
+
+	ParamHashSegmentStore(Path dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * 扫描段文件的记录头重建索引，新的写入总是进入新的段
+	 */
+	ParamHashSegmentStore load() {
+		long now = System.currentTimeMillis();
+		long maxSeg = 0;
+		for(Map.Entry<Long, Path> entry : listSegments().entrySet()) {
+			long seg = entry.getKey();
+			maxSeg = Math.max(maxSeg, seg);
+			try(FileChannel ch = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+				long size = ch.size();
+				segmentBytes.put(seg, new AtomicLong(size));
+				ByteBuffer head = ByteBuffer.allocate(HeaderBytes);
+				long pos = 0;
+				while(pos + HeaderBytes <= size) {
+					head.clear();
+					readFully(ch, head, pos);
+					head.flip();
+					int length = head.getInt();
+					long createdAt = head.getLong();
+					long expAt = head.getLong();
+					int hashLen = head.getShort();
+					if(hashLen <= 0 || length < HeaderBytes + hashLen + CrcBytes || pos + length > size) {
+						break;
+					}
+					ByteBuffer hashBuf = ByteBuffer.allocate(hashLen);
+					readFully(ch, hashBuf, pos + HeaderBytes);
+					String hash = new String(hashBuf.array(), StandardCharsets.US_ASCII);
+					Loc loc = new Loc(seg, pos, length, createdAt, expAt);
+					if(loc.isExpired(now)) {
+						addGarbage(loc);
+						Loc old = index.remove(hash);
+						if(old != null) {
+							addGarbage(old);
+						}
+					}else {
+						Loc old = index.put(hash, loc);
+						if(old != null) {
+							addGarbage(old);
+						}
+					}
+					pos += length;
+				}
+				if(pos < size) {
+					QueueLog.warn(AppLoggers.WarnLogger, "paramhash segment {} has {} torn bytes", entry.getValue(), size - pos);
+					addGarbage(seg, size - pos);
+				}
+			}catch(Exception e) {
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			}
+		}
+		this.activeSeg = maxSeg + 1;
+		return this;
+	}
+
+	Loc lookup(String hash) {
+		return index.get(hash);
+	}
+
+	int size() {
+		return index.size();
+	}
+
+	/**
+	 * @return 解码后的值，记录不可读时返回null并从索引中移除
+	 */
+	Object read(String hash, Loc loc) {
+		for(int i=0; i<3 && loc != null; i++) {
+			try {
+				return decode(readRecord(loc), loc);
+			}catch(ClosedChannelException e) {
+				// 读取期间该段可能刚被压实删除，或通道因线程中断被关闭，按当前位置重试
+				loc = index.get(hash);
+			}catch(IOException e) {
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+				expire(hash, loc);
+				return null;
+			}
+		}
+		return null;
+	}
+
+	void expire(String hash, Loc loc) {
+		if(index.remove(hash, loc)) {
+			addGarbage(loc);
+		}
+		maybeCompact();
+	}
+
+	void put(String hash, Object value, long createdAt, long expAt) {
+		byte[] payload = CompressUtility.compressToBytes(JsonUtility.encode(value));
+		if(payload == null) {
+			return;
+		}
+		byte[] hashBytes = hash.getBytes(StandardCharsets.US_ASCII);
+		int length = HeaderBytes + hashBytes.length + payload.length + CrcBytes;
+		ByteBuffer buf = ByteBuffer.allocate(length);
+		buf.putInt(length);
+		buf.putLong(createdAt);
+		buf.putLong(expAt);
+		buf.putShort((short)hashBytes.length);
+		buf.put(hashBytes);
+		buf.put(payload);
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), 0, length - CrcBytes);
+		buf.putInt((int)crc.getValue());
+		buf.flip();
+		try {
+			lock.lock();
+			try {
+				Loc loc = append(buf, createdAt, expAt);
+				if(loc == null) {
+					return;
+				}
+				Loc old = index.put(hash, loc);
+				if(old != null) {
+					addGarbage(old);
+				}
+			}finally {
+				lock.unlock();
+			}
+		}catch(IOException e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+		maybeCompact();
+	}
+
+	/**
+	 * 关闭并删除整个目录
+	 * @return 删除前的有效条目数
+	 */
+	int drop() {
+		int cnt = index.size();
+		lock.lock();
+		try {
+			this.closed = true;
+			closeWriter();
+			index.clear();
+			for(FileChannel ch : readers.values()) {
+				closeQuietly(ch);
+			}
+			readers.clear();
+		}finally {
+			lock.unlock();
+		}
+		if(!Files.exists(dir)) {
+			return cnt;
+		}
+		List<Path> paths = new ArrayList<Path>();
+		try(Stream<Path> walk = Files.walk(dir)) {
+			walk.forEach((p)->{
+				paths.add(p);
+			});
+		}catch(IOException e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+		paths.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+		for(Path p : paths) {
+			try {
+				Files.deleteIfExists(p);
+			}catch(Exception e) {
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			}
+		}
+		return cnt;
+	}
+
+	private Loc append(ByteBuffer buf, long createdAt, long expAt) throws IOException {
+		if(this.closed) {
+			return null;
+		}
+		if(writer != null && activePos >= SegmentMaxBytes) {
+			closeWriter();
+			activeSeg++;
+		}
+		if(writer == null) {
+			Files.createDirectories(dir);
+			writer = FileChannel.open(segmentPath(activeSeg), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			activePos = writer.size();
+			segmentBytes.put(activeSeg, new AtomicLong(activePos));
+		}
+		int length = buf.remaining();
+		long offset = activePos;
+		while(buf.hasRemaining()) {
+			activePos += writer.write(buf, activePos);
+		}
+		segmentBytes.get(activeSeg).addAndGet(length);
+		return new Loc(activeSeg, offset, length, createdAt, expAt);
+	}
+
+	private ByteBuffer readRecord(Loc loc) throws IOException {
+		FileChannel ch = reader(loc.seg);
+		ByteBuffer buf = ByteBuffer.allocate(loc.length);
+		readFully(ch, buf, loc.offset);
+		buf.flip();
+		return buf;
+	}
+
+	private Object decode(ByteBuffer buf, Loc loc) throws IOException {
+		byte[] data = buf.array();
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, loc.length - CrcBytes);
+		buf.position(loc.length - CrcBytes);
+		if((int)crc.getValue() != buf.getInt()) {
+			throw new IOException("paramhash segment record crc mismatch at " + loc.seg + ":" + loc.offset);
+		}
+		buf.position(HeaderBytes - 2);
+		int hashLen = buf.getShort();
+		int start = HeaderBytes + hashLen;
+		byte[] payload = new byte[loc.length - start - CrcBytes];
+		System.arraycopy(data, start, payload, 0, payload.length);
+		try {
+			return JsonUtility.decode(CompressUtility.decompressFromBytes(payload), Object.class);
+		}catch(IOException e) {
+			throw e;
+		}catch(Exception e) {
+			throw new IOException(e);
+		}
+	}
+
+	private FileChannel reader(long seg) throws IOException {
+		FileChannel ch = readers.get(seg);
+		if(ch != null && ch.isOpen()) {
+			return ch;
+		}
+		Path path = segmentPath(seg);
+		try {
+			return readers.compute(seg, (k, cur)->{
+				if(cur != null && cur.isOpen()) {
+					return cur;
+				}
+				try {
+					return FileChannel.open(path, StandardOpenOption.READ);
+				}catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private void maybeCompact() {
+		long now = System.currentTimeMillis();
+		if(this.closed || now - lastCompactCheck < CompactCheckIntervalMs || !compacting.compareAndSet(false, true)) {
+			return;
+		}
+		lastCompactCheck = now;
+		try {
+			CalculatePool.queueUserWorkItem(()->{
+				try {
+					compact();
+				}finally {
+					compacting.set(false);
+				}
+			}, (e)->{
+				// 任务被拒绝或丢弃时没有执行，由这里复位；执行过的已在finally中复位
+				if(e instanceof RejectedExecutionException) {
+					compacting.set(false);
+				}
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			});
+		}catch(Exception e) {
+			compacting.set(false);
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+	}
+
+	/**
+	 * 先把过期条目移出索引，再把垃圾比例过高的段中的存活记录原样搬到活动段，然后删除这些段
+	 */
+	private void compact() {
+		long now = System.currentTimeMillis();
+		for(Map.Entry<String, Loc> entry : index.entrySet()) {
+			if(entry.getValue().isExpired(now)) {
+				expireQuietly(entry.getKey(), entry.getValue());
+			}
+		}
+
+		List<Long> targets = new ArrayList<Long>();
+		lock.lock();
+		try {
+			for(Map.Entry<Long, AtomicLong> entry : segmentBytes.entrySet()) {
+				long seg = entry.getKey();
+				long size = entry.getValue().get();
+				AtomicLong garbage = garbageBytes.get(seg);
+				long waste = garbage == null ? 0 : garbage.get();
+				if(size <= 0 || waste < size * CompactGarbageRatio) {
+					continue;
+				}
+				if(waste < CompactMinGarbageBytes && waste < size) {
+					continue;
+				}
+				if(seg == activeSeg && writer != null) {
+					closeWriter();
+					activeSeg++;
+				}
+				targets.add(seg);
+			}
+		}finally {
+			lock.unlock();
+		}
+		if(targets.isEmpty()) {
+			return;
+		}
+
+		long st = System.currentTimeMillis();
+		long moved = 0;
+		for(long seg : targets) {
+			for(Map.Entry<String, Loc> entry : index.entrySet()) {
+				Loc loc = entry.getValue();
+				if(loc.seg != seg) {
+					continue;
+				}
+				try {
+					ByteBuffer buf = readRecord(loc);
+					lock.lock();
+					try {
+						if(index.get(entry.getKey()) != loc) {
+							continue;
+						}
+						Loc newloc = append(buf, loc.createdAt, loc.expAt);
+						if(newloc == null) {
+							return;
+						}
+						index.put(entry.getKey(), newloc);
+						moved++;
+					}finally {
+						lock.unlock();
+					}
+				}catch(IOException e) {
+					QueueLog.error(AppLoggers.ErrorLogger, e);
+					expireQuietly(entry.getKey(), loc);
+				}
+			}
+			FileChannel ch = readers.remove(seg);
+			if(ch != null) {
+				closeQuietly(ch);
+			}
+			segmentBytes.remove(seg);
+			garbageBytes.remove(seg);
+			try {
+				Files.deleteIfExists(segmentPath(seg));
+			}catch(IOException e) {
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			}
+		}
+		QueueLog.debug(AppLoggers.DebugLogger, "paramhash store {} compacted {} segments, moved {} records in {} ms",
+				dir, targets.size(), moved, System.currentTimeMillis() - st);
+	}
+
+	private void expireQuietly(String hash, Loc loc) {
+		if(index.remove(hash, loc)) {
+			addGarbage(loc);
+		}
+	}
+
+	private void addGarbage(Loc loc) {
+		addGarbage(loc.seg, loc.length);
+	}
+
+	private void addGarbage(long seg, long bytes) {
+		garbageBytes.computeIfAbsent(seg, (k)->new AtomicLong()).addAndGet(bytes);
+	}
+
+	private void closeWriter() {
+		if(writer == null) {
+			return;
+		}
+		closeQuietly(writer);
+		writer = null;
+	}
+
+	private Path segmentPath(long seg) {
+		return dir.resolve(SegmentPrefix + seg);
+	}
+
+	private TreeMap<Long, Path> listSegments() {
+		TreeMap<Long, Path> segments = new TreeMap<Long, Path>();
+		if(!Files.isDirectory(dir)) {
+			return segments;
+		}
+		try(Stream<Path> stream = Files.list(dir)) {
+			stream.forEach((path)->{
+				String name = path.getFileName().toString();
+				if(!name.startsWith(SegmentPrefix)) {
+					return;
+				}
+				long seg = ConvertUtility.getValueAsLong(name.substring(SegmentPrefix.length()), -1L);
+				if(seg >= 0) {
+					segments.put(seg, path);
+				}
+			});
+		}catch(IOException e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+		return segments;
+	}
+
+	private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+		while(buf.hasRemaining()) {
+			int n = ch.read(buf, pos);
+			if(n < 0) {
+				throw new IOException("unexpected end of paramhash segment");
+			}
+			pos += n;
+		}
+	}
+
+	private static void closeQuietly(FileChannel ch) {
+		try {
+			ch.close();
+		}catch(IOException e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+	}
+
+}
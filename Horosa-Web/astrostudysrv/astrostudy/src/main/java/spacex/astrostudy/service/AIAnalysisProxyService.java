@@ -30,6 +30,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -92,7 +93,7 @@ public class AIAnalysisProxyService {
 	 */
 	private static final class SseChannel {
 		private final SseEmitter emitter;
-		private final Object lock = new Object();
+		private final ReentrantLock lock = new ReentrantLock();
 		private boolean closed = false;
 
 		SseChannel(SseEmitter emitter) {
@@ -101,7 +102,8 @@ public class AIAnalysisProxyService {
 
 		/** 线程安全发送;已关闭返回 false(不抛)。底层发送失败(客户端已断)则标记关闭并上抛,供上层进 catch 记日志。 */
 		boolean send(SseEmitter.SseEventBuilder event) throws IOException {
-			synchronized (lock) {
+			lock.lock();
+			try {
 				if (closed) {
 					return false;
 				}
@@ -112,12 +114,15 @@ public class AIAnalysisProxyService {
 					closed = true;
 					throw e;
 				}
+			} finally {
+				lock.unlock();
 			}
 		}
 
 		/** 幂等完成:只会真正 complete 一次,重复调用静默返回。 */
 		void complete() {
-			synchronized (lock) {
+			lock.lock();
+			try {
 				if (closed) {
 					return;
 				}
@@ -127,12 +132,15 @@ public class AIAnalysisProxyService {
 				} catch (Exception ignore) {
 					// 已完成或客户端已断
 				}
+			} finally {
+				lock.unlock();
 			}
 		}
 
 		/** 幂等错误完成。 */
 		void completeWithError(Throwable e) {
-			synchronized (lock) {
+			lock.lock();
+			try {
 				if (closed) {
 					return;
 				}
@@ -142,6 +150,8 @@ public class AIAnalysisProxyService {
 				} catch (Exception ignore) {
 					// 已完成或客户端已断
 				}
+			} finally {
+				lock.unlock();
 			}
 		}
 	}
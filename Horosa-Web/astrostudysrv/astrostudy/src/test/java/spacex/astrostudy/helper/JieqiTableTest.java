@@ -0,0 +1,258 @@
+package spacex.astrostudy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boundless.io.FileUtility;
+import boundless.utility.ConvertUtility;
+import boundless.utility.DateTimeUtility;
+import boundless.utility.JsonUtility;
+
+/**
+ * 与astrosrv的/jieqi/year、/jieqi/nongli对照。jieqi-golden.json是astrosrv的结果，格式同JieqiTableGenerator golden，可用它重新录制：
+ * 2019~2027与2032~2035为+08:00，含2020闰四月、2023闰二月、2025闰六月及2033/2034的闰月；-4~3为-05:00，跨公元前后。
+ * 表数据按0时区求得，astrosrv按本地时区逼近，两者时刻有秒级差别，所以时刻按容差比较，日期与月名须一致
+ */
+public class JieqiTableTest {
+	static final double Tolerance = 0.001;
+
+	private List<Path> files = new ArrayList<Path>();
+
+	static List<Map<String, Object>> goldenTables() {
+		String json = FileUtility.getStringFromClassPath("spacex/astrostudy/helper/jieqi-golden.json");
+		return (List<Map<String, Object>>) JsonUtility.toDictionary(json).get("tables");
+	}
+
+	static JieqiTable openTable(Map<String, Object> golden, List<Path> files) throws Exception {
+		return openTable(golden, terms(golden), toArray((List<Object>) golden.get("moons")), files);
+	}
+
+	private static JieqiTable openTable(Map<String, Object> golden, double[][] terms, double[] moons, List<Path> files) throws Exception {
+		Path path = Files.createTempFile("jieqi", ".tbl");
+		files.add(path);
+		JieqiTable.write(path, ConvertUtility.getValueAsInt(golden.get("from")), terms, moons);
+		return JieqiTable.open(path);
+	}
+
+	private static double[][] terms(Map<String, Object> golden) {
+		List<List<Object>> terms = (List<List<Object>>) golden.get("terms");
+		double[][] rows = new double[terms.size()][];
+		for(int i=0; i<rows.length; i++) {
+			rows[i] = toArray(terms.get(i));
+		}
+		return rows;
+	}
+
+	private static double[] toArray(List<Object> list) {
+		double[] res = new double[list.size()];
+		for(int i=0; i<res.length; i++) {
+			res[i] = ConvertUtility.getValueAsDouble(list.get(i));
+		}
+		return res;
+	}
+
+	/**
+	 * @return jdn所在本地日期零点的世界时儒略日
+	 */
+	private static double localMidnight(double jdn, String zone) {
+		double zoneDays = DateTimeUtility.getZoneJdn(zone);
+		return Math.floor(jdn + zoneDays + 0.5) - 0.5 - zoneDays;
+	}
+
+	private static Map<String, Object> find(List<Map<String, Object>> list, String key, Object value) {
+		for(Map<String, Object> item : list) {
+			if(value.equals(item.get(key))) {
+				return item;
+			}
+		}
+		return null;
+	}
+
+	private static String datePart(Object time) {
+		String str = (String) time;
+		return str.substring(0, str.lastIndexOf(' '));
+	}
+
+	@Before
+	public void setup() {
+		files.clear();
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		for(Path path : files) {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void jieqi24MatchesAstrosrv() throws Exception {
+		int years = 0;
+		for(Map<String, Object> golden : goldenTables()) {
+			JieqiTable table = openTable(golden, files);
+			String zone = (String) golden.get("zone");
+			for(Map<String, Object> item : (List<Map<String, Object>>) golden.get("jieqi")) {
+				String year = (String) item.get("year");
+				List<Map<String, Object>> expected = (List<Map<String, Object>>) item.get("jieqi24");
+				List<Map<String, Object>> actual = table.getJieqi24(year, zone);
+				assertNotNull(year, actual);
+				assertEquals(year, expected.size(), actual.size());
+				for(int i=0; i<expected.size(); i++) {
+					Map<String, Object> exp = expected.get(i);
+					Map<String, Object> act = actual.get(i);
+					String msg = year + " " + exp.get("jieqi");
+					assertEquals(msg, exp.get("jieqi"), act.get("jieqi"));
+					assertEquals(msg, exp.get("ord"), act.get("ord"));
+					assertEquals(msg, exp.get("jie"), act.get("jie"));
+					assertEquals(msg, exp.get("ad"), act.get("ad"));
+					assertEquals(msg, datePart(exp.get("time")), datePart(act.get("time")));
+					assertEquals(msg, ConvertUtility.getValueAsDouble(exp.get("jdn")), (double) act.get("jdn"), Tolerance);
+				}
+				years++;
+			}
+		}
+		assertEquals(20, years);
+	}
+
+	@Test
+	public void nongliMonthsMatchAstrosrv() throws Exception {
+		int leaps = 0;
+		for(Map<String, Object> golden : goldenTables()) {
+			JieqiTable table = openTable(golden, files);
+			String zone = (String) golden.get("zone");
+			List<Map<String, Object>> list = (List<Map<String, Object>>) golden.get("nongli");
+			// 首年缺上一年冬至，末年缺次年朔日，由边界用例覆盖
+			for(Map<String, Object> item : list.subList(1, list.size() - 1)) {
+				String year = (String) item.get("year");
+				List<Map<String, Object>> expected = (List<Map<String, Object>>) item.get("months");
+				Map<String, Object>[] actual = table.getNongliMonths(year, zone);
+				assertNotNull(year, actual);
+				assertEquals(year, expected.size(), actual.length);
+				for(int i=0; i<expected.size(); i++) {
+					Map<String, Object> exp = expected.get(i);
+					Map<String, Object> act = actual[i];
+					String msg = year + " " + exp.get("date");
+					assertEquals(msg, exp.get("date"), act.get("date"));
+					assertEquals(msg, exp.get("name"), act.get("name"));
+					assertEquals(msg, exp.get("leap"), act.get("leap"));
+					assertEquals(msg, exp.get("year"), act.get("year"));
+					assertEquals(msg, exp.get("ad"), act.get("ad"));
+					assertEquals(msg, ConvertUtility.getValueAsDouble(exp.get("jdn")), (double) act.get("jdn"), Tolerance);
+					leaps += ConvertUtility.getValueAsInt(exp.get("leap"));
+				}
+			}
+		}
+		assertTrue("golden data must cover leap months", leaps >= 6);
+	}
+
+	@Test
+	public void yearsOutsideTableFallBack() throws Exception {
+		for(Map<String, Object> golden : goldenTables()) {
+			JieqiTable table = openTable(golden, files);
+			String zone = (String) golden.get("zone");
+			int from = ConvertUtility.getValueAsInt(golden.get("from"));
+			int to = ConvertUtility.getValueAsInt(golden.get("to"));
+			int before = from == 1 ? -1 : from - 1;
+			int after = to == -1 ? 1 : to + 1;
+
+			assertNull(table.getJieqi24(String.valueOf(before), zone));
+			assertNull(table.getJieqi24(String.valueOf(after), zone));
+			assertNotNull(table.getJieqi24(String.valueOf(from), zone));
+			assertNotNull(table.getJieqi24(String.valueOf(to), zone));
+			assertNull(table.getNongliMonths(String.valueOf(from), zone));
+			assertNull(table.getNongliMonths(String.valueOf(to), zone));
+		}
+		JieqiTable table = openTable(goldenTables().get(2), files);
+		assertNull(table.getJieqi24("0", "-05:00"));
+		assertNotNull(table.getNongliMonths("1", "-05:00"));
+	}
+
+	@Test
+	public void zoneWithoutMinutes() throws Exception {
+		JieqiTable table = openTable(goldenTables().get(0), files);
+		assertEquals(table.getJieqi24("2023", "+08:00"), table.getJieqi24("2023", "+8"));
+		assertEquals(table.getJieqi24("2023", "-05:00"), table.getJieqi24("2023", "-5"));
+	}
+
+	/**
+	 * 2023年春分移到+08:00零点前后：差几秒就可能换日，余量内回退到astrosrv，余量外按表换算的日期与时刻
+	 */
+	@Test
+	public void termNearMidnightFallsBack() throws Exception {
+		Map<String, Object> golden = goldenTables().get(0);
+		double[][] terms = terms(golden);
+		double[] moons = toArray((List<Object>) golden.get("moons"));
+		int y = 2023 - 2019;
+		double midnight = localMidnight(terms[y][0], "+08:00");
+
+		for(int secs : new int[] {-119, -30, 0, 30, 119}) {
+			terms[y][0] = midnight + secs / 86400.0;
+			JieqiTable table = openTable(golden, terms, moons, files);
+			assertNull(String.valueOf(secs), table.getJieqi24("2023", "+08:00"));
+			assertNull(String.valueOf(secs), table.getNongliMonths("2023", "+08:00"));
+			assertNotNull(String.valueOf(secs), table.getJieqi24("2023", "+08:30"));
+			assertNotNull(String.valueOf(secs), table.getJieqi24("2022", "+08:00"));
+		}
+
+		terms[y][0] = midnight + 630.5 / 86400.0;
+		Map<String, Object> after = find(openTable(golden, terms, moons, files).getJieqi24("2023", "+08:00"), "jieqi", "春分");
+		terms[y][0] = midnight - 630.5 / 86400.0;
+		Map<String, Object> before = find(openTable(golden, terms, moons, files).getJieqi24("2023", "+08:00"), "jieqi", "春分");
+		String day = datePart(after.get("time"));
+		assertEquals(day + " 00:10:30", after.get("time"));
+		assertEquals(LocalDate.parse(day).minusDays(1) + " 23:49:29", before.get("time"));
+	}
+
+	/**
+	 * 2024年六月朔日移到+08:00零点前后，余量内回退，余量外月首落在朔日所在的本地日期
+	 */
+	@Test
+	public void newMoonNearMidnightFallsBack() throws Exception {
+		Map<String, Object> golden = goldenTables().get(0);
+		double[][] terms = terms(golden);
+		double[] moons = toArray((List<Object>) golden.get("moons"));
+		double target = DateTimeUtility.getDateNum("2024-06-06 12:00:00", "+08:00");
+		int m = 0;
+		for(int i=0; i<moons.length; i++) {
+			if(Math.abs(moons[i] - target) < Math.abs(moons[m] - target)) {
+				m = i;
+			}
+		}
+		double midnight = localMidnight(moons[m], "+08:00");
+
+		for(int secs : new int[] {-119, 0, 119}) {
+			moons[m] = midnight + secs / 86400.0;
+			JieqiTable table = openTable(golden, terms, moons, files);
+			assertNull(String.valueOf(secs), table.getNongliMonths("2024", "+08:00"));
+			assertNotNull(String.valueOf(secs), table.getNongliMonths("2024", "-05:00"));
+			assertNotNull(String.valueOf(secs), table.getJieqi24("2024", "+08:00"));
+		}
+
+		moons[m] = midnight + 630.5 / 86400.0;
+		Map<String, Object>[] months = openTable(golden, terms, moons, files).getNongliMonths("2024", "+08:00");
+		Map<String, Object> month = find(Arrays.asList(months), "jdn", moons[m]);
+		assertNotNull(month);
+		assertEquals("00:10:30", month.get("time"));
+		String day = (String) month.get("date");
+		moons[m] = midnight - 630.5 / 86400.0;
+		months = openTable(golden, terms, moons, files).getNongliMonths("2024", "+08:00");
+		month = find(Arrays.asList(months), "jdn", moons[m]);
+		assertEquals(LocalDate.parse(day).minusDays(1).toString(), month.get("date"));
+		assertEquals("23:49:29", month.get("time"));
+	}
+
+}
@@ -0,0 +1,76 @@
+package spacex.astrostudy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import spacex.astrostudy.model.NongLi;
+
+/**
+ * 走JieqiTable时，闰月后半月及其后一月的农历日期须与astrosrv给出的月表一致
+ */
+public class NongliHelperTest {
+	private List<Path> files = new ArrayList<Path>();
+
+	@Before
+	public void setup() throws Exception {
+		JieqiTable.setInstance(JieqiTableTest.openTable(JieqiTableTest.goldenTables().get(0), files));
+	}
+
+	@After
+	public void cleanup() throws Exception {
+		JieqiTable.setInstance(null);
+		for(Path path : files) {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void leapMonthFromDay16MatchesAstrosrvMonths() {
+		Map<String, Object> golden = JieqiTableTest.goldenTables().get(0);
+		String zone = (String) golden.get("zone");
+		int checked = 0;
+		for(Map<String, Object> item : (List<Map<String, Object>>) golden.get("nongli")) {
+			List<Map<String, Object>> months = (List<Map<String, Object>>) item.get("months");
+			for(int i=0; i<months.size() - 2; i++) {
+				Map<String, Object> leap = months.get(i);
+				if(!Integer.valueOf(1).equals(leap.get("leap"))) {
+					continue;
+				}
+				LocalDate start = LocalDate.parse((String) leap.get("date"));
+				LocalDate next = LocalDate.parse((String) months.get(i + 1).get("date"));
+				LocalDate end = LocalDate.parse((String) months.get(i + 2).get("date"));
+				List<String> births = new ArrayList<String>();
+				for(LocalDate d=start.plusDays(15); d.isBefore(end); d=d.plusDays(1)) {
+					births.add(d + " 12:00:00");
+				}
+
+				List<NongLi> list = NongliHelper.getNongLiSeries(1, births, zone, "120e00", false, true);
+				for(int k=0; k<births.size(); k++) {
+					LocalDate d = LocalDate.parse(births.get(k).substring(0, 10));
+					Map<String, Object> month = d.isBefore(next) ? leap : months.get(i + 1);
+					LocalDate first = d.isBefore(next) ? start : next;
+					NongLi nl = list.get(k);
+					String msg = births.get(k);
+					assertEquals(msg, month.get("name"), nl.month);
+					assertEquals(msg, Integer.valueOf(1).equals(month.get("leap")), nl.leap);
+					assertEquals(msg, month.get("year"), nl.year);
+					assertEquals(msg, first.until(d).getDays() + 1, nl.dayInt);
+					checked++;
+				}
+			}
+		}
+		assertTrue("golden data must cover leap months", checked > 40);
+	}
+
+}
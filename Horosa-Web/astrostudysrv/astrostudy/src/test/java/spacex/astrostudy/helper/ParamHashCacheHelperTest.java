@@ -0,0 +1,173 @@
+package spacex.astrostudy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+import boundless.types.KeyValuePair;
+
+public class ParamHashCacheHelperTest {
+	private static final String FlightScope = "_test_flight";
+	private static final String RefreshScope = "_test_refresh";
+
+	@After
+	public void cleanup() {
+		ParamHashCacheHelper.clearByScope(FlightScope);
+		ParamHashCacheHelper.clearByScope(RefreshScope);
+	}
+
+	private static Map<String, Object> params(Object id) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("id", id);
+		params.put("nonce", System.nanoTime());
+		return params;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		}catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void eventually(String msg, Supplier<Boolean> cond) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(!cond.get()) {
+			assertTrue(msg, System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * 放入一条还有5秒过期的本地条目，处于提前刷新的窗口内
+	 */
+	private static void putNearExpiry(Map<String, Object> params, Object value) {
+		long now = System.currentTimeMillis();
+		ParamHashCacheHelper.store(RefreshScope).put(ParamHashCacheHelper.hash(params), value, now, now + 5000);
+	}
+
+	@Test
+	public void concurrentMissesComputeOnce() throws Exception {
+		Map<String, Object> params = params("flight");
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for(int i=0; i<8; i++) {
+				futures.add(pool.submit(()->ParamHashCacheHelper.get(FlightScope, params, (p)->{
+					calls.incrementAndGet();
+					await(release);
+					return "value";
+				})));
+			}
+			eventually("compute did not start", ()->calls.get() > 0);
+			Thread.sleep(200);
+			release.countDown();
+			for(Future<Object> future : futures) {
+				assertEquals("value", future.get(10, TimeUnit.SECONDS));
+			}
+		}finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void batchWaitsForInFlightGet() throws Exception {
+		Map<String, Object> shared = params("shared");
+		Map<String, Object> other = params("other");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ScheduledExecutorService pool = Executors.newScheduledThreadPool(2);
+		try {
+			Future<Object> single = pool.submit(()->ParamHashCacheHelper.get(FlightScope, shared, (p)->{
+				started.countDown();
+				await(release);
+				return "shared";
+			}));
+			await(started);
+
+			List<KeyValuePair<String, Map<String, Object>>> reqs = new ArrayList<KeyValuePair<String, Map<String, Object>>>();
+			reqs.add(new KeyValuePair<String, Map<String, Object>>(FlightScope, shared));
+			reqs.add(new KeyValuePair<String, Map<String, Object>>(FlightScope, other));
+			List<List<Integer>> loaded = new ArrayList<List<Integer>>();
+			// getBatch登记等待之后才放行单个get
+			pool.schedule(release::countDown, 200, TimeUnit.MILLISECONDS);
+			List<Object> res = ParamHashCacheHelper.getBatch(reqs, (idxs)->{
+				loaded.add(new ArrayList<Integer>(idxs));
+				List<Object> values = new ArrayList<Object>();
+				for(int idx : idxs) {
+					values.add(idx == 0 ? "batch" : "other");
+				}
+				return values;
+			}, 86400);
+
+			assertEquals("shared", single.get(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList("shared", "other"), res);
+			assertEquals(Arrays.asList(Arrays.asList(1)), loaded);
+		}finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void nearExpiryValueIsRefreshedInBackground() throws Exception {
+		Map<String, Object> params = params("refresh");
+		putNearExpiry(params, "old");
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			for(int i=0; i<3; i++) {
+				assertEquals("old", ParamHashCacheHelper.get(RefreshScope, params, (p)->{
+					calls.incrementAndGet();
+					started.countDown();
+					await(release);
+					return "new";
+				}));
+			}
+			await(started);
+		}finally {
+			release.countDown();
+		}
+		eventually("refreshed value not stored", ()->"new".equals(ParamHashCacheHelper.get(RefreshScope, params, (p)->"recomputed")));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void nearExpiryBatchItemIsRefreshedInBackground() throws Exception {
+		Map<String, Object> params = params("batch-refresh");
+		putNearExpiry(params, "old");
+		List<KeyValuePair<String, Map<String, Object>>> reqs = new ArrayList<KeyValuePair<String, Map<String, Object>>>();
+		reqs.add(new KeyValuePair<String, Map<String, Object>>(RefreshScope, params));
+		AtomicInteger calls = new AtomicInteger();
+
+		List<Object> res = ParamHashCacheHelper.getBatch(reqs, (idxs)->{
+			calls.incrementAndGet();
+			return Arrays.asList((Object) "new");
+		}, 86400);
+
+		assertEquals(Arrays.asList("old"), res);
+		eventually("refreshed value not stored", ()->"new".equals(ParamHashCacheHelper.get(RefreshScope, params, (p)->"recomputed")));
+		assertEquals(1, calls.get());
+	}
+
+}
@@ -0,0 +1,91 @@
+package spacex.astrostudy.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParamHashSegmentStoreTest {
+
+	private Path dir;
+
+	@Before
+	public void setup() throws Exception{
+		dir = Files.createTempDirectory("paramhash").resolve("_chart");
+	}
+
+	@After
+	public void cleanup() throws Exception{
+		new ParamHashSegmentStore(dir).drop();
+		Files.deleteIfExists(dir.getParent());
+	}
+
+	@Test
+	public void reloadsLatestRecordsAndSkipsExpired() throws Exception{
+		long now = System.currentTimeMillis();
+		ParamHashSegmentStore store = new ParamHashSegmentStore(dir).load();
+		store.put("h1", chart("a"), now, now + 60000);
+		store.put("h2", chart("b"), now, now - 1);
+		store.put("h1", chart("c"), now, 0);
+
+		ParamHashSegmentStore reopened = new ParamHashSegmentStore(dir).load();
+		assertEquals(1, reopened.size());
+		assertNull(reopened.lookup("h2"));
+		ParamHashSegmentStore.Loc loc = reopened.lookup("h1");
+		assertEquals(0, loc.expAt);
+		assertEquals("c", ((Map<?, ?>)reopened.read("h1", loc)).get("name"));
+	}
+
+	@Test
+	public void ignoresTornTailAndCorruptRecords() throws Exception{
+		long now = System.currentTimeMillis();
+		ParamHashSegmentStore store = new ParamHashSegmentStore(dir).load();
+		store.put("h1", chart("a"), now, 0);
+		store.put("h2", chart("b"), now, 0);
+		Path seg = dir.resolve("seg.1");
+		Files.write(seg, new byte[] {0, 0, 1, 0, 0, 0}, StandardOpenOption.APPEND);
+
+		ParamHashSegmentStore reopened = new ParamHashSegmentStore(dir).load();
+		assertEquals(2, reopened.size());
+		ParamHashSegmentStore.Loc loc = reopened.lookup("h2");
+		byte[] data = Files.readAllBytes(seg);
+		data[(int)loc.offset + loc.length - 6] ^= 0x5a;
+		Files.write(seg, data);
+		assertNull(reopened.read("h2", loc));
+		assertNull(reopened.lookup("h2"));
+		assertEquals("a", ((Map<?, ?>)reopened.read("h1", reopened.lookup("h1"))).get("name"));
+
+		reopened.put("h3", chart("d"), now, 0);
+		assertTrue(Files.exists(dir.resolve("seg.2")));
+		ParamHashSegmentStore again = new ParamHashSegmentStore(dir).load();
+		assertEquals("d", ((Map<?, ?>)again.read("h3", again.lookup("h3"))).get("name"));
+	}
+
+	@Test
+	public void dropRemovesAllSegments() throws Exception{
+		ParamHashSegmentStore store = new ParamHashSegmentStore(dir).load();
+		store.put("h1", chart("a"), System.currentTimeMillis(), 0);
+		assertEquals(1, store.drop());
+		assertFalse(Files.exists(dir));
+		store.put("h2", chart("b"), System.currentTimeMillis(), 0);
+		assertFalse(Files.exists(dir));
+	}
+
+	private static Map<String, Object> chart(String name){
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("name", name);
+		map.put("objects", new int[] {1, 2, 3});
+		return map;
+	}
+
+}
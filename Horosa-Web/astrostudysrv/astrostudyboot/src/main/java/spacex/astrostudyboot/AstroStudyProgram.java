@@ -1,5 +1,7 @@
 package spacex.astrostudyboot;
 
+import java.util.concurrent.ExecutorService;
+
 import org.apache.tomcat.util.http.LegacyCookieProcessor;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
@@ -18,7 +20,9 @@ import com.thetransactioncompany.cors.CORSFilter;
 
 import boundless.spring.help.interceptor.RSAFilter;
 import boundless.utility.ProgArgsHelper;
+import boundless.utility.VirtualThreads;
 import spacex.astrostudy.constants.ClientApp;
+import spacex.astrostudy.helper.JieqiTable;
 import spacex.basecomm.constants.ClientChannel;
 import spacex.basecomm.helper.HttpHelper;
 import spacex.basecomm.model.AppInfo;
@@ -40,6 +44,7 @@ public class AstroStudyProgram {
 		
 		SpringApplicationBuilder builder = new SpringApplicationBuilder(AstroStudyProgram.class).web(WebApplicationType.SERVLET);		
 		builder.run(args);
+		JieqiTable.load();
 	}
 	
 	private CORSFilter newCORSFilter(){
@@ -71,6 +76,19 @@ public class AstroStudyProgram {
         return (factory)->factory.addContextCustomizers((context)->context.setCookieProcessor(new LegacyCookieProcessor()));
     }
 
+	/**
+	 * -Dvirtualthreads.enabled=true且运行在java 21以上时，tomcat每个请求在独立的虚拟线程上处理
+	 */
+	@Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadCustomizer() {
+        return (factory)->factory.addProtocolHandlerCustomizers((handler)->{
+        	ExecutorService executor = VirtualThreads.newPerTaskExecutor("tomcat-handler-");
+        	if(executor != null) {
+        		handler.setExecutor(executor);
+        	}
+        });
+    }
+
 //	@Bean
 //	public FilterRegistrationBean<RSAFilter> rsaFilter(){
 //		RSAFilter filter = new RSAFilter();
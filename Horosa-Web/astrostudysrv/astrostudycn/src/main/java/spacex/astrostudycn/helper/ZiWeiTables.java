@@ -0,0 +1,216 @@
+package spacex.astrostudycn.helper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import spacex.astrostudy.constants.FiveElement;
+import spacex.astrostudy.constants.PhaseType;
+import spacex.astrostudy.constants.Polarity;
+import spacex.astrostudy.constants.StemBranch;
+import spacex.astrostudy.helper.WuXingPhaseHelper;
+import spacex.astrostudycn.constants.BaZiGender;
+
+/**
+ * 把ZiWeiHelper里以中文为键的安星表编译成按下标取值的数组。
+ * 天干下标0-9、地支下标0-11、月份按MonthNames的下标，均与StemBranch一致；
+ * 各组星的顺序与原表的遍历顺序相同，按此顺序安星得到的命盘与逐表查找完全一样
+ */
+public class ZiWeiTables {
+	/**
+	 * 一组按同一下标安放的星：names[k]的星，按下标i安在pos[k][i]宫
+	 */
+	public static class StarGroup {
+		public final String[] names;
+		public final int[] types;
+		public final int[][] pos;
+
+		StarGroup(int size, int width) {
+			this.names = new String[size];
+			this.types = new int[size];
+			this.pos = new int[size][width];
+		}
+	}
+
+	public static final String[] MonthNames = new String[] {"正月", "二月", "三月", "四月", "五月", "六月", "七月", "八月", "九月", "十月", "冬月", "腊月"};
+
+	public static final int[] HouseGanStart = new int[10];
+	public static final boolean[] BranchPositive = new boolean[12];
+	public static final boolean[] StemPositive = new boolean[10];
+
+	/**
+	 * 命宫干支所定的五行局与长生位，非同阴阳的干支组合为0与-1
+	 */
+	public static final int[][] WuxingJu = new int[10][12];
+	public static final int[][] ChangShengPos = new int[10][12];
+	/**
+	 * 年干支的旬空地支位掩码
+	 */
+	public static final int[][] XunEmptyMask = new int[10][12];
+
+	public static final StarGroup NorthMain;
+	public static final StarGroup SouthMain;
+	/**
+	 * 年干星：pos为主位，YearGan2为双位时的第一位，无则为-1
+	 */
+	public static final StarGroup YearGan;
+	public static final int[][] YearGan2;
+	public static final StarGroup YearZi;
+	public static final StarGroup Month;
+	public static final StarGroup TimeZi;
+	/**
+	 * 火铃按年支分组，组内按时支取位
+	 */
+	public static final StarGroup[] HuoLin = new StarGroup[12];
+	/**
+	 * 将前诸星按年支分组，pos宽度为1
+	 */
+	public static final StarGroup[] Jiang = new StarGroup[12];
+
+	public static final int[][] DouJun = new int[12][12];
+	public static final int[] XiaoXianStart = new int[12];
+	public static final int[] TianCaiHouseName = new int[12];
+
+	private static final Map<String, Integer> MonthIndex = new HashMap<String, Integer>();
+
+	static {
+		for(int i=0; i<MonthNames.length; i++) {
+			MonthIndex.put(MonthNames[i], i);
+		}
+		for(int i=0; i<10; i++) {
+			HouseGanStart[i] = StemBranch.StemIndex.get(ZiWeiHelper.HouseGanStart.get(StemBranch.Stems[i]));
+			StemPositive[i] = StemBranch.getStemPolar(StemBranch.Stems[i]) == Polarity.Positive;
+		}
+		for(int i=0; i<12; i++) {
+			BranchPositive[i] = StemBranch.BranchPolarityMap.get(StemBranch.Branches[i]) == Polarity.Positive;
+			int idx = i > 0 ? 11 - i : i;
+			TianCaiHouseName[i] = idx;
+		}
+		for(int g=0; g<10; g++) {
+			for(int z=0; z<12; z++) {
+				WuxingJu[g][z] = 0;
+				ChangShengPos[g][z] = -1;
+				if(g % 2 != z % 2) {
+					continue;
+				}
+				String ganzi = StemBranch.Stems[g] + StemBranch.Branches[z];
+				FiveElement elem = StemBranch.getNaYingElement(ganzi);
+				WuxingJu[g][z] = ZiWeiHelper.FiveElementNum.get(elem.toString());
+				ChangShengPos[g][z] = branch(WuXingPhaseHelper.getPhaseZi(PhaseType.ShuiTu, elem, "长生"));
+
+				int mask = 0;
+				for(String zi : StemBranch.getXunEmptySet(ganzi)) {
+					mask |= 1 << branch(zi);
+				}
+				XunEmptyMask[g][z] = mask;
+			}
+		}
+
+		NorthMain = compileSteps(ZiWeiHelper.NorthStarsMainStep);
+		SouthMain = compileSteps(ZiWeiHelper.SouthStarsMainStep);
+		YearGan = compile(ZiWeiHelper.StarsYearGan, StemBranch.Stems);
+		YearGan2 = new int[YearGan.names.length][10];
+		int k = 0;
+		for(Map<String, Object> map : ZiWeiHelper.StarsYearGan.values()) {
+			Map<String, String> pos = (Map<String, String>) map.get("pos");
+			for(int g=0; g<10; g++) {
+				String zi = pos.get(StemBranch.Stems[g]);
+				if(zi.length() == 2) {
+					YearGan2[k][g] = branch(zi.substring(0, 1));
+					YearGan.pos[k][g] = branch(zi.substring(1));
+				}else {
+					YearGan2[k][g] = -1;
+				}
+			}
+			k++;
+		}
+		YearZi = compile(ZiWeiHelper.StarsYearZi, StemBranch.Branches);
+		Month = compile(ZiWeiHelper.StarsMonth, MonthNames);
+		TimeZi = compile(ZiWeiHelper.StarsTimeZi, StemBranch.Branches);
+
+		for(int z=0; z<12; z++) {
+			String yearzi = StemBranch.Branches[z];
+			Map<String, Object> huolin = ZiWeiHelper.StarsHuoLin.get(yearzi);
+			StarGroup group = new StarGroup(huolin.size(), 12);
+			k = 0;
+			for(Map.Entry<String, Object> entry : huolin.entrySet()) {
+				Map<String, String> pos = (Map<String, String>) entry.getValue();
+				group.names[k] = entry.getKey();
+				for(int t=0; t<12; t++) {
+					group.pos[k][t] = branch(pos.get(StemBranch.Branches[t]));
+				}
+				k++;
+			}
+			HuoLin[z] = group;
+
+			Map<String, String> jiang = ZiWeiHelper.StarsJiang.get(yearzi);
+			group = new StarGroup(jiang.size(), 1);
+			k = 0;
+			for(Map.Entry<String, String> entry : jiang.entrySet()) {
+				group.names[k] = entry.getKey();
+				group.pos[k][0] = branch(entry.getValue());
+				k++;
+			}
+			Jiang[z] = group;
+
+			XiaoXianStart[z] = ZiWeiHelper.getSmallDirectioinHouse(0, yearzi, BaZiGender.Male);
+		}
+
+		for(int m=0; m<12; m++) {
+			for(int t=0; t<12; t++) {
+				DouJun[m][t] = branch(ZiWeiHelper.getDouJun(MonthNames[m], StemBranch.Branches[t]));
+			}
+		}
+	}
+
+	private static int branch(String zi) {
+		return StemBranch.BranchIndex.get(zi);
+	}
+
+	private static StarGroup compileSteps(Map<String, Integer> steps) {
+		StarGroup group = new StarGroup(steps.size(), 1);
+		int k = 0;
+		for(Map.Entry<String, Integer> entry : steps.entrySet()) {
+			group.names[k] = entry.getKey();
+			group.pos[k][0] = entry.getValue();
+			k++;
+		}
+		return group;
+	}
+
+	private static StarGroup compile(Map<String, Map<String, Object>> stars, String[] keys) {
+		StarGroup group = new StarGroup(stars.size(), keys.length);
+		int k = 0;
+		for(Map.Entry<String, Map<String, Object>> entry : stars.entrySet()) {
+			Map<String, Object> map = entry.getValue();
+			Map<String, String> pos = (Map<String, String>) map.get("pos");
+			group.names[k] = entry.getKey();
+			group.types[k] = (int) map.get("type");
+			for(int i=0; i<keys.length; i++) {
+				String zi = pos.get(keys[i]);
+				group.pos[k][i] = zi.length() == 2 ? -1 : branch(zi);
+			}
+			k++;
+		}
+		return group;
+	}
+
+	/**
+	 * 农历月名的下标，不在表中时返回-1
+	 */
+	public static int monthIndex(String month) {
+		Integer idx = MonthIndex.get(month);
+		return idx == null ? -1 : idx;
+	}
+
+	public static int stemIndex(String gan) {
+		return StemBranch.StemIndex.get(gan);
+	}
+
+	public static int branchIndex(String zi) {
+		return branch(zi);
+	}
+
+	public static boolean isXunEmpty(int gan, int zi, int branch) {
+		return (XunEmptyMask[gan][zi] & (1 << branch)) != 0;
+	}
+}
@@ -0,0 +1,275 @@
+package spacex.astrostudycn.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import boundless.spring.help.PropertyPlaceholder;
+import spacex.astrostudy.constants.StemBranch;
+import spacex.astrostudycn.constants.BaZiGender;
+import spacex.astrostudycn.constants.ZiWeiStarType;
+import spacex.astrostudycn.helper.ZiWeiHelper;
+import spacex.astrostudycn.helper.ZiWeiTables;
+import spacex.astrostudycn.helper.ZiWeiTables.StarGroup;
+
+/**
+ * 紫微命盘的宫位与安星结果：宫干支、宫名、长生、大限、诸星所在宫及小限。
+ * 只由年干、年支、定命宫之月、月名、日、时支与性别决定，按这些下标在进程内缓存，各请求共用，不可修改。
+ * stars为按默认四化生成的星，只作模板，ZiWeiChart复制后放入宫中；自定义四化时由ZiWeiChart按starNames重新生成
+ */
+public class ZiWeiLayout {
+	private static final int MaxCached = PropertyPlaceholder.getPropertyAsInt("ziwei.layout.cache.max", 16384);
+	private static final boolean Enabled = PropertyPlaceholder.getPropertyAsBool("ziwei.layout.cache.enable", true);
+
+	private static final ConcurrentHashMap<Integer, ZiWeiLayout> Cache = new ConcurrentHashMap<Integer, ZiWeiLayout>();
+	/**
+	 * 默认四化下星只由星名、年干与所在地支决定，各布局共用，不直接交给调用方
+	 */
+	private static final ConcurrentHashMap<String, ZiWeiStar> Stars = new ConcurrentHashMap<String, ZiWeiStar>();
+
+	final String[] ganzi = new String[12];
+	final String[] names = new String[12];
+	final String[] phases = new String[12];
+	final int[][] directions = new int[12][2];
+	int lifeHouseIndex;
+	int bodyHouseIndex;
+	int wuxingJu;
+	String wuxingJuText;
+	int ziweiIndex;
+
+	String[] starNames;
+	int[] starTypes;
+	int[] starHouses;
+	String[] indexKeys;
+	ZiWeiStar[] stars;
+	final int[] smallDirections = new int[100];
+
+	private ZiWeiLayout() {
+	}
+
+	/**
+	 * @param gan 年干下标
+	 * @param zi 年支下标
+	 * @param lifeMonth 定命宫所用的农历月，闰月下半月已加一
+	 * @param month 农历月名的下标
+	 * @param day 农历日
+	 * @param timezi 时支下标
+	 */
+	public static ZiWeiLayout get(int gan, int zi, int lifeMonth, int month, int day, int timezi, BaZiGender gender) {
+		int key = ((((((gan * 12 + zi) * 14 + lifeMonth) * 12 + month) * 31 + day) * 12 + timezi) << 1) | gender.getCode();
+		ZiWeiLayout layout = Cache.get(key);
+		if(layout != null) {
+			return layout;
+		}
+		layout = build(gan, zi, lifeMonth, month, day, timezi, gender);
+		if(Enabled && Cache.size() < MaxCached) {
+			ZiWeiLayout old = Cache.putIfAbsent(key, layout);
+			if(old != null) {
+				layout = old;
+			}
+		}
+		return layout;
+	}
+
+	public static int cachedCount() {
+		return Cache.size();
+	}
+
+	public static void clearCache() {
+		Cache.clear();
+		Stars.clear();
+	}
+
+	private static ZiWeiLayout build(int gan, int zi, int lifeMonth, int month, int day, int timezi, BaZiGender gender) {
+		ZiWeiLayout layout = new ZiWeiLayout();
+		Builder builder = new Builder(layout, StemBranch.Stems[gan]);
+		boolean yearPositive = ZiWeiTables.StemPositive[gan];
+		boolean clockwise = (gender == BaZiGender.Male && yearPositive) || (gender == BaZiGender.Female && !yearPositive);
+
+		int[] houseGan = new int[12];
+		int startgan = ZiWeiTables.HouseGanStart[gan];
+		houseGan[0] = startgan;
+		houseGan[1] = (startgan + 1) % 10;
+		for(int i=2; i<12; i++) {
+			houseGan[i] = (startgan + i - 2) % 10;
+		}
+		for(int i=0; i<12; i++) {
+			layout.ganzi[i] = StemBranch.Stems[houseGan[i]] + StemBranch.Branches[i];
+		}
+
+		int loc = 2 + lifeMonth - 1;
+		int life = (loc - timezi + 24) % 12;
+		int body = (loc + timezi) % 12;
+		layout.lifeHouseIndex = life;
+		layout.bodyHouseIndex = body;
+		int ju = ZiWeiTables.WuxingJu[houseGan[life]][life];
+		int csIdx = ZiWeiTables.ChangShengPos[houseGan[life]][life];
+		layout.wuxingJu = ju;
+		layout.wuxingJuText = ZiWeiHelper.WuxingJuText.get(ju);
+		int[] nameIdx = new int[12];
+		for(int i=0; i<12; i++) {
+			int phaseIdx = clockwise ? (i - csIdx + 24) % 12 : (csIdx - i + 24) % 12;
+			layout.phases[i] = ZiWeiHelper.ChangSheng12[phaseIdx];
+
+			int delta = i - life;
+			int idx = delta > 0 ? 12 - delta : -delta;
+			nameIdx[i] = idx;
+			layout.names[i] = ZiWeiHelper.Houses[idx];
+			int start = clockwise ? (idx == 0 ? 0 : 10 * (12 - idx)) : 10 * idx;
+			layout.directions[i][0] = start + ju;
+			layout.directions[i][1] = start + ju + 9;
+		}
+
+		int ziwei;
+		int rest = day % ju;
+		int div = day / ju;
+		if(rest == 0) {
+			ziwei = (1 + div) % 12;
+		}else {
+			div++;
+			rest = ju * div - day;
+			ziwei = rest % 2 == 0 ? (1 + div + rest) % 12 : (1 + div - rest + 24) % 12;
+		}
+		layout.ziweiIndex = ziwei;
+
+		int tianfu;
+		if(ziwei >= 2 && ziwei <= 8) {
+			tianfu = (2 - (ziwei - 2) + 24) % 12;
+		}else {
+			tianfu = (8 - (ziwei - 8) + 24) % 12;
+		}
+		int mainType = ZiWeiStarType.StarMain.getCode();
+		StarGroup north = ZiWeiTables.NorthMain;
+		for(int k=0; k<north.names.length; k++) {
+			builder.add(north.names[k], mainType, (ziwei + north.pos[k][0] + 24) % 12, north.names[k]);
+		}
+		StarGroup south = ZiWeiTables.SouthMain;
+		for(int k=0; k<south.names.length; k++) {
+			builder.add(south.names[k], mainType, (tianfu + south.pos[k][0] + 24) % 12, south.names[k]);
+		}
+
+		StarGroup yeargan = ZiWeiTables.YearGan;
+		for(int k=0; k<yeargan.names.length; k++) {
+			String name = yeargan.names[k];
+			int first = ZiWeiTables.YearGan2[k][gan];
+			if(first >= 0) {
+				String sname = ZiWeiTables.BranchPositive[first] != yearPositive ? "副" + name : name;
+				builder.add(sname, yeargan.types[k], first, name);
+			}
+			builder.add(name, yeargan.types[k], yeargan.pos[k][gan], name);
+		}
+		builder.addGroup(ZiWeiTables.YearZi, zi);
+
+		int tiancai = ZiWeiTables.TianCaiHouseName[zi];
+		for(int i=0; i<12; i++) {
+			if(nameIdx[i] == tiancai) {
+				builder.add("天才", ZiWeiStarType.StarOtherGood.getCode(), i, "天才");
+				break;
+			}
+		}
+		builder.add("天寿", ZiWeiStarType.StarOtherGood.getCode(), (body + zi + 24) % 12, "天寿");
+
+		builder.addGroup(ZiWeiTables.Month, month);
+		builder.addGroup(ZiWeiTables.TimeZi, timezi);
+
+		StarGroup huolin = ZiWeiTables.HuoLin[zi];
+		for(int k=0; k<huolin.names.length; k++) {
+			builder.add(huolin.names[k], ZiWeiStarType.StarEvil.getCode(), huolin.pos[k][timezi], huolin.names[k]);
+		}
+
+		int good = ZiWeiStarType.StarOtherGood.getCode();
+		builder.add("三台", good, (builder.index("左辅") + day + 11) % 12, "三台");
+		builder.add("八座", good, (builder.index("右弼") - day + 37) % 12, "八座");
+		builder.add("恩光", good, (builder.index("文昌") + day + 10) % 12, "恩光");
+		builder.add("天贵", good, (builder.index("文曲") + day + 10) % 12, "天贵");
+
+		for(int i=0; i<12; i++) {
+			if(ZiWeiTables.isXunEmpty(gan, zi, i)) {
+				String name = ZiWeiTables.BranchPositive[i] != yearPositive ? "副旬空" : "旬空";
+				builder.add(name, ZiWeiStarType.StarOtherBad.getCode(), i, name);
+			}
+		}
+
+		int small = ZiWeiStarType.StarSmall.getCode();
+		int lucun = builder.index("禄存");
+		for(int i=0; i<ZiWeiHelper.StarsBosi.length; i++) {
+			String name = ZiWeiHelper.StarsBosi[i];
+			int idx = clockwise ? (i + lucun) % 12 : (lucun - i + 24) % 12;
+			builder.add(name, small, idx, "Y" + name);
+		}
+
+		StarGroup jiang = ZiWeiTables.Jiang[zi];
+		for(int k=0; k<jiang.names.length; k++) {
+			builder.add(jiang.names[k], small, jiang.pos[k][0], "Y" + jiang.names[k]);
+		}
+
+		for(int i=0; i<12; i++) {
+			String name = ZiWeiHelper.StarsTaiSui[(i - zi + 24) % 12];
+			builder.add(name, small, i, "Y" + name);
+		}
+
+		int xiaoxian = ZiWeiTables.XiaoXianStart[zi];
+		for(int i=0; i<layout.smallDirections.length; i++) {
+			int idx = i % 12;
+			layout.smallDirections[i] = gender == BaZiGender.Male ? (idx + xiaoxian) % 12 : (xiaoxian - idx + 12) % 12;
+		}
+
+		builder.finish();
+		return layout;
+	}
+
+	/**
+	 * 按安星的先后记录各星，index与ZiWeiChart.starsHouseIndex同样以后放者为准
+	 */
+	private static class Builder {
+		private final ZiWeiLayout layout;
+		private final String yearGan;
+		private final List<String> names = new ArrayList<String>();
+		private final List<Integer> types = new ArrayList<Integer>();
+		private final List<Integer> houses = new ArrayList<Integer>();
+		private final List<String> keys = new ArrayList<String>();
+		private final Map<String, Integer> index = new HashMap<String, Integer>();
+
+		Builder(ZiWeiLayout layout, String yearGan) {
+			this.layout = layout;
+			this.yearGan = yearGan;
+		}
+
+		void add(String name, int type, int house, String key) {
+			names.add(name);
+			types.add(type);
+			houses.add(house);
+			keys.add(key);
+			index.put(key, house);
+		}
+
+		void addGroup(StarGroup group, int pos) {
+			for(int k=0; k<group.names.length; k++) {
+				add(group.names[k], group.types[k], group.pos[k][pos], group.names[k]);
+			}
+		}
+
+		int index(String key) {
+			return index.get(key);
+		}
+
+		void finish() {
+			int n = names.size();
+			layout.starNames = names.toArray(new String[n]);
+			layout.indexKeys = keys.toArray(new String[n]);
+			layout.starTypes = new int[n];
+			layout.starHouses = new int[n];
+			layout.stars = new ZiWeiStar[n];
+			for(int i=0; i<n; i++) {
+				layout.starTypes[i] = types.get(i);
+				layout.starHouses[i] = houses.get(i);
+				String zi = StemBranch.Branches[layout.starHouses[i]];
+				String name = layout.starNames[i];
+				layout.stars[i] = Stars.computeIfAbsent(name + yearGan + zi, (k)->new ZiWeiStar(name, yearGan, zi, null, null));
+			}
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package spacex.astrostudycn.model;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -17,6 +18,22 @@ public class ZiWeiStar {
 		
 	}
 	
+	/**
+	 * 复制一颗星，sihuaGan一并深拷贝
+	 */
+	public ZiWeiStar(ZiWeiStar src) {
+		this.name = src.name;
+		this.starlight = src.starlight;
+		this.sihua = src.sihua;
+		this.sihuaStarlight = src.sihuaStarlight;
+		if(src.sihuaGan != null) {
+			this.sihuaGan = new HashMap<String, Set<String>>();
+			for(Map.Entry<String, Set<String>> entry : src.sihuaGan.entrySet()) {
+				this.sihuaGan.put(entry.getKey(), new HashSet<String>(entry.getValue()));
+			}
+		}
+	}
+	
 	public ZiWeiStar(String name, String gan, String zi, Map<String, Map<String, String>> mySihua, Map<String, Map<String, Set<String>>> sihuaGan) {
 		this.name = name;
 		this.sihuaGan = ZiWeiHelper.getStarSihuaGan(name, sihuaGan);
@@ -21,7 +21,6 @@ public class QizhengMoiraRuleService {
 	private static final int MOIRA_STYLE_LEVEL_MAX = 5;
 	private static final int MOIRA_STYLE_LEVEL_DEFAULT = 3;
 	private static final int MOIRA_STYLE_FILL_MAX = 6;
-	private static final List<MoiraStyleRule> MOIRA_STYLE_RULES = loadMoiraStyleRules();
 
 	private static final String[] SIGN_IDS = new String[] {
 		"Aries", "Taurus", "Gemini", "Cancer", "Leo", "Virgo",
@@ -57,6 +56,11 @@ public class QizhengMoiraRuleService {
 		"North Node", "South Node", "Purple Clouds", "Dark Moon"
 	};
 
+	private static final String[][] MOIRA_HOUSE_ALIASES = new String[][] {
+		{"命", "命宫"}, {"官", "官禄"}, {"福", "福德"}, {"财", "财帛"}, {"田", "田宅"}, {"妻", "夫妻"},
+		{"嗣", "男女"}, {"奴", "奴仆"}, {"疾", "疾厄"}, {"迁", "迁移"}, {"相", "相貌"}
+	};
+
 	private static final Map<String, String> PLANET_NAMES = new HashMap<String, String>();
 	private static final Map<String, String> RULERS = new HashMap<String, String>();
 	private static final Map<String, String> EXALTS = new HashMap<String, String>();
@@ -159,6 +163,9 @@ public class QizhengMoiraRuleService {
 		HELPERS.put("土", "火");
 	}
 
+	private static final List<MoiraStyleRule> MOIRA_STYLE_RULES = loadMoiraStyleRules();
+	private static final MoiraStyleProgram MOIRA_STYLE_PROGRAM = new MoiraStyleProgram(MOIRA_STYLE_RULES);
+
 	public Map<String, Object> analyze(Map<String, Object> chartObj, Map<String, Object> params) {
 		return analyze(chartObj, params, Collections.<String, Object>emptyMap(), Collections.<String, Object>emptyMap());
 	}
@@ -172,10 +179,8 @@ public class QizhengMoiraRuleService {
 		Map<String, Map<String, Object>> houseById = indexHouses(houses);
 
 		String lifeMode = lifeMode(params);
-		Map<String, Object> lifeObj = (LIFE_MODE_YUMAO.equals(lifeMode) || LIFE_MODE_COTRANS.equals(lifeMode))
-			? firstPresent(byId, "LifeMasterDeg74", "Asc", "Sun")
-			: firstPresent(byId, "Asc", "LifeMasterDeg74", "Sun");
-		Map<String, Object> selfObj = firstPresent(byId, "Moon", "LifeMasterDeg74", "Asc");
+		Map<String, Object> lifeObj = lifeObject(byId, lifeMode);
+		Map<String, Object> selfObj = selfObject(byId);
 		double lifeLon = normalizeDegree(position(lifeObj));
 		double selfLon = normalizeDegree(position(selfObj));
 		int lifeSignIndex = signIndex(lifeLon);
@@ -184,8 +189,7 @@ public class QizhengMoiraRuleService {
 		List<Map<String, Object>> moiraHouses = buildMoiraHouses(lifeSignIndex);
 		List<Map<String, Object>> planets = buildPlanetRows(byId, houseById, lifeSignIndex);
 		Map<String, Object> nativeRules = propRuleEngine.build(chartObj, params, transitChartObj, transitParams, lifeSignIndex);
-		List<Map<String, Object>> nativeGodHits = typedMapList(nativeRules.get("birthGodHits"));
-		List<Map<String, Object>> godHits = nativeGodHits.isEmpty() ? buildGodHits(chartObj, chart, lifeSignIndex) : nativeGodHits;
+		List<Map<String, Object>> godHits = godHits(chartObj, chart, nativeRules, lifeSignIndex);
 		List<Map<String, Object>> patternHints = buildPatternHints(planets, godHits, lifeSignIndex);
 		List<Map<String, Object>> patterns = evaluateMoiraStylePatterns(chart, byId, params, lifeSignIndex, selfSignIndex, godHits);
 
@@ -358,14 +362,57 @@ public class QizhengMoiraRuleService {
 		return patterns;
 	}
 
+	private Map<String, Object> lifeObject(Map<String, Map<String, Object>> byId, String lifeMode) {
+		return (LIFE_MODE_YUMAO.equals(lifeMode) || LIFE_MODE_COTRANS.equals(lifeMode))
+			? firstPresent(byId, "LifeMasterDeg74", "Asc", "Sun")
+			: firstPresent(byId, "Asc", "LifeMasterDeg74", "Sun");
+	}
+
+	private Map<String, Object> selfObject(Map<String, Map<String, Object>> byId) {
+		return firstPresent(byId, "Moon", "LifeMasterDeg74", "Asc");
+	}
+
+	private List<Map<String, Object>> godHits(Map<String, Object> chartObj, Map<String, Object> chart, Map<String, Object> nativeRules, int lifeSignIndex) {
+		List<Map<String, Object>> nativeGodHits = typedMapList(nativeRules.get("birthGodHits"));
+		return nativeGodHits.isEmpty() ? buildGodHits(chartObj, chart, lifeSignIndex) : nativeGodHits;
+	}
+
+	static List<String> moiraStyleRuleNames() {
+		List<String> names = new ArrayList<String>();
+		for(MoiraStyleRule rule : MOIRA_STYLE_RULES) {
+			names.add(rule.name);
+		}
+		return names;
+	}
+
+	/**
+	 * 在同一盘面上对每组已成立规则名逐条求值 moira_s.prop 格局，结果按规则顺序排列，供测试对照原字符串求值
+	 */
+	boolean[][] matchMoiraStyleRules(Map<String, Object> chartObj, Map<String, Object> params, List<Set<String>> validNameSets) {
+		Map<String, Object> chart = asMap(chartObj.get("chart"));
+		Map<String, Map<String, Object>> byId = indexObjects(asList(chart.get("objects")));
+		int lifeSignIndex = signIndex(normalizeDegree(position(lifeObject(byId, lifeMode(params)))));
+		int selfSignIndex = signIndex(normalizeDegree(position(selfObject(byId))));
+		Map<String, Object> nativeRules = propRuleEngine.build(chartObj, params, Collections.<String, Object>emptyMap(), Collections.<String, Object>emptyMap(), lifeSignIndex);
+		MoiraStyleContext ctx = new MoiraStyleContext(chart, byId, params, lifeSignIndex, selfSignIndex, godHits(chartObj, chart, nativeRules, lifeSignIndex));
+		boolean[][] hits = new boolean[validNameSets.size()][MOIRA_STYLE_RULES.size()];
+		for(int n=0; n<hits.length; n++) {
+			for(int i=0; i<MOIRA_STYLE_RULES.size(); i++) {
+				hits[n][i] = ctx.eval(MOIRA_STYLE_PROGRAM.exprs[i], validNameSets.get(n));
+			}
+		}
+		return hits;
+	}
+
 	private List<Map<String, Object>> evaluateMoiraStylePatterns(Map<String, Object> chart, Map<String, Map<String, Object>> byId, Map<String, Object> params, int lifeSignIndex, int selfSignIndex, List<Map<String, Object>> godHits) {
 		MoiraStyleContext ctx = new MoiraStyleContext(chart, byId, params, lifeSignIndex, selfSignIndex, godHits);
 		List<Map<String, Object>> patterns = new ArrayList<Map<String, Object>>();
 		Set<String> validNames = new HashSet<String>();
 		for(int pass=0; pass<4; pass++) {
 			boolean changed = false;
-			for(MoiraStyleRule rule : MOIRA_STYLE_RULES) {
-				if(!validNames.contains(rule.name) && ctx.eval(rule.expr, validNames)) {
+			for(int i=0; i<MOIRA_STYLE_RULES.size(); i++) {
+				MoiraStyleRule rule = MOIRA_STYLE_RULES.get(i);
+				if(!validNames.contains(rule.name) && ctx.eval(MOIRA_STYLE_PROGRAM.exprs[i], validNames)) {
 					validNames.add(rule.name);
 					changed = true;
 				}
@@ -696,11 +743,11 @@ public class QizhengMoiraRuleService {
 		return SIGN_NAMES[wrap(idx, 12)];
 	}
 
-	private String signZi(int idx) {
+	private static String signZi(int idx) {
 		return SIGN_ZI[wrap(idx, 12)];
 	}
 
-	private String planetName(String id) {
+	private static String planetName(String id) {
 		String name = PLANET_NAMES.get(id);
 		return name == null ? id : name;
 	}
@@ -713,7 +760,7 @@ public class QizhengMoiraRuleService {
 		return d;
 	}
 
-	private int wrap(int val, int size) {
+	private static int wrap(int val, int size) {
 		int v = val % size;
 		return v < 0 ? v + size : v;
 	}
@@ -1063,90 +1110,81 @@ public class QizhengMoiraRuleService {
 		}
 	}
 
-	private class MoiraStyleContext {
-		private final Map<String, Object> chart;
-		private final Map<String, Map<String, Object>> byId;
-		private final Map<String, Object> params;
-		private final int lifeSignIndex;
-		private final int selfSignIndex;
-		private final Map<String, Integer> godSigns = new HashMap<String, Integer>();
-		private final Map<String, Integer> houseSigns = new HashMap<String, Integer>();
+	/**
+	 * 规则在加载时编译成的表达式树。相同文本的子表达式只编译一次，共享同一个节点编号，
+	 * 不依赖其他规则名的节点在一张盘内只求值一次
+	 */
+	private static class MoiraStyleProgram {
+		private final Set<String> ruleNames = new HashSet<String>();
+		private final Map<String, MoiraExpr> nodes = new HashMap<String, MoiraExpr>();
+		private final Map<String, SignRef> signRefs = new HashMap<String, SignRef>();
+		private final Set<String> houseKeys = new HashSet<String>();
+		private final MoiraExpr[] exprs;
+		private SignRef[] planetRefs;
+		private int size;
 
-		private MoiraStyleContext(Map<String, Object> chart, Map<String, Map<String, Object>> byId, Map<String, Object> params, int lifeSignIndex, int selfSignIndex, List<Map<String, Object>> godHits) {
-			this.chart = chart == null ? Collections.<String, Object>emptyMap() : chart;
-			this.byId = byId == null ? Collections.<String, Map<String, Object>>emptyMap() : byId;
-			this.params = params == null ? Collections.<String, Object>emptyMap() : params;
-			this.lifeSignIndex = lifeSignIndex;
-			this.selfSignIndex = selfSignIndex;
-			for(int i=0; i<MOIRA_HOUSE_NAMES.length; i++) {
-				houseSigns.put(MOIRA_HOUSE_NAMES[i], wrap(lifeSignIndex + i, 12));
+		private MoiraStyleProgram(List<MoiraStyleRule> rules) {
+			houseKeys.addAll(Arrays.asList(MOIRA_HOUSE_NAMES));
+			for(String[] alias : MOIRA_HOUSE_ALIASES) {
+				houseKeys.add(alias[0]);
 			}
-			houseSigns.put("命", houseSigns.get("命宫"));
-			houseSigns.put("身", selfSignIndex);
-			houseSigns.put("官", houseSigns.get("官禄"));
-			houseSigns.put("福", houseSigns.get("福德"));
-			houseSigns.put("财", houseSigns.get("财帛"));
-			houseSigns.put("田", houseSigns.get("田宅"));
-			houseSigns.put("妻", houseSigns.get("夫妻"));
-			houseSigns.put("嗣", houseSigns.get("男女"));
-			houseSigns.put("奴", houseSigns.get("奴仆"));
-			houseSigns.put("疾", houseSigns.get("疾厄"));
-			houseSigns.put("迁", houseSigns.get("迁移"));
-			houseSigns.put("相", houseSigns.get("相貌"));
+			houseKeys.add("身");
+			for(MoiraStyleRule rule : rules) {
+				ruleNames.add(rule.name);
+			}
+			exprs = new MoiraExpr[rules.size()];
+			for(int i=0; i<exprs.length; i++) {
+				String expr = rules.get(i).expr;
+				exprs[i] = compile(expr == null ? "" : expr);
+			}
+		}
 
-			for(Map<String, Object> row : godHits) {
-				int signIdx = ziToSign(str(row.get("zi"), ""));
-				if(signIdx < 0) {
-					continue;
-				}
-				for(String key : Arrays.asList("goodGods", "neutralGods", "badGods", "taisuiGods")) {
-					for(String name : stringList(row.get(key))) {
-						if(!godSigns.containsKey(name)) {
-							godSigns.put(name, signIdx);
-						}
-					}
-				}
+		private MoiraExpr compile(String raw) {
+			String expr = cleanOuter(raw.trim());
+			MoiraExpr node = nodes.get(expr);
+			if(node == null) {
+				node = intern(buildExpr(expr));
+				nodes.put(expr, node);
 			}
+			return node;
 		}
 
-			private boolean eval(String expr, Set<String> validRules) {
-				return evalExpr(cleanOuter(expr == null ? "" : expr.trim()), validRules == null ? Collections.<String>emptySet() : validRules);
+		private MoiraExpr intern(MoiraExpr node) {
+			if(node.id < 0) {
+				node.id = size++;
 			}
+			return node;
+		}
 
-			private boolean evalExpr(String expr, Set<String> validRules) {
-				expr = cleanOuter(expr.trim());
-				List<String> ors = splitTop(expr, '|');
-				if(ors.size() > 1) {
-					for(String item : ors) {
-						if(evalExpr(item, validRules)) {
-							return true;
-						}
-					}
-					return false;
-				}
-				List<String> ands = splitTop(expr, '&');
-				if(ands.size() > 1) {
-					for(String item : ands) {
-						if(!evalExpr(item, validRules)) {
-							return false;
-						}
-					}
-					return true;
-				}
-				if(expr.startsWith("!")) {
-					return !evalExpr(expr.substring(1), validRules);
-				}
-				if(expr.startsWith("?")) {
-					return predicate(readPredicateName(expr.substring(1)), validRules);
-				}
-				int eq = indexTop(expr, '=');
-				if(eq >= 0) {
-					Object left = term(expr.substring(0, eq));
-					Object right = term(expr.substring(eq + 1));
-					return same(left, right);
-				}
-				return predicate(expr, validRules);
+		private MoiraExpr buildExpr(String expr) {
+			List<String> ors = splitTop(expr, '|');
+			if(ors.size() > 1) {
+				return new JunctionExpr(false, compileAll(ors));
 			}
+			List<String> ands = splitTop(expr, '&');
+			if(ands.size() > 1) {
+				return new JunctionExpr(true, compileAll(ands));
+			}
+			if(expr.startsWith("!")) {
+				return new NotExpr(compile(expr.substring(1)));
+			}
+			if(expr.startsWith("?")) {
+				return predicate(readPredicateName(expr.substring(1)));
+			}
+			int eq = indexTop(expr, '=');
+			if(eq >= 0) {
+				return new EqExpr(term(expr.substring(0, eq)), term(expr.substring(eq + 1)));
+			}
+			return predicate(expr);
+		}
+
+		private MoiraExpr[] compileAll(List<String> items) {
+			MoiraExpr[] res = new MoiraExpr[items.size()];
+			for(int i=0; i<res.length; i++) {
+				res[i] = compile(items.get(i));
+			}
+			return res;
+		}
 
 		private String readPredicateName(String raw) {
 			raw = raw.trim();
@@ -1156,129 +1194,106 @@ public class QizhengMoiraRuleService {
 			return raw;
 		}
 
-			private boolean predicate(String name, Set<String> validRules) {
-				name = name == null ? "" : name.trim();
-				if(validRules.contains(name)) {
-					return true;
-				}
-				if("昼".equals(name)) {
-					return isDay();
-				}
-			if("夜".equals(name)) {
-				return !isDay();
-			}
-			if("冬".equals(name)) {
-				int month = datePart(1, 1);
-				return month == 11 || month == 12 || month == 1;
-			}
-			if(name.endsWith("会") || name.endsWith("遇")) {
-				String core = name.substring(0, name.length() - 1);
-				if(core.length() >= 2) {
-					String a = core.substring(0, 1);
-					String b = core.substring(1, 2);
-					return same(signOfName(a), signOfName(b));
-				}
-			}
-			if(name.startsWith("孤") && name.length() >= 2) {
-				Integer sign = signOfName(name.substring(1, 2));
-				if(sign == null) {
-					return false;
-				}
-				int count = 0;
-				for(String id : PLANET_ORDER) {
-					Integer other = signOfName(planetName(id));
-					if(other != null && other.intValue() == sign.intValue()) {
-						count++;
-					}
-				}
-				return count == 1;
-			}
-			if(name.endsWith("东") || name.endsWith("南") || name.endsWith("西") || name.endsWith("北")) {
-				String star = name.substring(0, 1);
-				Integer sign = signOfName(star);
-				if(sign == null) {
-					return false;
-				}
-				String zi = signZi(sign);
+		private MoiraExpr predicate(String rawName) {
+			String name = rawName == null ? "" : rawName.trim();
+			String key = "?" + name;
+			MoiraExpr exist = nodes.get(key);
+			if(exist != null) {
+				return exist;
+			}
+			PredExpr pred = new PredExpr(name, ruleNames.contains(name));
+			nodes.put(key, pred);
+			if("昼".equals(name)) {
+				pred.kind = PredKind.Day;
+			}else if("夜".equals(name)) {
+				pred.kind = PredKind.Night;
+			}else if("冬".equals(name)) {
+				pred.kind = PredKind.Winter;
+			}else if((name.endsWith("会") || name.endsWith("遇")) && name.length() >= 3) {
+				pred.kind = PredKind.Meet;
+				pred.a = signRef(name.substring(0, 1));
+				pred.b = signRef(name.substring(1, 2));
+			}else if(name.startsWith("孤") && name.length() >= 2) {
+				pred.kind = PredKind.Alone;
+				pred.a = signRef(name.substring(1, 2));
+				pred.refs = planetRefs();
+			}else if(name.endsWith("东") || name.endsWith("南") || name.endsWith("西") || name.endsWith("北")) {
+				pred.kind = PredKind.Direction;
+				pred.a = signRef(name.substring(0, 1));
 				if(name.endsWith("东")) {
-					return "寅卯辰".indexOf(zi) >= 0;
-				}
-				if(name.endsWith("南")) {
-					return "巳午未".indexOf(zi) >= 0;
-				}
-				if(name.endsWith("西")) {
-					return "申酉戌".indexOf(zi) >= 0;
+					pred.arg = "寅卯辰";
+				}else if(name.endsWith("南")) {
+					pred.arg = "巳午未";
+				}else if(name.endsWith("西")) {
+					pred.arg = "申酉戌";
+				}else {
+					pred.arg = "亥子丑";
 				}
-				return "亥子丑".indexOf(zi) >= 0;
+			}else if(name.endsWith("失垣")) {
+				pred.kind = PredKind.LostRulership;
+				pred.arg = name.substring(0, name.length() - 2);
+			}else if(name.endsWith("失躔")) {
+				pred.kind = PredKind.LostDomicile;
+				pred.arg = name.substring(0, name.length() - 2);
+			}else if(name.endsWith("垣")) {
+				pred.kind = PredKind.Rulership;
+				pred.arg = name.substring(0, name.length() - 1);
+				pred.a = signRef(pred.arg);
+			}else if(name.endsWith("殿")) {
+				pred.kind = PredKind.Domicile;
+				pred.arg = name.substring(0, name.length() - 1);
+			}else if(name.endsWith("生")) {
+				String star = name.substring(0, name.length() - 1);
+				pred.kind = PredKind.Helped;
+				pred.a = signRef(star);
+				pred.arg = HELPERS.get(star);
+			}else if("命宫歧".equals(name)) {
+				pred.kind = PredKind.LifeSignFork;
+			}else if("命宿歧".equals(name)) {
+				pred.kind = PredKind.LifeSuFork;
+			}else if("命坐两歧".equals(name)) {
+				pred.kind = PredKind.LifeFork;
+				pred.subs = new MoiraExpr[] {predicate("命宫歧"), predicate("命宿歧")};
+				pred.cacheable = pred.cacheable && pred.subs[0].cacheable && pred.subs[1].cacheable;
+			}
+			return intern(pred);
+		}
+
+		private MoiraTerm term(String raw) {
+			String s = cleanOuter(raw == null ? "" : raw.trim());
+			if(s.startsWith("${克") && s.endsWith("}")) {
+				return new RelationTerm(OVERCOMING, term(stripBraces(s.substring(3, s.length() - 1))));
 			}
-				if(name.endsWith("失垣")) {
-					return lostRulership(name.substring(0, name.length() - 2));
-				}
-				if(name.endsWith("失躔")) {
-					return lostDomicileBySu(name.substring(0, name.length() - 2));
-				}
-				if(name.endsWith("垣")) {
-					return inRulership(name.substring(0, name.length() - 1));
-				}
-				if(name.endsWith("殿")) {
-					return inDomicileBySu(name.substring(0, name.length() - 1));
-				}
-				if(name.endsWith("生")) {
-					String star = name.substring(0, name.length() - 1);
-					Integer sign = signOfName(star);
-					return sign != null && same(signRulerCn(sign), HELPERS.get(star));
-				}
-				if("命宫歧".equals(name)) {
-					return nearSignBoundary(position(firstPresent(byId, "LifeMasterDeg74", "Asc", "Sun")));
-				}
-			if("命宿歧".equals(name)) {
-				return nearSuBoundary(position(firstPresent(byId, "LifeMasterDeg74", "Asc", "Sun")));
+			if(s.startsWith("${生") && s.endsWith("}")) {
+				return new RelationTerm(HELPERS, term(stripBraces(s.substring(3, s.length() - 1))));
 			}
-				if("命坐两歧".equals(name)) {
-					return predicate("命宫歧", validRules) || predicate("命宿歧", validRules);
-				}
-				return false;
+			if(s.startsWith("@") || s.startsWith("%")) {
+				return signTerm(s);
 			}
+			return new LiteralTerm(s);
+		}
 
-		private Object term(String raw) {
-			String s = cleanOuter(raw == null ? "" : raw.trim());
-				if(s.startsWith("${克") && s.endsWith("}")) {
-					String inner = s.substring(3, s.length() - 1);
-					if(inner.startsWith("{") && inner.endsWith("}")) {
-						inner = inner.substring(1, inner.length() - 1);
-					}
-					Object val = term(inner);
-					return OVERCOMING.get(String.valueOf(val));
-				}
-				if(s.startsWith("${生") && s.endsWith("}")) {
-					String inner = s.substring(3, s.length() - 1);
-					if(inner.startsWith("{") && inner.endsWith("}")) {
-						inner = inner.substring(1, inner.length() - 1);
-					}
-					Object val = term(inner);
-					return HELPERS.get(String.valueOf(val));
-				}
-				if(s.startsWith("@") || s.startsWith("%")) {
-					return atLikeTerm(s);
-				}
-			return s;
+		private String stripBraces(String inner) {
+			if(inner.startsWith("{") && inner.endsWith("}")) {
+				return inner.substring(1, inner.length() - 1);
+			}
+			return inner;
 		}
 
-		private Object atLikeTerm(String s) {
-			char op = s.charAt(0);
+		private MoiraTerm signTerm(String s) {
+			SignTerm term = new SignTerm(s.charAt(0) == '%');
 			String body = s.substring(1).trim();
-			String name;
 			String suffix;
 			if(body.startsWith("{")) {
 				int end = matchBrace(body, 0);
 				if(end < 0) {
-					return "";
+					return new LiteralTerm("");
 				}
 				String innerText = body.substring(1, end).trim();
 				if(innerText.startsWith("@") || innerText.startsWith("%") || innerText.startsWith("${")) {
-					name = String.valueOf(term(innerText));
+					term.nameTerm = term(innerText);
 				}else {
-					name = innerText;
+					term.name = innerText;
 				}
 				suffix = body.substring(end + 1).trim();
 			}else {
@@ -1290,61 +1305,379 @@ public class QizhengMoiraRuleService {
 					}
 					cut++;
 				}
-				name = body.substring(0, cut);
+				term.name = body.substring(0, cut);
 				suffix = body.substring(cut).trim();
 			}
-
-			Object value;
-			if(op == '%') {
-				value = suValue(name, suffix);
-				suffix = stripLeadingIndex(suffix);
-			}else {
-				value = signOfName(name);
-				if(value == null) {
-					value = name;
+			if(term.name != null) {
+				term.ref = signRef(term.name);
+			}
+			if(term.su) {
+				term.suRuler = suffix.startsWith("[1]");
+				if(suffix.startsWith("[")) {
+					int end = suffix.indexOf(']');
+					if(end >= 0) {
+						suffix = suffix.substring(end + 1).trim();
+					}
 				}
 			}
 
+			List<Integer> idxs = new ArrayList<Integer>();
 			while(suffix.startsWith("[")) {
 				int end = suffix.indexOf(']');
 				if(end < 0) {
 					break;
 				}
 				String idx = suffix.substring(1, end);
-				if("0".equals(idx) && value instanceof Integer) {
+				idxs.add("0".equals(idx) ? 0 : ("1".equals(idx) ? 1 : -1));
+				suffix = suffix.substring(end + 1).trim();
+			}
+			term.indexes = new int[idxs.size()];
+			for(int i=0; i<term.indexes.length; i++) {
+				term.indexes[i] = idxs.get(i);
+			}
+			if(suffix.startsWith("+") || suffix.startsWith("-")) {
+				term.shifted = true;
+				term.offset = parseIntSafe(suffix, 0);
+			}
+			return term;
+		}
+
+		private SignRef signRef(String name) {
+			if(name == null || name.isEmpty()) {
+				return null;
+			}
+			SignRef ref = signRefs.get(name);
+			if(ref == null) {
+				ref = new SignRef(name, houseKeys.contains(name), PLANET_IDS_BY_CN.get(name), ziToSign(name));
+				signRefs.put(name, ref);
+			}
+			return ref;
+		}
+
+		private SignRef[] planetRefs() {
+			if(planetRefs == null) {
+				planetRefs = new SignRef[PLANET_ORDER.length];
+				for(int i=0; i<PLANET_ORDER.length; i++) {
+					planetRefs[i] = signRef(planetName(PLANET_ORDER[i]));
+				}
+			}
+			return planetRefs;
+		}
+	}
+
+	private static class SignRef {
+		private final String name;
+		private final boolean house;
+		private final String planetId;
+		private final int zi;
+
+		private SignRef(String name, boolean house, String planetId, int zi) {
+			this.name = name;
+			this.house = house;
+			this.planetId = planetId;
+			this.zi = zi;
+		}
+	}
+
+	private static abstract class MoiraExpr {
+		int id = -1;
+		boolean cacheable = true;
+
+		abstract boolean test(MoiraStyleContext ctx, Set<String> validRules);
+	}
+
+	private static class JunctionExpr extends MoiraExpr {
+		private final boolean and;
+		private final MoiraExpr[] items;
+
+		private JunctionExpr(boolean and, MoiraExpr[] items) {
+			this.and = and;
+			this.items = items;
+			for(MoiraExpr item : items) {
+				if(!item.cacheable) {
+					cacheable = false;
+				}
+			}
+		}
+
+		@Override
+		boolean test(MoiraStyleContext ctx, Set<String> validRules) {
+			for(MoiraExpr item : items) {
+				if(ctx.eval(item, validRules) != and) {
+					return !and;
+				}
+			}
+			return and;
+		}
+	}
+
+	private static class NotExpr extends MoiraExpr {
+		private final MoiraExpr item;
+
+		private NotExpr(MoiraExpr item) {
+			this.item = item;
+			cacheable = item.cacheable;
+		}
+
+		@Override
+		boolean test(MoiraStyleContext ctx, Set<String> validRules) {
+			return !ctx.eval(item, validRules);
+		}
+	}
+
+	private static class EqExpr extends MoiraExpr {
+		private final MoiraTerm left;
+		private final MoiraTerm right;
+
+		private EqExpr(MoiraTerm left, MoiraTerm right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		boolean test(MoiraStyleContext ctx, Set<String> validRules) {
+			return ctx.same(left.value(ctx), right.value(ctx));
+		}
+	}
+
+	private enum PredKind {
+		None, Day, Night, Winter, Meet, Alone, Direction, LostRulership, LostDomicile,
+		Rulership, Domicile, Helped, LifeSignFork, LifeSuFork, LifeFork
+	}
+
+	private static class PredExpr extends MoiraExpr {
+		private final String name;
+		private final boolean ruleName;
+		private PredKind kind = PredKind.None;
+		private SignRef a;
+		private SignRef b;
+		private SignRef[] refs;
+		private String arg;
+		private MoiraExpr[] subs;
+
+		private PredExpr(String name, boolean ruleName) {
+			this.name = name;
+			this.ruleName = ruleName;
+			cacheable = !ruleName;
+		}
+
+		@Override
+		boolean test(MoiraStyleContext ctx, Set<String> validRules) {
+			if(ruleName && validRules.contains(name)) {
+				return true;
+			}
+			switch(kind) {
+			case Day:
+				return ctx.isDay();
+			case Night:
+				return !ctx.isDay();
+			case Winter:
+				int month = ctx.datePart(1, 1);
+				return month == 11 || month == 12 || month == 1;
+			case Meet:
+				return ctx.same(ctx.signOf(a), ctx.signOf(b));
+			case Alone: {
+				Integer sign = ctx.signOf(a);
+				if(sign == null) {
+					return false;
+				}
+				int count = 0;
+				for(SignRef ref : refs) {
+					Integer other = ctx.signOf(ref);
+					if(other != null && other.intValue() == sign.intValue()) {
+						count++;
+					}
+				}
+				return count == 1;
+			}
+			case Direction: {
+				Integer sign = ctx.signOf(a);
+				return sign != null && arg.indexOf(signZi(sign)) >= 0;
+			}
+			case LostRulership:
+				return ctx.lostRulership(arg);
+			case LostDomicile:
+				return ctx.lostDomicileBySu(arg);
+			case Rulership: {
+				Integer sign = ctx.signOf(a);
+				return sign != null && ctx.same(ctx.signRulerCn(sign), arg);
+			}
+			case Domicile:
+				return ctx.inDomicileBySu(arg);
+			case Helped: {
+				Integer sign = ctx.signOf(a);
+				return sign != null && ctx.same(ctx.signRulerCn(sign), arg);
+			}
+			case LifeSignFork:
+				return ctx.nearSignBoundary(ctx.lifePosition());
+			case LifeSuFork:
+				return ctx.nearSuBoundary(ctx.lifePosition());
+			case LifeFork:
+				return ctx.eval(subs[0], validRules) || ctx.eval(subs[1], validRules);
+			default:
+				return false;
+			}
+		}
+	}
+
+	private static abstract class MoiraTerm {
+		abstract Object value(MoiraStyleContext ctx);
+	}
+
+	private static class LiteralTerm extends MoiraTerm {
+		private final String value;
+
+		private LiteralTerm(String value) {
+			this.value = value;
+		}
+
+		@Override
+		Object value(MoiraStyleContext ctx) {
+			return value;
+		}
+	}
+
+	private static class RelationTerm extends MoiraTerm {
+		private final Map<String, String> relation;
+		private final MoiraTerm inner;
+
+		private RelationTerm(Map<String, String> relation, MoiraTerm inner) {
+			this.relation = relation;
+			this.inner = inner;
+		}
+
+		@Override
+		Object value(MoiraStyleContext ctx) {
+			return relation.get(String.valueOf(inner.value(ctx)));
+		}
+	}
+
+	private static class SignTerm extends MoiraTerm {
+		private final boolean su;
+		private String name;
+		private SignRef ref;
+		private MoiraTerm nameTerm;
+		private boolean suRuler;
+		private int[] indexes;
+		private boolean shifted;
+		private int offset;
+
+		private SignTerm(boolean su) {
+			this.su = su;
+		}
+
+		@Override
+		Object value(MoiraStyleContext ctx) {
+			String key = nameTerm == null ? name : String.valueOf(nameTerm.value(ctx));
+			Object value;
+			if(su) {
+				value = ctx.suValue(key, suRuler);
+			}else {
+				value = nameTerm == null ? ctx.signOf(ref) : ctx.signOfName(key);
+				if(value == null) {
+					value = key;
+				}
+			}
+			for(int idx : indexes) {
+				if(idx == 0 && value instanceof Integer) {
 					value = signZi((Integer) value);
-				}else if("1".equals(idx) && value instanceof Integer) {
-					value = signRulerCn((Integer) value);
+				}else if(idx == 1 && value instanceof Integer) {
+					value = ctx.signRulerCn((Integer) value);
 				}
-				suffix = suffix.substring(end + 1).trim();
 			}
-			if(value instanceof Integer && (suffix.startsWith("+") || suffix.startsWith("-"))) {
-				int offset = parseIntSafe(suffix, 0);
+			if(shifted && value instanceof Integer) {
 				value = wrap(((Integer)value) + offset, 12);
 			}
 			return value;
 		}
+	}
+
+	private class MoiraStyleContext {
+		private final Map<String, Object> chart;
+		private final Map<String, Map<String, Object>> byId;
+		private final Map<String, Object> params;
+		private final int lifeSignIndex;
+		private final int selfSignIndex;
+		private final Map<String, Integer> godSigns = new HashMap<String, Integer>();
+		private final Map<String, Integer> houseSigns = new HashMap<String, Integer>();
+		private final byte[] memo = new byte[MOIRA_STYLE_PROGRAM.size];
+
+		private MoiraStyleContext(Map<String, Object> chart, Map<String, Map<String, Object>> byId, Map<String, Object> params, int lifeSignIndex, int selfSignIndex, List<Map<String, Object>> godHits) {
+			this.chart = chart == null ? Collections.<String, Object>emptyMap() : chart;
+			this.byId = byId == null ? Collections.<String, Map<String, Object>>emptyMap() : byId;
+			this.params = params == null ? Collections.<String, Object>emptyMap() : params;
+			this.lifeSignIndex = lifeSignIndex;
+			this.selfSignIndex = selfSignIndex;
+			for(int i=0; i<MOIRA_HOUSE_NAMES.length; i++) {
+				houseSigns.put(MOIRA_HOUSE_NAMES[i], wrap(lifeSignIndex + i, 12));
+			}
+			for(String[] alias : MOIRA_HOUSE_ALIASES) {
+				houseSigns.put(alias[0], houseSigns.get(alias[1]));
+			}
+			houseSigns.put("身", selfSignIndex);
+
+			for(Map<String, Object> row : godHits) {
+				int signIdx = ziToSign(str(row.get("zi"), ""));
+				if(signIdx < 0) {
+					continue;
+				}
+				for(String key : Arrays.asList("goodGods", "neutralGods", "badGods", "taisuiGods")) {
+					for(String name : stringList(row.get(key))) {
+						if(!godSigns.containsKey(name)) {
+							godSigns.put(name, signIdx);
+						}
+					}
+				}
+			}
+		}
 
-		private Object suValue(String name, String suffix) {
+		private boolean eval(MoiraExpr expr, Set<String> validRules) {
+			if(!expr.cacheable) {
+				return expr.test(this, validRules);
+			}
+			byte val = memo[expr.id];
+			if(val != 0) {
+				return val == 2;
+			}
+			boolean res = expr.test(this, validRules);
+			memo[expr.id] = res ? (byte)2 : (byte)1;
+			return res;
+		}
+
+		private Integer signOf(SignRef ref) {
+			if(ref == null) {
+				return null;
+			}
+			if(ref.house) {
+				return houseSigns.get(ref.name);
+			}
+			Integer god = godSigns.get(ref.name);
+			if(god != null) {
+				return god;
+			}
+			if(ref.planetId != null) {
+				Map<String, Object> obj = byId.get(ref.planetId);
+				if(obj != null) {
+					return signIndex(position(obj));
+				}
+			}
+			return ref.zi;
+		}
+
+		private Object suValue(String name, boolean ruler) {
 			Map<String, Object> obj = objectByCnName(name);
 			if(obj == null) {
 				return "";
 			}
 			String su = str(obj.get("su28"), "");
-			if(suffix.startsWith("[1]")) {
+			if(ruler) {
 				return suRuler(su);
 			}
 			return su;
 		}
 
-		private String stripLeadingIndex(String suffix) {
-			if(suffix.startsWith("[")) {
-				int end = suffix.indexOf(']');
-				if(end >= 0) {
-					return suffix.substring(end + 1).trim();
-				}
-			}
-			return suffix;
+		private double lifePosition() {
+			return position(firstPresent(byId, "LifeMasterDeg74", "Asc", "Sun"));
 		}
 
 		private Integer signOfName(String name) {
@@ -1392,14 +1725,6 @@ public class QizhengMoiraRuleService {
 				return same(rulerOfRulerSign, OVERCOMING.get(ruler));
 			}
 
-			private boolean inRulership(String subject) {
-				Integer sign = signOfName(subject);
-				if(sign == null) {
-					return false;
-				}
-				return same(signRulerCn(sign), subject);
-			}
-
 			private boolean inDomicileBySu(String subject) {
 				Map<String, Object> obj = objectByCnName(subject);
 				if(obj == null) {
@@ -1508,7 +1833,7 @@ public class QizhengMoiraRuleService {
 		}
 	}
 
-	private int ziToSign(String zi) {
+	private static int ziToSign(String zi) {
 		for(int i=0; i<SIGN_ZI.length; i++) {
 			if(SIGN_ZI[i].equals(zi)) {
 				return i;
@@ -1517,7 +1842,7 @@ public class QizhengMoiraRuleService {
 		return -1;
 	}
 
-	private int parseIntSafe(String raw, int defVal) {
+	private static int parseIntSafe(String raw, int defVal) {
 		try {
 			return Integer.parseInt(raw.trim());
 		}catch(Exception e) {
@@ -1525,7 +1850,7 @@ public class QizhengMoiraRuleService {
 		}
 	}
 
-	private String cleanOuter(String expr) {
+	private static String cleanOuter(String expr) {
 		String s = expr == null ? "" : expr.trim();
 		while(s.startsWith("(") && s.endsWith(")") && matchBrace(s, 0, '(', ')') == s.length() - 1) {
 			s = s.substring(1, s.length() - 1).trim();
@@ -1533,7 +1858,7 @@ public class QizhengMoiraRuleService {
 		return s;
 	}
 
-	private int indexTop(String s, char needle) {
+	private static int indexTop(String s, char needle) {
 		int paren = 0;
 		int brace = 0;
 		int bracket = 0;
@@ -1550,7 +1875,7 @@ public class QizhengMoiraRuleService {
 		return -1;
 	}
 
-	private List<String> splitTop(String s, char sep) {
+	private static List<String> splitTop(String s, char sep) {
 		List<String> list = new ArrayList<String>();
 		int paren = 0;
 		int brace = 0;
@@ -1573,11 +1898,11 @@ public class QizhengMoiraRuleService {
 		return list;
 	}
 
-	private int matchBrace(String s, int start) {
+	private static int matchBrace(String s, int start) {
 		return matchBrace(s, start, '{', '}');
 	}
 
-	private int matchBrace(String s, int start, char open, char close) {
+	private static int matchBrace(String s, int start, char open, char close) {
 		int depth = 0;
 		for(int i=start; i<s.length(); i++) {
 			char ch = s.charAt(i);
@@ -0,0 +1,83 @@
+package spacex.astrostudycn.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import boundless.utility.JsonUtility;
+import spacex.astrostudy.constants.StemBranch;
+import spacex.astrostudy.model.NongLi;
+import spacex.astrostudycn.constants.BaZiGender;
+import spacex.astrostudycn.helper.ZiWeiTables;
+
+public class ZiWeiChartTest {
+
+	@After
+	public void cleanup() {
+		ZiWeiLayout.clearCache();
+	}
+
+	private static NongLi nongli(int gan, int zi, int month, boolean leap, int day, int timezi) {
+		NongLi nl = NongLi.emptyNongLi();
+		nl.year = StemBranch.Stems[gan] + StemBranch.Branches[zi];
+		nl.monthInt = month;
+		nl.month = ZiWeiTables.MonthNames[month - 1];
+		nl.leap = leap;
+		nl.dayInt = day;
+		nl.time = "甲" + StemBranch.Branches[timezi];
+		return nl;
+	}
+
+	private static Map<String, Map<String, String>> customSihua() {
+		Map<String, String> jia = new HashMap<String, String>();
+		jia.put("太阳", "化忌");
+		Map<String, Map<String, String>> sihua = new HashMap<String, Map<String, String>>();
+		sihua.put("甲", jia);
+		return sihua;
+	}
+
+	@Test
+	public void matchesLegacySetup() {
+		Random rnd = new Random(7);
+		for(int i=0; i<5000; i++) {
+			int gan = rnd.nextInt(10);
+			int zi = rnd.nextInt(6) * 2 + gan % 2;
+			NongLi nl = nongli(gan, zi, 1 + rnd.nextInt(12), rnd.nextBoolean(), 1 + rnd.nextInt(30), rnd.nextInt(12));
+			BaZiGender gender = rnd.nextBoolean() ? BaZiGender.Male : BaZiGender.Female;
+			boolean custom = i % 5 == 0;
+
+			String expected = JsonUtility.encode(new LegacyZiWeiChart(nl, gender, custom ? customSihua() : null));
+			String actual = JsonUtility.encode(new ZiWeiChart(nl, gender, custom ? customSihua() : null));
+			assertEquals(nl.year + nl.month + nl.dayInt + nl.time + gender, expected, actual);
+		}
+	}
+
+	@Test
+	public void chartsDoNotShareStars() {
+		NongLi nl = nongli(0, 0, 3, false, 5, 6);
+		String expected = JsonUtility.encode(new ZiWeiChart(nl, BaZiGender.Male, null));
+
+		ZiWeiChart first = new ZiWeiChart(nl, BaZiGender.Male, null);
+		for(ZiWeiHouse house : first.houses) {
+			for(ZiWeiStar star : house.starsMain) {
+				star.sihua = "化忌";
+				star.starlight = "陷";
+				if(star.sihuaGan != null) {
+					star.sihuaGan.put("化忌", new HashSet<String>());
+				}
+			}
+		}
+		ZiWeiChart second = new ZiWeiChart(nl, BaZiGender.Male, null);
+
+		assertEquals(expected, JsonUtility.encode(second));
+		assertNotSame(first.houses[first.ziweiIndex].starsMain.get(0), second.houses[second.ziweiIndex].starsMain.get(0));
+	}
+
+}
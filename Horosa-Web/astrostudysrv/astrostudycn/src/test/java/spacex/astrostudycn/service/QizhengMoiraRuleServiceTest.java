@@ -0,0 +1,177 @@
+package spacex.astrostudycn.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import boundless.utility.JsonUtility;
+
+public class QizhengMoiraRuleServiceTest {
+	private static final String[] SIGN_IDS = new String[] {
+		"Aries", "Taurus", "Gemini", "Cancer", "Leo", "Virgo",
+		"Libra", "Scorpio", "Sagittarius", "Capricorn", "Aquarius", "Pisces"
+	};
+	private static final String[] OBJECT_IDS = new String[] {
+		"Sun", "Moon", "Mercury", "Venus", "Mars", "Jupiter", "Saturn",
+		"North Node", "South Node", "Purple Clouds", "Dark Moon", "Asc", "MC", "LifeMasterDeg74"
+	};
+	private static final String SU28 = "角亢氐房心尾箕斗牛女虚危室壁奎娄胃昴毕觜参井鬼柳星张翼轸";
+	private static final String STEMS = "甲乙丙丁戊己庚辛壬癸";
+	private static final String BRANCHES = "子丑寅卯辰巳午未申酉戌亥";
+	private static final String[] LIFE_MODES = new String[] {"asc", "yumao", "cotrans"};
+
+	private static String pole(Random rnd) {
+		int idx = rnd.nextInt(60);
+		return "" + STEMS.charAt(idx % 10) + BRANCHES.charAt(idx % 12);
+	}
+
+	private static double lon(Random rnd, List<Double> placed) {
+		int mode = rnd.nextInt(10);
+		if(mode < 2 && !placed.isEmpty()) {
+			return (placed.get(rnd.nextInt(placed.size())) + rnd.nextDouble() * 10 - 5 + 360) % 360;
+		}
+		if(mode < 4) {
+			return rnd.nextInt(12) * 30 + (rnd.nextBoolean() ? rnd.nextDouble() : 29 + rnd.nextDouble());
+		}
+		return rnd.nextDouble() * 360;
+	}
+
+	private static Map<String, Object> chartObj(Random rnd) {
+		List<Object> objects = new ArrayList<Object>();
+		List<Double> placed = new ArrayList<Double>();
+		for(String id : OBJECT_IDS) {
+			if("LifeMasterDeg74".equals(id) && rnd.nextInt(5) == 0) {
+				continue;
+			}
+			double lon = lon(rnd, placed);
+			placed.add(lon);
+			Map<String, Object> obj = new HashMap<String, Object>();
+			obj.put("id", id);
+			obj.put(rnd.nextInt(6) == 0 ? "ra" : "lon", lon);
+			obj.put("sign", SIGN_IDS[(int) Math.floor(lon / 30) % 12]);
+			obj.put("su28", String.valueOf(SU28.charAt(rnd.nextInt(SU28.length()))));
+			obj.put("lonspeed", rnd.nextDouble() * 2 - 0.5);
+			obj.put("house", "House" + (1 + rnd.nextInt(12)));
+			objects.add(obj);
+		}
+		List<Object> fixedStars = new ArrayList<Object>();
+		for(int i=0; i<SU28.length(); i++) {
+			Map<String, Object> row = new HashMap<String, Object>();
+			row.put("name", String.valueOf(SU28.charAt(i)));
+			row.put("ra", i * 360.0 / SU28.length() + rnd.nextDouble() * 6);
+			fixedStars.add(row);
+		}
+		Map<String, Object> bazi = new HashMap<String, Object>();
+		for(String key : Arrays.asList("year", "month", "day", "time")) {
+			Map<String, Object> one = new HashMap<String, Object>();
+			one.put("text", pole(rnd));
+			bazi.put(key, one);
+		}
+		Map<String, Object> nongli = new HashMap<String, Object>();
+		nongli.put("bazi", bazi);
+
+		Map<String, Object> chart = new HashMap<String, Object>();
+		chart.put("objects", objects);
+		chart.put("houses", new ArrayList<Object>());
+		chart.put("fixedStarSu28", fixedStars);
+		chart.put("nongli", nongli);
+		Map<String, Object> chartObj = new HashMap<String, Object>();
+		chartObj.put("chart", chart);
+		return chartObj;
+	}
+
+	private static Map<String, Object> params(Random rnd) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("date", (1900 + rnd.nextInt(200)) + "-" + (1 + rnd.nextInt(12)) + "-" + (1 + rnd.nextInt(28)));
+		params.put("time", rnd.nextInt(24) + ":" + rnd.nextInt(60) + ":00");
+		params.put("guolaoLifeMode", LIFE_MODES[rnd.nextInt(LIFE_MODES.length)]);
+		return params;
+	}
+
+	private static Set<String> fixedPoint(LegacyQizhengMoiraRuleService legacy, List<String> names, Map<String, Object> chartObj, Map<String, Object> params) {
+		Set<String> valid = new HashSet<String>();
+		for(int pass=0; pass<4; pass++) {
+			boolean[] hits = legacy.matchMoiraStyleRules(chartObj, params, Arrays.<Set<String>>asList(valid))[0];
+			Set<String> next = new HashSet<String>(valid);
+			for(int i=0; i<hits.length; i++) {
+				if(hits[i]) {
+					next.add(names.get(i));
+				}
+			}
+			if(next.equals(valid)) {
+				break;
+			}
+			valid = next;
+		}
+		return valid;
+	}
+
+	@Test
+	public void compiledRulesMatchStringEvaluator() {
+		LegacyQizhengMoiraRuleService legacy = new LegacyQizhengMoiraRuleService();
+		QizhengMoiraRuleService service = new QizhengMoiraRuleService();
+		List<String> names = LegacyQizhengMoiraRuleService.moiraStyleRuleNames();
+		assertEquals(names, QizhengMoiraRuleService.moiraStyleRuleNames());
+		assertTrue("moira_s.prop not loaded: " + names.size(), names.size() > 100);
+
+		int[] fired = new int[names.size()];
+		Random rnd = new Random(9);
+		for(int c=0; c<600; c++) {
+			Map<String, Object> chartObj = chartObj(rnd);
+			Map<String, Object> params = params(rnd);
+			Set<String> half = new HashSet<String>();
+			for(String name : names) {
+				if(rnd.nextBoolean()) {
+					half.add(name);
+				}
+			}
+			List<Set<String>> sets = Arrays.<Set<String>>asList(new HashSet<String>(), fixedPoint(legacy, names, chartObj, params), half, new HashSet<String>(names));
+
+			boolean[][] expected = legacy.matchMoiraStyleRules(chartObj, params, sets);
+			boolean[][] actual = service.matchMoiraStyleRules(chartObj, params, sets);
+			for(int n=0; n<sets.size(); n++) {
+				for(int i=0; i<names.size(); i++) {
+					assertEquals("chart " + c + " set " + n + " rule " + names.get(i), expected[n][i], actual[n][i]);
+					if(n == 1 && actual[n][i]) {
+						fired[i]++;
+					}
+				}
+			}
+			assertEquals("chart " + c, JsonUtility.encode(legacy.analyze(chartObj, params)), JsonUtility.encode(service.analyze(chartObj, params)));
+		}
+
+		int hit = 0;
+		for(int count : fired) {
+			if(count > 0) {
+				hit++;
+			}
+		}
+		assertTrue("only " + hit + " of " + names.size() + " rules fired", hit * 5 > names.size() * 4);
+	}
+
+	@Test
+	public void compiledRulesMatchStringEvaluatorWithoutPillars() {
+		LegacyQizhengMoiraRuleService legacy = new LegacyQizhengMoiraRuleService();
+		QizhengMoiraRuleService service = new QizhengMoiraRuleService();
+		Random rnd = new Random(11);
+		for(int c=0; c<200; c++) {
+			Map<String, Object> chartObj = chartObj(rnd);
+			@SuppressWarnings("unchecked")
+			Map<String, Object> chart = (Map<String, Object>) chartObj.get("chart");
+			chart.remove("nongli");
+			chart.remove("fixedStarSu28");
+			Map<String, Object> params = params(rnd);
+			assertEquals("chart " + c, JsonUtility.encode(legacy.analyze(chartObj, params)), JsonUtility.encode(service.analyze(chartObj, params)));
+		}
+	}
+}
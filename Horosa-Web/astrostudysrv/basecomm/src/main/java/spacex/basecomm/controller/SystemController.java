@@ -11,12 +11,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import boundless.console.Diagnostic;
+import boundless.exception.ErrorCodeException;
+import boundless.spring.help.PropertyPlaceholder;
 import boundless.spring.help.interceptor.TransData;
 import boundless.utility.FormatUtility;
+import boundless.utility.MetricsRegistry;
 
 @Controller
 @RequestMapping("/common")
 public class SystemController {
+	private static final boolean MetricsHttpEnable = PropertyPlaceholder.getPropertyAsBool("metrics.http.enable", false);
 
 	@RequestMapping("/time")
 	@ResponseBody
@@ -71,6 +75,19 @@ public class SystemController {
 		return Diagnostic.getMavenVersion(groupid, artifactid);
 	}
 	
+	/**
+	 * 请求与各组件的指标快照。/common/**不经过登录与权限检查，
+	 * 所以默认关闭，需显式设置metrics.http.enable=true才开放，开放时应只在内网可达
+	 */
+	@RequestMapping("/metrics")
+	@ResponseBody
+	public void metrics(){
+		if(!MetricsHttpEnable){
+			throw new ErrorCodeException(404, "metrics disabled");
+		}
+		TransData.set("Metrics", MetricsRegistry.snapshot());
+	}
+	
 	@RequestMapping("/prevmonth")
 	@ResponseBody
 	public String prevmonth(){
@@ -1,6 +1,8 @@
 package spacex.basecomm.ws.command;
 
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -10,8 +12,10 @@ import boundless.netty.Datagram;
 import boundless.netty.ProcessorContext;
 import boundless.netty.WebSocketDatagram;
 import boundless.spring.help.PropertyPlaceholder;
+import boundless.spring.help.interceptor.InProcessDispatcher;
 import boundless.spring.help.interceptor.KeyConstants;
 import boundless.utility.JsonUtility;
+import boundless.utility.MetricsRegistry;
 import spacex.basecomm.ws.packet.WebSocketPacketIds;
 
 public class WebSocketCmd {
@@ -63,14 +67,54 @@ public class WebSocketCmd {
 	}
 	
 	
+	/**
+	 * url指向本服务且有可直接调用的控制器时在进程内处理，否则发http请求
+	 */
 	public static Datagram httpRequest(ProcessorContext ctx, String url) {
+		String transcode = InProcessDispatcher.localTransCode(url);
+		if(transcode != null) {
+			Datagram outData = dispatch(ctx, transcode);
+			if(outData != null) {
+				return outData;
+			}
+		}
+		
 		WebSocketDatagram inData = (WebSocketDatagram) ctx.getInData();
 		Map<String, String> head = inData.getHeadStringMap();
 		Map<String, Object> body = (Map<String, Object>)inData.getBody();
 		Map<String, String> responseHeaders = new HashMap<String, String>();
 		
+		MetricsRegistry.counter("ws.dispatch.http").increment();
 		String json = HttpClientUtility.httpPost(url, body, head, responseHeaders);
 		Datagram outData = WebSocketCmd.genDatagram(inData.command(), json, responseHeaders);
 		return outData;
 	}
+	
+	/**
+	 * 在进程内调用交易码对应的控制器，结果直接写入回包。
+	 * 帧的请求头与请求体按http请求同样解密、验签，拦截器拒绝或出错时回错误码
+	 * @return 没有可直接调用的控制器时返回null
+	 */
+	public static Datagram dispatch(ProcessorContext ctx, String transcode) {
+		if(!InProcessDispatcher.canDispatch(transcode)) {
+			return null;
+		}
+		WebSocketDatagram inData = (WebSocketDatagram) ctx.getInData();
+		Map<String, Object> body = (Map<String, Object>)inData.getBody();
+		InProcessDispatcher.Result res = InProcessDispatcher.dispatch(transcode, inData.getHead(), body, remoteAddr(ctx));
+		if(res == null) {
+			return null;
+		}
+		MetricsRegistry.counter("ws.dispatch.inprocess").increment();
+		Map<String, Object> result = res.getResult();
+		return genDatagram(inData.command(), result.get(KeyConstants.ResultCode), result.get(ResultKey), res.getHead());
+	}
+	
+	private static String remoteAddr(ProcessorContext ctx) {
+		SocketAddress addr = ctx.getChannel() == null ? null : ctx.getChannel().remoteAddress();
+		if(addr instanceof InetSocketAddress && ((InetSocketAddress) addr).getAddress() != null) {
+			return ((InetSocketAddress) addr).getAddress().getHostAddress();
+		}
+		return null;
+	}
 }
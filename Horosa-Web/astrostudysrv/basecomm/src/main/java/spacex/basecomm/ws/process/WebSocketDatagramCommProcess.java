@@ -10,6 +10,7 @@ import boundless.netty.Datagram;
 import boundless.netty.PacketRegistor;
 import boundless.netty.ProcessorContext;
 import boundless.netty.WebSocketDatagram;
+import boundless.utility.ConvertUtility;
 import boundless.utility.RandomUtility;
 import boundless.utility.StringUtility;
 import spacex.basecomm.ws.command.WebSocketCmd;
@@ -34,7 +35,15 @@ public class WebSocketDatagramCommProcess {
 	
 	private static void jsonRequest(ProcessorContext ctx) {
 		WebSocketDatagram inData = (WebSocketDatagram) ctx.getInData();
-		
+		String transcode = ConvertUtility.getValueAsString(inData.getHead().get("TransCode"));
+		if(StringUtility.isNullOrEmpty(transcode)) {
+			throw new ErrorCodeException(5999999, "miss_transcode");
+		}
+		Datagram outData = WebSocketCmd.dispatch(ctx, transcode);
+		if(outData == null) {
+			throw new ErrorCodeException(999999, String.format("no in-process handler for transcode: %s", transcode));
+		}
+		ctx.send(outData);
 	}
 	
 	private static void websocketPkg(ProcessorContext ctx) {
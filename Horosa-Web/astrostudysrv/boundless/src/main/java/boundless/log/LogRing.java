@@ -0,0 +1,121 @@
+package boundless.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+
+/**
+ * 定长的多生产者日志环形队列。槽位预先分配并重复使用，入队与出队只做CAS，不产生额外对象
+ */
+final class LogRing {
+
+	static final class Event {
+		Logger log;
+		String level;
+		String format;
+		Object[] args;
+		Throwable error;
+		String attach;
+		StackWalker.StackFrame caller;
+
+		private void clear() {
+			log = null;
+			level = null;
+			format = null;
+			args = null;
+			error = null;
+			attach = null;
+			caller = null;
+		}
+	}
+
+	private final Event[] slots;
+	private final AtomicLongArray seqs;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * @param capacity 向上取整为2的幂
+	 */
+	LogRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		slots = new Event[size];
+		seqs = new AtomicLongArray(size);
+		for(int i=0; i<size; i++) {
+			slots[i] = new Event();
+			seqs.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	int capacity() {
+		return slots.length;
+	}
+
+	int size() {
+		return (int)Math.max(0, tail.get() - head.get());
+	}
+
+	/**
+	 * @return 队列已满时返回false
+	 */
+	boolean offer(Logger log, String level, String format, Object[] args, Throwable error, String attach, StackWalker.StackFrame caller) {
+		long pos = tail.get();
+		while(true) {
+			int idx = (int)(pos & mask);
+			long dif = seqs.get(idx) - pos;
+			if(dif == 0) {
+				if(tail.compareAndSet(pos, pos + 1)) {
+					Event ev = slots[idx];
+					ev.log = log;
+					ev.level = level;
+					ev.format = format;
+					ev.args = args;
+					ev.error = error;
+					ev.attach = attach;
+					ev.caller = caller;
+					seqs.set(idx, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			}else if(dif < 0) {
+				return false;
+			}else {
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * 取出一条交给handler处理，处理完后槽位才归还
+	 * @return 队列为空时返回false
+	 */
+	boolean poll(Consumer<Event> handler) {
+		long pos = head.get();
+		while(true) {
+			int idx = (int)(pos & mask);
+			long dif = seqs.get(idx) - (pos + 1);
+			if(dif == 0) {
+				if(head.compareAndSet(pos, pos + 1)) {
+					Event ev = slots[idx];
+					try {
+						handler.accept(ev);
+					}finally {
+						ev.clear();
+						seqs.set(idx, pos + mask + 1);
+					}
+					return true;
+				}
+				pos = head.get();
+			}else if(dif < 0) {
+				return false;
+			}else {
+				pos = head.get();
+			}
+		}
+	}
+
+}
@@ -2,8 +2,15 @@ package boundless.log;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,180 +31,296 @@ public class QueueLog {
 	
 	private static ExecutionGroup executor = new ExecutionGroup(64, "QueueLog");
 	private static ExecutionGroup sendHandlerExecutor = new ExecutionGroup(64, "SendCenterHandlerExecutor");
+
+	/**
+	 * QueueLog先于PropertyPlaceholder初始化，这里的设置只从系统属性读取
+	 */
+	private static final int RingSize = Integer.getInteger("queuelog.ring.size", 65536);
+	private static final int Consumers = Math.max(1, Integer.getInteger("queuelog.consumers", 1));
+	private static volatile CallerMode callerMode = CallerMode.parse(System.getProperty("queuelog.caller", "walker"));
+	private static volatile int sampleRate = Math.max(1, Integer.getInteger("queuelog.caller.samplerate", 64));
+	private static volatile boolean blockWhenFull = !"drop".equalsIgnoreCase(System.getProperty("queuelog.overflow", "block"));
+	private static final long blockNanos = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("queuelog.block.ms", 50));
+
+	private static final StackWalker Walker = StackWalker.getInstance();
+	private static final Function<Stream<StackWalker.StackFrame>, StackWalker.StackFrame> FirstCaller = (frames)->{
+		return frames.dropWhile((f)->isQueueLogFrame(f.getClassName())).findFirst().orElse(null);
+	};
+	private static final Consumer<LogRing.Event> Writer = QueueLog::write;
+	private static final LongAdder Published = new LongAdder();
+	private static final LongAdder Blocked = new LongAdder();
+	private static final LongAdder Dropped = new LongAdder();
+	private static volatile LogRing ring;
+
+	static {
+		startRing();
+	}
+
+	private static enum CallerMode {
+		Off, Sampled, Walker;
+
+		private static CallerMode parse(String mode){
+			if("off".equalsIgnoreCase(mode)) {
+				return Off;
+			}
+			if("sampled".equalsIgnoreCase(mode)) {
+				return Sampled;
+			}
+			return Walker;
+		}
+	}
 	
     public static void queueWorkItem(Runnable callBack,Consumer<Throwable> exHandler){
     	if(executor == null){
     		return;
     	}
+    	executor.execute(()->{
+    		if(callBack != null){
+    			callBack.run();
+    		}
+    	}, exHandler);
+    }
+    
+    public static void queueWorkItem(Runnable callBack){
     	executor.execute(()->{
     		try{
     			if(callBack != null){
     				callBack.run();
     			}
     		}catch(Throwable e){
-    			if(exHandler != null){
-        			exHandler.accept(e);
-    			}
+    			globalLog.error(ConsoleUtility.getStackTrace(e));
     		}
     	});
     }
     
-    private static String processLog(String format, Thread threadobj){
-    	int idx = -1;
-    	Thread thread = threadobj;
-    	if(thread == null) {
-			thread = Thread.currentThread();
+    /**
+     * 取调用者位置，跳过QueueLog自身的栈帧
+     */
+    private static StackWalker.StackFrame captureCaller(){
+    	CallerMode mode = callerMode;
+    	if(mode == CallerMode.Off) {
+    		return null;
     	}
-    	StackTraceElement[] currStack = thread.getStackTrace();
-    	for(int i=0; i<currStack.length; i++){
-    		StackTraceElement elem = currStack[i];
-    		String classname = elem.getClassName();
-    		if(classname.contains("QueueLog")){
-    			idx = i;
-    		}else{
-    			if(idx > -1){
-    				idx = i;
-    				break;
-    			}
-    		}
-    	}
-    	if(idx == -1){
-    		return format;
+    	if(mode == CallerMode.Sampled && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+    		return null;
     	}
-    	
-    	StackTraceElement topelem = currStack[idx];
+    	return Walker.walk(FirstCaller);
+    }
+
+    private static boolean isQueueLogFrame(String classname){
+    	String self = QueueLog.class.getName();
+    	return classname.startsWith(self) && (classname.length() == self.length() || classname.charAt(self.length()) == '$');
+    }
+
+    private static String appendCaller(String format, StackWalker.StackFrame caller){
     	StringBuilder sb = new StringBuilder();
-    	if(StringUtility.isNullOrEmpty(format)){
-    		sb.append("");
-    	}else{
+    	if(!StringUtility.isNullOrEmpty(format)){
     		sb.append(format);
     	}
-    	sb.append(" \t(").append(topelem.getClassName()).append(".").append(topelem.getMethodName()).append(":");
-    	sb.append(topelem.getLineNumber()).append(")");
-    	
+    	sb.append(" \t(").append(caller.getClassName()).append(".").append(caller.getMethodName()).append(":");
+    	sb.append(caller.getLineNumber()).append(")");
     	return sb.toString();
     }
-    
-    public static void queueWorkItem(Runnable callBack){
-    	executor.execute(()->{
-    		try{
-    			if(callBack != null){
-    				callBack.run();
+
+    private static boolean enabled(Logger log, String level){
+    	switch(level) {
+    	case "trace":
+    		return log.isTraceEnabled();
+    	case "debug":
+    		return log.isDebugEnabled();
+    	case "info":
+    		return log.isInfoEnabled();
+    	case "warn":
+    		return log.isWarnEnabled();
+    	default:
+    		return log.isErrorEnabled();
+    	}
+    }
+
+    /**
+     * 日志只在调用线程上登记参数，格式化与输出都由后台线程完成；
+     * 队列满时按设置等待一小段时间或直接丢弃，并计数
+     */
+    private static void submit(Logger log, String level, String format, Object[] arguments, Throwable e, String attach, boolean withCaller){
+    	if(log == null) return;
+    	if(sendCenterHandler == null && !enabled(log, level)) {
+    		return;
+    	}
+    	LogRing r = ring;
+    	if(r == null) {
+    		return;
+    	}
+    	StackWalker.StackFrame caller = withCaller ? captureCaller() : null;
+    	if(r.offer(log, level, format, arguments, e, attach, caller)) {
+    		Published.increment();
+    		return;
+    	}
+    	if(blockWhenFull) {
+    		Blocked.increment();
+    		long deadline = System.nanoTime() + blockNanos;
+    		while(System.nanoTime() < deadline && ring == r) {
+    			LockSupport.parkNanos(50000);
+    			if(r.offer(log, level, format, arguments, e, attach, caller)) {
+    				Published.increment();
+    				return;
     			}
-    		}catch(Throwable e){
-    			globalLog.error(ConsoleUtility.getStackTrace(e));
     		}
-    	});
+    	}
+    	Dropped.increment();
     }
-    
+
+    private static void write(LogRing.Event ev){
+    	try {
+    		Logger log = ev.log;
+    		String fmt = ev.caller == null ? ev.format : appendCaller(ev.format, ev.caller);
+    		Object[] args = ev.args;
+    		if(ev.error != null) {
+    			String msg = ConsoleUtility.getStackTrace(ev.error);
+    			if(ev.attach != null) {
+    				msg = new StringBuilder(ev.attach).append("  ").append(msg).toString();
+    			}
+    			log.error(msg);
+    			sendToCenter(log, "error", msg);
+    			return;
+    		}
+    		switch(ev.level) {
+    		case "trace":
+    			if(args == null) log.trace(fmt); else log.trace(fmt, args);
+    			break;
+    		case "debug":
+    			if(args == null) log.debug(fmt); else log.debug(fmt, args);
+    			break;
+    		case "info":
+    			if(args == null) log.info(fmt); else log.info(fmt, args);
+    			break;
+    		case "warn":
+    			if(args == null) log.warn(fmt); else log.warn(fmt, args);
+    			break;
+    		default:
+    			if(args == null) log.error(fmt); else log.error(fmt, args);
+    			break;
+    		}
+    		if(sendCenterHandler != null) {
+    			sendToCenter(log, ev.level, ev.format, args);
+    		}
+    	}catch(Throwable e) {
+    		globalLog.error(ConsoleUtility.getStackTrace(e));
+    	}
+    }
+
+    private static void dispatch(LogRing r){
+    	int idle = 0;
+    	while(ring == r) {
+    		if(r.poll(Writer)) {
+    			idle = 0;
+    			continue;
+    		}
+    		idle++;
+    		if(idle < 64) {
+    			Thread.onSpinWait();
+    		}else {
+    			LockSupport.parkNanos(idle < 1000 ? 100000 : 1000000);
+    		}
+    	}
+    	while(r.poll(Writer)) {
+    	}
+    }
+
+    private static void startRing(){
+    	LogRing r = new LogRing(RingSize);
+    	ring = r;
+    	for(int i=0; i<Consumers; i++) {
+    		Thread t = new Thread(()->dispatch(r), "bdl-QueueLog-dispatch-" + i);
+    		t.setDaemon(true);
+    		t.start();
+    	}
+    }
+
+    private static void stopRing(){
+    	LogRing r = ring;
+    	ring = null;
+    	if(r == null) {
+    		return;
+    	}
+    	long deadline = System.currentTimeMillis() + 5000;
+    	while(r.size() > 0 && System.currentTimeMillis() < deadline) {
+    		LockSupport.parkNanos(1000000);
+    	}
+    }
+
     public static void info(Logger log, String format, Object... arguments){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
-    	QueueLog.queueWorkItem(()->{
-        	log.info(fmt, arguments);
-        	sendToCenter(log, "info", format, arguments);
-		});
+    	submit(log, "info", format, arguments, null, null, true);
     }
 
     public static void info(Logger log, String format){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
-		QueueLog.queueWorkItem(()->{
-        	log.info(fmt);
-        	sendToCenter(log, "info", format);
-		});
+    	submit(log, "info", format, null, null, null, true);
     }
 
     public static void debug(Logger log, String format, Object... arguments){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
-		QueueLog.queueWorkItem(()->{
-			log.debug(fmt, arguments);
-        	sendToCenter(log, "debug", format, arguments);
-		});
+    	submit(log, "debug", format, arguments, null, null, true);
     }
 
     public static void debug(Logger log, String format){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
-		QueueLog.queueWorkItem(()->{
-        	log.debug(fmt);
-        	sendToCenter(log, "debug", format);
-		});
+    	submit(log, "debug", format, null, null, null, true);
     }
 
     public static void error(Logger log, String format, Object... arguments){
-    	if(log == null) return;
-		QueueLog.queueWorkItem(()->{
-        	log.error(format, arguments);
-        	sendToCenter(log, "error", format, arguments);
-		});
+    	submit(log, "error", format, arguments, null, null, false);
     }
 
     public static void error(Logger log, String format){
-    	if(log == null) return;
-		QueueLog.queueWorkItem(()->{
-        	log.error(format);
-        	sendToCenter(log, "error", format);
-		});
+    	submit(log, "error", format, null, null, null, false);
     }
-    
-    
 
     public static void error(Logger log, Throwable e){
-    	if(log == null) return;
-		QueueLog.queueWorkItem(()->{
-			String msg = ConsoleUtility.getStackTrace(e);
-        	log.error(msg);
-        	sendToCenter(log, "error", msg);
-		});
+    	submit(log, "error", null, null, e, null, false);
     }
 
     public static void error(Logger log, Throwable e, String attach){
-    	if(log == null) return;
-		QueueLog.queueWorkItem(()->{
-			StringBuilder sb = new StringBuilder(attach);
-			sb.append("  ").append(ConsoleUtility.getStackTrace(e));
-			String msg = sb.toString();
-        	log.error(msg);
-        	sendToCenter(log, "error", msg);
-		});
+    	submit(log, "error", null, null, e, attach, false);
     }
 
     public static void warn(Logger log, String format, Object... arguments){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
-		QueueLog.queueWorkItem(()->{
-        	log.warn(fmt, arguments);
-        	sendToCenter(log, "warn", format);
-		});
+    	submit(log, "warn", format, arguments, null, null, true);
     }
 
     public static void warn(Logger log, String format){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
-		QueueLog.queueWorkItem(()->{
-        	log.warn(fmt);
-        	sendToCenter(log, "warn", format);
-		});
+    	submit(log, "warn", format, null, null, null, true);
     }
 
     public static void trace(Logger log, String format, Object... arguments){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
- 		QueueLog.queueWorkItem(()->{
-        	log.trace(fmt, arguments);
-        	sendToCenter(log, "trace", format, arguments);
-		});
+    	submit(log, "trace", format, arguments, null, null, true);
     }
 
     public static void trace(Logger log, String format){
-    	if(log == null) return;
-    	String fmt = processLog(format, null);
-		QueueLog.queueWorkItem(()->{
-        	log.trace(fmt);
-        	sendToCenter(log, "trace", format);
-		});
+    	submit(log, "trace", format, null, null, null, true);
+    }
+
+    /**
+     * @param mode off：不记录调用位置；sampled：按queuelog.caller.samplerate抽样记录；walker：每条都记录
+     */
+    public static void setCallerMode(String mode){
+    	callerMode = CallerMode.parse(mode);
+    }
+
+    public static void setCallerSampleRate(int rate){
+    	sampleRate = Math.max(1, rate);
+    }
+
+    public static void setBlockWhenFull(boolean value){
+    	blockWhenFull = value;
+    }
+
+    public static Map<String, Object> stats(){
+    	Map<String, Object> map = new LinkedHashMap<String, Object>();
+    	LogRing r = ring;
+    	map.put("callerMode", callerMode.name().toLowerCase());
+    	map.put("capacity", r == null ? 0 : r.capacity());
+    	map.put("queued", r == null ? 0 : r.size());
+    	map.put("published", Published.sum());
+    	map.put("blocked", Blocked.sum());
+    	map.put("dropped", Dropped.sum());
+    	return map;
     }
     
     public static String getMsg(String format, Object... arguments) {
@@ -270,6 +393,8 @@ public class QueueLog {
     }
     
     public static void build(){
+    	stopRing();
+    	startRing();
     	if(executor != null){
     		executor.close();
     	}
@@ -282,6 +407,7 @@ public class QueueLog {
     }
     
     public static void shutdown(){
+    	stopRing();
     	try {
         	executor.close();
         	executor = null;    		
@@ -15,9 +15,7 @@ import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.MessageToByteEncoder;
 
@@ -43,7 +41,7 @@ public class NettyClient implements IClient {
 	public static final Logger globalLog = LoggerFactory.getLogger(NettyClient.class);
 	public static final int WorkThreadSize = 2;
 	
-	private EventLoopGroup workerGroup = new NioEventLoopGroup(1);
+	private EventLoopGroup workerGroup = NettyTransport.newClientGroup();
 		
 	private Object attach;
 	private int type = 0;
@@ -362,8 +360,9 @@ public class NettyClient implements IClient {
             // NIO辅助启动类
             bootstrap = new Bootstrap();
             bootstrap.group(workerGroup)
-                    .channel(NioSocketChannel.class)// 类似NIO中serverSocketChannel
+                    .channel(NettyTransport.socketChannelClass())// 类似NIO中serverSocketChannel
                     .option(ChannelOption.SO_KEEPALIVE, true).option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeout)
+                    .option(ChannelOption.ALLOCATOR, NettyTransport.allocator())
                     .handler(new InitChannelHandler(this.execution, this.decoder, this.encoder, this));
  
             // 连接服务器 同步等待成功 主要用于异步操作的通知回调 回调处理用的ChannelHandler
@@ -18,9 +18,7 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.MessageToByteEncoder;
 import io.netty.util.concurrent.GlobalEventExecutor;
@@ -53,8 +51,8 @@ public class NettyServer implements PacketRegistor,Server {
 	}
 	
 
-	private EventLoopGroup bossGroup = new NioEventLoopGroup(3);
-	private EventLoopGroup workerGroup = new NioEventLoopGroup(3);
+	private EventLoopGroup bossGroup = NettyTransport.newBossGroup();
+	private EventLoopGroup workerGroup = NettyTransport.newWorkerGroup();
 	
 	protected IServerConfiguration config;
 
@@ -445,10 +443,12 @@ public class NettyServer implements PacketRegistor,Server {
             // NIO服务器端的辅助启动类 降低服务器开发难度
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)// 类似NIO中serverSocketChannel
+                    .channel(NettyTransport.serverChannelClass())// 类似NIO中serverSocketChannel
                     .option(ChannelOption.SO_BACKLOG, this.config.maxClient()) // The maximum queue length for incoming connection
                     .option(ChannelOption.SO_TIMEOUT, this.config.timeout()*1000)
+                    .option(ChannelOption.ALLOCATOR, NettyTransport.allocator())
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.ALLOCATOR, NettyTransport.allocator())
                     .childHandler(
                     		new ChildChannelHandler(this.execution, this)
                     		);// 最后绑定I/O事件的处理类, 处理网络IO事件
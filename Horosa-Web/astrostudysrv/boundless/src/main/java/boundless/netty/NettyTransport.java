@@ -0,0 +1,118 @@
+package boundless.netty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
+import boundless.utility.MetricsRegistry;
+
+/**
+ * netty传输层的公共配置。
+ * netty.epoll为true且本机支持时用epoll，否则用nio；事件循环线程数默认按cpu核数；
+ * 默认用池化的分配器并优先直接内存，netty.pooled为false时退回非池化的堆内存
+ */
+public class NettyTransport {
+	private static final int Cores = Runtime.getRuntime().availableProcessors();
+
+	private static final boolean UseEpoll = PropertyPlaceholder.getPropertyAsBool("netty.epoll", false) && epollAvailable();
+	private static final boolean Pooled = PropertyPlaceholder.getPropertyAsBool("netty.pooled", true);
+	private static final int BossThreads = PropertyPlaceholder.getPropertyAsInt("netty.boss.threads", 1);
+	private static final int WorkerThreads = PropertyPlaceholder.getPropertyAsInt("netty.worker.threads", 0);
+	private static final int ClientThreads = PropertyPlaceholder.getPropertyAsInt("netty.client.threads", 1);
+
+	private static final ByteBufAllocator Allocator = Pooled ? new PooledByteBufAllocator(true) : new UnpooledByteBufAllocator(false);
+
+	static {
+		MetricsRegistry.registerSource("netty", NettyTransport::stats);
+	}
+
+	private static boolean epollAvailable() {
+		try {
+			if(Epoll.isAvailable()) {
+				return true;
+			}
+			QueueLog.warn(AppLoggers.WarnLogger, "netty epoll unavailable, fall back to nio: {}", Epoll.unavailabilityCause());
+		}catch(Throwable e) {
+			QueueLog.warn(AppLoggers.WarnLogger, "netty epoll unavailable, fall back to nio: {}", e.toString());
+		}
+		return false;
+	}
+
+	public static boolean isEpoll() {
+		return UseEpoll;
+	}
+
+	public static EventLoopGroup newGroup(int threads) {
+		return UseEpoll ? new EpollEventLoopGroup(threads) : new NioEventLoopGroup(threads);
+	}
+
+	public static EventLoopGroup newBossGroup() {
+		return newGroup(Math.max(1, BossThreads));
+	}
+
+	/**
+	 * netty.worker.threads不大于0时按cpu核数
+	 */
+	public static EventLoopGroup newWorkerGroup() {
+		return newGroup(workerThreads());
+	}
+
+	public static EventLoopGroup newClientGroup() {
+		return newGroup(Math.max(1, ClientThreads));
+	}
+
+	public static int workerThreads() {
+		return WorkerThreads > 0 ? WorkerThreads : Cores;
+	}
+
+	public static Class<? extends ServerChannel> serverChannelClass() {
+		return UseEpoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+	}
+
+	public static Class<? extends SocketChannel> socketChannelClass() {
+		return UseEpoll ? EpollSocketChannel.class : NioSocketChannel.class;
+	}
+
+	public static Class<? extends DatagramChannel> datagramChannelClass() {
+		return UseEpoll ? EpollDatagramChannel.class : NioDatagramChannel.class;
+	}
+
+	public static ByteBufAllocator allocator() {
+		return Allocator;
+	}
+
+	public static Map<String, Object> stats() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("transport", UseEpoll ? "epoll" : "nio");
+		map.put("pooled", Pooled);
+		map.put("bossThreads", Math.max(1, BossThreads));
+		map.put("workerThreads", workerThreads());
+		map.put("clientThreads", Math.max(1, ClientThreads));
+		if(Allocator instanceof PooledByteBufAllocator) {
+			PooledByteBufAllocator pooled = (PooledByteBufAllocator) Allocator;
+			map.put("usedDirectMemory", pooled.metric().usedDirectMemory());
+			map.put("usedHeapMemory", pooled.metric().usedHeapMemory());
+		}
+		return map;
+	}
+
+}
@@ -10,8 +10,7 @@ import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.DatagramChannel;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -107,12 +106,13 @@ public class NettyUDPBroadcaster implements Broadcast {
         try {
             // NIO辅助启动类
         	if(workerGroup == null){
-        		workerGroup = new NioEventLoopGroup(WorkThreadSize);
+        		workerGroup = NettyTransport.newGroup(WorkThreadSize);
         	}
             Bootstrap bootstrap = new Bootstrap();
             bootstrap.group(workerGroup)
-                    .channel(NioDatagramChannel.class)// 类似NIO中serverSocketChannel
+                    .channel(NettyTransport.datagramChannelClass())// 类似NIO中serverSocketChannel
                     .option(ChannelOption.SO_BROADCAST, true)
+                    .option(ChannelOption.ALLOCATOR, NettyTransport.allocator())
                     .handler(new InitChannelHandler(this));
  
             bindFuture = bootstrap.bind(0);
@@ -158,7 +158,7 @@ public class NettyUDPBroadcaster implements Broadcast {
 	/**
      * 网络事件处理器
      */
-    private static class InitChannelHandler extends ChannelInitializer<NioDatagramChannel> {
+    private static class InitChannelHandler extends ChannelInitializer<DatagramChannel> {
        	private NettyUDPBroadcaster owner;
     	
     	public InitChannelHandler(NettyUDPBroadcaster owner){
@@ -166,7 +166,7 @@ public class NettyUDPBroadcaster implements Broadcast {
     	}
 
 		@Override
-		protected void initChannel(NioDatagramChannel ch) throws Exception {
+		protected void initChannel(DatagramChannel ch) throws Exception {
 			InetSocketAddress addr = new InetSocketAddress(this.owner.config.broadcastAddress(), this.owner.config.broadcastPort());
 			DatagramPacketEncoder encoder = new DatagramPacketEncoder(addr);
             ch.pipeline().addLast(encoder, new OutboundHandler(this.owner), new TransHandler(this.owner));
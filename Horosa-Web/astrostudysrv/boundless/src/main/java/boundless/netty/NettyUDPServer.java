@@ -8,9 +8,9 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.DatagramChannel;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.MessageToMessageDecoder;
 
@@ -34,7 +34,7 @@ public class NettyUDPServer implements PacketRegistor,Broadcast {
 	public static final Logger globalLog = AppLoggers.getLog(logDir, "udp");
 	public static final int WorkThreadSize = 1;
 	
-	private static NioEventLoopGroup workerGroup = null;
+	private static EventLoopGroup workerGroup = null;
 	
 	
 	public static void shutdown(){
@@ -315,12 +315,13 @@ public class NettyUDPServer implements PacketRegistor,Broadcast {
         try {
             // NIO辅助启动类
         	if(workerGroup == null){
-        		workerGroup = new NioEventLoopGroup(WorkThreadSize);
+        		workerGroup = NettyTransport.newGroup(WorkThreadSize);
         	}
             Bootstrap bootstrap = new Bootstrap();
             bootstrap.group(workerGroup)
-                    .channel(NioDatagramChannel.class)// 类似NIO中serverSocketChannel
+                    .channel(NettyTransport.datagramChannelClass())// 类似NIO中serverSocketChannel
                     .option(ChannelOption.SO_BROADCAST, true)
+                    .option(ChannelOption.ALLOCATOR, NettyTransport.allocator())
                     .handler(new InitChannelHandler(this.execution, this.decoder, this));
  
             bindFuture = bootstrap.bind(this.config.broadcastPort());
@@ -367,7 +368,7 @@ public class NettyUDPServer implements PacketRegistor,Broadcast {
 	/**
      * 网络事件处理器
      */
-    private static class InitChannelHandler extends ChannelInitializer<NioDatagramChannel> {
+    private static class InitChannelHandler extends ChannelInitializer<DatagramChannel> {
     	private ProcessorExecution execution;
     	private Class decoder;
        	private NettyUDPServer owner;
@@ -379,7 +380,7 @@ public class NettyUDPServer implements PacketRegistor,Broadcast {
     	}
 
 		@Override
-		protected void initChannel(NioDatagramChannel ch) throws Exception {
+		protected void initChannel(DatagramChannel ch) throws Exception {
 			InetSocketAddress addr = new InetSocketAddress(this.owner.config.broadcastAddress(), this.owner.config.broadcastPort());
 			DatagramPacketEncoder encoder = new DatagramPacketEncoder(addr);
     		if(encoder instanceof RSASetup){
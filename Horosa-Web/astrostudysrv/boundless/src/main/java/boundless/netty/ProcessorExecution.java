@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -62,8 +63,8 @@ public class ProcessorExecution implements PacketRegistor, Sessionable {
 		this.callbackHandlers = new HashMap<Integer, CallbackHandler>();
 		this.handlers = new HashMap<Integer, Consumer<ProcessorContext>>();
 		this.heartbeatHandlers = new HashMap<Integer, Consumer<ProcessorContext>>();
-		this.sessions = new HashMap<Long, NettySession>();
-		this.sessionIds = new HashMap<String, Long>();
+		this.sessions = new ConcurrentHashMap<Long, NettySession>();
+		this.sessionIds = new ConcurrentHashMap<String, Long>();
 		this.chains = new ArrayList<Function<ProcessorContext, Boolean>>();
 		this.afterChains = new ArrayList<Function<ProcessorContext, Boolean>>();
 		this.beforeCmdChains = new HashMap<Integer, List<Function<ProcessorContext, Boolean>>>();
@@ -358,9 +359,12 @@ public class ProcessorExecution implements PacketRegistor, Sessionable {
 		cmdchain.add(fun);
 	}
 	
+	/**
+	 * 会话表是并发map，增删查都不加锁；只有设置会话id涉及两张表的联动，仍串行
+	 */
 	@Override
 	synchronized public NettySession setupSession(ProcessorContext context, String sessionId){
-		Long oldkey = this.sessionIds.get(sessionId);
+		Long oldkey = sessionId == null ? null : this.sessionIds.get(sessionId);
 		long key = context.getClientNum();
 		if(oldkey != null && oldkey.longValue() != key){
 			NettySession sess = this.sessions.get(oldkey);
@@ -381,12 +385,14 @@ public class ProcessorExecution implements PacketRegistor, Sessionable {
 		
 		sess.setId(sessionId);
 		sess.setContext(context);
-		this.sessionIds.put(sessionId, key);
+		if(sessionId != null){
+			this.sessionIds.put(sessionId, key);
+		}
 		
 		return sess;
 	}
 	
-	synchronized public NettySession addSession(Channel channel){
+	public NettySession addSession(Channel channel){
 		String[] parts = channel.remoteAddress().toString().replaceAll("/", "").split(":");
 		long clientNum = ServerAddress.getDistinctCode(IPUtility.convert(parts[0]), ConvertUtility.getValueAsInt(parts[1]));
 		NettySession sess = new NettySession();
@@ -394,11 +400,11 @@ public class ProcessorExecution implements PacketRegistor, Sessionable {
 		return sess;
 	}
 		
-	synchronized public int countSession(){
+	public int countSession(){
 		return sessions.size();
 	}
 			
-	synchronized public NettySession removeSession(Channel channel){
+	public NettySession removeSession(Channel channel){
 		String clientAddr = channel.remoteAddress().toString();
 		String[] parts = clientAddr.replaceAll("/", "").split(":");
 		long key = ServerAddress.getDistinctCode(IPUtility.convert(parts[0]), ConvertUtility.getValueAsInt(parts[1]));
@@ -409,7 +415,7 @@ public class ProcessorExecution implements PacketRegistor, Sessionable {
 		
 		String sessid = sess.getId();
 		if(!StringUtility.isNullOrEmpty(sessid)){
-			this.sessionIds.remove(sessid);
+			this.sessionIds.remove(sessid, key);
 		}
 		sess.reject();
 		
@@ -437,17 +443,12 @@ public class ProcessorExecution implements PacketRegistor, Sessionable {
 		return sess.getId();
 	}
 	
-	synchronized public NettySession[] getAllSessions(){
-		NettySession[] res = new NettySession[this.sessions.size()];
-		this.sessions.values().toArray(res);
-		return res;
+	public NettySession[] getAllSessions(){
+		return this.sessions.values().toArray(new NettySession[0]);
 	}
 	
-	synchronized public Long[] getAllClientAddress(){
-		int sz = this.sessions.size();
-		Long[] clients = new Long[sz];
-		this.sessions.keySet().toArray(clients);
-		return clients;
+	public Long[] getAllClientAddress(){
+		return this.sessions.keySet().toArray(new Long[0]);
 	}
 	
 	public void markVeryActive(NettySession session){
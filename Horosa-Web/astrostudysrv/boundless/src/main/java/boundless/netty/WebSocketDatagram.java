@@ -1,11 +1,12 @@
 package boundless.netty;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
 import boundless.utility.ConvertUtility;
-import boundless.utility.StringUtility;
 import boundless.web.common.IUser;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 
 public class WebSocketDatagram extends TextWebSocketFrame implements Datagram {
@@ -16,14 +17,15 @@ public class WebSocketDatagram extends TextWebSocketFrame implements Datagram {
 	private IUser user;
 		
 	public WebSocketDatagram(String text){
-		super(text);
-		if(!StringUtility.isNullOrEmpty(text)) {
-			try {
-				this.raw = text.getBytes("UTF-8");
-			}catch(Exception e) {
-				
-			}		
-		}
+		this(text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * 帧内容直接包装raw，只编码一次
+	 */
+	private WebSocketDatagram(byte[] raw){
+		super(Unpooled.wrappedBuffer(raw));
+		this.raw = raw;
 	}
 	
 	@Override
@@ -11,8 +11,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
@@ -26,9 +25,7 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpObjectAggregator;
@@ -82,10 +79,10 @@ public class WebSocketServer implements PacketRegistor,Server {
 		return serverCounter;
 	}
 	
-	private Map<String, WebSocketServerHandshaker> webSocketHandshakerMap = new HashMap<String, WebSocketServerHandshaker>();
+	private Map<String, WebSocketServerHandshaker> webSocketHandshakerMap = new ConcurrentHashMap<String, WebSocketServerHandshaker>();
 
-	private EventLoopGroup bossGroup = new NioEventLoopGroup(3);
-	private EventLoopGroup workerGroup = new NioEventLoopGroup(3);
+	private EventLoopGroup bossGroup = NettyTransport.newBossGroup();
+	private EventLoopGroup workerGroup = NettyTransport.newWorkerGroup();
 	
 	protected IServerConfiguration config;
 
@@ -493,10 +490,12 @@ public class WebSocketServer implements PacketRegistor,Server {
             // NIO服务器端的辅助启动类 降低服务器开发难度
             ServerBootstrap serverBootstrap = new ServerBootstrap();
             serverBootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)// 类似NIO中serverSocketChannel
+                    .channel(NettyTransport.serverChannelClass())// 类似NIO中serverSocketChannel
                     .option(ChannelOption.SO_BACKLOG, this.config.maxClient()) // The maximum queue length for incoming connection
                     .option(ChannelOption.SO_TIMEOUT, this.config.timeout()*1000)
+                    .option(ChannelOption.ALLOCATOR, NettyTransport.allocator())
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
+                    .childOption(ChannelOption.ALLOCATOR, NettyTransport.allocator())
                     .childHandler(
                     		new ChildChannelHandler(this.execution, this)
                     		);// 最后绑定I/O事件的处理类, 处理网络IO事件
@@ -605,9 +604,7 @@ public class WebSocketServer implements PacketRegistor,Server {
 	    private void sendHttpResponse(ChannelHandlerContext ctx, FullHttpRequest req, DefaultFullHttpResponse res) {
 	        // 返回应答给客户端
 	        if (res.status().code() != 200) {
-	            ByteBuf buf = Unpooled.copiedBuffer(res.status().toString(), CharsetUtil.UTF_8);
-	            res.content().writeBytes(buf);
-	            buf.release();
+	            ByteBufUtil.writeUtf8(res.content(), res.status().toString());
 	        }
 	        // 如果是非Keep-Alive，关闭连接
 	        boolean keepAlive = HttpUtil.isKeepAlive(req);
@@ -717,10 +714,7 @@ public class WebSocketServer implements PacketRegistor,Server {
                 }
 
         		String json = null;
-    			ByteBuf buf = msg.content();
-    			byte[] raw = new byte[buf.readableBytes()];
-    			buf.readBytes(raw);
-    			json = new String(raw, "UTF-8");
+    			json = msg.content().toString(CharsetUtil.UTF_8);
     			if(trackpkg) {
     				QueueLog.debug(this.owner.log(), "rawtxt: {}", json);
     			}
@@ -896,23 +890,30 @@ public class WebSocketServer implements PacketRegistor,Server {
 		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {			
 			if(msg instanceof WebSocketDatagram) {
 				WebSocketDatagram outdata = (WebSocketDatagram) msg;
-				String txt = outdata.text();
-				txt = encode(txt);
-				TextWebSocketFrame frame = new TextWebSocketFrame(txt);
+				String txt = null;
+				TextWebSocketFrame frame;
+				if(this.owner.config.useRSA()) {
+					txt = encode(outdata.text());
+					frame = new TextWebSocketFrame(txt);
+				}else {
+					// 数据报构造时已编码成utf8，直接共享其内容发送，不再解码成String再编码；
+					// 同一数据报可能广播给多个连接，所以用retainedDuplicate
+					frame = new TextWebSocketFrame(outdata.content().retainedDuplicate());
+				}
 				super.write(ctx, frame, promise);
 	        	
 				int cmd = outdata.command();
 				String hex = StringUtility.toHex(cmd);
 	    		SocketAddress client = ctx.channel().remoteAddress();
 	        	if(this.owner.config.trackPacket()){
-	        		QueueLog.debug(this.owner.log(), "TX packet, cmd:{}, dec:{}, to {}\nTX: {}", hex, cmd, client, txt);
+	        		QueueLog.debug(this.owner.log(), "TX packet, cmd:{}, dec:{}, to {}\nTX: {}", hex, cmd, client, txt == null ? outdata.text() : txt);
 	        	}else{
 	        		QueueLog.debug(this.owner.log(), "TX packet, cmd:{}, dec:{}, to {}", hex, cmd, client);
 	        	}
 	        	
 	        	if(outdata.log() != null){
 	        		try{
-	        			QueueLog.info(outdata.log(), "TX, {}", txt);
+	        			QueueLog.info(outdata.log(), "TX, {}", txt == null ? outdata.text() : txt);
 	        		}catch(Exception e){
 	        			QueueLog.error(this.owner.log(), ConsoleUtility.getStackTrace(e));
 	        		}
@@ -28,4 +28,6 @@ public enum TransLogField {
 	transtm,
 	respheaders,
 	result,
+	resultlen,
+	resulthash,
 }
@@ -8,6 +8,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -27,12 +28,11 @@ import boundless.types.cache.FilterCond.CondOperator;
 import boundless.types.cache.FilterOrCond;
 import boundless.types.cache.SortCond;
 import boundless.types.cache.SortCond.SortType;
-import boundless.utility.CalculatePool;
-import boundless.utility.ConsoleUtility;
 import boundless.utility.ConvertUtility;
 import boundless.utility.FormatUtility;
 import boundless.utility.IPUtility;
 import boundless.utility.JsonUtility;
+import boundless.utility.MetricsRegistry;
 import boundless.utility.StringUtility;
 import boundless.web.common.IUser;
 import boundless.web.help.AppServerPathHelper;
@@ -46,6 +46,9 @@ public class TransLogMongoHelper {
 	private static Set<String> excludeTransSet = new HashSet<String>();
 	
 	private static List<Map> LogQryTransCodes = new LinkedList<Map>();
+	private static Map<String, Double> sampleRates = new HashMap<String, Double>();
+	private static double DefaultSampleRate = PropertyPlaceholder.getProperty("translog.sample.default", 1.0);
+	private static TransLogWriter writer = null;
 	private static String serverIp;
 	private static int serverPort;
 	
@@ -72,11 +75,56 @@ public class TransLogMongoHelper {
 		}catch(Exception e) {
 			QueueLog.error(AppLoggers.ErrorLogger, "conf/log/logqrytrcodes.json has some error or miss");			
 		}
+
+		try {
+			String json = FileUtility.getStringFromClassPath("conf/log/translogsample.json");
+			Map<String, Object> rates = JsonUtility.toDictionary(json);
+			for(Map.Entry<String, Object> entry : rates.entrySet()) {
+				sampleRates.put(entry.getKey(), ConvertUtility.getValueAsDouble(entry.getValue(), 1.0));
+			}
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, "conf/log/translogsample.json has some error or miss");
+		}
+
+		if(NeedTransLog) {
+			int capacity = PropertyPlaceholder.getProperty("translog.buffer.size", 8192);
+			int batch = PropertyPlaceholder.getProperty("translog.batch.size", 200);
+			long flushms = PropertyPlaceholder.getProperty("translog.flush.ms", 1000L);
+			String mode = PropertyPlaceholder.getProperty("translog.result.mode", TransLogWriter.ResultMode.Truncate.toString());
+			int maxchars = PropertyPlaceholder.getProperty("translog.result.maxchars", 4096);
+			writer = new TransLogWriter(translogCache, capacity, batch, flushms, TransLogWriter.ResultMode.fromName(mode), maxchars);
+			Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "translog-flush"));
+			MetricsRegistry.registerSource("translog", writer::stats);
+		}
 	}
 
 	public static ICache getTransLogCache(){
 		return translogCache;
 	}
+
+	/**
+	 * @return 写入队列的计数，未开启交易日志时返回空表
+	 */
+	public static Map<String, Object> stats(){
+		if(writer == null){
+			return new HashMap<String, Object>();
+		}
+		return writer.stats();
+	}
+
+	/**
+	 * 出错的交易总是保留，其余按交易码配置的比例采样
+	 */
+	private static boolean sampled(String path, boolean failed){
+		if(failed){
+			return true;
+		}
+		double rate = sampleRates.getOrDefault(path, DefaultSampleRate);
+		if(rate >= 1){
+			return true;
+		}
+		return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+	}
 	
 	
 	private static void logTransCode(String path, HttpServletRequest request, HttpServletResponse response){
@@ -95,13 +143,17 @@ public class TransLogMongoHelper {
 			}
 		}
 		
+		boolean exptOccured = ConvertUtility.getValueAsBool(request.getAttribute(KeyConstants.AttrExceptionOccured), false);
+		if(!sampled(path, exptOccured || response.getStatus() != HttpStatus.OK.value())){
+			writer.skip();
+			return;
+		}
+		
 		Tuple3<Map<String, Object>, Map<String, Object>, Map<String, Object>> params = TransData.getRequestTuple();
 		Map<String, Object> header = params.item1();
 		Map<String, Object> reqparam = params.item2();
 		Map<String, Object> multiparts = params.item3();
 		
-		ICache cache = getTransLogCache();
-		
 		Map<String, Object> map = new HashMap<String, Object>();
 		
 		IUser user = TransData.getCurrentUser();
@@ -159,7 +211,6 @@ public class TransLogMongoHelper {
 		map.put(TransLogField.serverport.toString(), serverPort);
 		
 		Exception ex = (Exception)request.getAttribute(KeyConstants.AttrExceptionObj);
-		boolean exptOccured = ConvertUtility.getValueAsBool(request.getAttribute(KeyConstants.AttrExceptionOccured), false);
 		if(exptOccured){
 			map.put(TransLogField.errcode.toString(), request.getAttribute(KeyConstants.AttrExceptionCode));
 			map.put(TransLogField.errmsg.toString(), request.getAttribute(KeyConstants.AttrExceptionMsg));			
@@ -192,18 +243,11 @@ public class TransLogMongoHelper {
 		Object res = TransData.getResponseData();
 		map.put(TransLogField.result.toString(), res);
 		
-		CalculatePool.queueUserWorkItem(()->{ 
-			if(ex != null){
-				String stacktrace = ConsoleUtility.getStackTrace(ex);
-				map.put(TransLogField.errstack.toString(), stacktrace);				
-			}
-
-			cache.add(map); 
-		});
+		writer.offer(map, ex);
 	}
 	
 	public static void logTransCode(HttpServletRequest request, HttpServletResponse response){
-		if(!NeedTransLog){
+		if(!NeedTransLog || writer == null){
 			return;
 		}
 		
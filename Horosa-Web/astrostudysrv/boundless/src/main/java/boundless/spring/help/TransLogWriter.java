@@ -0,0 +1,228 @@
+package boundless.spring.help;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.security.MD5Utility;
+import boundless.types.ICache;
+import boundless.types.MpscRing;
+import boundless.utility.ConsoleUtility;
+import boundless.utility.JsonUtility;
+import boundless.utility.LatencyHistogram;
+
+/**
+ * 交易日志的批量写入器。
+ * 请求线程只把日志放入定长环形队列，满了就丢弃并计数；
+ * 单个写线程按条数或时间攒批，一次insertMany写入，响应体在写线程里按配置截断或只留摘要
+ */
+public class TransLogWriter {
+
+	/**
+	 * 响应体的保存方式：Full 原样保存；Truncate 超过上限时截断为json文本并附长度与摘要；
+	 * Hash 只保存长度与摘要；None 不保存
+	 */
+	public static enum ResultMode {
+		Full, Truncate, Hash, None;
+
+		public static ResultMode fromName(String name) {
+			for(ResultMode mode : values()) {
+				if(mode.name().equalsIgnoreCase(name)) {
+					return mode;
+				}
+			}
+			return Truncate;
+		}
+	}
+
+	private static class Entry {
+		final Map<String, Object> map;
+		final Throwable error;
+
+		Entry(Map<String, Object> map, Throwable error) {
+			this.map = map;
+			this.error = error;
+		}
+	}
+
+	private final ICache cache;
+	private final MpscRing<Entry> ring;
+	private final int batchSize;
+	private final long flushNanos;
+	private final ResultMode resultMode;
+	private final int resultMaxChars;
+	private final Thread worker;
+	private volatile boolean closed = false;
+
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder sampledOut = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder written = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder truncated = new LongAdder();
+	private final LatencyHistogram batchTime = new LatencyHistogram();
+
+	public TransLogWriter(ICache cache, int capacity, int batchSize, long flushMS, ResultMode resultMode, int resultMaxChars) {
+		this.cache = cache;
+		this.ring = new MpscRing<Entry>(capacity);
+		this.batchSize = Math.max(1, batchSize);
+		this.flushNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushMS));
+		this.resultMode = resultMode == null ? ResultMode.Truncate : resultMode;
+		this.resultMaxChars = Math.max(0, resultMaxChars);
+		this.worker = new Thread(this::run, "bdl-translog-writer");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * @param error 不为null时在写线程里展开为堆栈
+	 * @return 队列已满或已关闭时返回false
+	 */
+	public boolean offer(Map<String, Object> map, Throwable error) {
+		if(closed || !ring.offer(new Entry(map, error))) {
+			dropped.increment();
+			return false;
+		}
+		accepted.increment();
+		if(ring.size() >= batchSize) {
+			LockSupport.unpark(worker);
+		}
+		return true;
+	}
+
+	/**
+	 * 记录一次被采样跳过的日志
+	 */
+	public void skip() {
+		sampledOut.increment();
+	}
+
+	/**
+	 * 停止接收并把队列中剩余的日志写完
+	 */
+	public void close() {
+		closed = true;
+		LockSupport.unpark(worker);
+		try {
+			worker.join(TimeUnit.NANOSECONDS.toMillis(flushNanos) + 5000);
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public Map<String, Object> stats() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("capacity", ring.capacity());
+		map.put("queueDepth", ring.size());
+		map.put("batchSize", batchSize);
+		map.put("resultMode", resultMode.toString());
+		map.put("resultMaxChars", resultMaxChars);
+		map.put("accepted", accepted.sum());
+		map.put("sampledOut", sampledOut.sum());
+		map.put("dropped", dropped.sum());
+		map.put("written", written.sum());
+		map.put("failed", failed.sum());
+		map.put("batches", batches.sum());
+		map.put("truncated", truncated.sum());
+		map.put("batchTime", batchTime.toMap());
+		return map;
+	}
+
+	private void run() {
+		List<Entry> pending = new ArrayList<Entry>(batchSize);
+		long firstAt = 0;
+		while(true) {
+			boolean stopping = closed;
+			int n = ring.drainTo(pending, batchSize - pending.size());
+			if(n > 0 && firstAt == 0) {
+				firstAt = System.nanoTime();
+			}
+			boolean due = !pending.isEmpty() && (pending.size() >= batchSize || stopping || System.nanoTime() - firstAt >= flushNanos);
+			if(due) {
+				write(pending);
+				pending.clear();
+				firstAt = 0;
+				continue;
+			}
+			if(stopping && ring.isEmpty()) {
+				return;
+			}
+			if(n == 0) {
+				long wait = pending.isEmpty() ? flushNanos : flushNanos - (System.nanoTime() - firstAt);
+				LockSupport.parkNanos(this, Math.max(wait, 1000));
+			}
+		}
+	}
+
+	private void write(List<Entry> entries) {
+		List<Map<String, Object>> docs = new ArrayList<Map<String, Object>>(entries.size());
+		for(Entry entry : entries) {
+			try {
+				docs.add(prepare(entry));
+			}catch(Exception e) {
+				failed.increment();
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			}
+		}
+		if(docs.isEmpty()) {
+			return;
+		}
+		long st = System.currentTimeMillis();
+		boolean error = true;
+		try {
+			cache.addAll(docs);
+			written.add(docs.size());
+			error = false;
+		}catch(Exception e) {
+			failed.add(docs.size());
+			QueueLog.error(AppLoggers.ErrorLogger, "translog batch of {} failed: {}", docs.size(), e.getMessage());
+		}finally {
+			batches.increment();
+			batchTime.record(System.currentTimeMillis() - st, error);
+		}
+	}
+
+	private Map<String, Object> prepare(Entry entry) {
+		Map<String, Object> map = entry.map;
+		if(entry.error != null) {
+			map.put(TransLogField.errstack.toString(), ConsoleUtility.getStackTrace(entry.error));
+		}
+		shapeResult(map);
+		return map;
+	}
+
+	private void shapeResult(Map<String, Object> map) {
+		String key = TransLogField.result.toString();
+		Object res = map.get(key);
+		if(res == null || resultMode == ResultMode.Full) {
+			return;
+		}
+		if(resultMode == ResultMode.None) {
+			map.remove(key);
+			return;
+		}
+		String json = res instanceof String ? (String)res : JsonUtility.encode(res);
+		if(json == null) {
+			return;
+		}
+		if(resultMode == ResultMode.Truncate && json.length() <= resultMaxChars) {
+			return;
+		}
+		map.put(TransLogField.resultlen.toString(), json.length());
+		map.put(TransLogField.resulthash.toString(), MD5Utility.encryptAsString(json));
+		if(resultMode == ResultMode.Hash) {
+			map.remove(key);
+		}else {
+			map.put(key, json.substring(0, resultMaxChars));
+		}
+		truncated.increment();
+	}
+
+}
@@ -0,0 +1,508 @@
+package boundless.spring.help.interceptor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import boundless.exception.ErrorCodeException;
+import boundless.exception.HttpStatusException;
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
+import boundless.spring.help.springcomp.ApplicationContextProvider;
+import boundless.utility.ConvertUtility;
+import boundless.utility.StringUtility;
+
+/**
+ * 进程内调用控制器，供WebSocket等长连接免去回环http请求。
+ * 按交易码找到Spring映射的处理方法，构造合成的请求对象与TransData上下文后直接调用，
+ * 拦截器链照常执行，RequestHeaderInterceptor改为对调用方给出的请求头与参数解密、验签，
+ * 结果与异常按ResultConvertor转换成统一结果map返回，不经过json编码。
+ * 只处理返回void、参数只有servlet请求/响应的处理方法，其余返回null由调用方走http
+ */
+public class InProcessDispatcher {
+	private static final boolean Enabled = PropertyPlaceholder.getPropertyAsBool("inprocess.dispatch.enable", true);
+	private static final int MaxCached = PropertyPlaceholder.getPropertyAsInt("inprocess.dispatch.cache.max", 4096);
+
+	private static final Target NotFound = new Target(null, null, null, null);
+	private static final ConcurrentHashMap<String, Target> targets = new ConcurrentHashMap<String, Target>();
+
+	static class Target {
+		final HandlerMethod handler;
+		final String pattern;
+		final HandlerInterceptor[] interceptors;
+		final RequestHeaderInterceptor verifier;
+
+		/**
+		 * @param pattern 匹配到的映射路径模式，按http请求的方式放入请求属性，供统计按模式归类
+		 * @param verifier 映射到该路径的RequestHeaderInterceptor，没有时为null，不解密也不验签
+		 */
+		Target(HandlerMethod handler, String pattern, HandlerInterceptor[] interceptors, RequestHeaderInterceptor verifier) {
+			this.handler = handler;
+			this.pattern = pattern;
+			this.interceptors = interceptors;
+			this.verifier = verifier;
+		}
+	}
+
+	public static class Result {
+		private final Map<String, Object> result;
+		private final Map<String, Object> head;
+
+		Result(Map<String, Object> result, Map<String, Object> head) {
+			this.result = result;
+			this.head = head;
+		}
+
+		/**
+		 * @return 与http响应体相同的统一结果map，含ResultCode与结果键
+		 */
+		public Map<String, Object> getResult() {
+			return result;
+		}
+
+		/**
+		 * @return 响应头
+		 */
+		public Map<String, Object> getHead() {
+			return head;
+		}
+	}
+
+	/**
+	 * @return 该交易码能否在进程内调用
+	 */
+	public static boolean canDispatch(String transcode) {
+		return Enabled && !StringUtility.isNullOrEmpty(transcode) && lookup(transcode) != NotFound;
+	}
+
+	/**
+	 * url指向本服务时返回去掉上下文路径的交易码，否则返回null
+	 */
+	public static String localTransCode(String url) {
+		ApplicationContext ctx = ApplicationContextProvider.getApplicationContext();
+		if(!Enabled || ctx == null || StringUtility.isNullOrEmpty(url)) {
+			return null;
+		}
+		try {
+			URI uri = URI.create(url);
+			if(!isLoopback(uri.getHost()) || !StringUtility.isNullOrEmpty(uri.getRawQuery())) {
+				return null;
+			}
+			int port = uri.getPort();
+			if(port < 0) {
+				port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+			}
+			Environment env = ctx.getEnvironment();
+			int localPort = ConvertUtility.getValueAsInt(env.getProperty("local.server.port", env.getProperty("server.port")), -1);
+			if(port != localPort) {
+				return null;
+			}
+			String path = uri.getPath();
+			String ctxPath = contextPath();
+			if(!ctxPath.isEmpty()) {
+				if(!path.startsWith(ctxPath)) {
+					return null;
+				}
+				path = path.substring(ctxPath.length());
+			}
+			return StringUtility.isNullOrEmpty(path) ? null : path;
+		}catch(Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 在当前线程调用交易码对应的处理方法，调用前后清理TransData
+	 * @param remoteAddr 客户端地址，可为null
+	 * @return 不能在进程内调用时返回null
+	 */
+	public static Result dispatch(String transcode, Map<String, Object> head, Map<String, Object> params, String remoteAddr) {
+		if(!Enabled || StringUtility.isNullOrEmpty(transcode)) {
+			return null;
+		}
+		Target target = lookup(transcode);
+		if(target == NotFound) {
+			return null;
+		}
+		return dispatch(target, transcode, head, params, remoteAddr);
+	}
+
+	static Result dispatch(Target target, String transcode, Map<String, Object> head, Map<String, Object> params, String remoteAddr) {
+		Map<String, Object> header = new HashMap<String, Object>();
+		if(head != null) {
+			header.putAll(head);
+		}
+		header.put(KeyConstants.TransCode, transcode);
+		Map<String, Object> respHead = new HashMap<String, Object>();
+		HttpServletRequest request = newRequest(transcode, header, remoteAddr);
+		HttpServletResponse response = newResponse(respHead);
+		if(target.pattern != null) {
+			request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, target.pattern);
+		}
+
+		TransData.pureClearTransData();
+		TransData.setRequestObject(request, response);
+		TransData.setSSE(false);
+		Map<String, Object> args = new HashMap<String, Object>();
+		if(params != null) {
+			args.putAll(params);
+		}
+		TransData.setRequestData(header, args);
+
+		HandlerInterceptor[] chain = target.interceptors;
+		int applied = -1;
+		Exception error = null;
+		Map<String, Object> result;
+		try {
+			if(target.verifier != null) {
+				target.verifier.preHandleInProcess(request, response, header, args);
+			}
+			for(int i=0; i<chain.length; i++) {
+				if(!chain[i].preHandle(request, response, target.handler)) {
+					throw denied(response);
+				}
+				applied = i;
+			}
+			invoke(target.handler, request, response);
+			for(int i=applied; i>=0; i--) {
+				chain[i].postHandle(request, response, target.handler, null);
+			}
+			result = ResultConvertor.convertResult(responseData());
+		}catch(Exception e) {
+			error = e;
+			request.setAttribute(KeyConstants.AttrExceptionOccured, true);
+			if(!(e instanceof ErrorCodeException) && !isDenied(e)) {
+				QueueLog.error(AppLoggers.ErrorLogger, "in-process dispatch {} failed", transcode);
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			}
+			result = ResultConvertor.convertException(e);
+		}
+
+		for(int i=applied; i>=0; i--) {
+			try {
+				chain[i].afterCompletion(request, response, target.handler, error);
+			}catch(Exception e) {
+				QueueLog.error(AppLoggers.ErrorLogger, e);
+			}
+		}
+
+		Map<String, Object> outHead = new HashMap<String, Object>(respHead);
+		outHead.putAll(TransData.getAllResponseHeaders());
+		outHead.put(KeyConstants.ResultCode, ConvertUtility.getValueAsString(result.get(KeyConstants.ResultCode)));
+		try {
+			TransData.clearTransData();
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+			TransData.pureClearTransData();
+		}
+		return new Result(result, outHead);
+	}
+
+	/**
+	 * 拦截器返回false时，按它设置的http状态码回错误，没有设置时按403
+	 */
+	private static HttpStatusException denied(HttpServletResponse response) {
+		int status = response.getStatus();
+		if(status < HttpServletResponse.SC_BAD_REQUEST) {
+			status = HttpServletResponse.SC_FORBIDDEN;
+		}
+		return new HttpStatusException(status);
+	}
+
+	private static boolean isDenied(Exception e) {
+		return e instanceof HttpStatusException && ((HttpStatusException) e).getStatus() < HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+	}
+
+	private static Object responseData() {
+		String html = TransData.getHtmlFragment();
+		if(html != null) {
+			return html;
+		}
+		TransData.ResponseRawData raw = TransData.getRawDataResponse();
+		if(raw != null) {
+			return raw.data;
+		}
+		return TransData.getResponseData();
+	}
+
+	private static void invoke(HandlerMethod handler, HttpServletRequest request, HttpServletResponse response) throws Exception {
+		Method method = handler.getBridgedMethod();
+		Class<?>[] types = method.getParameterTypes();
+		Object[] args = new Object[types.length];
+		for(int i=0; i<types.length; i++) {
+			args[i] = ServletRequest.class.isAssignableFrom(types[i]) ? request : response;
+		}
+		try {
+			method.invoke(handler.getBean(), args);
+		}catch(InvocationTargetException e) {
+			Throwable t = e.getTargetException();
+			if(t instanceof Exception) {
+				throw (Exception)t;
+			}
+			throw (Error)t;
+		}
+	}
+
+	private static Target lookup(String transcode) {
+		Target target = targets.get(transcode);
+		if(target != null) {
+			return target;
+		}
+		target = resolve(transcode);
+		if(targets.size() < MaxCached) {
+			targets.put(transcode, target);
+		}
+		return target;
+	}
+
+	/**
+	 * 借用Spring的处理器映射，取得处理方法与按路径匹配好的拦截器
+	 */
+	private static Target resolve(String transcode) {
+		ApplicationContext ctx = ApplicationContextProvider.getApplicationContext();
+		if(ctx == null) {
+			return NotFound;
+		}
+		Map<String, Object> header = new HashMap<String, Object>();
+		header.put(KeyConstants.TransCode, transcode);
+		HttpServletRequest request = newRequest(transcode, header, null);
+		for(RequestMappingHandlerMapping mapping : ctx.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+			try {
+				HandlerExecutionChain chain = mapping.getHandler(request);
+				if(chain == null) {
+					continue;
+				}
+				if(!(chain.getHandler() instanceof HandlerMethod)) {
+					return NotFound;
+				}
+				HandlerMethod handler = ((HandlerMethod) chain.getHandler()).createWithResolvedBean();
+				if(!isDispatchable(handler)) {
+					return NotFound;
+				}
+				ReflectionUtils.makeAccessible(handler.getBridgedMethod());
+				List<HandlerInterceptor> list = new ArrayList<HandlerInterceptor>();
+				RequestHeaderInterceptor verifier = null;
+				for(HandlerInterceptor interceptor : chain.getInterceptorList()) {
+					if(interceptor instanceof RequestHeaderInterceptor) {
+						verifier = (RequestHeaderInterceptor) interceptor;
+					}else {
+						list.add(interceptor);
+					}
+				}
+				String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+				return new Target(handler, pattern, list.toArray(new HandlerInterceptor[list.size()]), verifier);
+			}catch(Exception e) {
+				QueueLog.error(AppLoggers.ErrorLogger, "in-process dispatch cannot resolve {}: {}", transcode, e.getMessage());
+				return NotFound;
+			}
+		}
+		return NotFound;
+	}
+
+	private static boolean isDispatchable(HandlerMethod handler) {
+		Method method = handler.getBridgedMethod();
+		if(method.getReturnType() != void.class) {
+			return false;
+		}
+		for(Class<?> type : method.getParameterTypes()) {
+			if(!ServletRequest.class.isAssignableFrom(type) && !ServletResponse.class.isAssignableFrom(type)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isLoopback(String host) {
+		if(host == null) {
+			return false;
+		}
+		return host.equalsIgnoreCase("localhost") || host.startsWith("127.") || host.equals("[::1]") || host.equals("::1");
+	}
+
+	private static ServletContext servletContext() {
+		ApplicationContext ctx = ApplicationContextProvider.getApplicationContext();
+		if(ctx instanceof WebApplicationContext) {
+			return ((WebApplicationContext) ctx).getServletContext();
+		}
+		return null;
+	}
+
+	private static String contextPath() {
+		ServletContext sc = servletContext();
+		String path = sc == null ? "" : sc.getContextPath();
+		return path == null || path.equals("/") ? "" : path;
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if(type.isPrimitive() && type != void.class) {
+			return Array.get(Array.newInstance(type, 1), 0);
+		}
+		return null;
+	}
+
+	private static String headValue(Map<String, Object> head, String name) {
+		Object val = head.get(name);
+		if(val == null) {
+			val = head.get(name.toLowerCase());
+		}
+		return val == null ? null : ConvertUtility.getValueAsString(val);
+	}
+
+	/**
+	 * 合成的请求对象：路径、请求头、属性与客户端地址，没有请求体、参数与会话
+	 */
+	private static HttpServletRequest newRequest(String transcode, Map<String, Object> head, String remoteAddr) {
+		String ctxPath = contextPath();
+		ServletContext sc = servletContext();
+		String addr = StringUtility.isNullOrEmpty(remoteAddr) ? "127.0.0.1" : remoteAddr;
+		Map<String, Object> attrs = new ConcurrentHashMap<String, Object>();
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] {HttpServletRequest.class}, (proxy, method, args)->{
+			switch(method.getName()) {
+			case "getRequestURI":
+				return ctxPath + transcode;
+			case "getRequestURL":
+				return new StringBuffer(ctxPath + transcode);
+			case "getContextPath":
+				return ctxPath;
+			case "getServletPath":
+				return transcode;
+			case "getServletContext":
+				return sc;
+			case "getMethod":
+				return "POST";
+			case "getScheme":
+				return "ws";
+			case "getContentType":
+				return "application/json";
+			case "getCharacterEncoding":
+				return "UTF-8";
+			case "getDispatcherType":
+				return DispatcherType.REQUEST;
+			case "getRemoteAddr":
+			case "getRemoteHost":
+				return addr;
+			case "getHeader":
+				return headValue(head, (String)args[0]);
+			case "getHeaders":
+				String val = headValue(head, (String)args[0]);
+				return Collections.enumeration(val == null ? Collections.<String>emptyList() : Collections.singletonList(val));
+			case "getHeaderNames":
+				return Collections.enumeration(new ArrayList<String>(head.keySet()));
+			case "getIntHeader":
+				return ConvertUtility.getValueAsInt(headValue(head, (String)args[0]), -1);
+			case "getDateHeader":
+				return -1L;
+			case "getParameterMap":
+				return Collections.<String, String[]>emptyMap();
+			case "getParameterNames":
+				return Collections.<String>emptyEnumeration();
+			case "getAttribute":
+				return attrs.get((String)args[0]);
+			case "setAttribute":
+				if(args[1] == null) {
+					attrs.remove((String)args[0]);
+				}else {
+					attrs.put((String)args[0], args[1]);
+				}
+				return null;
+			case "removeAttribute":
+				attrs.remove((String)args[0]);
+				return null;
+			case "getAttributeNames":
+				return Collections.enumeration(new ArrayList<String>(attrs.keySet()));
+			case "getLocale":
+				return Locale.getDefault();
+			case "getLocales":
+				return Collections.enumeration(Collections.singletonList(Locale.getDefault()));
+			case "getSession":
+				if(args == null || (Boolean)args[0]) {
+					throw new UnsupportedOperationException("no http session for in-process dispatch");
+				}
+				return null;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "InProcessRequest[" + transcode + "]";
+			default:
+				return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	/**
+	 * 合成的响应对象：只收集状态码与响应头，写响应体时抛出501
+	 */
+	private static HttpServletResponse newResponse(Map<String, Object> head) {
+		int[] status = new int[] {HttpServletResponse.SC_OK};
+		return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), new Class<?>[] {HttpServletResponse.class}, (proxy, method, args)->{
+			switch(method.getName()) {
+			case "setHeader":
+			case "addHeader":
+			case "setIntHeader":
+			case "addIntHeader":
+			case "setDateHeader":
+			case "addDateHeader":
+				head.put((String)args[0], ConvertUtility.getValueAsString(args[1]));
+				return null;
+			case "getHeader":
+				return headValue(head, (String)args[0]);
+			case "containsHeader":
+				return head.containsKey((String)args[0]);
+			case "getHeaderNames":
+				return new ArrayList<String>(head.keySet());
+			case "getHeaders":
+				String val = headValue(head, (String)args[0]);
+				return val == null ? Collections.<String>emptyList() : Collections.singletonList(val);
+			case "setStatus":
+			case "sendError":
+				status[0] = (Integer)args[0];
+				return null;
+			case "getStatus":
+				return status[0];
+			case "getCharacterEncoding":
+				return "UTF-8";
+			case "getOutputStream":
+			case "getWriter":
+				throw new HttpStatusException(HttpServletResponse.SC_NOT_IMPLEMENTED);
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "InProcessResponse";
+			default:
+				return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+}
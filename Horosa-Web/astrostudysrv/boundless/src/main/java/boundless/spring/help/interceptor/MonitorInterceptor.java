@@ -1,58 +1,39 @@
 package boundless.spring.help.interceptor;
 
-import java.util.Calendar;
-
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.springframework.core.NamedThreadLocal;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.ModelAndView;
 
 import boundless.console.Diagnostic;
 import boundless.log.AppLoggers;
 import boundless.log.QueueLog;
-import boundless.utility.PeriodTask;
+import boundless.spring.help.PropertyPlaceholder;
+import boundless.utility.ConvertUtility;
+import boundless.utility.MetricsRegistry;
 
 public class MonitorInterceptor implements HandlerInterceptor {
-	
-	private static int today = 0;
-	private static long requestCounter = 0;
-	private static long requestCounterToday = 0;
-	static{
-		Calendar cal = Calendar.getInstance();
-		today = cal.get(Calendar.DAY_OF_YEAR);
-				
-		PeriodTask.submit(()->{
-	        Calendar nowcal = Calendar.getInstance();
-	        int nowdate = nowcal.get(Calendar.DAY_OF_YEAR);
-	        if(nowdate != today){
-	        	today = nowdate;
-	        	requestCounterToday = 0;
-	        }
-		}, 1000, 10000);
-	}
+	private static final long SlowRequestMS = PropertyPlaceholder.getPropertyAsInt("metrics.slow.ms", 1000);
+	private static final String AttrMetricsEndpoint = "_metrics_endpoint_";
+	private static final String AttrBeginNanos = "_metrics_begin_nanos_";
 	
 	public static long getRequestCounter(){
-		return requestCounter;
+		return MetricsRegistry.requestCount();
 	}
 	
 	public static long getTodayRequestCounter(){
-		return requestCounterToday;
+		return MetricsRegistry.todayRequestCount();
 	}
-	
-	private NamedThreadLocal<Long>  startTimeThreadLocal =   
-			new NamedThreadLocal<Long>("StopWatch-StartTime"); 
 
 	@Override
 	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
 		QueueLog.debug(AppLoggers.Access, "begin to request {}?{}", request.getRequestURI(), request.getQueryString());
         long beginTime = System.currentTimeMillis();//1、开始时间  
         request.setAttribute(KeyConstants.AttrTransBeginTimeKey, beginTime);
-        
-        startTimeThreadLocal.set(beginTime);//线程绑定变量（该数据只有当前请求的线程可见）  
-        requestCounter++;
-        requestCounterToday++;
+        request.setAttribute(AttrBeginNanos, System.nanoTime());
+        request.setAttribute(AttrMetricsEndpoint, MetricsRegistry.beginRequest(transcode(request)));
 		return true;
 	}
 
@@ -66,17 +47,36 @@ public class MonitorInterceptor implements HandlerInterceptor {
 	public void afterCompletion(HttpServletRequest request,
 			HttpServletResponse response, Object handler, Exception ex)
 			throws Exception {
-        long endTime = System.currentTimeMillis();//2、结束时间  
-        long beginTime = startTimeThreadLocal.get();//得到线程绑定的局部变量（开始时间）  
-        long consumeTime = endTime - beginTime;//3、消耗的时间  
-		QueueLog.debug(AppLoggers.Access, "complete request in {} ms, todayreqcounter:{}, totalreqcounter:{}, threadcount:{}, {}?{}", 
-				consumeTime, requestCounterToday, requestCounter, Diagnostic.getThreadCount(), request.getRequestURI(), request.getQueryString());
+		Object ep = request.getAttribute(AttrMetricsEndpoint);
+		if(!(ep instanceof MetricsRegistry.Endpoint)) {
+			return;
+		}
+		request.removeAttribute(AttrMetricsEndpoint);
+		long elapsed = System.nanoTime() - (Long)request.getAttribute(AttrBeginNanos);
+		boolean error = ex != null || response.getStatus() >= 400
+				|| ConvertUtility.getValueAsBool(request.getAttribute(KeyConstants.AttrExceptionOccured), false);
+		MetricsRegistry.endRequest((MetricsRegistry.Endpoint)ep, elapsed, error);
+
+        long consumeTime = elapsed / 1000000;//3、消耗的时间  
+		QueueLog.debug(AppLoggers.Access, "complete request in {} ms, {}?{}", consumeTime, request.getRequestURI(), request.getQueryString());
 		
-        if(consumeTime > 1000) {//此处认为处理时间超过1000毫秒的请求为慢请求  
+        if(consumeTime > SlowRequestMS) {//此处认为处理时间超过metrics.slow.ms毫秒的请求为慢请求  
             QueueLog.debug(AppLoggers.Performance, "slow request in {} ms. todayreqcounter:{}, totalreqcounter:{}, threadcount:{}, {}?{}", 
-            		consumeTime, requestCounterToday, requestCounter, Diagnostic.getThreadCount(), request.getRequestURI(), request.getQueryString());
+            		consumeTime, getTodayRequestCounter(), getRequestCounter(), Diagnostic.getThreadCount(), request.getRequestURI(), request.getQueryString());
         }   
         
 	}
 
+	/**
+	 * 以匹配到的映射路径模式作为统计的交易码，带路径变量的地址归入同一项；
+	 * 没有映射匹配的请求（404等）一律计入_unmatched，以免随意的地址占满统计表
+	 */
+	static String transcode(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		if(pattern instanceof String && !((String) pattern).isEmpty()) {
+			return (String) pattern;
+		}
+		return MetricsRegistry.UnmatchedEndpoint;
+	}
+
 }
@@ -602,6 +602,36 @@ public class RequestHeaderInterceptor implements HandlerInterceptor {
 		return true;
 	}
 	
+	/**
+	 * 进程内调用时代替preHandle：请求头与参数由调用方给出，与http表单参数一样解出__header__/__body__/_code_，
+	 * 解密并验签，失败时抛出异常
+	 */
+	public void preHandleInProcess(HttpServletRequest request, HttpServletResponse response, Map<String, Object> header, Map<String, Object> args) throws Exception {
+		if(args.containsKey(ClientAppKey)) {
+			header.put("ClientApp", args.get(ClientAppKey));
+		}
+		checkNoRestTrans(request, header, args);
+
+		String body = null;
+		try {
+			OutParameter<Boolean> hastreated = new OutParameter<Boolean>();
+			hastreated.value = false;
+			body = decodeHeadAndBody(args, header, null, response, hastreated);
+			if(!hastreated.value) {
+				checkRSA(response, header);
+			}
+		}catch(DecryptTimeoutException e){
+			throw e;
+		}catch(DecryptException e){
+			throw e;
+		}catch(Exception e){
+			QueueLog.error(AppLoggers.ErrorLogger, e.getMessage());
+		}
+
+		TransData.setRequestData(header, args);
+		checkSignature(request, header, body);
+	}
+
 	@Override
 	public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
 
@@ -1,14 +1,21 @@
 package boundless.types;
 
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 import javax.management.MBeanServer;
@@ -17,7 +24,9 @@ import javax.management.ObjectName;
 import boundless.log.AppLoggers;
 import boundless.log.QueueLog;
 import boundless.utility.FormatUtility;
+import boundless.utility.LatencyHistogram;
 import boundless.utility.StringUtility;
+import boundless.utility.VirtualThreads;
 
 /**
  * 
@@ -45,15 +54,46 @@ public class ExecutionGroup implements ExecutionGroupMXBean{
 	}
 
 
+	/**
+	 * 队列已满时的处理方式：
+	 * CallerRuns 由提交线程直接执行；DropOldest 丢弃队列中最早的任务；
+	 * Block 最多等待blockTimeoutMS（不大于0时一直等待）；Abort 直接拒绝
+	 */
+	public static enum RejectPolicy {
+		CallerRuns, DropOldest, Block, Abort
+	}
+
+	private static final int DefaultQueueCapacity = Integer.getInteger("executiongroup.queue.capacity", 1024);
+	private static final long DefaultBlockTimeoutMS = Long.getLong("executiongroup.block.ms", 1000);
+	private static final AtomicInteger groupNumber = new AtomicInteger(1);
+
 	private ExecutorService executor;
+	private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+	private final Semaphore permits;
+	/**
+	 * 虚拟线程模式下限制同时执行的任务数，平台线程模式下为null
+	 */
+	private final Semaphore slots;
+	private final AtomicInteger activeCounter = new AtomicInteger();
+	private final int queueCapacity;
 
-	private int runningCounter = 0;
+	private final AtomicInteger runningCounter = new AtomicInteger();
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder callerRuns = new LongAdder();
+	private final LongAdder blocked = new LongAdder();
+	private final LatencyHistogram waitTime = new LatencyHistogram();
+	private final LatencyHistogram execTime = new LatencyHistogram();
 	private Runnable groupEmptyHandle;
 
-	private boolean waitWhenFull = false;
-	private int taskThreshold = 0;
+	private volatile RejectPolicy rejectPolicy;
+	private volatile long blockTimeoutMS = DefaultBlockTimeoutMS;
+	private volatile int taskThreshold = 0;
 	private int size;
 	private ExeGroupThreadFactory threadFactory;
+	private ObjectName mbeanName;
 
 	public ExecutionGroup(){
 		this(32, new ExeGroupThreadFactory(null));
@@ -74,25 +114,12 @@ public class ExecutionGroup implements ExecutionGroupMXBean{
 	/**
 	 * 
 	 * @param size
-	 * @param waitWhenFull 当等于true时，若正在执行的线程数大于size，方法execute不会返回，会一直等待线程数小于size后，才把新的线程放入线程池，然后才返回；
-	 * 当为false时，直接把新线程放入线程池，马上返回，不会去考虑线程池是否已满
+	 * @param waitWhenFull 当等于true时，若排队任务已满，方法execute不会返回，会一直等待有空位后才放入；
+	 * 当为false时，按默认策略最多等待executiongroup.block.ms毫秒，仍无空位则拒绝
 	 */
 	public ExecutionGroup(int size, boolean waitWhenFull, int taskThreshold, ExeGroupThreadFactory factory){
-		this.size = size;
-		this.threadFactory = factory;
-		if(size == 1) {
-			this.executor = new ThreadPoolExecutor(1, 1,
-		            0L, TimeUnit.MILLISECONDS,
-		            new LinkedBlockingQueue<Runnable>(),
-		            this.threadFactory);
-		}else {
-			this.executor = new ThreadPoolExecutor(size, size,
-	                0L, TimeUnit.MILLISECONDS,
-	                new SynchronousQueue<Runnable>(),
-	                this.threadFactory);			
-		}
-		
-		this.waitWhenFull = waitWhenFull;
+		this(size, size == 1 ? Integer.MAX_VALUE : DefaultQueueCapacity, RejectPolicy.Block, factory);
+		this.setWaitWhenFull(waitWhenFull);
 		this.taskThreshold = taskThreshold;
 	}
 
@@ -104,12 +131,66 @@ public class ExecutionGroup implements ExecutionGroupMXBean{
 		this(size, waitWhenFull, 0, factory);
 	}
 
+	public ExecutionGroup(int size, int queueCapacity, RejectPolicy policy, String threadfactoryName){
+		this(size, queueCapacity, policy, new ExeGroupThreadFactory(threadfactoryName));
+	}
+
+	/**
+	 * @param queueCapacity 线程都忙时最多排队的任务数
+	 * @param policy 排队已满时的处理方式
+	 */
+	public ExecutionGroup(int size, int queueCapacity, RejectPolicy policy, ExeGroupThreadFactory factory){
+		this.size = size;
+		this.threadFactory = factory;
+		this.queueCapacity = Math.max(0, queueCapacity);
+		this.permits = new Semaphore((int)Math.min(Integer.MAX_VALUE, (long)size + this.queueCapacity));
+		this.rejectPolicy = policy == null ? RejectPolicy.Block : policy;
+		ExecutorService perTask = factory.isVirtual() ? VirtualThreads.perTaskExecutor(factory) : null;
+		if(perTask != null){
+			this.slots = new Semaphore(size);
+			this.executor = perTask;
+		}else{
+			this.slots = null;
+			this.executor = new ThreadPoolExecutor(size, size,
+	                0L, TimeUnit.MILLISECONDS,
+	                queue,
+	                this.threadFactory);
+		}
+		registerSelf();
+	}
+
+	private void registerSelf(){
+		String gn = StringUtility.isNullOrEmpty(this.threadFactory.egName) ? "ExecutionGroup" : this.threadFactory.egName;
+		try{
+			this.mbeanName = new ObjectName(String.format("boundless.types:type=ExecutionGroup,name=%s,id=%d",
+					ObjectName.quote(gn), groupNumber.getAndIncrement()));
+			registerMBean(this, this.mbeanName);
+		}catch(Throwable e){
+			this.mbeanName = null;
+		}
+	}
+
 	public void setGroupName(String name){
 		this.threadFactory.setName(name);
 	}
 
 	public void setWaitWhenFull(boolean value){
-		this.waitWhenFull = value;
+		if(value){
+			this.rejectPolicy = RejectPolicy.Block;
+			this.blockTimeoutMS = 0;
+		}else if(this.blockTimeoutMS == 0){
+			this.blockTimeoutMS = DefaultBlockTimeoutMS;
+		}
+	}
+
+	public void setRejectPolicy(RejectPolicy policy){
+		if(policy != null){
+			this.rejectPolicy = policy;
+		}
+	}
+
+	public void setBlockTimeoutMS(long ms){
+		this.blockTimeoutMS = Math.max(0, ms);
 	}
 
 	public void setTaskThreshold(int value){
@@ -120,99 +201,168 @@ public class ExecutionGroup implements ExecutionGroupMXBean{
 	}
 
 	public int countRunning(){
-		return this.runningCounter;
+		return this.runningCounter.get();
 	}
 
 	@Override
 	public int getRunning(){
-		return this.runningCounter;
+		return this.runningCounter.get();
 	}
 
 	public boolean isEmpty(){
-		return this.runningCounter == 0;
+		return this.runningCounter.get() == 0;
 	}
 
 	public void registerFinishAllRunningHandler(Runnable handler){
 		groupEmptyHandle = handler;
 	}
 
+	/**
+	 * @param exceptHandle 任务抛出异常，或任务被拒绝、丢弃（RejectedExecutionException）时回调，为null时只记录日志
+	 */
 	public void execute(Runnable task, Consumer<Throwable> exceptHandle){
-		try{
-			while(this.waitWhenFull && this.runningCounter >= this.size){
-				try{
-					Thread.sleep(1000);
-				}catch(Exception e){
-					QueueLog.error(AppLoggers.ErrorLogger, e.getMessage());
-				}
-			}
-			if(this.taskThreshold > 0 && this.runningCounter > this.taskThreshold){
-				QueueLog.warn(AppLoggers.Performance, "pool size is {}, taskThreshold:{}, but there are {} running task, so reject this task", 
-						this.size, this.taskThreshold, this.runningCounter);
+		if(task == null){
+			return;
+		}
+		int threshold = this.taskThreshold;
+		if(threshold > 0 && this.runningCounter.get() > threshold){
+			QueueLog.warn(AppLoggers.Performance, "pool size is {}, taskThreshold:{}, but there are {} running task, so reject this task", 
+					this.size, threshold, this.runningCounter.get());
+			this.rejected.increment();
+			onError(new RejectedExecutionException("ExecutionGroup " + this.threadFactory.egName + " exceeds taskThreshold " + threshold), exceptHandle);
+			return;
+		}
+		this.submitted.increment();
+		if(!admit()){
+			if(this.rejectPolicy == RejectPolicy.CallerRuns){
+				this.callerRuns.increment();
+				this.runningCounter.incrementAndGet();
+				new Task(task, exceptHandle, false).run();
 				return;
 			}
-			synchronized(this){
-				this.runningCounter++;
+			this.rejected.increment();
+			onError(new RejectedExecutionException("ExecutionGroup " + this.threadFactory.egName + " is full"), exceptHandle);
+			return;
+		}
+		this.runningCounter.incrementAndGet();
+		Task t = new Task(task, exceptHandle, true);
+		boolean queued = false;
+		try{
+			ExecutorService pool = this.executor;
+			if(pool == null){
+				throw new RejectedExecutionException("ExecutionGroup " + this.threadFactory.egName + " is closed");
 			}
-			if(task != null){
-				executor.execute(()->{
-					try{
-						task.run();
-					}catch(Throwable e){
-						if(exceptHandle != null){
-							exceptHandle.accept(e);
-						}else{
-							QueueLog.error(AppLoggers.ErrorLogger, e);
-						}
-					}finally{
-						synchronized(this){
-							this.runningCounter--;
-							if(this.runningCounter == 0 && this.groupEmptyHandle != null){
-								try{
-									this.groupEmptyHandle.run();
-								}catch(Throwable e){
-									if(exceptHandle != null){
-										try{
-											exceptHandle.accept(e);
-										}catch(Exception er){
-											QueueLog.error(AppLoggers.ErrorLogger, er);
-										}
-									}else{
-										QueueLog.error(AppLoggers.ErrorLogger, e);
-									}
-								}
-							}
-						}
-					}
-				});
+			if(this.slots == null){
+				pool.execute(t);
+			}else{
+				this.queue.add(t);
+				queued = true;
+				pool.execute(this::runQueued);
 			}
 		}catch(Exception e){
-			if(exceptHandle != null){
-				exceptHandle.accept(e);
-			}else{
-				QueueLog.error(AppLoggers.ErrorLogger, e);
+			if(queued && !this.queue.remove(t)){
+				// 已被先提交的虚拟线程取走执行，或被丢弃
+				return;
 			}
+			this.permits.release();
+			finish();
+			this.rejected.increment();
+			onError(e, exceptHandle);
 		}
 	}
 
 	public void execute(Runnable task){
 		execute(task, null);
 	}
-	
-	public void waitAllFinish(){
-		while(!isEmpty()){
-			try {
-				Thread.sleep(1000);
-			} catch (Exception e) {
-				throw new RuntimeException(e);
+
+	/**
+	 * 虚拟线程模式下每个任务一个线程：取得执行许可后按提交顺序取队首任务执行，
+	 * 队首任务已被丢弃或被别的线程取走时直接结束
+	 */
+	private void runQueued(){
+		try{
+			this.slots.acquire();
+		}catch(InterruptedException e){
+			return;
+		}
+		try{
+			Runnable task = this.queue.poll();
+			if(task != null){
+				this.activeCounter.incrementAndGet();
+				try{
+					task.run();
+				}finally{
+					this.activeCounter.decrementAndGet();
+				}
+			}
+		}finally{
+			this.slots.release();
+		}
+	}
+
+	private boolean admit(){
+		if(this.permits.tryAcquire()){
+			return true;
+		}
+		switch(this.rejectPolicy){
+		case DropOldest:
+			Runnable old;
+			while((old = this.queue.poll()) != null){
+				((Task)old).drop("ExecutionGroup " + this.threadFactory.egName + " dropped the oldest task");
+				if(this.permits.tryAcquire()){
+					return true;
+				}
+			}
+			return this.permits.tryAcquire();
+		case Block:
+			this.blocked.increment();
+			try{
+				long ms = this.blockTimeoutMS;
+				if(ms <= 0){
+					this.permits.acquire();
+					return true;
+				}
+				return this.permits.tryAcquire(ms, TimeUnit.MILLISECONDS);
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		default:
+			return false;
+		}
+	}
+
+	private void onError(Throwable e, Consumer<Throwable> exceptHandle){
+		if(exceptHandle != null){
+			try{
+				exceptHandle.accept(e);
+			}catch(Exception er){
+				QueueLog.error(AppLoggers.ErrorLogger, er);
 			}
+		}else{
+			QueueLog.error(AppLoggers.ErrorLogger, e);
 		}
 	}
 
+	private void finish(){
+		if(this.runningCounter.decrementAndGet() == 0 && this.groupEmptyHandle != null){
+			try{
+				this.groupEmptyHandle.run();
+			}catch(Throwable e){
+				onError(e, null);
+			}
+		}
+	}
+	
+	public void waitAllFinish(){
+		waitAllFinish(1000);
+	}
+
 	public void waitAllFinish(long sleepMS){
 		long ms = sleepMS <= 0 ? 1000 : sleepMS;
 		while(!isEmpty()){
 			try {
-				Thread.sleep(ms);
+				Thread.sleep(Math.min(ms, 20));
 			} catch (Exception e) {
 				throw new RuntimeException(e);
 			}
@@ -223,12 +373,175 @@ public class ExecutionGroup implements ExecutionGroupMXBean{
 		if(this.executor == null){
 			return;
 		}
+		ExecutorService pool = this.executor;
+		this.executor = null;
 		try{
-			this.executor.shutdownNow();
+			List<Runnable> pending = new ArrayList<Runnable>(pool.shutdownNow());
+			this.queue.drainTo(pending);
+			for(Runnable task : pending){
+				((Task)task).drop("ExecutionGroup " + this.threadFactory.egName + " is closed");
+			}
 		}catch(Exception e){
 			QueueLog.error(AppLoggers.ErrorLogger, e);
 		}
-		this.executor = null;
+		if(this.mbeanName != null){
+			try{
+				unregisterMBean(this.mbeanName);
+			}catch(Exception e){
+			}
+			this.mbeanName = null;
+		}
+	}
+
+	@Override
+	public int getPoolSize(){
+		return this.size;
+	}
+
+	@Override
+	public int getActiveCount(){
+		ExecutorService pool = this.executor;
+		if(pool == null){
+			return 0;
+		}
+		return this.slots == null ? ((ThreadPoolExecutor)pool).getActiveCount() : this.activeCounter.get();
+	}
+
+	@Override
+	public int getQueueDepth(){
+		return this.queue.size();
+	}
+
+	@Override
+	public int getQueueCapacity(){
+		return this.queueCapacity;
+	}
+
+	@Override
+	public String getRejectPolicy(){
+		return this.rejectPolicy.name();
+	}
+
+	@Override
+	public long getSubmittedCount(){
+		return this.submitted.sum();
+	}
+
+	@Override
+	public long getCompletedCount(){
+		return this.completed.sum();
+	}
+
+	@Override
+	public long getRejectedCount(){
+		return this.rejected.sum();
+	}
+
+	@Override
+	public long getDroppedCount(){
+		return this.dropped.sum();
+	}
+
+	@Override
+	public long getCallerRunsCount(){
+		return this.callerRuns.sum();
+	}
+
+	@Override
+	public long getBlockedCount(){
+		return this.blocked.sum();
+	}
+
+	@Override
+	public long getWaitTimeP50Ms(){
+		return this.waitTime.percentile(0.5);
+	}
+
+	@Override
+	public long getWaitTimeP99Ms(){
+		return this.waitTime.percentile(0.99);
+	}
+
+	@Override
+	public long getExecTimeP50Ms(){
+		return this.execTime.percentile(0.5);
+	}
+
+	@Override
+	public long getExecTimeP90Ms(){
+		return this.execTime.percentile(0.9);
+	}
+
+	@Override
+	public long getExecTimeP99Ms(){
+		return this.execTime.percentile(0.99);
+	}
+
+	public Map<String, Object> stats(){
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("name", this.threadFactory.egName);
+		map.put("poolSize", this.size);
+		map.put("virtual", this.slots != null);
+		map.put("running", getRunning());
+		map.put("active", getActiveCount());
+		map.put("queueDepth", getQueueDepth());
+		map.put("queueCapacity", this.queueCapacity);
+		map.put("rejectPolicy", getRejectPolicy());
+		map.put("submitted", getSubmittedCount());
+		map.put("completed", getCompletedCount());
+		map.put("rejected", getRejectedCount());
+		map.put("dropped", getDroppedCount());
+		map.put("callerRuns", getCallerRunsCount());
+		map.put("blocked", getBlockedCount());
+		map.put("waitTime", this.waitTime.toMap());
+		map.put("execTime", this.execTime.toMap());
+		return map;
+	}
+
+	/**
+	 * 包装提交的任务，记录排队与执行耗时，结束后归还许可
+	 */
+	private class Task implements Runnable {
+		private final Runnable task;
+		private final Consumer<Throwable> exceptHandle;
+		private final boolean permit;
+		private final long enqueuedAt = System.nanoTime();
+
+		private Task(Runnable task, Consumer<Throwable> exceptHandle, boolean permit){
+			this.task = task;
+			this.exceptHandle = exceptHandle;
+			this.permit = permit;
+		}
+
+		@Override
+		public void run(){
+			long start = System.nanoTime();
+			waitTime.record(TimeUnit.NANOSECONDS.toMillis(start - enqueuedAt));
+			boolean error = false;
+			try{
+				task.run();
+			}catch(Throwable e){
+				error = true;
+				onError(e, exceptHandle);
+			}finally{
+				execTime.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), error);
+				completed.increment();
+				if(permit){
+					permits.release();
+				}
+				finish();
+			}
+		}
+
+		/**
+		 * 未执行即被丢弃，同拒绝一样回调提交者的异常处理
+		 */
+		private void drop(String reason){
+			dropped.increment();
+			permits.release();
+			finish();
+			onError(new RejectedExecutionException(reason), exceptHandle);
+		}
 	}
 
 	/**
@@ -242,6 +555,8 @@ public class ExecutionGroup implements ExecutionGroupMXBean{
 		private final AtomicInteger threadNumber = new AtomicInteger(1);
 		private final String namePrefix;
 		private String egName;
+		private boolean virtual = VirtualThreads.isEnabled();
+		private ThreadFactory virtualFactory;
 		
 		public ExeGroupThreadFactory(String eg){
 			this.egName = eg;
@@ -255,11 +570,34 @@ public class ExecutionGroup implements ExecutionGroupMXBean{
 			this.egName = name;
 		}
 
+		/**
+		 * 是否用虚拟线程，默认跟随-Dvirtualthreads.enabled；运行时不支持时忽略。
+		 * 需在创建ExecutionGroup前设置，此时ExecutionGroup每个任务新建一个虚拟线程，size只限制同时执行的任务数
+		 */
+		public void setVirtual(boolean value){
+			this.virtual = value && VirtualThreads.isSupported();
+		}
+
+		public boolean isVirtual(){
+			return this.virtual;
+		}
+
 		@Override
 		public Thread newThread(Runnable r) {
 			String tm = FormatUtility.formatDateTime(new Date(), "yyyyMMddHHmmss.S");
 			String gn = StringUtility.isNullOrEmpty(this.egName) ? "ExecutionGroup" : this.egName;
 			String tn = String.format("bdl-%s-%s-%d-%s", gn, namePrefix, threadNumber.getAndIncrement(), tm);
+			if(this.virtual){
+				if(this.virtualFactory == null){
+					this.virtualFactory = VirtualThreads.factory(namePrefix);
+				}
+				ThreadFactory vf = this.virtualFactory;
+				if(vf != null){
+					Thread vt = vf.newThread(r);
+					vt.setName(tn);
+					return vt;
+				}
+			}
 			Thread t = new Thread(group, r, tn, 0);
 			if (t.isDaemon()) {
 				t.setDaemon(false);
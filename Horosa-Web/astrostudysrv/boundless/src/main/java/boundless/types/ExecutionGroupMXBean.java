@@ -2,4 +2,36 @@ package boundless.types;
 
 public interface ExecutionGroupMXBean {
 	public int getRunning();
+
+	public int getPoolSize();
+
+	public int getActiveCount();
+
+	public int getQueueDepth();
+
+	public int getQueueCapacity();
+
+	public String getRejectPolicy();
+
+	public long getSubmittedCount();
+
+	public long getCompletedCount();
+
+	public long getRejectedCount();
+
+	public long getDroppedCount();
+
+	public long getCallerRunsCount();
+
+	public long getBlockedCount();
+
+	public long getWaitTimeP50Ms();
+
+	public long getWaitTimeP99Ms();
+
+	public long getExecTimeP50Ms();
+
+	public long getExecTimeP90Ms();
+
+	public long getExecTimeP99Ms();
 }
@@ -1,16 +1,19 @@
 package boundless.types;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import boundless.exception.UnimplementedException;
 import boundless.types.cache.FilterCond;
+import boundless.types.cache.Projection;
 import boundless.types.cache.SortCond;
 import boundless.utility.ConvertUtility;
 import boundless.types.cache.LookupCond;
@@ -30,11 +33,29 @@ public interface ICache {
 	
 	default public void put(String key, Object value, int timeToIdleSeconds, int timeToLiveSeconds){ throw new UnimplementedException("Unimplemented"); };
 	default public void put(String key, Object value, long timeToIdleSeconds, long timeToLiveSeconds){ put(key, value, (int)timeToIdleSeconds, (int)timeToLiveSeconds); };
-	
+	/**
+	 * 批量写入键值，能合并为一次请求的实现应覆盖
+	 */
+	default public void putAll(Map<String, Object> values){
+		for(Map.Entry<String, Object> entry : values.entrySet()){
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
 	default public long remove(String field, Object value){ throw new UnimplementedException("Unimplemented"); };
 	default public long remove(FilterCond cond){ throw new UnimplementedException("Unimplemented"); };
 	default public long remove(FilterCond... conds){ throw new UnimplementedException("Unimplemented"); };
 	default public long removeMany(String partKey){ throw new UnimplementedException("Unimplemented"); };
+	/**
+	 * 分批删除时每批完成后回报累计删除数，不能分批的实现删除完成后回报一次
+	 */
+	default public long removeMany(String partKey, LongConsumer progress){
+		long n = removeMany(partKey);
+		if(progress != null){
+			progress.accept(n);
+		}
+		return n;
+	}
 	default public long remove(String fld, String value){ throw new UnimplementedException("Unimplemented"); };
 	default public long remove(String fld, long value){ throw new UnimplementedException("Unimplemented"); };
 	default public long remove(String fld, int value){ throw new UnimplementedException("Unimplemented"); };
@@ -42,6 +63,13 @@ public interface ICache {
 	default public String getRemoteCacheName(){ throw new UnimplementedException("Unimplemented"); };
 	default public long countKey(String partKey){ throw new UnimplementedException("Unimplemented"); };
 	default public Map<String, Object> getMany(String partKey){ return new HashMap<String, Object>(); };
+	default public List<Object> getAll(List<String> keys){
+		List<Object> list = new ArrayList<Object>(keys.size());
+		for(String key : keys){
+			list.add(get(key));
+		}
+		return list;
+	}
 	default public Object get(String key, String field){ throw new UnimplementedException("Unimplemented"); }
 	default public Map<String, Object> getFieldsValue(String key, String... fields){ throw new UnimplementedException("Unimplemented"); }
 	default public Map<String, Object> getFieldsValue(Object key, String... fields){ throw new UnimplementedException("Unimplemented"); }
@@ -104,12 +132,52 @@ public interface ICache {
 	default public List<Map<String, Object>> findValues(int limit, FilterCond... conds){ throw new UnimplementedException("Unimplemented"); }
 	default public List<Map<String, Object>> findValues(SortCond sort, FilterCond... conds){ throw new UnimplementedException("Unimplemented"); }
 	default public List<Map<String, Object>> findValues(int limit, SortCond sort, FilterCond... conds){ throw new UnimplementedException("Unimplemented"); }
+	default public List<Map<String, Object>> findValuesView(int limit, SortCond sort, FilterCond... conds){ return findValues(limit, sort, conds); }
+	/**
+	 * 带字段投影的查询，limit<=0不限条数，sort可为null。
+	 * 默认查出整个文档再按投影复制，能在查询时投影的实现应覆盖
+	 */
+	default public List<Map<String, Object>> findValues(int limit, SortCond sort, Projection projection, FilterCond... conds){
+		List<Map<String, Object>> list;
+		if(sort == null){
+			list = limit > 0 ? findValues(limit, conds) : findValues(conds);
+		}else{
+			list = limit > 0 ? findValues(limit, sort, conds) : findValues(sort, conds);
+		}
+		if(projection == null){
+			return list;
+		}
+		List<Map<String, Object>> res = new ArrayList<Map<String, Object>>(list.size());
+		for(Map<String, Object> map : list){
+			res.add(projection.apply(map));
+		}
+		return res;
+	}
+	default public List<Map<String, Object>> findValues(Projection projection, FilterCond... conds){ return findValues(-1, null, projection, conds); }
 	default public void add(Map<String, Object> map){ throw new UnimplementedException("Unimplemented"); }
 	default public void add(Map<String, Object> map, int timeoutInSec){ throw new UnimplementedException("Unimplemented"); }
+	default public void addAll(List<Map<String, Object>> maps){
+		for(Map<String, Object> map : maps){
+			add(map);
+		}
+	}
 	default public Map<String, Object> getMap(Object key){ throw new UnimplementedException("Unimplemented"); }
+	default public Map<String, Object> getMapView(Object key){ return getMap(key); }
+	default public Map<String, Object> getMap(Object key, Projection projection){
+		Map<String, Object> map = getMap(key);
+		return projection == null ? map : projection.apply(map);
+	}
 	default public List<Map<String, Object>> getList(String field, Object fldKey){ throw new UnimplementedException("Unimplemented"); }
 	default public void setMap(Object key, Map<String, Object> map){ throw new UnimplementedException("Unimplemented"); }
 	default public void setMap(Object key, Map<String, Object> map, int timeoutInSec){ throw new UnimplementedException("Unimplemented"); }
+	/**
+	 * 批量按键写入文档，效果与逐个setMap相同，能合并为一次请求的实现应覆盖
+	 */
+	default public void setMaps(Map<Object, Map<String, Object>> maps){
+		for(Map.Entry<Object, Map<String, Object>> entry : maps.entrySet()){
+			setMap(entry.getKey(), entry.getValue());
+		}
+	}
 
 	default public ICache spawnCache(String dataSetName){ return this; }
 	default public void dropDataSet(){}
@@ -120,6 +188,14 @@ public interface ICache {
 	default public long count(FilterCond... matches){ throw new UnimplementedException("Unimplemented"); }
 	default public void createIndex(String fld, boolean desc){ throw new UnimplementedException("Unimplemented"); }
 	default public void createIndex(String fld){ this.createIndex(fld, false); }
+	/**
+	 * 按给定字段顺序建立升序复合索引，不支持复合索引的实现逐个字段建索引
+	 */
+	default public void createCompoundIndex(String... flds){
+		for(String fld : flds){
+			createIndex(fld, false);
+		}
+	}
 
 	default public List<Map<String, Object>> leftJoin(LookupCond[] lookups, int limit, SortCond sort){ throw new UnimplementedException("Unimplemented"); }
 }
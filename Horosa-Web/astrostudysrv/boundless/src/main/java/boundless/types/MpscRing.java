@@ -0,0 +1,104 @@
+package boundless.types;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 定长的多生产者单消费者环形队列。入队只做一次CAS，满时直接返回false，由调用方决定丢弃还是退让；
+ * 出队只允许一个线程调用
+ */
+public class MpscRing<T> {
+	private final AtomicReferenceArray<T> slots;
+	private final AtomicLongArray seqs;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head = 0;
+
+	/**
+	 * @param capacity 向上取整为2的幂
+	 */
+	public MpscRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		slots = new AtomicReferenceArray<T>(size);
+		seqs = new AtomicLongArray(size);
+		for(int i=0; i<size; i++) {
+			seqs.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+	public int size() {
+		return (int)Math.max(0, tail.get() - head);
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @return 队列已满时返回false
+	 */
+	public boolean offer(T item) {
+		if(item == null) {
+			throw new NullPointerException();
+		}
+		long pos = tail.get();
+		while(true) {
+			int idx = (int)(pos & mask);
+			long dif = seqs.get(idx) - pos;
+			if(dif == 0) {
+				if(tail.compareAndSet(pos, pos + 1)) {
+					slots.lazySet(idx, item);
+					seqs.set(idx, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			}else if(dif < 0) {
+				return false;
+			}else {
+				pos = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * 只能由消费线程调用
+	 * @return 队列为空时返回null
+	 */
+	public T poll() {
+		long pos = head;
+		int idx = (int)(pos & mask);
+		if(seqs.get(idx) != pos + 1) {
+			return null;
+		}
+		T item = slots.get(idx);
+		slots.lazySet(idx, null);
+		seqs.set(idx, pos + mask + 1);
+		head = pos + 1;
+		return item;
+	}
+
+	/**
+	 * 只能由消费线程调用
+	 * @return 取出的条数
+	 */
+	public int drainTo(List<? super T> list, int max) {
+		int n = 0;
+		while(n < max) {
+			T item = poll();
+			if(item == null) {
+				break;
+			}
+			list.add(item);
+			n++;
+		}
+		return n;
+	}
+
+}
@@ -11,17 +11,23 @@ import boundless.log.QueueLog;
 import boundless.types.ICache;
 import boundless.utility.ConvertUtility;
 import boundless.utility.JsonUtility;
+import boundless.utility.StringUtility;
 
 public class CacheFactory {
 	private static final String CacheFactoryClassKey = "cachefactoryclass";
 	private static final String NeedLocalMemcache = "needlocalmemcache";
 	private static final String NeedCompressKey = "needcompress";
 	private static final String NeedHystrixKey = "needhystrix";
+	private static final String ValueCodecKey = "valuecodec";
+	private static final String LocalMemcacheMaxMBKey = "localmemcachemaxmb";
+	private static final String LocalMemcacheTTLKey = "localmemcachettl";
+	private static final String LocalMemcacheRefreshKey = "localmemcacherefresh";
 	
 	
 	private static boolean NeedMemCache = false;
 	private static boolean NeedCompress = false;
 	private static boolean NeedHystrix = false;
+	private static String ValueCodec = null;
 	
 	private static ICacheFactory defaultCacheFactory = null;
 	
@@ -45,6 +51,10 @@ public class CacheFactory {
 		NeedMemCache = ConvertUtility.getValueAsBool(confmap.get(NeedLocalMemcache), false);
 		NeedCompress = ConvertUtility.getValueAsBool(confmap.get(NeedCompressKey), false);
 		NeedHystrix = ConvertUtility.getValueAsBool(confmap.get(NeedHystrixKey), false);
+		ValueCodec = ConvertUtility.getValueAsString(confmap.get(ValueCodecKey));
+		MemCacheTier.setDefaultMaxWeight(ConvertUtility.getValueAsLong(confmap.get(LocalMemcacheMaxMBKey), 0L) * 1024 * 1024);
+		MemCacheTier.setDefaultTTLSeconds(ConvertUtility.getValueAsInt(confmap.get(LocalMemcacheTTLKey), 0));
+		MemCacheTier.setDefaultRefreshSeconds(ConvertUtility.getValueAsInt(confmap.get(LocalMemcacheRefreshKey), 0));
 		
 		List<Map<String, Object>> factories = (List<Map<String, Object>>) confmap.get(CacheFactoryClassKey);
 		for(Map<String, Object> fac : factories){
@@ -83,6 +93,10 @@ public class CacheFactory {
 		NeedMemCache = ConvertUtility.getValueAsBool(p.getProperty(NeedLocalMemcache), false);
 		NeedCompress = ConvertUtility.getValueAsBool(p.getProperty(NeedCompressKey), false);
 		NeedHystrix = ConvertUtility.getValueAsBool(p.getProperty(NeedHystrixKey), false);
+		ValueCodec = p.getProperty(ValueCodecKey);
+		MemCacheTier.setDefaultMaxWeight(ConvertUtility.getValueAsLong(p.getProperty(LocalMemcacheMaxMBKey), 0L) * 1024 * 1024);
+		MemCacheTier.setDefaultTTLSeconds(ConvertUtility.getValueAsInt(p.getProperty(LocalMemcacheTTLKey), 0));
+		MemCacheTier.setDefaultRefreshSeconds(ConvertUtility.getValueAsInt(p.getProperty(LocalMemcacheRefreshKey), 0));
 		
 		String[] factories = factoryclasses.split(",");
 		if(factories.length < 2){
@@ -133,7 +147,7 @@ public class CacheFactory {
 	}
 
 	public static ICache getCache(){
-		RemoteCache realcache = new RemoteCache(defaultCacheFactory, NeedMemCache, NeedCompress, NeedHystrix);
+		RemoteCache realcache = new RemoteCache(defaultCacheFactory, NeedMemCache, NeedCompress, NeedHystrix, codec(defaultCacheFactory));
 		return realcache;
 	}
 	
@@ -155,10 +169,21 @@ public class CacheFactory {
 		if(needhystrix == null){
 			needhystrix = NeedHystrix;
 		}
-		RemoteCache realcache = new RemoteCache(factory, needmc, needcompress, needhystrix);
+		RemoteCache realcache = new RemoteCache(factory, needmc, needcompress, needhystrix, codec(factory));
 		return realcache;
 	}
 	
+	/**
+	 * 工厂配置的valuecodec优先，未配置时用全局配置
+	 */
+	private static CacheValueCodec codec(ICacheFactory factory){
+		String name = factory.valueCodec();
+		if(StringUtility.isNullOrEmpty(name)){
+			name = ValueCodec;
+		}
+		return CacheValueCodec.of(name);
+	}
+	
 	public static void close(){
 		try{
 			if(cacheFactories.isEmpty()){
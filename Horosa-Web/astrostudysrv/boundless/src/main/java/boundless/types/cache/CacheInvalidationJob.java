@@ -0,0 +1,183 @@
+package boundless.types.cache;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.types.ExecutionGroup.ExeGroupThreadFactory;
+import boundless.utility.FormatUtility;
+
+/**
+ * 后台缓存清理任务。由若干步组成，每步按通配模式删除一批键并回报进度，
+ * 提交后在单线程里依次执行，各任务串行以免同时对redis发起多路扫描。
+ * 某步抛出异常时记下错误继续后面的步骤，任务最终为Failed。
+ * 最近的任务按id保留，供查询进度
+ */
+public class CacheInvalidationJob {
+	public static enum State {
+		Waiting, Running, Done, Failed
+	}
+
+	/**
+	 * 一步清理，progress回报本步累计删除数
+	 */
+	@FunctionalInterface
+	public static interface Step {
+		long run(LongConsumer progress);
+	}
+
+	private static final int MaxKept = 64;
+
+	private static ExecutorService executor = new ThreadPoolExecutor(1, 1,
+			0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			new ExeGroupThreadFactory("CacheInvalidationJob"));
+	private static final Map<String, CacheInvalidationJob> jobs = new LinkedHashMap<String, CacheInvalidationJob>();
+
+	private final String id = UUID.randomUUID().toString().replace("-", "");
+	private final String name;
+	private final List<String> stepNames = new ArrayList<String>();
+	private final List<Step> steps = new ArrayList<Step>();
+	private final long[] stepRemoved;
+
+	private volatile State state = State.Waiting;
+	private volatile int stepIndex = -1;
+	private final AtomicLong removed = new AtomicLong(0);
+	private volatile long createTime = System.currentTimeMillis();
+	private volatile long startTime = 0;
+	private volatile long endTime = 0;
+	private volatile String error = null;
+
+	private CacheInvalidationJob(String name, Map<String, Step> steps) {
+		this.name = name;
+		for(Map.Entry<String, Step> entry : steps.entrySet()) {
+			this.stepNames.add(entry.getKey());
+			this.steps.add(entry.getValue());
+		}
+		this.stepRemoved = new long[this.steps.size()];
+	}
+
+	/**
+	 * @param steps 步骤名到清理逻辑，按map的遍历顺序执行
+	 */
+	public static CacheInvalidationJob submit(String name, LinkedHashMap<String, Step> steps) {
+		CacheInvalidationJob job = new CacheInvalidationJob(name, steps);
+		synchronized(jobs) {
+			jobs.put(job.id, job);
+			Iterator<CacheInvalidationJob> it = jobs.values().iterator();
+			while(jobs.size() > MaxKept && it.hasNext()) {
+				CacheInvalidationJob old = it.next();
+				if(old.isFinished()) {
+					it.remove();
+				}
+			}
+		}
+		executor.execute(job::run);
+		return job;
+	}
+
+	public static CacheInvalidationJob get(String id) {
+		synchronized(jobs) {
+			return jobs.get(id);
+		}
+	}
+
+	public static List<Map<String, Object>> recent() {
+		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
+		synchronized(jobs) {
+			for(CacheInvalidationJob job : jobs.values()) {
+				list.add(job.toMap());
+			}
+		}
+		return list;
+	}
+
+	private void run() {
+		this.startTime = System.currentTimeMillis();
+		this.state = State.Running;
+		for(int i=0; i<this.steps.size(); i++) {
+			this.stepIndex = i;
+			final int idx = i;
+			try {
+				long n = this.steps.get(i).run((cnt)->{
+					progress(idx, cnt);
+				});
+				progress(idx, n);
+			}catch(Throwable e) {
+				String msg = this.stepNames.get(i) + ": " + e.getMessage();
+				this.error = this.error == null ? msg : this.error + "; " + msg;
+				QueueLog.error(AppLoggers.ErrorLogger, e, "cache invalidation job " + this.name + " step " + this.stepNames.get(i));
+			}
+		}
+		this.endTime = System.currentTimeMillis();
+		this.state = this.error == null ? State.Done : State.Failed;
+		QueueLog.info(AppLoggers.InfoLogger, "cache invalidation job {} finished, removed {}, cost {}ms", this.name, this.removed.get(), this.endTime - this.startTime);
+	}
+
+	/**
+	 * 分片并行时回调来自多个线程，且可能乱序，每步只取最大值
+	 */
+	private void progress(int idx, long cnt) {
+		synchronized(this.stepRemoved) {
+			long delta = cnt - this.stepRemoved[idx];
+			if(delta > 0) {
+				this.stepRemoved[idx] = cnt;
+				this.removed.addAndGet(delta);
+			}
+		}
+	}
+
+	public String getId() {
+		return this.id;
+	}
+
+	public State getState() {
+		return this.state;
+	}
+
+	public long getRemoved() {
+		return this.removed.get();
+	}
+
+	public boolean isFinished() {
+		return this.state == State.Done || this.state == State.Failed;
+	}
+
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("id", this.id);
+		map.put("name", this.name);
+		map.put("state", this.state.toString());
+		map.put("removed", this.removed.get());
+		map.put("steps", this.stepNames);
+		map.put("stepTotal", this.steps.size());
+		int idx = this.stepIndex;
+		map.put("stepIndex", idx);
+		if(idx >= 0 && !isFinished()) {
+			map.put("currentStep", this.stepNames.get(idx));
+		}
+		map.put("createTime", FormatUtility.formatDateTime(new Date(this.createTime), "yyyy-MM-dd HH:mm:ss"));
+		if(this.startTime > 0) {
+			long end = this.endTime > 0 ? this.endTime : System.currentTimeMillis();
+			map.put("costMs", end - this.startTime);
+		}
+		if(this.error != null) {
+			map.put("error", this.error);
+		}
+		return map;
+	}
+
+}
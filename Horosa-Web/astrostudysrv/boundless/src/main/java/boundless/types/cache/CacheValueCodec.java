@@ -0,0 +1,52 @@
+package boundless.types.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import boundless.utility.StringUtility;
+
+/**
+ * RemoteCache写入远端前把值编码为byte[]，读出后解码。
+ * 编码结果可以是以FrameMagic开头的帧，也可以是普通utf-8文本。各后端据首字节区分：
+ * 帧原样以byte[]返回交给decode，其余仍按字符串返回，因此启用编解码前写入的旧条目照常可读
+ */
+public interface CacheValueCodec {
+	/**
+	 * 帧的首字节，utf-8文本与base64都不会以它开头
+	 */
+	public static final byte FrameMagic = (byte) 0xC1;
+
+	static final Map<String, CacheValueCodec> Codecs = new ConcurrentHashMap<String, CacheValueCodec>();
+
+	public String name();
+	public byte[] encode(Object value);
+	public Object decode(byte[] data);
+
+	public static boolean isFrame(byte[] data) {
+		return data != null && data.length > 0 && data[0] == FrameMagic;
+	}
+
+	public static void register(CacheValueCodec codec) {
+		Codecs.put(codec.name(), codec);
+	}
+
+	/**
+	 * @param name 编解码器名称，framed为内置实现；也可以是实现类的全名。为空或none时返回null，表示不编码
+	 */
+	public static CacheValueCodec of(String name) {
+		if(StringUtility.isNullOrEmpty(name) || name.equalsIgnoreCase("none")) {
+			return null;
+		}
+		if(name.equalsIgnoreCase(FramedCacheValueCodec.Name)) {
+			return FramedCacheValueCodec.getDefault();
+		}
+		return Codecs.computeIfAbsent(name, (k)->{
+			try {
+				return (CacheValueCodec) Class.forName(k).getDeclaredConstructor().newInstance();
+			}catch(Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+	}
+
+}
@@ -123,7 +123,13 @@ public class FilterCond {
 			res = Filters.gte(field, value);
 			break;
 		case In:
-			res = Filters.in(field, value);
+			if(value instanceof Iterable) {
+				res = Filters.in(field, (Iterable<?>)value);
+			}else if(value instanceof Object[]) {
+				res = Filters.in(field, (Object[])value);
+			}else {
+				res = Filters.in(field, value);
+			}
 			break;
 		case Like:
 			if(value instanceof String) {
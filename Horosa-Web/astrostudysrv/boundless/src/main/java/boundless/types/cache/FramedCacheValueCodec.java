@@ -0,0 +1,267 @@
+package boundless.types.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import boundless.io.FileUtility;
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
+import boundless.utility.JsonUtility;
+import boundless.utility.StringUtility;
+
+/**
+ * 内置的缓存值编解码器。
+ * 短字符串与数值仍写成utf-8文本，与旧条目相同，redis的INCRBY等命令照常可用；
+ * 长字符串、Map/List等对象与byte[]写成帧：FrameMagic + 版本 + 类型 + 标志 [+ 字典校验和(int)] [+ 原始长度(int)] + 数据。
+ * 对象按json直接写成字节，读出时还原为Map/List，调用方无需再解析；
+ * 数据达到阈值时用raw deflate压缩，可配置预置字典，图表这类字段名大量重复的数据压缩率更高
+ */
+public class FramedCacheValueCodec implements CacheValueCodec {
+	public static final String Name = "framed";
+
+	static final byte Version = 1;
+	static final byte TypeString = 1;
+	static final byte TypeJson = 2;
+	static final byte TypeBytes = 3;
+	static final byte FlagDeflate = 1;
+	static final byte FlagDict = 2;
+
+	private static volatile FramedCacheValueCodec defaultCodec = null;
+
+	private final int threshold;
+	private final byte[] dictionary;
+	private final int dictId;
+	private final ThreadLocal<Deflater> deflaters;
+	private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(()->new Inflater(true));
+
+	/**
+	 * @param threshold 达到此字节数才压缩，也是字符串写成帧的最小长度
+	 * @param level deflate压缩级别
+	 * @param dictionary 预置字典，可为null；deflate只用到最后32K
+	 */
+	public FramedCacheValueCodec(int threshold, int level, byte[] dictionary) {
+		this.threshold = threshold;
+		this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary;
+		if(this.dictionary != null) {
+			Adler32 adler = new Adler32();
+			adler.update(this.dictionary);
+			this.dictId = (int) adler.getValue();
+		}else {
+			this.dictId = 0;
+		}
+		this.deflaters = ThreadLocal.withInitial(()->new Deflater(level, true));
+	}
+
+	/**
+	 * 按cache.codec.*参数创建的共用实例
+	 */
+	public static FramedCacheValueCodec getDefault() {
+		if(defaultCodec == null) {
+			synchronized(FramedCacheValueCodec.class) {
+				if(defaultCodec == null) {
+					int threshold = PropertyPlaceholder.getPropertyAsInt("cache.codec.threshold", 512);
+					int level = PropertyPlaceholder.getPropertyAsInt("cache.codec.level", Deflater.BEST_SPEED);
+					String dictpath = PropertyPlaceholder.getProperty("cache.codec.dictionary", "");
+					defaultCodec = new FramedCacheValueCodec(threshold, level, loadDictionary(dictpath));
+				}
+			}
+		}
+		return defaultCodec;
+	}
+
+	private static byte[] loadDictionary(String path) {
+		if(StringUtility.isNullOrEmpty(path)) {
+			return null;
+		}
+		try {
+			return FileUtility.getBytesFromPath(path);
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e, "load cache codec dictionary " + path);
+			return null;
+		}
+	}
+
+	@Override
+	public String name() {
+		return Name;
+	}
+
+	@Override
+	public byte[] encode(Object value) {
+		if(value == null) {
+			return null;
+		}
+		if(value instanceof byte[]) {
+			return frame(TypeBytes, (byte[]) value, ((byte[]) value).length);
+		}
+		if(value instanceof String) {
+			String str = (String) value;
+			byte[] raw = str.getBytes(StandardCharsets.UTF_8);
+			if(raw.length < this.threshold) {
+				return raw;
+			}
+			return frame(TypeString, raw, raw.length);
+		}
+		if(value instanceof Number || value instanceof Boolean || value instanceof Character) {
+			return value.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		ExposedOutputStream out = new ExposedOutputStream(256);
+		JsonUtility.encode(value, out);
+		return frame(TypeJson, out.buffer(), out.size());
+	}
+
+	@Override
+	public Object decode(byte[] data) {
+		if(data == null) {
+			return null;
+		}
+		if(!CacheValueCodec.isFrame(data)) {
+			return new String(data, StandardCharsets.UTF_8);
+		}
+		if(data.length < 4 || data[1] != Version) {
+			throw new IllegalStateException("unsupported cache frame version: " + data[1]);
+		}
+		byte type = data[2];
+		byte flags = data[3];
+		int pos = 4;
+		if((flags & FlagDict) != 0) {
+			int id = readInt(data, pos);
+			pos += 4;
+			if(this.dictionary == null || id != this.dictId) {
+				throw new IllegalStateException("cache frame compressed with unknown dictionary: " + id);
+			}
+		}
+		byte[] payload;
+		int offset;
+		int length;
+		if((flags & FlagDeflate) != 0) {
+			int rawlen = readInt(data, pos);
+			pos += 4;
+			payload = inflate(data, pos, data.length - pos, rawlen, (flags & FlagDict) != 0);
+			offset = 0;
+			length = rawlen;
+		}else {
+			payload = data;
+			offset = pos;
+			length = data.length - pos;
+		}
+		switch(type) {
+		case TypeString:
+			return new String(payload, offset, length, StandardCharsets.UTF_8);
+		case TypeBytes:
+			if(offset == 0 && length == payload.length) {
+				return payload;
+			}
+			byte[] bytes = new byte[length];
+			System.arraycopy(payload, offset, bytes, 0, length);
+			return bytes;
+		case TypeJson:
+			return JsonUtility.decode(new ByteArrayInputStream(payload, offset, length), Object.class);
+		default:
+			throw new IllegalStateException("unknown cache frame type: " + type);
+		}
+	}
+
+	private byte[] frame(byte type, byte[] raw, int len) {
+		byte flags = 0;
+		byte[] body = raw;
+		int bodylen = len;
+		if(len >= this.threshold) {
+			Deflater deflater = this.deflaters.get();
+			deflater.reset();
+			if(this.dictionary != null) {
+				deflater.setDictionary(this.dictionary);
+			}
+			deflater.setInput(raw, 0, len);
+			deflater.finish();
+			byte[] buf = new byte[len];
+			int n = 0;
+			while(!deflater.finished() && n < buf.length) {
+				n += deflater.deflate(buf, n, buf.length - n);
+			}
+			if(deflater.finished() && n + 4 < len) {
+				flags |= FlagDeflate;
+				if(this.dictionary != null) {
+					flags |= FlagDict;
+				}
+				body = buf;
+				bodylen = n;
+			}
+		}
+
+		int header = 4 + ((flags & FlagDict) != 0 ? 4 : 0) + ((flags & FlagDeflate) != 0 ? 4 : 0);
+		byte[] res = new byte[header + bodylen];
+		res[0] = FrameMagic;
+		res[1] = Version;
+		res[2] = type;
+		res[3] = flags;
+		int pos = 4;
+		if((flags & FlagDict) != 0) {
+			writeInt(res, pos, this.dictId);
+			pos += 4;
+		}
+		if((flags & FlagDeflate) != 0) {
+			writeInt(res, pos, len);
+			pos += 4;
+		}
+		System.arraycopy(body, 0, res, pos, bodylen);
+		return res;
+	}
+
+	private byte[] inflate(byte[] data, int offset, int length, int rawlen, boolean dict) {
+		Inflater inflater = this.inflaters.get();
+		inflater.reset();
+		if(dict) {
+			inflater.setDictionary(this.dictionary);
+		}
+		inflater.setInput(data, offset, length);
+		byte[] raw = new byte[rawlen];
+		int n = 0;
+		try {
+			while(n < rawlen) {
+				int cnt = inflater.inflate(raw, n, rawlen - n);
+				if(cnt == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				n += cnt;
+			}
+		}catch(DataFormatException e) {
+			throw new IllegalStateException(e);
+		}
+		if(n != rawlen) {
+			throw new IllegalStateException("cache frame truncated: " + n + "/" + rawlen);
+		}
+		return raw;
+	}
+
+	private static void writeInt(byte[] buf, int pos, int v) {
+		buf[pos] = (byte) (v >>> 24);
+		buf[pos + 1] = (byte) (v >>> 16);
+		buf[pos + 2] = (byte) (v >>> 8);
+		buf[pos + 3] = (byte) v;
+	}
+
+	private static int readInt(byte[] buf, int pos) {
+		return ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8) | (buf[pos + 3] & 0xFF);
+	}
+
+	/**
+	 * 直接交出内部缓冲，省去toByteArray的一次复制
+	 */
+	private static class ExposedOutputStream extends ByteArrayOutputStream {
+		ExposedOutputStream(int size) {
+			super(size);
+		}
+
+		byte[] buffer() {
+			return this.buf;
+		}
+	}
+
+}
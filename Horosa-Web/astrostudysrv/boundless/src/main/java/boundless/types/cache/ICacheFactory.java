@@ -10,6 +10,7 @@ public interface ICacheFactory {
 	default public Boolean needMemCache(){ return null; }
 	default public Boolean needCompress(){ return null; }
 	default public Boolean needHystrix(){ return null; }
+	default public String valueCodec(){ return null; }
 	default public void reconnect(){}
 	default public String factoryName(){ return this.toString(); }
 	default public void factoryName(String name){}
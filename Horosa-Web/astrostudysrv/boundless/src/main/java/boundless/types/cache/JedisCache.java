@@ -1,12 +1,13 @@
 package boundless.types.cache;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.LongConsumer;
 
 import redis.clients.jedis.Jedis;
-import boundless.log.AppLoggers;
-import boundless.log.QueueLog;
+import redis.clients.jedis.util.SafeEncoder;
 import boundless.types.ICache;
 
 public class JedisCache implements ICache {
@@ -16,31 +17,76 @@ public class JedisCache implements ICache {
 		this.redis = redis;
 	}
 
+	/**
+	 * 值为byte[]（CacheValueCodec编成的帧）时按二进制写入，其余按字符串
+	 */
 	@Override
 	public void put(String key, Object value) {		
+		if(value instanceof byte[]){
+			this.redis.set(SafeEncoder.encode(key), (byte[])value);
+			return;
+		}
 		this.redis.set(key, value.toString());
 	}
 
 	@Override
 	public void put(String key, Object value, int timeToIdleSeconds, int timeToLiveSeconds) {
+		if(value instanceof byte[]){
+			this.redis.setex(SafeEncoder.encode(key), (long)timeToLiveSeconds, (byte[])value);
+			return;
+		}
 		this.redis.setex(key, (long)timeToLiveSeconds, value.toString());
 	}
 
 	@Override
 	public Object get(String key) {
-		return this.redis.get(key);
+		return fromRaw(this.redis.get(SafeEncoder.encode(key)));
+	}
+
+	@Override
+	public List<Object> getAll(List<String> keys) {
+		List<Object> res = new ArrayList<Object>(keys.size());
+		if(keys.isEmpty()){
+			return res;
+		}
+		for(byte[] raw : this.redis.mget(toRaw(keys))){
+			res.add(fromRaw(raw));
+		}
+		return res;
 	}
 
 	@Override
 	public Object getHash(String map, String key) {
-		return this.redis.hget(map, key);
+		return fromRaw(this.redis.hget(SafeEncoder.encode(map), SafeEncoder.encode(key)));
 	}
 	
 	@Override
 	public void putHash(String map, String key, Object value){
+		if(value instanceof byte[]){
+			this.redis.hset(SafeEncoder.encode(map), SafeEncoder.encode(key), (byte[])value);
+			return;
+		}
 		this.redis.hset(map, key, value.toString());
 	}
 
+	/**
+	 * 帧原样返回由RemoteCache解码，其余按utf-8字符串返回，与按字符串读取的结果相同
+	 */
+	static Object fromRaw(byte[] raw){
+		if(raw == null || CacheValueCodec.isFrame(raw)){
+			return raw;
+		}
+		return SafeEncoder.encode(raw);
+	}
+
+	static byte[][] toRaw(List<String> keys){
+		byte[][] raw = new byte[keys.size()][];
+		for(int i=0; i<raw.length; i++){
+			raw[i] = SafeEncoder.encode(keys.get(i));
+		}
+		return raw;
+	}
+
 	@Override
 	public boolean containsKey(String key) {
 		return this.redis.exists(key);
@@ -146,8 +192,12 @@ public class JedisCache implements ICache {
 	
 	@Override
 	public long countKey(String key){
-		int sz = this.redis.keys(key).size();
-		return sz;
+		return RedisKeyScanner.count(this.redis, key);
+	}
+
+	@Override
+	public Map<String, Object> getMany(String partKey){
+		return RedisKeyScanner.getMany(this.redis, partKey);
 	}
 	
 	@Override
@@ -173,17 +223,12 @@ public class JedisCache implements ICache {
 
 	@Override
 	public long removeMany(String partKey) {
-		Set<String> keys = this.redis.keys(partKey);
-		long cnt = 0;
-		for(String key : keys) {
-			try {
-				cnt += this.redis.del(key);
-			}catch(Exception e) {
-				QueueLog.error(AppLoggers.ErrorLogger, e.getMessage());
-			}
-		}
-		
-		return cnt;
+		return RedisKeyScanner.remove(this.redis, partKey);
+	}
+
+	@Override
+	public long removeMany(String partKey, LongConsumer progress) {
+		return RedisKeyScanner.remove(this.redis, partKey, progress);
 	}
 	
 }
@@ -1,19 +1,19 @@
 package boundless.types.cache;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.AtomicMoveNotSupportedException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import boundless.log.AppLoggers;
@@ -21,86 +21,125 @@ import boundless.log.QueueLog;
 import boundless.types.ICache;
 import boundless.types.cache.FilterCond.CondOperator;
 import boundless.types.cache.SortCond.SortType;
+import boundless.utility.CalculatePool;
 import boundless.utility.ConvertUtility;
 import boundless.utility.JsonUtility;
 import boundless.utility.StringUtility;
 
+/**
+ * 本地文档缓存，mongo不可用时作为MongoCacheFactory的替代。
+ * 变更以单文档为单位追加到日志，由LocalDocumentJournal在后台压实为快照；
+ * putAll/setMaps/addAll在同一次持锁内写入多个文档，日志只在最后flush一次。
+ * documents中的文档是深度只读的快照，写操作在锁内复制并替换为新版本，
+ * 读操作不加锁，直接读取当前版本；返回给调用方的默认是可修改的结构化副本，
+ * 只读场景可用getMapView/findValuesView免去复制，带Projection的查询只复制保留的字段。
+ * createIndex建立内存二级索引，查询时选取候选集最小的已索引条件，
+ * 排序字段有索引且有limit时按索引顺序遍历，取够即停。
+ */
 public class LocalDocumentCache implements ICache {
+	private static final int SortScanFactor = 8;
+	private static final long ExpireSweepIntervalMs = 60000;
+	@SuppressWarnings("rawtypes")
+	private static final Class<? extends Map> FrozenMapClass = Collections.unmodifiableMap(new LinkedHashMap<String, Object>()).getClass();
+	@SuppressWarnings("rawtypes")
+	private static final Class<? extends List> FrozenListClass = Collections.unmodifiableList(new ArrayList<Object>()).getClass();
 
 	private final String cacheName;
 	private final String keyField;
 	private final String valueField;
-	private final Path storeFile;
+	private final LocalDocumentJournal journal;
 	private final Map<String, Map<String, Object>> documents = new ConcurrentHashMap<String, Map<String, Object>>();
-	private final Object lock = new Object();
+	private final Map<String, LocalDocumentIndex> indexes = new ConcurrentHashMap<String, LocalDocumentIndex>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private volatile long lastExpireSweep = 0;
 
 	public LocalDocumentCache(String cacheName, String keyField, String valueField, Path storeFile) {
 		this.cacheName = StringUtility.isNullOrEmpty(cacheName) ? "localcache" : cacheName;
 		this.keyField = StringUtility.isNullOrEmpty(keyField) ? "_id" : keyField;
 		this.valueField = StringUtility.isNullOrEmpty(valueField) ? "v" : valueField;
-		this.storeFile = storeFile;
+		this.journal = new LocalDocumentJournal(storeFile, this.cacheName, this.keyField, this.valueField);
 		load();
 	}
 
 	@Override
 	public void put(String key, Object value) {
-		synchronized (lock) {
-			Map<String, Object> doc = getExistingOrNew(normalizeKey(key));
-			doc.put(this.keyField, key);
-			doc.put(this.valueField, deepCopyValue(value));
-			doc.put(MongoCache.ExpiresField, 0);
-			doc.remove(MongoCache.TimeField);
-			saveLocked();
+		lock.lock();
+		try {
+			putValueLocked(key, value);
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 一次持锁写入多个键值，日志在全部写完后一次flush
+	 */
+	@Override
+	public void putAll(Map<String, Object> values) {
+		lock.lock();
+		journal.beginBatch();
+		try {
+			for(Map.Entry<String, Object> entry : values.entrySet()) {
+				putValueLocked(entry.getKey(), entry.getValue());
+			}
+		}finally {
+			journal.endBatch();
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void put(String key, Object value, int timeToIdleSeconds, int timeToLiveSeconds) {
-		synchronized (lock) {
-			Map<String, Object> doc = getExistingOrNew(normalizeKey(key));
+		lock.lock();
+		try {
+			String docKey = normalizeKey(key);
+			Map<String, Object> doc = copyOfExisting(docKey);
 			doc.put(this.keyField, key);
 			doc.put(this.valueField, deepCopyValue(value));
 			doc.put(MongoCache.ExpiresField, timeToLiveSeconds);
 			doc.put(MongoCache.TimeField, System.currentTimeMillis());
-			saveLocked();
+			putLocked(docKey, doc);
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public Object get(String key) {
-		synchronized (lock) {
-			Map<String, Object> doc = getLiveDocLocked(normalizeKey(key));
-			if(doc == null) {
-				return null;
-			}
-			return deepCopyValue(doc.get(this.valueField));
+		Map<String, Object> doc = getLiveDoc(normalizeKey(key));
+		if(doc == null) {
+			return null;
 		}
+		return thawValue(doc.get(this.valueField));
 	}
 
 	@Override
 	public boolean containsKey(String key) {
-		synchronized (lock) {
-			return getLiveDocLocked(normalizeKey(key)) != null;
-		}
+		return getLiveDoc(normalizeKey(key)) != null;
 	}
 
 	@Override
 	public long remove(String key) {
-		synchronized (lock) {
-			Map<String, Object> removed = documents.remove(normalizeKey(key));
-			if(removed != null) {
-				saveLocked();
-				return 1;
-			}
-			return 0;
+		lock.lock();
+		try {
+			return removeLocked(normalizeKey(key)) ? 1 : 0;
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void clear() {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			documents.clear();
-			saveLocked();
+			for(LocalDocumentIndex index : indexes.values()) {
+				index.clear();
+			}
+			journal.appendClear();
+			compactIfNeededLocked();
+		}finally {
+			lock.unlock();
 		}
 	}
 
@@ -111,51 +150,46 @@ public class LocalDocumentCache implements ICache {
 
 	@Override
 	public long remove(String field, Object value) {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			long removed = 0;
 			List<String> keys = new ArrayList<String>(documents.keySet());
 			for(String key : keys) {
-				Map<String, Object> doc = getLiveDocLocked(key);
+				Map<String, Object> doc = getLiveDoc(key);
 				if(doc == null) {
 					continue;
 				}
 				if(valuesEqual(doc.get(field), value)) {
-					documents.remove(key);
+					removeLocked(key);
 					removed++;
 				}
 			}
-			if(removed > 0) {
-				saveLocked();
-			}
 			return removed;
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public long remove(FilterCond... conds) {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			long removed = 0;
-			List<String> keys = new ArrayList<String>(documents.keySet());
-			for(String key : keys) {
-				Map<String, Object> doc = getLiveDocLocked(key);
-				if(doc == null) {
-					continue;
-				}
-				if(matchesAll(doc, conds)) {
-					documents.remove(key);
+			for(Map<String, Object> doc : matchDocs(-1, null, conds)) {
+				if(removeLocked(normalizeKey(doc.get(this.keyField)))) {
 					removed++;
 				}
 			}
-			if(removed > 0) {
-				saveLocked();
-			}
 			return removed;
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public long removeMany(String partKey) {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			String regex = wildcardToRegex(partKey);
 			Pattern pattern = Pattern.compile(regex);
 			long removed = 0;
@@ -168,20 +202,20 @@ public class LocalDocumentCache implements ICache {
 				Object fieldVal = doc.get(this.keyField);
 				String text = fieldVal == null ? "" : fieldVal.toString();
 				if(pattern.matcher(text).find()) {
-					documents.remove(key);
+					removeLocked(key);
 					removed++;
 				}
 			}
-			if(removed > 0) {
-				saveLocked();
-			}
 			return removed;
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public long removeAllByExpired(int n) {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			long removed = 0;
 			List<String> keys = new ArrayList<String>(documents.keySet());
 			for(String key : keys) {
@@ -192,14 +226,13 @@ public class LocalDocumentCache implements ICache {
 				Object exp = doc.get(MongoCache.ExpiresField);
 				int expires = ConvertUtility.getValueAsInt(exp, 0);
 				if(expires > n) {
-					documents.remove(key);
+					removeLocked(key);
 					removed++;
 				}
 			}
-			if(removed > 0) {
-				saveLocked();
-			}
 			return removed;
+		}finally {
+			lock.unlock();
 		}
 	}
 
@@ -225,48 +258,57 @@ public class LocalDocumentCache implements ICache {
 
 	@Override
 	public void putFieldValue(Object key, String field, Object value) {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			String docKey = normalizeKey(key);
-			Map<String, Object> doc = getExistingOrNew(docKey);
+			Map<String, Object> doc = copyOfExisting(docKey);
 			doc.put(this.keyField, key);
 			doc.put(field, deepCopyValue(value));
-			saveLocked();
+			putLocked(docKey, doc);
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public long countValues(FilterCond... conds) {
-		synchronized (lock) {
-			return collectLocked(-1, null, conds).size();
-		}
+		return matchDocs(-1, null, conds).size();
 	}
 
 	@Override
 	public List<Map<String, Object>> findValues(FilterCond... conds) {
-		synchronized (lock) {
-			return collectLocked(-1, null, conds);
-		}
+		return collectDocs(-1, null, conds);
 	}
 
 	@Override
 	public List<Map<String, Object>> findValues(int limit, FilterCond... conds) {
-		synchronized (lock) {
-			return collectLocked(limit, null, conds);
-		}
+		return collectDocs(limit, null, conds);
 	}
 
 	@Override
 	public List<Map<String, Object>> findValues(SortCond sort, FilterCond... conds) {
-		synchronized (lock) {
-			return collectLocked(-1, sort, conds);
-		}
+		return collectDocs(-1, sort, conds);
 	}
 
 	@Override
 	public List<Map<String, Object>> findValues(int limit, SortCond sort, FilterCond... conds) {
-		synchronized (lock) {
-			return collectLocked(limit, sort, conds);
+		return collectDocs(limit, sort, conds);
+	}
+
+	/**
+	 * 只复制投影保留的字段，被去掉的字段不做深度复制
+	 */
+	@Override
+	public List<Map<String, Object>> findValues(int limit, SortCond sort, Projection projection, FilterCond... conds) {
+		if(projection == null) {
+			return collectDocs(limit, sort, conds);
+		}
+		List<Map<String, Object>> matched = matchDocs(limit, sort, conds);
+		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>(matched.size());
+		for(Map<String, Object> doc : matched) {
+			list.add(thawMap(doc, projection));
 		}
+		return list;
 	}
 
 	@Override
@@ -274,25 +316,61 @@ public class LocalDocumentCache implements ICache {
 		setMap(resolveMapKey(map), map);
 	}
 
+	@Override
+	public void addAll(List<Map<String, Object>> maps) {
+		lock.lock();
+		journal.beginBatch();
+		try {
+			for(Map<String, Object> map : maps) {
+				if(map == null || map.isEmpty()) {
+					continue;
+				}
+				setMapLocked(resolveMapKey(map), map);
+			}
+		}finally {
+			journal.endBatch();
+			lock.unlock();
+		}
+	}
+
 	@Override
 	public void add(Map<String, Object> map, int timeoutInSec) {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			Object key = resolveMapKey(map);
 			Map<String, Object> doc = copyMap(map);
 			doc.put(this.keyField, key);
 			doc.put(MongoCache.ExpiresField, timeoutInSec);
 			doc.put(MongoCache.TimeField, System.currentTimeMillis());
-			documents.put(normalizeKey(key), doc);
-			saveLocked();
+			putLocked(normalizeKey(key), doc);
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public Map<String, Object> getMap(Object key) {
-		synchronized (lock) {
-			Map<String, Object> doc = getLiveDocLocked(normalizeKey(key));
-			return doc == null ? null : copyMap(doc);
+		Map<String, Object> doc = getLiveDoc(normalizeKey(key));
+		return doc == null ? null : thawMap(doc);
+	}
+
+	@Override
+	public Map<String, Object> getMap(Object key, Projection projection) {
+		Map<String, Object> doc = getLiveDoc(normalizeKey(key));
+		if(doc == null) {
+			return null;
 		}
+		return projection == null ? thawMap(doc) : thawMap(doc, projection);
+	}
+
+	@Override
+	public Map<String, Object> getMapView(Object key) {
+		return getLiveDoc(normalizeKey(key));
+	}
+
+	@Override
+	public List<Map<String, Object>> findValuesView(int limit, SortCond sort, FilterCond... conds) {
+		return Collections.unmodifiableList(matchDocs(limit, sort, conds));
 	}
 
 	@Override
@@ -302,22 +380,35 @@ public class LocalDocumentCache implements ICache {
 
 	@Override
 	public void setMap(Object key, Map<String, Object> map) {
-		synchronized (lock) {
-			Map<String, Object> doc = copyMap(map);
-			doc.remove("_id");
-			if(!doc.containsKey(this.keyField)) {
-				doc.put(this.keyField, key);
+		lock.lock();
+		try {
+			setMapLocked(key, map);
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void setMaps(Map<Object, Map<String, Object>> maps) {
+		lock.lock();
+		journal.beginBatch();
+		try {
+			for(Map.Entry<Object, Map<String, Object>> entry : maps.entrySet()) {
+				if(entry.getValue() == null) {
+					continue;
+				}
+				setMapLocked(entry.getKey(), entry.getValue());
 			}
-			doc.put(MongoCache.ExpiresField, 0);
-			doc.remove(MongoCache.TimeField);
-			documents.put(normalizeKey(doc.get(this.keyField)), doc);
-			saveLocked();
+		}finally {
+			journal.endBatch();
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void setMap(Object key, Map<String, Object> map, int timeoutInSec) {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			Map<String, Object> doc = copyMap(map);
 			doc.remove("_id");
 			if(!doc.containsKey(this.keyField)) {
@@ -325,13 +416,30 @@ public class LocalDocumentCache implements ICache {
 			}
 			doc.put(MongoCache.ExpiresField, timeoutInSec);
 			doc.put(MongoCache.TimeField, System.currentTimeMillis());
-			documents.put(normalizeKey(doc.get(this.keyField)), doc);
-			saveLocked();
+			putLocked(normalizeKey(doc.get(this.keyField)), doc);
+		}finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public void createIndex(String fld, boolean desc) {
+		if(StringUtility.isNullOrEmpty(fld) || fld.equals(this.keyField)) {
+			return;
+		}
+		lock.lock();
+		try {
+			if(indexes.containsKey(fld)) {
+				return;
+			}
+			LocalDocumentIndex index = new LocalDocumentIndex(fld);
+			for(Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+				index.add(entry.getKey(), entry.getValue());
+			}
+			indexes.put(fld, index);
+		}finally {
+			lock.unlock();
+		}
 	}
 
 	private Object resolveMapKey(Map<String, Object> map) {
@@ -341,21 +449,166 @@ public class LocalDocumentCache implements ICache {
 		return UUID.randomUUID().toString();
 	}
 
-	private List<Map<String, Object>> collectLocked(int limit, SortCond sort, FilterCond... conds) {
-		cleanupExpiredLocked();
-		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
-		for(Map<String, Object> doc : documents.values()) {
-			if(matchesAll(doc, conds)) {
-				list.add(copyMap(doc));
+	private List<Map<String, Object>> collectDocs(int limit, SortCond sort, FilterCond... conds) {
+		List<Map<String, Object>> matched = matchDocs(limit, sort, conds);
+		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>(matched.size());
+		for(Map<String, Object> doc : matched) {
+			list.add(thawMap(doc));
+		}
+		return list;
+	}
+
+	/**
+	 * 查询满足条件的文档，返回的是documents中的只读快照，无需持锁
+	 */
+	private List<Map<String, Object>> matchDocs(int limit, SortCond sort, FilterCond... conds) {
+		sweepExpiredIfDue();
+		List<Map<String, Object>> matched = new ArrayList<Map<String, Object>>();
+		List<Map<String, Object>> expired = new ArrayList<Map<String, Object>>();
+		IndexPlan plan = planIndex(conds);
+		LocalDocumentIndex sortIndex = sortIndexFor(sort);
+		if(sortIndex != null && limit > 0 && (plan == null || plan.estimate > limit * SortScanFactor)) {
+			sortIndex.scan(sort.getSort() == SortType.Desc, rangeCondOn(sortIndex.getField(), conds), (key)->{
+				Map<String, Object> doc = documents.get(key);
+				if(doc != null && isExpired(doc)) {
+					expired.add(doc);
+				}else if(doc != null && matchesAll(doc, conds)) {
+					matched.add(doc);
+				}
+				return matched.size() < limit;
+			});
+		}else {
+			Collection<Map<String, Object>> source = documents.values();
+			if(plan != null) {
+				source = new ArrayList<Map<String, Object>>(plan.keys.size());
+				for(String key : plan.keys) {
+					Map<String, Object> doc = documents.get(key);
+					if(doc != null) {
+						source.add(doc);
+					}
+				}
 			}
+			for(Map<String, Object> doc : source) {
+				if(isExpired(doc)) {
+					expired.add(doc);
+				}else if(matchesAll(doc, conds)) {
+					matched.add(doc);
+				}
+			}
+			if(sort != null) {
+				matched.sort(buildComparator(sort));
+			}
+			if(limit > 0 && matched.size() > limit) {
+				matched.subList(limit, matched.size()).clear();
+			}
+		}
+		for(Map<String, Object> doc : expired) {
+			removeExpired(normalizeKey(doc.get(this.keyField)), doc);
+		}
+		return matched;
+	}
+
+	private static class IndexPlan {
+		final Collection<String> keys;
+		final int estimate;
+
+		IndexPlan(Collection<String> keys) {
+			this.keys = keys;
+			this.estimate = keys.size();
 		}
-		if(sort != null) {
-			list.sort(buildComparator(sort));
+	}
+
+	/**
+	 * 在顶层条件(彼此为与关系)中选取候选集最小的一个
+	 * @return 没有可用索引时返回null，表示全表扫描
+	 */
+	private IndexPlan planIndex(FilterCond... conds) {
+		if(conds == null) {
+			return null;
 		}
-		if(limit > 0 && list.size() > limit) {
-			return new ArrayList<Map<String, Object>>(list.subList(0, limit));
+		IndexPlan best = null;
+		for(FilterCond cond : conds) {
+			IndexPlan plan = planCond(cond);
+			if(plan != null && (best == null || plan.estimate < best.estimate)) {
+				best = plan;
+			}
 		}
-		return list;
+		return best;
+	}
+
+	private IndexPlan planCond(FilterCond cond) {
+		if(cond == null) {
+			return null;
+		}
+		if(cond instanceof FilterOrCond) {
+			Set<String> union = new HashSet<String>();
+			for(FilterCond child : ((FilterOrCond)cond).getConds()) {
+				IndexPlan plan = planCond(child);
+				if(plan == null) {
+					return null;
+				}
+				union.addAll(plan.keys);
+			}
+			return new IndexPlan(union);
+		}
+		if(cond instanceof FilterAndCond) {
+			return planIndex(((FilterAndCond)cond).getConds());
+		}
+		String field = cond.getField();
+		Object value = cond.getValue();
+		CondOperator op = cond.getOperator();
+		if(op == CondOperator.Eq && this.keyField.equals(field) && value instanceof String) {
+			String key = (String) value;
+			return new IndexPlan(documents.containsKey(key) ? Collections.singletonList(key) : Collections.emptyList());
+		}
+		LocalDocumentIndex index = field == null ? null : indexes.get(field);
+		if(index == null) {
+			return null;
+		}
+		if(op == CondOperator.Eq) {
+			return new IndexPlan(new ArrayList<String>(index.lookup(value)));
+		}
+		if(op == CondOperator.In) {
+			Set<String> union = new HashSet<String>();
+			if(value instanceof Collection<?>) {
+				for(Object item : (Collection<?>) value) {
+					union.addAll(index.lookup(item));
+				}
+			}else if(value != null && value.getClass().isArray()) {
+				for(Object item : (Object[]) value) {
+					union.addAll(index.lookup(item));
+				}
+			}else {
+				union.addAll(index.lookup(value));
+			}
+			return new IndexPlan(union);
+		}
+		Collection<String> keys = index.range(op, value);
+		return keys == null ? null : new IndexPlan(keys);
+	}
+
+	private LocalDocumentIndex sortIndexFor(SortCond sort) {
+		if(sort == null || sort.getField() == null) {
+			return null;
+		}
+		SortCond[] others = sort.getOthers();
+		if(others != null && others.length > 0) {
+			return null;
+		}
+		return indexes.get(sort.getField());
+	}
+
+	private FilterCond rangeCondOn(String field, FilterCond... conds) {
+		if(conds == null) {
+			return null;
+		}
+		for(FilterCond cond : conds) {
+			if(cond != null && !(cond instanceof FilterOrCond) && !(cond instanceof FilterAndCond)
+					&& field.equals(cond.getField()) && LocalDocumentIndex.isRangeOp(cond.getOperator())) {
+				return cond;
+			}
+		}
+		return null;
 	}
 
 	private Comparator<Map<String, Object>> buildComparator(SortCond sort) {
@@ -485,14 +738,7 @@ public class LocalDocumentCache implements ICache {
 	}
 
 	private Double toNumber(Object value) {
-		if(value instanceof Number) {
-			return ((Number) value).doubleValue();
-		}
-		try {
-			return Double.parseDouble(value.toString());
-		}catch(Exception e) {
-			return null;
-		}
+		return LocalDocumentIndex.toNumber(value);
 	}
 
 	private boolean valuesEqual(Object left, Object right) {
@@ -507,28 +753,121 @@ public class LocalDocumentCache implements ICache {
 		return left.equals(right) || left.toString().equals(right.toString());
 	}
 
-	private Map<String, Object> getExistingOrNew(String key) {
+	private void putValueLocked(String key, Object value) {
+		String docKey = normalizeKey(key);
+		Map<String, Object> doc = copyOfExisting(docKey);
+		doc.put(this.keyField, key);
+		doc.put(this.valueField, deepCopyValue(value));
+		doc.put(MongoCache.ExpiresField, 0);
+		doc.remove(MongoCache.TimeField);
+		putLocked(docKey, doc);
+	}
+
+	private void setMapLocked(Object key, Map<String, Object> map) {
+		Map<String, Object> doc = copyMap(map);
+		doc.remove("_id");
+		if(!doc.containsKey(this.keyField)) {
+			doc.put(this.keyField, key);
+		}
+		doc.put(MongoCache.ExpiresField, 0);
+		doc.remove(MongoCache.TimeField);
+		putLocked(normalizeKey(doc.get(this.keyField)), doc);
+	}
+
+	private Map<String, Object> copyOfExisting(String key) {
 		Map<String, Object> doc = documents.get(key);
 		if(doc == null) {
-			doc = new LinkedHashMap<String, Object>();
-			documents.put(key, doc);
+			return new LinkedHashMap<String, Object>();
 		}
-		return doc;
+		return new LinkedHashMap<String, Object>(doc);
+	}
+
+	private void putLocked(String key, Map<String, Object> map) {
+		Map<String, Object> doc = freezeMap(map);
+		Map<String, Object> old = documents.put(key, doc);
+		for(LocalDocumentIndex index : indexes.values()) {
+			if(old != null) {
+				index.remove(key, old);
+			}
+			index.add(key, doc);
+		}
+		journal.appendPut(key, doc);
+		compactIfNeededLocked();
+	}
+
+	private boolean removeLocked(String key) {
+		Map<String, Object> old = documents.remove(key);
+		if(old == null) {
+			return false;
+		}
+		for(LocalDocumentIndex index : indexes.values()) {
+			index.remove(key, old);
+		}
+		journal.appendRemove(key);
+		compactIfNeededLocked();
+		return true;
 	}
 
-	private Map<String, Object> getLiveDocLocked(String key) {
+	private void compactIfNeededLocked() {
+		if(!journal.needCompact(documents.size())) {
+			return;
+		}
+		long gen = journal.rotate();
+		if(gen < 0) {
+			return;
+		}
+		List<Map<String, Object>> snapshot = new ArrayList<Map<String, Object>>(documents.values());
+		CalculatePool.queueUserWorkItem(()->{
+			journal.writeSnapshot(snapshot, gen);
+		}, (e)->{
+			// 任务被拒绝或丢弃时没有执行，由这里结束压实；执行过的由writeSnapshot自己结束
+			if(e instanceof RejectedExecutionException) {
+				journal.cancelCompact();
+			}
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		});
+	}
+
+	private Map<String, Object> getLiveDoc(String key) {
 		Map<String, Object> doc = documents.get(key);
 		if(doc == null) {
 			return null;
 		}
 		if(isExpired(doc)) {
-			documents.remove(key);
-			saveLocked();
+			removeExpired(key, doc);
 			return null;
 		}
 		return doc;
 	}
 
+	private void removeExpired(String key, Map<String, Object> doc) {
+		lock.lock();
+		try {
+			if(documents.get(key) == doc) {
+				removeLocked(key);
+			}
+		}finally {
+			lock.unlock();
+		}
+	}
+
+	private void sweepExpiredIfDue() {
+		long now = System.currentTimeMillis();
+		if(now - lastExpireSweep < ExpireSweepIntervalMs) {
+			return;
+		}
+		lock.lock();
+		try {
+			if(now - lastExpireSweep < ExpireSweepIntervalMs) {
+				return;
+			}
+			lastExpireSweep = now;
+			cleanupExpiredLocked();
+		}finally {
+			lock.unlock();
+		}
+	}
+
 	private void cleanupExpiredLocked() {
 		List<String> expired = new ArrayList<String>();
 		for(Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
@@ -536,11 +875,8 @@ public class LocalDocumentCache implements ICache {
 				expired.add(entry.getKey());
 			}
 		}
-		if(!expired.isEmpty()) {
-			for(String key : expired) {
-				documents.remove(key);
-			}
-			saveLocked();
+		for(String key : expired) {
+			removeLocked(key);
 		}
 	}
 
@@ -565,7 +901,75 @@ public class LocalDocumentCache implements ICache {
 			return null;
 		}
 		if(value instanceof Map<?, ?> || value instanceof List<?>) {
-			return JsonUtility.decode(JsonUtility.encode(value), Object.class);
+			return freezeValue(JsonUtility.decode(JsonUtility.encode(value), Object.class));
+		}
+		return value;
+	}
+
+	/**
+	 * 把文档转为深度只读的快照，已是只读快照的部分直接复用
+	 */
+	private Map<String, Object> freezeMap(Map<String, Object> map) {
+		if(map.getClass() == FrozenMapClass) {
+			return map;
+		}
+		Map<String, Object> frozen = new LinkedHashMap<String, Object>(map.size() * 4 / 3 + 1);
+		for(Map.Entry<String, Object> entry : map.entrySet()) {
+			frozen.put(entry.getKey(), freezeValue(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(frozen);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object freezeValue(Object value) {
+		if(value instanceof Map<?, ?>) {
+			return freezeMap((Map<String, Object>) value);
+		}
+		if(value instanceof List<?>) {
+			if(value.getClass() == FrozenListClass) {
+				return value;
+			}
+			List<Object> frozen = new ArrayList<Object>(((List<?>) value).size());
+			for(Object item : (List<?>) value) {
+				frozen.add(freezeValue(item));
+			}
+			return Collections.unmodifiableList(frozen);
+		}
+		return value;
+	}
+
+	/**
+	 * 只读快照的可修改副本，快照中只有json类型，按结构复制即为深拷贝
+	 */
+	private Map<String, Object> thawMap(Map<String, Object> map) {
+		Map<String, Object> copy = new LinkedHashMap<String, Object>(map.size() * 4 / 3 + 1);
+		for(Map.Entry<String, Object> entry : map.entrySet()) {
+			copy.put(entry.getKey(), thawValue(entry.getValue()));
+		}
+		return copy;
+	}
+
+	private Map<String, Object> thawMap(Map<String, Object> map, Projection projection) {
+		Map<String, Object> copy = new LinkedHashMap<String, Object>();
+		for(Map.Entry<String, Object> entry : map.entrySet()) {
+			if(projection.keeps(entry.getKey())) {
+				copy.put(entry.getKey(), thawValue(entry.getValue()));
+			}
+		}
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object thawValue(Object value) {
+		if(value instanceof Map<?, ?>) {
+			return thawMap((Map<String, Object>) value);
+		}
+		if(value instanceof List<?>) {
+			List<Object> copy = new ArrayList<Object>(((List<?>) value).size());
+			for(Object item : (List<?>) value) {
+				copy.add(thawValue(item));
+			}
+			return copy;
 		}
 		return value;
 	}
@@ -592,58 +996,18 @@ public class LocalDocumentCache implements ICache {
 	}
 
 	private void load() {
-		synchronized (lock) {
+		lock.lock();
+		try {
 			documents.clear();
-			if(storeFile == null || !Files.exists(storeFile)) {
-				return;
+			long replayed = journal.load(documents);
+			for(Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+				entry.setValue(freezeMap(entry.getValue()));
 			}
-			try {
-				String json = Files.readString(storeFile, StandardCharsets.UTF_8);
-				if(StringUtility.isNullOrEmpty(json)) {
-					return;
-				}
-				Map<String, Object> root = JsonUtility.toDictionary(json);
-				Object docsObj = root.get("docs");
-				if(!(docsObj instanceof List<?>)) {
-					return;
-				}
-				for(Object item : (List<?>) docsObj) {
-					if(!(item instanceof Map<?, ?>)) {
-						continue;
-					}
-					Map<String, Object> doc = copyMap((Map<String, Object>) item);
-					Object key = doc.get(this.keyField);
-					if(key != null) {
-						documents.put(normalizeKey(key), doc);
-					}
-				}
-			}catch(Exception e) {
-				QueueLog.error(AppLoggers.ErrorLogger, e);
+			if(replayed > 0) {
+				compactIfNeededLocked();
 			}
-		}
-	}
-
-	private void saveLocked() {
-		if(storeFile == null) {
-			return;
-		}
-		try {
-			Files.createDirectories(storeFile.getParent());
-			Map<String, Object> root = new LinkedHashMap<String, Object>();
-			root.put("cacheName", this.cacheName);
-			root.put("keyField", this.keyField);
-			root.put("valueField", this.valueField);
-			root.put("docs", new ArrayList<Map<String, Object>>(documents.values()));
-			String json = JsonUtility.encode(root);
-			Path tmp = storeFile.resolveSibling(storeFile.getFileName().toString() + ".tmp");
-			Files.writeString(tmp, json, StandardCharsets.UTF_8);
-			try {
-				Files.move(tmp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-			}catch(AtomicMoveNotSupportedException ex) {
-				Files.move(tmp, storeFile, StandardCopyOption.REPLACE_EXISTING);
-			}
-		}catch(IOException e) {
-			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}finally {
+			lock.unlock();
 		}
 	}
 }
@@ -0,0 +1,197 @@
+package boundless.types.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+import boundless.types.cache.FilterCond.CondOperator;
+
+/**
+ * LocalDocumentCache的单字段二级索引，值到文档key的映射。
+ * 与LocalDocumentCache.valuesEqual/compareValues的语义一致：
+ * 能转为数字的值按数字归一，其余按toString归一，null与缺失字段归为一类。
+ * 索引只用于缩小候选集，候选文档仍须由调用方用完整条件复核。
+ */
+class LocalDocumentIndex {
+	private final String field;
+	private final Set<String> nulls = ConcurrentHashMap.newKeySet();
+	private final ConcurrentSkipListMap<Double, Set<String>> numbers = new ConcurrentSkipListMap<Double, Set<String>>();
+	private final ConcurrentSkipListMap<String, Set<String>> texts = new ConcurrentSkipListMap<String, Set<String>>();
+
+	public LocalDocumentIndex(String field) {
+		this.field = field;
+	}
+
+	public String getField() {
+		return this.field;
+	}
+
+	public void add(String key, Map<String, Object> doc) {
+		Object value = doc.get(this.field);
+		if(value == null) {
+			nulls.add(key);
+			return;
+		}
+		Double num = toNumber(value);
+		if(num != null) {
+			numbers.computeIfAbsent(num, (k)->ConcurrentHashMap.newKeySet()).add(key);
+		}else {
+			texts.computeIfAbsent(value.toString(), (k)->ConcurrentHashMap.newKeySet()).add(key);
+		}
+	}
+
+	public void remove(String key, Map<String, Object> doc) {
+		Object value = doc.get(this.field);
+		if(value == null) {
+			nulls.remove(key);
+			return;
+		}
+		Double num = toNumber(value);
+		if(num != null) {
+			removeFrom(numbers, num, key);
+		}else {
+			removeFrom(texts, value.toString(), key);
+		}
+	}
+
+	public void clear() {
+		nulls.clear();
+		numbers.clear();
+		texts.clear();
+	}
+
+	/**
+	 * 等值查找
+	 * @return 与value相等的文档key，不会为null
+	 */
+	public Set<String> lookup(Object value) {
+		Set<String> set;
+		if(value == null) {
+			set = nulls;
+		}else {
+			Double num = toNumber(value);
+			set = num != null ? numbers.get(num) : texts.get(value.toString());
+		}
+		return set == null ? Collections.emptySet() : set;
+	}
+
+	/**
+	 * 范围查找的候选集，是满足条件文档的超集
+	 * @return 无法利用索引时返回null
+	 */
+	public Collection<String> range(CondOperator op, Object bound) {
+		if(bound == null || !isRangeOp(op)) {
+			return null;
+		}
+		Set<String> keys = ConcurrentHashMap.newKeySet();
+		Double num = toNumber(bound);
+		if(num != null) {
+			addAll(keys, subMap(numbers, op, num));
+			// 数字与非数字文本之间按toString比较，无法利用顺序
+			addAll(keys, texts);
+		}else {
+			addAll(keys, numbers);
+			addAll(keys, subMap(texts, op, bound.toString()));
+		}
+		if(op == CondOperator.Lt || op == CondOperator.Lte) {
+			keys.addAll(nulls);
+		}
+		return keys;
+	}
+
+	/**
+	 * 按索引顺序遍历文档key，升序时null最小，其后依次为数字、文本
+	 * @param bound 同一字段上的范围条件，可为null，用于缩小数字部分的遍历区间
+	 * @param visitor 返回false时停止遍历
+	 */
+	public void scan(boolean desc, FilterCond bound, Predicate<String> visitor) {
+		NavigableMap<Double, Set<String>> numPart = numbers;
+		boolean withNulls = true;
+		if(bound != null && isRangeOp(bound.getOperator()) && bound.getValue() != null) {
+			Double num = toNumber(bound.getValue());
+			if(num != null) {
+				numPart = subMap(numbers, bound.getOperator(), num);
+			}
+			withNulls = bound.getOperator() == CondOperator.Lt || bound.getOperator() == CondOperator.Lte;
+		}
+		if(desc) {
+			if(visitBuckets(texts.descendingMap().values(), visitor)
+					&& visitBuckets(numPart.descendingMap().values(), visitor)
+					&& withNulls) {
+				visit(nulls, visitor);
+			}
+		}else {
+			if((!withNulls || visit(nulls, visitor))
+					&& visitBuckets(numPart.values(), visitor)) {
+				visitBuckets(texts.values(), visitor);
+			}
+		}
+	}
+
+	public static boolean isRangeOp(CondOperator op) {
+		return op == CondOperator.Gt || op == CondOperator.Gte || op == CondOperator.Lt || op == CondOperator.Lte;
+	}
+
+	static Double toNumber(Object value) {
+		if(value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		try {
+			return Double.parseDouble(value.toString());
+		}catch(Exception e) {
+			return null;
+		}
+	}
+
+	private static <K> NavigableMap<K, Set<String>> subMap(ConcurrentSkipListMap<K, Set<String>> map, CondOperator op, K bound) {
+		switch(op) {
+		case Gt:
+			return map.tailMap(bound, false);
+		case Gte:
+			return map.tailMap(bound, true);
+		case Lt:
+			return map.headMap(bound, false);
+		case Lte:
+			return map.headMap(bound, true);
+		default:
+			return map;
+		}
+	}
+
+	private static <K> void removeFrom(ConcurrentSkipListMap<K, Set<String>> map, K value, String key) {
+		map.computeIfPresent(value, (k, set)->{
+			set.remove(key);
+			return set.isEmpty() ? null : set;
+		});
+	}
+
+	private static void addAll(Set<String> keys, Map<?, Set<String>> map) {
+		for(Set<String> set : map.values()) {
+			keys.addAll(set);
+		}
+	}
+
+	private static boolean visitBuckets(Collection<Set<String>> buckets, Predicate<String> visitor) {
+		for(Set<String> set : buckets) {
+			if(!visit(set, visitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean visit(Set<String> set, Predicate<String> visitor) {
+		for(String key : set) {
+			if(!visitor.test(key)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
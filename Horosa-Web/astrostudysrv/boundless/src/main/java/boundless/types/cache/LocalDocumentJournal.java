@@ -0,0 +1,408 @@
+package boundless.types.cache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.utility.ConvertUtility;
+import boundless.utility.JsonUtility;
+import boundless.utility.StringUtility;
+
+/**
+ * LocalDocumentCache的存储引擎：快照文件 + 追加写日志。
+ * 每次变更只把单个文档追加到当前代的日志文件(storeFile.journal.N)，
+ * 日志积累到一定量后滚动到新的一代，并在后台把内存文档压实为快照，
+ * 快照记录它已覆盖到的日志代号，随后删除旧的日志文件。
+ * 启动时先读快照，再按代号顺序重放快照之后的日志。
+ * 每次flush后日志都force落盘，快照落盘后才改名并删除旧日志；
+ * 追加失败时当前日志可能留下残缺的尾行，此后改写新一代日志，并在下次写入时压实，补回没写进日志的变更。
+ * 日志访问由调用方的锁保护，快照写入只由compacting标志保证串行。
+ */
+class LocalDocumentJournal {
+	public static final String OpPut = "put";
+	public static final String OpRemove = "del";
+	public static final String OpClear = "clear";
+
+	private static final String JournalGenField = "journalGen";
+	private static final int CompactMinRecords = 1000;
+
+	private final Path storeFile;
+	private final String cacheName;
+	private final String keyField;
+	private final String valueField;
+	private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+	private FileChannel channel = null;
+	private BufferedWriter writer = null;
+	private long generation = 0;
+	private long records = 0;
+	private int batchDepth = 0;
+	private boolean lostWrites = false;
+
+	public LocalDocumentJournal(Path storeFile, String cacheName, String keyField, String valueField) {
+		this.storeFile = storeFile;
+		this.cacheName = cacheName;
+		this.keyField = keyField;
+		this.valueField = valueField;
+	}
+
+	public boolean isEnabled() {
+		return this.storeFile != null;
+	}
+
+	/**
+	 * 从快照与日志恢复文档
+	 * @param documents 恢复目标
+	 * @return 重放的日志条数
+	 */
+	public long load(Map<String, Map<String, Object>> documents) {
+		if(!isEnabled()) {
+			return 0;
+		}
+		long replayed = 0;
+		long maxGen = 0;
+		// 先列日志再读快照：读取期间若有压实换上新快照并删除旧日志，读到的要么是新快照，
+		// 要么是旧快照加上某个已被删除的日志，后者重来一遍
+		for(int attempt=0; ; attempt++) {
+			Map<Long, Path> journals = listJournals();
+			long snapshotGen = loadSnapshot(documents);
+			replayed = 0;
+			maxGen = snapshotGen;
+			boolean missing = false;
+			for(Map.Entry<Long, Path> entry : journals.entrySet()) {
+				long gen = entry.getKey();
+				maxGen = Math.max(maxGen, gen);
+				if(gen < snapshotGen) {
+					continue;
+				}
+				long n = replay(entry.getValue(), documents);
+				if(n < 0) {
+					missing = true;
+					break;
+				}
+				replayed += n;
+			}
+			if(!missing || attempt >= 3) {
+				break;
+			}
+			documents.clear();
+		}
+		// 不在可能带有残缺尾行的旧日志上继续追加
+		this.generation = maxGen + 1;
+		this.records = replayed;
+		return replayed;
+	}
+
+	public void appendPut(String key, Map<String, Object> doc) {
+		Map<String, Object> rec = new LinkedHashMap<String, Object>();
+		rec.put("op", OpPut);
+		rec.put("k", key);
+		rec.put("doc", doc);
+		append(rec);
+	}
+
+	public void appendRemove(String key) {
+		Map<String, Object> rec = new LinkedHashMap<String, Object>();
+		rec.put("op", OpRemove);
+		rec.put("k", key);
+		append(rec);
+	}
+
+	public void appendClear() {
+		Map<String, Object> rec = new LinkedHashMap<String, Object>();
+		rec.put("op", OpClear);
+		append(rec);
+	}
+
+	/**
+	 * 开始批量追加：endBatch之前的变更只写入缓冲，结束时一次flush，可嵌套
+	 */
+	public void beginBatch() {
+		batchDepth++;
+	}
+
+	public void endBatch() {
+		if(batchDepth > 0 && --batchDepth == 0) {
+			flushWriter();
+		}
+	}
+
+	public boolean needCompact(int docCount) {
+		return isEnabled() && (lostWrites || (records >= CompactMinRecords && records >= docCount)) && !compacting.get();
+	}
+
+	/**
+	 * 滚动到新一代日志，返回的代号之前的变更都应包含在随后写入的快照中
+	 * @return 快照覆盖到的日志代号，已有压实在进行时返回-1
+	 */
+	public long rotate() {
+		if(!isEnabled() || !compacting.compareAndSet(false, true)) {
+			return -1;
+		}
+		closeWriter();
+		this.generation++;
+		this.records = 0;
+		this.lostWrites = false;
+		return this.generation;
+	}
+
+	/**
+	 * rotate()之后快照无法写入（如写入任务未能排队）时调用，结束本次压实；
+	 * 已滚动出的日志保留，由下一次快照一并覆盖删除
+	 */
+	public void cancelCompact() {
+		compacting.set(false);
+	}
+
+	/**
+	 * 写入快照并删除其覆盖的日志，必须在rotate()成功之后调用
+	 * @param docs rotate()时刻的文档集合，调用方保证其中文档不会再被修改
+	 * @param gen rotate()的返回值
+	 */
+	public void writeSnapshot(Collection<Map<String, Object>> docs, long gen) {
+		long st = System.currentTimeMillis();
+		try {
+			Files.createDirectories(storeFile.getParent());
+			Map<String, Object> root = new LinkedHashMap<String, Object>();
+			root.put("cacheName", this.cacheName);
+			root.put("keyField", this.keyField);
+			root.put("valueField", this.valueField);
+			root.put(JournalGenField, gen);
+			root.put("docs", docs);
+			ByteBuffer json = ByteBuffer.wrap(JsonUtility.encode(root).getBytes(StandardCharsets.UTF_8));
+			Path tmp = storeFile.resolveSibling(storeFile.getFileName().toString() + ".tmp");
+			try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while(json.hasRemaining()) {
+					ch.write(json);
+				}
+				ch.force(true);
+			}
+			try {
+				Files.move(tmp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}catch(AtomicMoveNotSupportedException ex) {
+				Files.move(tmp, storeFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+			for(Map.Entry<Long, Path> entry : listJournals().entrySet()) {
+				if(entry.getKey() < gen) {
+					Files.deleteIfExists(entry.getValue());
+				}
+			}
+			QueueLog.debug(AppLoggers.DebugLogger, "local cache {} compacted {} docs at journal gen {} in {} ms",
+					this.cacheName, docs.size(), gen, System.currentTimeMillis() - st);
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}finally {
+			compacting.set(false);
+		}
+	}
+
+	public void close() {
+		closeWriter();
+	}
+
+	private void append(Map<String, Object> rec) {
+		if(!isEnabled()) {
+			return;
+		}
+		try {
+			if(writer == null) {
+				Files.createDirectories(storeFile.getParent());
+				channel = openJournal(journalPath(this.generation));
+				writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+			}
+			writer.write(JsonUtility.encode(rec));
+			writer.write('\n');
+			if(batchDepth == 0) {
+				sync();
+			}
+			records++;
+		}catch(IOException e) {
+			abandonWriter(e);
+		}
+	}
+
+	/**
+	 * 打开追加写的日志文件
+	 */
+	FileChannel openJournal(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private void sync() throws IOException {
+		writer.flush();
+		channel.force(false);
+	}
+
+	private void flushWriter() {
+		if(writer == null) {
+			return;
+		}
+		try {
+			sync();
+		}catch(IOException e) {
+			abandonWriter(e);
+		}
+	}
+
+	private void closeWriter() {
+		if(writer == null) {
+			return;
+		}
+		try {
+			sync();
+		}catch(IOException e) {
+			abandonWriter(e);
+			return;
+		}
+		try {
+			writer.close();
+		}catch(IOException e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+		writer = null;
+		channel = null;
+	}
+
+	/**
+	 * 写入失败后当前日志末尾可能是残缺的行，重放读到那里就停，
+	 * 所以不再往这一代追加，改写下一代，并让下次写入时压实
+	 */
+	private void abandonWriter(IOException e) {
+		QueueLog.error(AppLoggers.ErrorLogger, e);
+		if(channel != null) {
+			try {
+				channel.close();
+			}catch(IOException ex) {
+				QueueLog.error(AppLoggers.ErrorLogger, ex);
+			}
+		}
+		writer = null;
+		channel = null;
+		this.generation++;
+		this.lostWrites = true;
+	}
+
+	private long loadSnapshot(Map<String, Map<String, Object>> documents) {
+		if(!Files.exists(storeFile)) {
+			return 0;
+		}
+		try {
+			String json = Files.readString(storeFile, StandardCharsets.UTF_8);
+			if(StringUtility.isNullOrEmpty(json)) {
+				return 0;
+			}
+			Map<String, Object> root = JsonUtility.toDictionary(json);
+			Object docsObj = root.get("docs");
+			if(docsObj instanceof List<?>) {
+				for(Object item : (List<?>) docsObj) {
+					putDoc(documents, item);
+				}
+			}
+			return ConvertUtility.getValueAsLong(root.get(JournalGenField), 0L);
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+			return 0;
+		}
+	}
+
+	/**
+	 * @return 重放的条数，日志已被删除时返回-1
+	 */
+	private long replay(Path journal, Map<String, Map<String, Object>> documents) {
+		long count = 0;
+		try(BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(StringUtility.isNullOrEmpty(line)) {
+					continue;
+				}
+				Map<String, Object> rec;
+				try {
+					rec = JsonUtility.toDictionary(line);
+				}catch(Exception e) {
+					QueueLog.warn(AppLoggers.WarnLogger, "local cache {} stops replaying torn journal {} after {} records",
+							this.cacheName, journal, count);
+					break;
+				}
+				String op = ConvertUtility.getValueAsString(rec.get("op"));
+				if(OpPut.equals(op)) {
+					putDoc(documents, rec.get("doc"));
+				}else if(OpRemove.equals(op)) {
+					documents.remove(ConvertUtility.getValueAsString(rec.get("k")));
+				}else if(OpClear.equals(op)) {
+					documents.clear();
+				}
+				count++;
+			}
+		}catch(NoSuchFileException e) {
+			return -1;
+		}catch(IOException e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+		return count;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void putDoc(Map<String, Map<String, Object>> documents, Object item) {
+		if(!(item instanceof Map<?, ?>)) {
+			return;
+		}
+		Map<String, Object> doc = (Map<String, Object>) item;
+		Object key = doc.get(this.keyField);
+		if(key != null) {
+			documents.put(key.toString(), doc);
+		}
+	}
+
+	private Path journalPath(long gen) {
+		return storeFile.resolveSibling(journalPrefix() + gen);
+	}
+
+	private String journalPrefix() {
+		return storeFile.getFileName().toString() + ".journal.";
+	}
+
+	private TreeMap<Long, Path> listJournals() {
+		TreeMap<Long, Path> journals = new TreeMap<Long, Path>();
+		Path dir = storeFile.getParent();
+		if(dir == null || !Files.isDirectory(dir)) {
+			return journals;
+		}
+		String prefix = journalPrefix();
+		try(Stream<Path> stream = Files.list(dir)) {
+			stream.forEach((path)->{
+				String name = path.getFileName().toString();
+				if(!name.startsWith(prefix)) {
+					return;
+				}
+				long gen = ConvertUtility.getValueAsLong(name.substring(prefix.length()), -1L);
+				if(gen >= 0) {
+					journals.put(gen, path);
+				}
+			});
+		}catch(IOException e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+		}
+		return journals;
+	}
+
+}
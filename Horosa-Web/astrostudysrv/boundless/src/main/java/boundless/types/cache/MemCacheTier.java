@@ -0,0 +1,472 @@
+package boundless.types.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import boundless.utility.MBeanUtility;
+
+/**
+ * RemoteCache的本地内存层，每个缓存名一个实例。
+ * 采用分段LRU：新条目进入试用段，再次命中后晋升到保护段，
+ * 保护段超出容量时把最久未用的条目降回试用段，总权重超出上限时从试用段尾部淘汰。
+ * 权重按值的估算字节数计，每个条目带有自己的过期时刻与刷新时刻。
+ * 键另外维护一份有序集合，removeMany/getMany/countKey的通配模式按前缀做区间查找。
+ */
+public class MemCacheTier implements MemCacheTierMXBean {
+	private static final double ProtectedRatio = 0.8;
+	private static final int MaxWeightDepth = 8;
+
+	private static long defaultMaxWeight = 64L * 1024 * 1024;
+	private static int defaultTTLSeconds = 24 * 3600;
+	private static int defaultRefreshSeconds = 60;
+	private static Map<String, MemCacheTier> tiers = new ConcurrentHashMap<String, MemCacheTier>();
+
+	public static void setDefaultMaxWeight(long maxWeight){
+		if(maxWeight > 0){
+			defaultMaxWeight = maxWeight;
+		}
+	}
+
+	public static void setDefaultTTLSeconds(int ttl){
+		if(ttl > 0){
+			defaultTTLSeconds = ttl;
+		}
+	}
+
+	public static void setDefaultRefreshSeconds(int refresh){
+		if(refresh > 0){
+			defaultRefreshSeconds = refresh;
+		}
+	}
+
+	public static MemCacheTier of(String cacheName){
+		String name = cacheName == null ? "default" : cacheName;
+		return tiers.computeIfAbsent(name, (k)->{
+			MemCacheTier tier = new MemCacheTier(k, defaultMaxWeight, defaultTTLSeconds, defaultRefreshSeconds);
+			MBeanUtility.registerMBean(tier, "boundless.types.cache:type=MemCacheTier,name=" + k.replaceAll("[,=:*?\"]", "_"));
+			return tier;
+		});
+	}
+
+	public static void clearAll(){
+		for(MemCacheTier tier : tiers.values()){
+			tier.clear();
+		}
+	}
+
+	public static Map<String, Map<String, Object>> stats(){
+		Map<String, Map<String, Object>> res = new HashMap<String, Map<String, Object>>();
+		for(MemCacheTier tier : tiers.values()){
+			res.put(tier.name, tier.getStats());
+		}
+		return res;
+	}
+
+	private static class Entry {
+		final String key;
+		final Object value;
+		final long weight;
+		final long expireAt;
+		final int ttlSeconds;
+		boolean protectedSeg = false;
+		long refreshAt;
+
+		/**
+		 * 刷新时刻取写入后refreshSeconds与寿命的4/5中较早者，短寿命的条目也能在过期前刷新
+		 */
+		Entry(String key, Object value, long weight, int ttlSeconds, int refreshSeconds){
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.ttlSeconds = ttlSeconds;
+			long now = System.currentTimeMillis();
+			this.expireAt = now + ttlSeconds * 1000L;
+			this.refreshAt = now + Math.min(refreshSeconds * 1000L, ttlSeconds * 800L);
+		}
+
+		boolean isExpired(long now){
+			return now >= this.expireAt;
+		}
+	}
+
+	private final String name;
+	private final long maxWeight;
+	private final long maxProtectedWeight;
+	private final int ttlSeconds;
+	private final int refreshSeconds;
+
+	private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+	private final LinkedHashMap<String, Entry> protectedSeg = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+	private final TreeSet<String> sortedKeys = new TreeSet<String>();
+	private long probationWeight = 0;
+	private long protectedWeight = 0;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	MemCacheTier(String name, long maxWeight, int ttlSeconds){
+		this(name, maxWeight, ttlSeconds, defaultRefreshSeconds);
+	}
+
+	MemCacheTier(String name, long maxWeight, int ttlSeconds, int refreshSeconds){
+		this.name = name;
+		this.maxWeight = maxWeight;
+		this.maxProtectedWeight = (long)(maxWeight * ProtectedRatio);
+		this.ttlSeconds = ttlSeconds;
+		this.refreshSeconds = refreshSeconds;
+	}
+
+	public Object get(String key){
+		synchronized(this){
+			Entry entry = liveEntry(key, System.currentTimeMillis());
+			if(entry == null){
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			if(!entry.protectedSeg){
+				promote(entry);
+			}
+			return entry.value;
+		}
+	}
+
+	public boolean containsKey(String key){
+		synchronized(this){
+			return liveEntry(key, System.currentTimeMillis()) != null;
+		}
+	}
+
+	/**
+	 * @param ttlSeconds 小于等于0时使用默认的过期时长
+	 */
+	public void put(String key, Object value, int ttlSeconds){
+		if(key == null){
+			return;
+		}
+		if(value == null){
+			remove(key);
+			return;
+		}
+		int ttl = ttlSeconds > 0 ? ttlSeconds : this.ttlSeconds;
+		Entry entry = new Entry(key, value, estimateWeight(key) + estimateWeight(value), ttl, this.refreshSeconds);
+		synchronized(this){
+			removeEntry(key);
+			if(entry.weight > this.maxWeight - this.maxProtectedWeight){
+				return;
+			}
+			probation.put(key, entry);
+			probationWeight += entry.weight;
+			sortedKeys.add(key);
+			evictIfNeeded();
+		}
+	}
+
+	/**
+	 * 只替换仍在缓存中的条目的值，保留其原有的过期时长，不会复活已删除的条目
+	 */
+	public void refresh(String key, Object value){
+		Entry old;
+		synchronized(this){
+			old = peek(key);
+		}
+		if(old != null){
+			put(key, value, old.ttlSeconds);
+		}
+	}
+
+	/**
+	 * 条目到了刷新时刻时认领一次后台刷新，返回true的调用方负责从远端取值并refresh；
+	 * 认领后把刷新时刻推后一个周期，期间的其他命中都返回false，刷新失败时到期后可再次认领
+	 */
+	public boolean claimRefresh(String key){
+		synchronized(this){
+			long now = System.currentTimeMillis();
+			Entry entry = peek(key);
+			if(entry == null || entry.isExpired(now) || now < entry.refreshAt){
+				return false;
+			}
+			entry.refreshAt = now + Math.min(this.refreshSeconds * 1000L, entry.expireAt - now);
+			return true;
+		}
+	}
+
+	public void remove(String key){
+		synchronized(this){
+			removeEntry(key);
+		}
+	}
+
+	/**
+	 * 按通配模式删除，模式含*或?时按redis的glob语义匹配，否则按包含子串匹配
+	 */
+	public long removeMany(String pattern){
+		synchronized(this){
+			List<String> keys = matchKeys(pattern);
+			for(String key : keys){
+				removeEntry(key);
+			}
+			return keys.size();
+		}
+	}
+
+	public long countMany(String pattern){
+		synchronized(this){
+			long now = System.currentTimeMillis();
+			long cnt = 0;
+			for(String key : matchKeys(pattern)){
+				Entry entry = peek(key);
+				if(entry != null && !entry.isExpired(now)){
+					cnt++;
+				}
+			}
+			return cnt;
+		}
+	}
+
+	public Map<String, Object> getMany(String pattern){
+		Map<String, Object> map = new HashMap<String, Object>();
+		synchronized(this){
+			long now = System.currentTimeMillis();
+			for(String key : matchKeys(pattern)){
+				Entry entry = peek(key);
+				if(entry != null && !entry.isExpired(now)){
+					map.put(key, entry.value);
+				}
+			}
+		}
+		return map;
+	}
+
+	public void clear(){
+		synchronized(this){
+			probation.clear();
+			protectedSeg.clear();
+			sortedKeys.clear();
+			probationWeight = 0;
+			protectedWeight = 0;
+		}
+	}
+
+	public Map<String, Object> getStats(){
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("name", this.name);
+		map.put("hit", getHitCount());
+		map.put("miss", getMissCount());
+		map.put("eviction", getEvictionCount());
+		map.put("expired", getExpiredCount());
+		map.put("weight", getWeight());
+		map.put("maxWeight", getMaxWeight());
+		map.put("size", getSize());
+		return map;
+	}
+
+	@Override
+	public long getHitCount(){
+		return hits.sum();
+	}
+
+	@Override
+	public long getMissCount(){
+		return misses.sum();
+	}
+
+	@Override
+	public long getEvictionCount(){
+		return evictions.sum();
+	}
+
+	@Override
+	public long getExpiredCount(){
+		return expirations.sum();
+	}
+
+	@Override
+	public synchronized long getWeight(){
+		return probationWeight + protectedWeight;
+	}
+
+	@Override
+	public long getMaxWeight(){
+		return this.maxWeight;
+	}
+
+	@Override
+	public synchronized int getSize(){
+		return probation.size() + protectedSeg.size();
+	}
+
+	private Entry peek(String key){
+		Entry entry = protectedSeg.get(key);
+		return entry != null ? entry : probation.get(key);
+	}
+
+	private Entry liveEntry(String key, long now){
+		Entry entry = peek(key);
+		if(entry != null && entry.isExpired(now)){
+			removeEntry(key);
+			expirations.increment();
+			return null;
+		}
+		return entry;
+	}
+
+	private void promote(Entry entry){
+		probation.remove(entry.key);
+		probationWeight -= entry.weight;
+		entry.protectedSeg = true;
+		protectedSeg.put(entry.key, entry);
+		protectedWeight += entry.weight;
+		Iterator<Entry> iter = protectedSeg.values().iterator();
+		while(protectedWeight > maxProtectedWeight && iter.hasNext()){
+			Entry demoted = iter.next();
+			iter.remove();
+			protectedWeight -= demoted.weight;
+			demoted.protectedSeg = false;
+			probation.put(demoted.key, demoted);
+			probationWeight += demoted.weight;
+		}
+	}
+
+	private void evictIfNeeded(){
+		Iterator<Entry> iter = probation.values().iterator();
+		while(probationWeight + protectedWeight > maxWeight && iter.hasNext()){
+			Entry victim = iter.next();
+			iter.remove();
+			probationWeight -= victim.weight;
+			sortedKeys.remove(victim.key);
+			evictions.increment();
+		}
+	}
+
+	private void removeEntry(String key){
+		Entry entry = protectedSeg.remove(key);
+		if(entry != null){
+			protectedWeight -= entry.weight;
+		}else{
+			entry = probation.remove(key);
+			if(entry == null){
+				return;
+			}
+			probationWeight -= entry.weight;
+		}
+		sortedKeys.remove(key);
+	}
+
+	private List<String> matchKeys(String pattern){
+		List<String> keys = new ArrayList<String>();
+		if(pattern == null){
+			return keys;
+		}
+		int wild = indexOfWildcard(pattern);
+		if(wild < 0){
+			for(String key : sortedKeys){
+				if(key.contains(pattern)){
+					keys.add(key);
+				}
+			}
+			return keys;
+		}
+		String prefix = pattern.substring(0, wild);
+		NavigableSet<String> range = prefix.isEmpty() ? sortedKeys : sortedKeys.subSet(prefix, true, prefix + Character.MAX_VALUE, true);
+		if(wild == pattern.length() - 1 && pattern.charAt(wild) == '*'){
+			keys.addAll(range);
+			return keys;
+		}
+		Pattern regex = Pattern.compile(globToRegex(pattern));
+		for(String key : range){
+			if(regex.matcher(key).matches()){
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	private static int indexOfWildcard(String pattern){
+		for(int i=0; i<pattern.length(); i++){
+			char ch = pattern.charAt(i);
+			if(ch == '*' || ch == '?' || ch == '['){
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String globToRegex(String glob){
+		StringBuilder sb = new StringBuilder();
+		for(char ch : glob.toCharArray()){
+			if(ch == '*'){
+				sb.append(".*");
+			}else if(ch == '?'){
+				sb.append('.');
+			}else if(ch == '[' || ch == ']'){
+				sb.append(ch);
+			}else if("\\.^$|+(){}".indexOf(ch) >= 0){
+				sb.append('\\').append(ch);
+			}else{
+				sb.append(ch);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 估算值占用的字节数，只求量级，不追求精确
+	 */
+	static long estimateWeight(Object value){
+		return estimateWeight(value, 0);
+	}
+
+	private static long estimateWeight(Object value, int depth){
+		if(value == null){
+			return 8;
+		}
+		if(value instanceof String){
+			return 40 + 2L * ((String) value).length();
+		}
+		if(value instanceof byte[]){
+			return 16 + ((byte[]) value).length;
+		}
+		if(value instanceof Number || value instanceof Boolean || value instanceof Character){
+			return 16;
+		}
+		if(depth >= MaxWeightDepth){
+			return 64;
+		}
+		if(value instanceof Map<?, ?>){
+			long w = 48;
+			for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()){
+				w += 32 + estimateWeight(entry.getKey(), depth + 1) + estimateWeight(entry.getValue(), depth + 1);
+			}
+			return w;
+		}
+		if(value instanceof Collection<?>){
+			long w = 40;
+			for(Object item : (Collection<?>) value){
+				w += 8 + estimateWeight(item, depth + 1);
+			}
+			return w;
+		}
+		if(value instanceof Object[]){
+			long w = 16;
+			for(Object item : (Object[]) value){
+				w += 8 + estimateWeight(item, depth + 1);
+			}
+			return w;
+		}
+		return 64;
+	}
+
+}
@@ -0,0 +1,11 @@
+package boundless.types.cache;
+
+public interface MemCacheTierMXBean {
+	public long getHitCount();
+	public long getMissCount();
+	public long getEvictionCount();
+	public long getExpiredCount();
+	public long getWeight();
+	public long getMaxWeight();
+	public int getSize();
+}
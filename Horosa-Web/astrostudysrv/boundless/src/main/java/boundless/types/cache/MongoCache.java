@@ -16,17 +16,26 @@ import java.util.function.Consumer;
 
 import org.bson.BsonArray;
 import org.bson.Document;
+import org.bson.types.Binary;
 import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.ListIndexesIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
@@ -47,6 +56,8 @@ public class MongoCache implements ICache {
 
 	private static Logger log = AppLoggers.getLog("cache", "mongo");
 	private static boolean statementLog  = PropertyPlaceholder.getPropertyAsBool("mongo.statement.log", false);
+	private static final UpdateOptions Upsert = new UpdateOptions().upsert(true);
+	private static final BulkWriteOptions Unordered = new BulkWriteOptions().ordered(false);
 
 	private final String DefaultCollectionName = "mongoascache";
 	
@@ -118,16 +129,7 @@ public class MongoCache implements ICache {
 		Document doc = new Document(keyField, key);
 		doc.append(valueField, value);
 		doc.append(ExpiresField, 0);
-		Document setbson = new Document("$set", doc);
-		
-		UpdateResult res = this.collection.updateOne(Filters.eq(keyField, key), setbson);
-		if(res.getModifiedCount() == 0 && !containsKey(key)){
-			try{
-				this.collection.insertOne(doc);
-			}catch(Exception e){
-				this.collection.updateOne(Filters.eq(keyField, key), setbson);
-			}
-		}
+		upsert(key, doc);
 	}
 	
 	@Override
@@ -136,14 +138,61 @@ public class MongoCache implements ICache {
 		doc.append(valueField, value);
 		doc.append(ExpiresField, timeToLiveSeconds);
 		doc.append(TimeField, System.currentTimeMillis());
+		upsert(key, doc);
+	}
+	
+	/**
+	 * 一次bulkWrite写入多个键值，每个键upsert，无序写入
+	 */
+	@Override
+	public void putAll(Map<String, Object> values){
+		if(values == null || values.isEmpty()){
+			return;
+		}
+		List<UpdateOneModel<Document>> models = new ArrayList<UpdateOneModel<Document>>(values.size());
+		for(Map.Entry<String, Object> entry : values.entrySet()){
+			String key = entry.getKey();
+			Document doc = new Document(keyField, key);
+			doc.append(valueField, entry.getValue());
+			doc.append(ExpiresField, 0);
+			models.add(new UpdateOneModel<Document>(Filters.eq(keyField, key), new Document("$set", doc), Upsert));
+		}
+		bulkUpsert(models);
+	}
+	
+	/**
+	 * 按键upsert，一次往返完成更新或插入。
+	 * 两个请求同时插入同一新键时其中一个会因唯一索引失败，此时键已存在，再更新一次即可
+	 */
+	private void upsert(Object key, Document doc){
+		Bson filter = Filters.eq(keyField, key);
 		Document setbson = new Document("$set", doc);
-		
-		UpdateResult res = this.collection.updateOne(Filters.eq(keyField, key), setbson);
-		if(res.getModifiedCount() == 0 && !containsKey(key)){
-			try{
-				this.collection.insertOne(doc);
-			}catch(Exception e){
-				this.collection.updateOne(Filters.eq(keyField, key), setbson);
+		try{
+			this.collection.updateOne(filter, setbson, Upsert);
+		}catch(MongoWriteException e){
+			if(e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY){
+				throw e;
+			}
+			this.collection.updateOne(filter, setbson, Upsert);
+		}
+	}
+	
+	private void bulkUpsert(List<UpdateOneModel<Document>> models){
+		if(models.isEmpty()){
+			return;
+		}
+		try{
+			this.collection.bulkWrite(models, Unordered);
+		}catch(MongoBulkWriteException e){
+			List<UpdateOneModel<Document>> retry = new ArrayList<UpdateOneModel<Document>>();
+			for(BulkWriteError err : e.getWriteErrors()){
+				if(ErrorCategory.fromErrorCode(err.getCode()) != ErrorCategory.DUPLICATE_KEY){
+					throw e;
+				}
+				retry.add(models.get(err.getIndex()));
+			}
+			if(!retry.isEmpty()){
+				this.collection.bulkWrite(retry, Unordered);
 			}
 		}
 	}
@@ -216,6 +265,8 @@ public class MongoCache implements ICache {
             Object obj = doc.get(valueField);
             if(obj instanceof Document){
             	obj = documentToMap((Document)obj);
+            }else if(obj instanceof Binary){
+            	obj = ((Binary)obj).getData();
             }else if(obj instanceof List){
             	List list = (List)obj;
             	if(!list.isEmpty() && list.get(0) instanceof Document){
@@ -346,6 +397,9 @@ public class MongoCache implements ICache {
             Document doc = mongoCursor.next();
         	String key = doc.getString(keyField);
         	Object value = doc.get(valueField);
+        	if(value instanceof Binary){
+        		value = ((Binary)value).getData();
+        	}
         	boolean removed = false;
             Integer expire = doc.getInteger(ExpiresField);
             if(expire != null && expire.intValue() != 0){
@@ -522,16 +576,7 @@ public class MongoCache implements ICache {
 	public void putFieldValue(String key, String field, Object value){ 
 		Document doc = new Document(keyField, key);
 		doc.append(field, value);
-		Document setbson = new Document("$set", doc);
-		
-		UpdateResult res = this.collection.updateOne(Filters.eq(keyField, key), setbson);
-		if(res.getModifiedCount() == 0 && !containsKey(key)){
-			try{
-				this.collection.insertOne(doc);
-			}catch(Exception e){
-				this.collection.updateOne(Filters.eq(keyField, key), setbson);
-			}
-		}
+		upsert(key, doc);
 	}
 	
 	@Override
@@ -619,32 +664,14 @@ public class MongoCache implements ICache {
 		Document doc = new Document(keyField, key);
 		doc.append(valueField, value);
 		doc.append(ExpiresField, 0);
-		Document setbson = new Document("$set", doc);
-		
-		UpdateResult res = this.collection.updateOne(Filters.eq(keyField, key), setbson);
-		if(res.getModifiedCount() == 0 && !containsKey(key)){
-			try{
-				this.collection.insertOne(doc);
-			}catch(Exception e){
-				this.collection.updateOne(Filters.eq(keyField, key), setbson);
-			}
-		}
+		upsert(key, doc);
 	}
 	
 	@Override
 	public void putFieldValue(Object key, String field, Object value){ 
 		Document doc = new Document(keyField, key);
 		doc.append(field, value);
-		Document setbson = new Document("$set", doc);
-		
-		UpdateResult res = this.collection.updateOne(Filters.eq(keyField, key), setbson);
-		if(res.getModifiedCount() == 0 && !containsKey(key)){
-			try{
-				this.collection.insertOne(doc);
-			}catch(Exception e){
-				this.collection.updateOne(Filters.eq(keyField, key), setbson);
-			}
-		}
+		upsert(key, doc);
 	}
 	
 	@Override
@@ -888,6 +915,67 @@ public class MongoCache implements ICache {
 		return list;
 	}
 	
+	/**
+	 * 查询时即按投影只取需要的字段；include投影会额外取回判断过期所需的字段，判断后去掉
+	 */
+	@Override
+	public List<Map<String, Object>> findValues(int limit, SortCond sort, Projection projection, FilterCond... conds){
+		List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
+		Bson filter = getBson(conds);
+		FindIterable<Document> findIterable = filter == null ? this.collection.find() : this.collection.find(filter);
+		if(sort != null) {
+			findIterable = findIterable.sort(sort.toBson());
+		}
+		if(limit > 0) {
+			findIterable = findIterable.limit(limit);
+		}
+		String[] required = new String[] {keyField, ExpiresField, TimeField};
+		if(projection != null) {
+			findIterable = findIterable.projection(projection.toBson(required));
+		}
+		
+		List<Object> remkeys = new LinkedList<Object>();
+		MongoCursor<Document> mongoCursor = findIterable.iterator(); 
+		try {
+			while(mongoCursor.hasNext()){  
+				Document doc = mongoCursor.next();
+				Integer expire = doc.getInteger(ExpiresField);
+				if(expire != null && expire.intValue() != 0 && doc.get(TimeField) != null){
+					long tm = doc.getLong(TimeField).longValue();
+					if(System.currentTimeMillis() > tm + expire.intValue()*1000){
+						remkeys.add(doc.get(keyField));
+						continue;
+					}
+				}
+				Map<String, Object> resmap = documentToMap(doc);
+				if(projection != null) {
+					for(String fld : required) {
+						if(!projection.keeps(fld)) {
+							resmap.remove(fld);
+						}
+					}
+				}
+				list.add(resmap);
+			}
+		}finally {
+			mongoCursor.close();
+		}
+		
+		for(Object kv : remkeys){
+			SerialCalculatePool.queueUserWorkItem(()->{
+				this.collection.deleteMany(Filters.eq(keyField, kv));				
+			});
+		}
+		
+		return list;
+	}
+	
+	@Override
+	public Map<String, Object> getMap(Object key, Projection projection){
+		List<Map<String, Object>> list = findValues(1, null, projection, new FilterCond(keyField, CondOperator.Eq, key));
+		return list.isEmpty() ? null : list.get(0);
+	}
+	
 	public void add(Map<String, Object> map){
 		if(map == null || map.isEmpty()){
 			return;
@@ -907,26 +995,64 @@ public class MongoCache implements ICache {
 		this.collection.insertOne(doc);		
 	}
 	
+	/**
+	 * 一次insertMany写入多条，无序写入，单条失败不影响其余
+	 */
+	@Override
+	public void addAll(List<Map<String, Object>> maps){
+		if(maps == null || maps.isEmpty()){
+			return;
+		}
+		List<Document> docs = new ArrayList<Document>(maps.size());
+		for(Map<String, Object> map : maps){
+			if(map == null || map.isEmpty()){
+				continue;
+			}
+			Document doc = mapToDocument(map);
+			doc.append(ExpiresField, 0);
+			docs.add(doc);
+		}
+		if(docs.isEmpty()){
+			return;
+		}
+		this.collection.insertMany(docs, new InsertManyOptions().ordered(false));
+	}
+	
 	public void setMap(Object key, Map<String, Object> map){
 		if(map == null || map.isEmpty()){
 			return;
 		}
+		upsert(key, mapSetDocument(key, map));
+	}
+	
+	/**
+	 * 一次bulkWrite写入多个文档，每个文档按键upsert，无序写入
+	 */
+	@Override
+	public void setMaps(Map<Object, Map<String, Object>> maps){
+		if(maps == null || maps.isEmpty()){
+			return;
+		}
+		List<UpdateOneModel<Document>> models = new ArrayList<UpdateOneModel<Document>>(maps.size());
+		for(Map.Entry<Object, Map<String, Object>> entry : maps.entrySet()){
+			Map<String, Object> map = entry.getValue();
+			if(map == null || map.isEmpty()){
+				continue;
+			}
+			Object key = entry.getKey();
+			models.add(new UpdateOneModel<Document>(Filters.eq(keyField, key), new Document("$set", mapSetDocument(key, map)), Upsert));
+		}
+		bulkUpsert(models);
+	}
+	
+	private Document mapSetDocument(Object key, Map<String, Object> map){
 		map.remove("_id");
 		Document doc = mapToDocument(map);
 		if(!map.containsKey(keyField)){
 			doc.append(keyField, key);
 		}
 		doc.append(ExpiresField, 0);
-		Document setbson = new Document("$set", doc);
-		
-		UpdateResult res = this.collection.updateOne(Filters.eq(keyField, key), setbson);
-		if(res.getModifiedCount() == 0 && !containsKey(key)){
-			try{
-				this.collection.insertOne(doc);
-			}catch(Exception e){
-				this.collection.updateOne(Filters.eq(keyField, key), setbson);
-			}
-		}
+		return doc;
 	}
 	
 	public void setMap(Object key, Map<String, Object> map, int timeoutInSec){
@@ -940,16 +1066,7 @@ public class MongoCache implements ICache {
 		}
 		doc.append(ExpiresField, timeoutInSec);
 		doc.append(TimeField, System.currentTimeMillis());
-		Document setbson = new Document("$set", doc);
-		
-		UpdateResult res = this.collection.updateOne(Filters.eq(keyField, key), setbson);
-		if(res.getModifiedCount() == 0 && !containsKey(key)){
-			try{
-				this.collection.insertOne(doc);
-			}catch(Exception e){
-				this.collection.updateOne(Filters.eq(keyField, key), setbson);
-			}
-		}
+		upsert(key, doc);
 	}
 	
 	public Map<String, Object> getMap(Object key){
@@ -1201,6 +1318,28 @@ public class MongoCache implements ICache {
 		this.collection.createIndex(idx);
 	}
 
+	/**
+	 * 复合索引按mongo的默认命名(字段_1_字段_1)判断是否已存在
+	 */
+	@Override
+	public void createCompoundIndex(String... flds) {
+		Document idx = new Document();
+		StringBuilder name = new StringBuilder();
+		for(String fld : flds) {
+			idx.append(fld, 1);
+			if(name.length() > 0) {
+				name.append('_');
+			}
+			name.append(fld).append("_1");
+		}
+		for(Document doc : this.collection.listIndexes()) {
+			if(name.toString().equals(doc.getString("name"))) {
+				return;
+			}
+		}
+		this.collection.createIndex(idx);
+	}
+
 	public List<Map<String, Object>> leftJoin(LookupCond[] lookups, int limit, SortCond sort) {
 		List<Bson> aggregateList = new ArrayList<Bson>();
 		for(LookupCond lookup : lookups){
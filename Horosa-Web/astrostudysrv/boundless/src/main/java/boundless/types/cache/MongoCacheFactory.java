@@ -49,6 +49,7 @@ public class MongoCacheFactory implements ICacheFactory {
 	
 	private Boolean needMemCache = null;
 	private Boolean needCompress = null;
+	private String valueCodec = null;
 	
 	public void build(){
 		String path = "classpath:/conf/properties/mongodb.properties";
@@ -98,6 +99,7 @@ public class MongoCacheFactory implements ICacheFactory {
 		if(ncompress != null){
 			needCompress = ConvertUtility.getValueAsBool(ncompress, false);
 		}
+		valueCodec = ConvertUtility.getValueAsString(p.get("valuecodec"));
 
 		if(StringUtility.isNullOrEmpty(keyField)){
 			keyField = "_id";
@@ -213,6 +215,11 @@ public class MongoCacheFactory implements ICacheFactory {
 	public Boolean needCompress(){
 		return this.needCompress;
 	}
+	
+	@Override
+	public String valueCodec(){
+		return this.valueCodec;
+	}
 
 	@Override
 	public String factoryName() {
@@ -239,6 +246,7 @@ public class MongoCacheFactory implements ICacheFactory {
 		factory.servers = this.servers;
 		factory.needMemCache = this.needMemCache;
 		factory.needCompress = this.needCompress;
+		factory.valueCodec = this.valueCodec;
 		factory.hasCreatedIndex = false;
 		factory.optionalMode = this.optionalMode;
 		factory.skipPingOnBuild = this.skipPingOnBuild;
@@ -0,0 +1,94 @@
+package boundless.types.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Projections;
+
+/**
+ * 查询结果的字段投影，只保留include的字段或去掉exclude的字段，只作用于文档的顶层字段
+ */
+public class Projection {
+	private final Set<String> fields;
+	private final boolean exclude;
+
+	private Projection(Collection<String> fields, boolean exclude) {
+		this.fields = Collections.unmodifiableSet(new LinkedHashSet<String>(fields));
+		this.exclude = exclude;
+	}
+
+	public static Projection include(String... fields) {
+		return new Projection(Arrays.asList(fields), false);
+	}
+
+	public static Projection include(Collection<String> fields) {
+		return new Projection(fields, false);
+	}
+
+	public static Projection exclude(String... fields) {
+		return new Projection(Arrays.asList(fields), true);
+	}
+
+	public static Projection exclude(Collection<String> fields) {
+		return new Projection(fields, true);
+	}
+
+	public Set<String> getFields() {
+		return this.fields;
+	}
+
+	public boolean isExclude() {
+		return this.exclude;
+	}
+
+	public boolean keeps(String field) {
+		return this.fields.contains(field) != this.exclude;
+	}
+
+	/**
+	 * 转为mongo投影；required是实现自身需要读取的字段，include时一并取回，exclude时不去掉。
+	 * include时不取_id，除非明确列出
+	 */
+	public Bson toBson(String... required) {
+		List<String> flds = new ArrayList<String>(this.fields);
+		if(this.exclude) {
+			flds.removeAll(Arrays.asList(required));
+			return Projections.exclude(flds);
+		}
+		for(String fld : required) {
+			if(!flds.contains(fld)) {
+				flds.add(fld);
+			}
+		}
+		if(flds.contains("_id")) {
+			return Projections.include(flds);
+		}
+		return Projections.fields(Projections.include(flds), Projections.excludeId());
+	}
+
+	/**
+	 * 按投影复制顶层字段，字段值不复制
+	 */
+	public Map<String, Object> apply(Map<String, Object> map) {
+		if(map == null) {
+			return null;
+		}
+		Map<String, Object> res = new LinkedHashMap<String, Object>();
+		for(Map.Entry<String, Object> entry : map.entrySet()) {
+			if(keeps(entry.getKey())) {
+				res.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return res;
+	}
+
+}
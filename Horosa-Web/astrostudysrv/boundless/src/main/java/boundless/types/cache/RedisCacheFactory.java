@@ -42,6 +42,7 @@ class RedisCacheFactory implements ICacheFactory {
 	
 	private Boolean needMemCache = null;
 	private Boolean needCompress = null;
+	private String valueCodec = null;
 
 	@Override
 	public synchronized void build(String proppath){
@@ -64,6 +65,7 @@ class RedisCacheFactory implements ICacheFactory {
 		if(ncompress != null){
 			needCompress = ConvertUtility.getValueAsBool(ncompress, false);
 		}
+		valueCodec = ConvertUtility.getValueAsString(p.get("valuecodec"));
 		
 		pwd = ConvertUtility.getValueAsString(p.get("redis.pwd"));
 		ips = ConvertUtility.getValueAsString(p.get("redis.ips"));
@@ -241,6 +243,11 @@ class RedisCacheFactory implements ICacheFactory {
 		return this.needCompress;
 	}
 	
+	@Override
+	public String valueCodec(){
+		return this.valueCodec;
+	}
+	
 	@Override
 	public String factoryName() {
 		return this.name;
@@ -0,0 +1,161 @@
+package boundless.types.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisDataException;
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
+
+/**
+ * 按通配模式遍历redis键，以SCAN游标代替KEYS，避免大范围模式阻塞整个redis实例。
+ * 删除时把扫描到的键按批组成UNLINK，多批放入同一个pipeline一次往返提交；
+ * 服务端不支持UNLINK（redis 4.0以前）时自动退回DEL
+ */
+public class RedisKeyScanner {
+	private static final int ScanCount = PropertyPlaceholder.getPropertyAsInt("redis.scan.count", 1000);
+	private static final int UnlinkBatch = PropertyPlaceholder.getPropertyAsInt("redis.unlink.batch", 500);
+	private static final int PipelineDepth = PropertyPlaceholder.getPropertyAsInt("redis.unlink.pipeline", 8);
+
+	private static volatile boolean unlinkSupported = true;
+
+	private RedisKeyScanner() {
+	}
+
+	/**
+	 * 逐页扫描匹配的键，每页交给consumer，页内的键可能有重复，页大小不固定
+	 */
+	public static void scan(Jedis jedis, String pattern, Consumer<List<String>> consumer) {
+		ScanParams params = new ScanParams().match(pattern).count(ScanCount);
+		String cursor = ScanParams.SCAN_POINTER_START;
+		do {
+			ScanResult<String> res = jedis.scan(cursor, params);
+			List<String> keys = res.getResult();
+			if(keys != null && !keys.isEmpty()) {
+				consumer.accept(keys);
+			}
+			cursor = res.getCursor();
+		}while(!ScanParams.SCAN_POINTER_START.equals(cursor));
+	}
+
+	public static long count(Jedis jedis, String pattern) {
+		long[] cnt = new long[] {0};
+		scan(jedis, pattern, (keys)->{
+			cnt[0] += keys.size();
+		});
+		return cnt[0];
+	}
+
+	/**
+	 * 扫描出的键按页用MGET取值，已在两页之间过期或被删除的键不放入结果
+	 */
+	public static Map<String, Object> getMany(Jedis jedis, String pattern) {
+		Map<String, Object> res = new HashMap<String, Object>();
+		scan(jedis, pattern, (keys)->{
+			List<byte[]> values = jedis.mget(JedisCache.toRaw(keys));
+			for(int i=0; i<keys.size(); i++) {
+				Object value = JedisCache.fromRaw(values.get(i));
+				if(value != null) {
+					res.put(keys.get(i), value);
+				}
+			}
+		});
+		return res;
+	}
+
+	public static long remove(Jedis jedis, String pattern) {
+		return remove(jedis, pattern, null);
+	}
+
+	/**
+	 * 边扫描边删除：攒够一个pipeline的键就提交，提交完毕连接恢复普通模式后继续扫描。
+	 * SCAN保证遍历期间一直存在的键都会返回，删除已返回的键不影响其余键。
+	 * 某个pipeline提交失败时停止扫描并抛出，不把未删除的键当作已删除
+	 * @param progress 每提交一个pipeline后回报累计删除数，可为null
+	 * @return 删除的键数
+	 */
+	public static long remove(Jedis jedis, String pattern, LongConsumer progress) {
+		int chunk = UnlinkBatch * PipelineDepth;
+		List<String> buf = new ArrayList<String>(chunk);
+		long[] cnt = new long[] {0};
+		scan(jedis, pattern, (page)->{
+			buf.addAll(page);
+			if(buf.size() >= chunk) {
+				cnt[0] += flush(jedis, buf, progress, cnt[0]);
+			}
+		});
+		if(!buf.isEmpty()) {
+			cnt[0] += flush(jedis, buf, progress, cnt[0]);
+		}
+		return cnt[0];
+	}
+
+	private static long flush(Jedis jedis, List<String> buf, LongConsumer progress, long before) {
+		long n = unlinkChunk(jedis, buf);
+		buf.clear();
+		if(progress != null) {
+			progress.accept(before + n);
+		}
+		return n;
+	}
+
+	/**
+	 * 删除给定的键，按批组成UNLINK，每个pipeline最多redis.unlink.pipeline批
+	 */
+	public static long unlink(Jedis jedis, List<String> keys) {
+		long cnt = 0;
+		int chunk = UnlinkBatch * PipelineDepth;
+		for(int from=0; from<keys.size(); from+=chunk) {
+			cnt += unlinkChunk(jedis, keys.subList(from, Math.min(keys.size(), from + chunk)));
+		}
+		return cnt;
+	}
+
+	private static long unlinkChunk(Jedis jedis, List<String> keys) {
+		boolean unlink = unlinkSupported;
+		try {
+			return pipelined(jedis, keys, unlink);
+		}catch(JedisDataException e) {
+			if(!unlink || e.getMessage() == null || !e.getMessage().toLowerCase().contains("unknown command")) {
+				throw e;
+			}
+			unlinkSupported = false;
+			QueueLog.info(AppLoggers.InfoLogger, "redis not support UNLINK, fallback to DEL");
+			return pipelined(jedis, keys, false);
+		}
+	}
+
+	private static long pipelined(Jedis jedis, List<String> keys, boolean unlink) {
+		List<Response<Long>> resps = new ArrayList<Response<Long>>();
+		Pipeline pipeline = jedis.pipelined();
+		try {
+			for(int from=0; from<keys.size(); from+=UnlinkBatch) {
+				List<String> part = keys.subList(from, Math.min(keys.size(), from + UnlinkBatch));
+				String[] batch = part.toArray(new String[part.size()]);
+				resps.add(unlink ? pipeline.unlink(batch) : pipeline.del(batch));
+			}
+			pipeline.sync();
+		}finally {
+			pipeline.close();
+		}
+		long cnt = 0;
+		for(Response<Long> resp : resps) {
+			Long n = resp.get();
+			if(n != null) {
+				cnt += n;
+			}
+		}
+		return cnt;
+	}
+
+}
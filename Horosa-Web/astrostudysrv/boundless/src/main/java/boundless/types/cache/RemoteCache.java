@@ -1,13 +1,14 @@
 package boundless.types.cache;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 
 import org.slf4j.Logger;
@@ -21,69 +22,29 @@ import boundless.log.QueueLog;
 import boundless.types.ICache;
 import boundless.utility.CalculatePool;
 import boundless.utility.ConvertUtility;
-import boundless.utility.PeriodTask;
 import boundless.utility.StringUtility;
 
 public class RemoteCache implements ICache {
 	private static Logger log = LoggerFactory.getLogger(RemoteCache.class);
 	
-	private static Map<String, Object> memCache = new ConcurrentHashMap<String, Object>();
-	private static Map<String, Integer> expireMap = new ConcurrentHashMap<String, Integer>();
-	private static Map<String, Long> saveTimeMap = new ConcurrentHashMap<String, Long>();
-	
 	private ICacheFactory cachefactory;
 	private boolean needMemCache;
 	private boolean needCompress = false;
 	private boolean needHystrix = false;
-	
-	private ScheduledFuture clearLocalTask;
+	private CacheValueCodec codec = null;
 
 	
 	public static void clearLocalMemCache(){
-		memCache.clear();
+		MemCacheTier.clearAll();
 	}
 	
-	private static void removeManyMemCache(String partKey){
-		for(String key : memCache.keySet()){
-			if(key.contains(partKey)){
-				memCache.remove(key);
-				expireMap.remove(key);
-				saveTimeMap.remove(key);
-			}
-		}
-	}
-	
-	private static long countManyKey(String partKey){
-		long cnt = 0;
-		for(String key : memCache.keySet()){
-			if(key.contains(partKey)){
-				cnt++;
-			}
-		}
-		return cnt;
+	private MemCacheTier memTier(){
+		return MemCacheTier.of(this.cachefactory.factoryName());
 	}
 	
 	private Map<String, Object> getLocalMany(String partKey, ICache cache){
-		Map<String, Object> map = new HashMap<String, Object>();
-		for(Map.Entry<String, Object> entry : memCache.entrySet()){
-			String key = entry.getKey();
-			if(key.contains(partKey)){
-				Integer tm = expireMap.get(key);
-				if(tm != null && tm > 0){
-					Long st = saveTimeMap.get(key);
-					if(st == null){
-						st = 0l;
-					}
-					Long delta = (System.currentTimeMillis() - st) / 1000;
-					if(delta < tm){
-						map.put(key, entry.getValue());
-					}
-				}else{
-					map.put(key, entry.getValue());
-				}
-			}
-		}
-		syncManyLocalCacheFromRemote(partKey, cache);
+		Map<String, Object> map = memTier().getMany(partKey);
+		syncManyLocalCacheFromRemote(partKey);
 		return map;
 	}
 	
@@ -92,33 +53,46 @@ public class RemoteCache implements ICache {
 	}
 
 	RemoteCache(ICacheFactory cacheFactory, boolean needMemCache, boolean needCompress, boolean needHystrix){
+		this(cacheFactory, needMemCache, needCompress, needHystrix, null);
+	}
+
+	RemoteCache(ICacheFactory cacheFactory, boolean needMemCache, boolean needCompress, boolean needHystrix, CacheValueCodec codec){
 		this.cachefactory = cacheFactory;
 		this.needMemCache = needMemCache;
 		this.needCompress = needCompress;
 		this.needHystrix = needHystrix;
-		
-		this.clearLocalTask = PeriodTask.submit(()->{
-			clearLocalMemCache();
-		}, 3600000, 3600*24*1000);
-
+		this.codec = codec;
 	}
 
-	private void syncLocalCacheFromRemote(String key, ICache cache){
+	/**
+	 * 后台刷新另取连接，调用方的连接在返回时就已归还
+	 */
+	private void syncLocalCacheFromRemote(String key){
 		CalculatePool.queueUserWorkItem(()->{
-			Object obj = cache.get(key);
-			obj = decompress(obj);
-			memCache.put(key, obj);
+			ICache cache = this.cachefactory.getCache();
+			try{
+				Object obj = cache.get(key);
+				obj = decodeValue(obj);
+				memTier().refresh(key, obj);
+			}finally{
+				cache.close();
+			}
 		});
 	}
-	private void syncManyLocalCacheFromRemote(String key, ICache cache){
+	private void syncManyLocalCacheFromRemote(String key){
 		CalculatePool.queueUserWorkItem(()->{
-			Map<String, Object> obj = cache.getMany(key);
-			if(obj != null && !obj.isEmpty()){
-				for(Map.Entry<String, Object> entry : obj.entrySet()){
-					Object val = entry.getValue();
-					val = decompress(val);
-					memCache.put(key, val);
+			ICache cache = this.cachefactory.getCache();
+			try{
+				Map<String, Object> obj = cache.getMany(key);
+				if(obj != null && !obj.isEmpty()){
+					for(Map.Entry<String, Object> entry : obj.entrySet()){
+						Object val = entry.getValue();
+						val = decodeValue(val);
+						memTier().refresh(entry.getKey(), val);
+					}
 				}
+			}finally{
+				cache.close();
 			}
 		});
 	}
@@ -126,12 +100,12 @@ public class RemoteCache implements ICache {
 	@Override
 	public void put(String key, Object value) {
 		if(this.needMemCache){
-			memCache.put(key, value);
+			memTier().put(key, value, 0);
 		}
 		ICache cache = null;
 		try{
 			cache = this.cachefactory.getCache();
-			value = compress(value);
+			value = encodeValue(value);
 			cache.put(key, value);
 		}catch(Exception e){
 			QueueLog.error(log, e.getMessage());
@@ -143,44 +117,72 @@ public class RemoteCache implements ICache {
 		}
 	}
 	
+	@Override
+	public void putAll(Map<String, Object> values) {
+		if(values == null || values.isEmpty()){
+			return;
+		}
+		Map<String, Object> encoded = new HashMap<String, Object>(values.size() * 4 / 3 + 1);
+		for(Map.Entry<String, Object> entry : values.entrySet()){
+			if(this.needMemCache){
+				memTier().put(entry.getKey(), entry.getValue(), 0);
+			}
+			encoded.put(entry.getKey(), encodeValue(entry.getValue()));
+		}
+		ICache cache = null;
+		try{
+			cache = this.cachefactory.getCache();
+			cache.putAll(encoded);
+		}catch(Exception e){
+			QueueLog.error(log, e.getMessage());
+			this.cachefactory.reconnect();
+		}finally{
+			if(cache != null){
+				cache.close();
+			}
+		}
+	}
+	
 	private Object getLocal(String key, ICache cache){
-		Integer tm = expireMap.get(key);
-		Object res = memCache.get(key);
+		MemCacheTier tier = memTier();
+		Object res = tier.get(key);
 		if(res != null){
-			if(tm != null && tm > 0){
-				Long st = saveTimeMap.get(key);
-				if(st == null){
-					st = 0l;
-				}
-				long delta = (System.currentTimeMillis() - st) / 1000;
-				if(delta < tm){
-					syncLocalCacheFromRemote(key, cache);
-					return res;
-				}else{
-					res = cache.get(key);
-					if(res == null){
-						memCache.remove(key);
-						expireMap.remove(key);
-						saveTimeMap.remove(key);
-						return null;
-					}else{
-						saveTimeMap.put(key, System.currentTimeMillis());
-						res = decompress(res);
-						memCache.put(key, res);
-					}
-				}
+			if(tier.claimRefresh(key)){
+				syncLocalCacheFromRemote(key);
 			}
 			return res;
 		}
 		
 		res = cache.get(key);
 		if(res != null){
-			res = decompress(res);
-			memCache.put(key, res);
+			res = decodeValue(res);
+			tier.put(key, res, 0);
 		}
 		return res;
 	}
 	
+	/**
+	 * 键值的读出：配置了编解码器时解码远端返回的byte[]，不带帧头的旧条目按文本交给decompress；
+	 * 列表与文档字段仍只走decompress
+	 */
+	private Object decodeValue(Object obj){
+		if(obj instanceof byte[]){
+			byte[] data = (byte[])obj;
+			if(this.codec != null && CacheValueCodec.isFrame(data)){
+				return this.codec.decode(data);
+			}
+			obj = new String(data, StandardCharsets.UTF_8);
+		}
+		return decompress(obj);
+	}
+	
+	private Object encodeValue(Object obj){
+		if(this.codec == null || obj == null){
+			return compress(obj);
+		}
+		return this.codec.encode(obj);
+	}
+	
 	private Object decompress(Object obj){
 		if(!this.needCompress){
 			return obj;
@@ -236,7 +238,7 @@ public class RemoteCache implements ICache {
 							return getLocal(key, tmpcache);
 						}else{
 							Object obj = tmpcache.get(key);
-							return decompress(obj);
+							return decodeValue(obj);
 						}
 					}finally{
 						if(tmpcache != null){
@@ -251,7 +253,7 @@ public class RemoteCache implements ICache {
 					return getLocal(key, cache);
 				}else{
 					Object obj = cache.get(key);
-					return decompress(obj);
+					return decodeValue(obj);
 				}
 			}
 		}catch(Exception e){
@@ -275,12 +277,12 @@ public class RemoteCache implements ICache {
 					ICache tmpcache = this.cachefactory.getCache();
 					try{
 						if(this.needMemCache){
-							boolean res = memCache.containsKey(key);
+							boolean res = memTier().containsKey(key);
 							if(res == false){
 								res = tmpcache.containsKey(key);
 								if(res){
 									Object obj = tmpcache.get(key);
-									memCache.put(key, obj);
+									memTier().put(key, decodeValue(obj), 0);
 								}
 							}
 							return res;
@@ -301,12 +303,12 @@ public class RemoteCache implements ICache {
 			}else{
 				cache = this.cachefactory.getCache();
 				if(this.needMemCache){
-					boolean res = memCache.containsKey(key);
+					boolean res = memTier().containsKey(key);
 					if(res == false){
 						res = cache.containsKey(key);
 						if(res){
 							Object obj = cache.get(key);
-							memCache.put(key, obj);
+							memTier().put(key, decodeValue(obj), 0);
 						}
 					}
 					return res;
@@ -330,9 +332,7 @@ public class RemoteCache implements ICache {
 		ICache cache = null;
 		try{
 			if(this.needMemCache){
-				memCache.remove(key);
-				expireMap.remove(key);
-				saveTimeMap.remove(key);
+				memTier().remove(key);
 			}
 			String factoryname = this.cachefactory.factoryName();
 			if(this.needHystrix){
@@ -409,7 +409,7 @@ public class RemoteCache implements ICache {
 		ICache cache = null;
 		try{
 			if(this.needMemCache){
-				removeManyMemCache(partKey);
+				memTier().removeMany(partKey);
 			}
 			String factoryname = this.cachefactory.factoryName();
 			if(this.needHystrix){
@@ -444,6 +444,30 @@ public class RemoteCache implements ICache {
 		}
 	}
 	
+	/**
+	 * 带进度的批量删除用于后台清理任务，耗时与键数成正比，不经过hystrix以免被其超时打断。
+	 * 失败时重连后照样抛出，由清理任务把该步标为失败
+	 */
+	@Override
+	public long removeMany(String partKey, LongConsumer progress) {
+		ICache cache = null;
+		try{
+			if(this.needMemCache){
+				memTier().removeMany(partKey);
+			}
+			cache = this.cachefactory.getCache();
+			return cache.removeMany(partKey, progress);
+		}catch(RuntimeException e){
+			QueueLog.error(log, e.getMessage());
+			this.cachefactory.reconnect();
+			throw e;
+		}finally{
+			if(cache != null){
+				cache.close();
+			}
+		}
+	}
+	
 	public long remove(FilterCond... conds) {
 		ICache cache = this.cachefactory.getCache();
 		try{
@@ -501,7 +525,7 @@ public class RemoteCache implements ICache {
 		ICache cache = null;
 		try{
 			if(this.needMemCache){
-				return countManyKey(partKey);
+				return memTier().countMany(partKey);
 			}
 			String factoryname = this.cachefactory.factoryName();
 			if(this.needHystrix){
@@ -568,7 +592,7 @@ public class RemoteCache implements ICache {
 			for(Map.Entry<String, Object> entry : map.entrySet()){
 				String key = entry.getKey();
 				Object obj = entry.getValue();
-				obj = decompress(obj);
+				obj = decodeValue(obj);
 				entry.setValue(obj);
 			}
 			return map;
@@ -583,6 +607,67 @@ public class RemoteCache implements ICache {
 		}
 	}
 	
+	@Override
+	public List<Object> getAll(List<String> keys){
+		List<Object> res = new ArrayList<Object>(keys.size());
+		List<String> misses = new ArrayList<String>();
+		List<Integer> missIdx = new ArrayList<Integer>();
+		for(int i=0; i<keys.size(); i++){
+			Object obj = this.needMemCache ? memTier().get(keys.get(i)) : null;
+			res.add(obj);
+			if(obj == null){
+				misses.add(keys.get(i));
+				missIdx.add(i);
+			}
+		}
+		if(misses.isEmpty()){
+			return res;
+		}
+		
+		ICache cache = null;
+		try{
+			List<Object> remote = null;
+			String factoryname = this.cachefactory.factoryName();
+			if(this.needHystrix){
+				RemoteCacheHystrixCmd<List<Object>> cmd = new RemoteCacheHystrixCmd<List<Object>>(factoryname, "getAll", ()->{
+					ICache tmpcache = cachefactory.getCache();
+					try{
+						return tmpcache.getAll(misses);
+					}finally{
+						if(tmpcache != null){
+							tmpcache.close();
+						}
+					}
+				});
+				remote = cmd.execute();
+			}else{
+				cache = this.cachefactory.getCache();
+				remote = cache.getAll(misses);
+			}
+			if(remote == null){
+				return res;
+			}
+			for(int i=0; i<misses.size() && i<remote.size(); i++){
+				Object obj = decodeValue(remote.get(i));
+				if(obj != null){
+					res.set(missIdx.get(i), obj);
+					if(this.needMemCache){
+						memTier().put(misses.get(i), obj, 0);
+					}
+				}
+			}
+			return res;
+		}catch(Exception e){
+			QueueLog.error(log, e.getMessage());
+			this.cachefactory.reconnect();
+			return res;
+		}finally{
+			if(cache != null){
+				cache.close();
+			}
+		}
+	}
+	
 	@Override
 	public void clear() {
 		ICache cache = null;
@@ -606,7 +691,7 @@ public class RemoteCache implements ICache {
 				cache.clear();
 			}
 			if(this.needMemCache){
-				memCache.clear();
+				memTier().clear();
 			}
 		}catch(Exception e){
 			QueueLog.error(log, e.getMessage());
@@ -621,11 +706,7 @@ public class RemoteCache implements ICache {
 	@Override
 	public void put(String key, Object value, int timeToIdleSeconds, int timeToLiveSeconds) {
 		if(this.needMemCache){
-			if(timeToLiveSeconds > 0){
-				saveTimeMap.put(key, System.currentTimeMillis());
-				expireMap.put(key, timeToLiveSeconds);
-			}
-			memCache.put(key, value);
+			memTier().put(key, value, timeToLiveSeconds);
 		}
 		ICache cache = null;
 		try{
@@ -635,7 +716,7 @@ public class RemoteCache implements ICache {
 				RemoteCacheHystrixCmd<Long> cmd = new RemoteCacheHystrixCmd<Long>(factoryname, "put", ()->{
 					ICache tmpcache = cachefactory.getCache();
 					try{
-						Object val = compress(tmp);
+						Object val = encodeValue(tmp);
 						tmpcache.put(key, val, timeToIdleSeconds, timeToLiveSeconds);
 						return 0l;
 					}finally{
@@ -647,7 +728,7 @@ public class RemoteCache implements ICache {
 				cmd.execute();
 			}else{
 				cache = this.cachefactory.getCache();
-				value = compress(value);
+				value = encodeValue(value);
 				cache.put(key, value, timeToIdleSeconds, timeToLiveSeconds);
 			}
 		}catch(Exception e){
@@ -1067,7 +1148,7 @@ public class RemoteCache implements ICache {
 	@Override
 	public long inc(String key, long value){
 		if(this.needMemCache){
-			long v = ConvertUtility.getValueAsLong(memCache.get(key));
+			long v = ConvertUtility.getValueAsLong(memTier().get(key));
 			v += value;
 			put(key, v);
 			return v;
@@ -1109,7 +1190,7 @@ public class RemoteCache implements ICache {
 	@Override
 	public long dec(String key, long value){
 		if(this.needMemCache){
-			Object obj = memCache.get(key);
+			Object obj = memTier().get(key);
 			if(obj == null){
 				return 0;
 			}
@@ -1162,7 +1243,7 @@ public class RemoteCache implements ICache {
 					ICache tmpcache = cachefactory.getCache();
 					try{
 						Object obj = tmpcache.getHash(map, key);
-						return decompress(obj);
+						return decodeValue(obj);
 					}finally{
 						if(tmpcache != null){
 							tmpcache.close();
@@ -1173,7 +1254,7 @@ public class RemoteCache implements ICache {
 			}else{
 				cache = this.cachefactory.getCache();
 				Object obj = cache.getHash(map, key);
-				return decompress(obj);
+				return decodeValue(obj);
 			}
 		}catch(Exception e){
 			QueueLog.error(log, e.getMessage());
@@ -1196,7 +1277,7 @@ public class RemoteCache implements ICache {
 				RemoteCacheHystrixCmd<Long> cmd = new RemoteCacheHystrixCmd<Long>(factoryname, "putHash", ()->{
 					ICache tmpcache = cachefactory.getCache();
 					try{
-						Object val = compress(tmval);
+						Object val = encodeValue(tmval);
 						tmpcache.putHash(map, key, val);
 						return 0l;
 					}finally{
@@ -1208,7 +1289,7 @@ public class RemoteCache implements ICache {
 				cmd.execute();
 			}else{
 				cache = this.cachefactory.getCache();
-				value = compress(value);
+				value = encodeValue(value);
 				cache.putHash(map, key, value);
 			}
 		}catch(Exception e){
@@ -1490,7 +1571,7 @@ public class RemoteCache implements ICache {
 	
 	public ICache spawnCache(String dataSetName){
 		ICacheFactory factory = this.cachefactory.spawnFactory(dataSetName);
-		RemoteCache cache = new RemoteCache(factory, this.needMemCache, this.needCompress, this.needHystrix);
+		RemoteCache cache = new RemoteCache(factory, this.needMemCache, this.needCompress, this.needHystrix, this.codec);
 		return cache;
 	}
 	
@@ -1520,6 +1601,15 @@ public class RemoteCache implements ICache {
 			cache.close();
 		}
 	}
+
+	public List<Map<String, Object>> findValuesView(int limit, SortCond sort, FilterCond... conds){
+		ICache cache = this.cachefactory.getCache();
+		try{
+			return cache.findValuesView(limit, sort, conds);
+		}finally{
+			cache.close();
+		}
+	}
 	
 	public List<Map<String, Object>> findValues(int limit, FilterCond... conds){
 		ICache cache = this.cachefactory.getCache();
@@ -1566,6 +1656,16 @@ public class RemoteCache implements ICache {
 		}		
 	}
 	
+	@Override
+	public void addAll(List<Map<String, Object>> maps){
+		ICache cache = this.cachefactory.getCache();
+		try{
+			cache.addAll(maps);
+		}finally{
+			cache.close();
+		}
+	}
+	
 	@Override
 	public void setMap(Object key, Map<String, Object> map) {
 		ICache cache = this.cachefactory.getCache();
@@ -1576,6 +1676,16 @@ public class RemoteCache implements ICache {
 		}
 	}
 
+	@Override
+	public void setMaps(Map<Object, Map<String, Object>> maps) {
+		ICache cache = this.cachefactory.getCache();
+		try{
+			cache.setMaps(maps);
+		}finally{
+			cache.close();
+		}
+	}
+
 	@Override
 	public void setMap(Object key, Map<String, Object> map, int timeoutInSec) {
 		ICache cache = this.cachefactory.getCache();
@@ -1594,6 +1704,33 @@ public class RemoteCache implements ICache {
 			cache.close();
 		}
 	}
+
+	public Map<String, Object> getMap(Object key, Projection projection){
+		ICache cache = this.cachefactory.getCache();
+		try{
+			return cache.getMap(key, projection);
+		}finally{
+			cache.close();
+		}
+	}
+
+	public List<Map<String, Object>> findValues(int limit, SortCond sort, Projection projection, FilterCond... conds){
+		ICache cache = this.cachefactory.getCache();
+		try{
+			return cache.findValues(limit, sort, projection, conds);
+		}finally{
+			cache.close();
+		}
+	}
+
+	public Map<String, Object> getMapView(Object key){
+		ICache cache = this.cachefactory.getCache();
+		try{
+			return cache.getMapView(key);
+		}finally{
+			cache.close();
+		}
+	}
 	
 	public List<Map<String, Object>> getList(String field, Object fldKey){
 		ICache cache = this.cachefactory.getCache();
@@ -1667,6 +1804,16 @@ public class RemoteCache implements ICache {
 		}								
 	}
 
+	@Override
+	public void createCompoundIndex(String... flds) {
+		ICache cache = this.cachefactory.getCache();
+		try{
+			cache.createCompoundIndex(flds);
+		}finally{
+			cache.close();
+		}
+	}
+
 	public List<Map<String, Object>> leftJoin(LookupCond[] lookups, int limit, SortCond sort){
 		ICache cache = this.cachefactory.getCache();
 		try{
@@ -1,16 +1,39 @@
 package boundless.types.cache;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.ShardedJedis;
 import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.SafeEncoder;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
-import boundless.log.AppLoggers;
-import boundless.log.QueueLog;
+import boundless.types.ExecutionGroup.ExeGroupThreadFactory;
 import boundless.types.ICache;
 
 public class ShardedJedisCache implements ICache {
+	/**
+	 * 按模式扫描时各分片并行，线程空闲一分钟后回收
+	 */
+	private static ExecutorService shardExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+			60L, TimeUnit.SECONDS,
+			new SynchronousQueue<Runnable>(),
+			new ExeGroupThreadFactory("ShardedJedisScan"));
+
 	private ShardedJedis redis;
 	
 	public ShardedJedisCache(ShardedJedis redis){
@@ -19,6 +42,10 @@ public class ShardedJedisCache implements ICache {
 
 	@Override
 	public void put(String key, Object value) {		
+		if(value instanceof byte[]){
+			this.redis.set(SafeEncoder.encode(key), (byte[])value);
+			return;
+		}
 		this.redis.set(key, value.toString());
 	}
 
@@ -27,12 +54,41 @@ public class ShardedJedisCache implements ICache {
 		SetParams params = SetParams.setParams();
 		params.xx();
 		params.ex((long)timeToLiveSeconds);
+		if(value instanceof byte[]){
+			this.redis.set(SafeEncoder.encode(key), (byte[])value, params);
+			return;
+		}
 		this.redis.set(key, value.toString(), params);
 	}
 
 	@Override
 	public Object get(String key) {
-		return this.redis.get(key);
+		return JedisCache.fromRaw(this.redis.get(SafeEncoder.encode(key)));
+	}
+
+	/**
+	 * 按键所在分片分组，每个分片一次MGET，结果顺序与keys一致
+	 */
+	@Override
+	public List<Object> getAll(List<String> keys) {
+		List<Object> res = new ArrayList<Object>(keys.size());
+		Map<Jedis, List<Integer>> groups = new IdentityHashMap<Jedis, List<Integer>>();
+		for(int i=0; i<keys.size(); i++){
+			res.add(null);
+			groups.computeIfAbsent(this.redis.getShard(keys.get(i)), (k)->new ArrayList<Integer>()).add(i);
+		}
+		for(Map.Entry<Jedis, List<Integer>> entry : groups.entrySet()){
+			List<Integer> idxs = entry.getValue();
+			byte[][] part = new byte[idxs.size()][];
+			for(int i=0; i<part.length; i++){
+				part[i] = SafeEncoder.encode(keys.get(idxs.get(i)));
+			}
+			List<byte[]> values = entry.getKey().mget(part);
+			for(int i=0; i<part.length; i++){
+				res.set(idxs.get(i), JedisCache.fromRaw(values.get(i)));
+			}
+		}
+		return res;
 	}
 
 	@Override
@@ -156,17 +212,75 @@ public class ShardedJedisCache implements ICache {
 	
 	@Override
 	public long removeMany(String partKey) {
-		Set<String> keys = this.redis.hkeys(partKey);
+		return removeMany(partKey, null);
+	}
+
+	/**
+	 * 各分片并行SCAN并UNLINK，progress回报所有分片的累计删除数，可能从不同线程回调
+	 */
+	@Override
+	public long removeMany(String partKey, LongConsumer progress) {
+		AtomicLong total = new AtomicLong(0);
+		List<Long> res = forAllShards((jedis)->{
+			long[] last = new long[] {0};
+			return RedisKeyScanner.remove(jedis, partKey, (n)->{
+				long sum = total.addAndGet(n - last[0]);
+				last[0] = n;
+				if(progress != null){
+					progress.accept(sum);
+				}
+			});
+		});
 		long cnt = 0;
-		for(String key : keys) {
-			try {
-				cnt += this.redis.del(key);
-			}catch(Exception e) {
-				QueueLog.error(AppLoggers.ErrorLogger, e.getMessage());
-			}
+		for(Long n : res){
+			cnt += n;
 		}
-		
 		return cnt;
 	}
+
+	@Override
+	public long countKey(String partKey){
+		long cnt = 0;
+		for(Long n : forAllShards((jedis)->RedisKeyScanner.count(jedis, partKey))){
+			cnt += n;
+		}
+		return cnt;
+	}
+
+	@Override
+	public Map<String, Object> getMany(String partKey){
+		Map<String, Object> res = new HashMap<String, Object>();
+		for(Map<String, Object> map : forAllShards((jedis)->RedisKeyScanner.getMany(jedis, partKey))){
+			res.putAll(map);
+		}
+		return res;
+	}
+
+	/**
+	 * 每个分片各用自己的连接，可以并行；只有一个分片时在当前线程执行
+	 */
+	private <T> List<T> forAllShards(Function<Jedis, T> fun){
+		Collection<Jedis> shards = this.redis.getAllShards();
+		List<T> res = new ArrayList<T>(shards.size());
+		if(shards.size() == 1){
+			res.add(fun.apply(shards.iterator().next()));
+			return res;
+		}
+		List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(shards.size());
+		for(Jedis jedis : shards){
+			futures.add(CompletableFuture.supplyAsync(()->fun.apply(jedis), shardExecutor));
+		}
+		try{
+			for(CompletableFuture<T> future : futures){
+				res.add(future.join());
+			}
+		}catch(CompletionException e){
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+		return res;
+	}
 	
 }
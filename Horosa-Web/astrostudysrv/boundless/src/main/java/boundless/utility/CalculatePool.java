@@ -1,5 +1,6 @@
 package boundless.utility;
 
+import java.util.Map;
 import java.util.function.Consumer;
 
 import org.slf4j.Logger;
@@ -21,21 +22,15 @@ public class CalculatePool {
 	/**
 	 * 放入计算池里执行
 	 * @param callBack 要执行的逻辑方法
-	 * @param exHandler 当错误时回调的处理方法
+	 * @param exHandler 当错误时回调的处理方法，任务被拒绝或丢弃时也会回调
 	 */
     public static void queueUserWorkItem(Runnable callBack,Consumer<Throwable> exHandler)
     {
     	executor.execute(()->{
-    		try{
-    			if(callBack != null){
-    				callBack.run();
-    			}
-    		}catch(Throwable e){
-    			if(exHandler != null){
-        			exHandler.accept(e);
-    			}
+    		if(callBack != null){
+    			callBack.run();
     		}
-    	});
+    	}, exHandler);
     }
 
     public static void queueUserWorkItem(Runnable callBack)
@@ -55,27 +50,25 @@ public class CalculatePool {
 	 * 放入计算池里执行
 	 * @param param callBack的参数
 	 * @param callBack 要执行的逻辑方法
-	 * @param exHandler 当错误时回调的处理方法
+	 * @param exHandler 当错误时回调的处理方法，任务被拒绝或丢弃时也会回调
 	 */
     public static void queueUserWorkItem(Object param, Consumer<Object> callBack,Consumer<Throwable> exHandler)
     {
     	executor.execute(()->{
-    		try{
-    			if(callBack != null){
-    				callBack.accept(param);
-    			}
-    		}catch(Throwable e){
-    			if(exHandler != null){
-        			exHandler.accept(e);
-    			}
+    		if(callBack != null){
+    			callBack.accept(param);
     		}
-    	});
+    	}, exHandler);
     }
     
     public static int countRunning() {
     	return executor.countRunning();
     }
 
+    public static Map<String, Object> stats() {
+    	return executor.stats();
+    }
+
 	public static void shutdown(){
 		executor.close();
 	}
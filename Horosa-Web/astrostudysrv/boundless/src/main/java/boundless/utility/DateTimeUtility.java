@@ -654,7 +654,10 @@ public class DateTimeUtility {
 		return date + tmjdn - 0.5;
 	}
 	
-	private static double getZoneJdn(String zone) {
+	/**
+	 * 时区转为儒略日的天数，如+08:00为1/3，没有分钟部分时按0分
+	 */
+	public static double getZoneJdn(String zone) {
 		String[] parts = StringUtility.splitString(zone, ':');
 		String h = parts[0];
 		int sym = 1;
@@ -665,7 +668,7 @@ public class DateTimeUtility {
 			sym = -1;
 		}
 		int hour = ConvertUtility.getValueAsInt(h);
-		int minute = ConvertUtility.getValueAsInt(parts[1]);
+		int minute = parts.length > 1 ? ConvertUtility.getValueAsInt(parts[1]) : 0;
 		return sym*(hour + minute/60.0)/24.0;
 	}
 	
@@ -1,7 +1,11 @@
 package boundless.utility;
 
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.net.URL;
 import java.text.DateFormat;
@@ -222,6 +226,59 @@ public class JsonUtility {
     }
 
 
+    /**
+     * 把对象直接编码写入输出流，不生成中间字符串
+     * @param obj
+     * @param out 调用方负责关闭
+     */
+    public static void encode(Object obj, OutputStream out){
+    	try{
+    		Object target = obj instanceof Jsonable ? ((Jsonable)obj).toMapOrList() : obj;
+    		jsonMapper.writeValue(new NonClosingOutputStream(out), target);
+    	}catch(Exception e){
+    		throw new RuntimeException(e);
+    	}
+    }
+
+    /**
+     * 从输入流直接解码，不生成中间字符串
+     * @param in 调用方负责关闭
+     * @param class1 需要转换成的对象类
+     */
+    public static <T> T decode(InputStream in, Class<T> class1) {
+    	try {
+    		return jsonMapper.readValue(new NonClosingInputStream(in), class1);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream {
+    	NonClosingOutputStream(OutputStream out){
+    		super(out);
+    	}
+
+    	@Override
+    	public void write(byte[] b, int off, int len) throws IOException {
+    		out.write(b, off, len);
+    	}
+
+    	@Override
+    	public void close() throws IOException {
+    		flush();
+    	}
+    }
+
+    private static class NonClosingInputStream extends FilterInputStream {
+    	NonClosingInputStream(InputStream in){
+    		super(in);
+    	}
+
+    	@Override
+    	public void close() throws IOException {
+    	}
+    }
+
     public static <T> T decodeFromClassPath(String classpath, Class<T> class1){
     	String json = FileUtility.getStringFromClassPath(classpath);
     	return decode(json, class1);
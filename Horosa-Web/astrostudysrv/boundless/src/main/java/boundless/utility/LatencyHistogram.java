@@ -0,0 +1,150 @@
+package boundless.utility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数线性分桶的耗时直方图（HDR风格），以微秒记录，无锁。
+ * 16微秒以内每微秒一个桶，之后每个2的幂区间再均分8个子桶，相对误差不超过12.5%，百分位按桶上界估算
+ */
+public class LatencyHistogram {
+	private static final int LinearBuckets = 16;
+	private static final int SubBits = 3;
+	private static final int SubBuckets = 1 << SubBits;
+	private static final int MaxExponent = 42;
+	private static final int BucketCount = LinearBuckets + (MaxExponent - 3) * SubBuckets;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BucketCount);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalMicros = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+	public LatencyHistogram() {
+	}
+
+	public void record(long elapsedMs) {
+		recordMicros(elapsedMs * 1000, false);
+	}
+
+	public void record(long elapsedMs, boolean error) {
+		recordMicros(elapsedMs * 1000, error);
+	}
+
+	public void recordNanos(long elapsedNanos, boolean error) {
+		recordMicros(elapsedNanos / 1000, error);
+	}
+
+	public void recordMicros(long elapsedMicros, boolean error) {
+		long us = Math.max(0, elapsedMicros);
+		buckets.incrementAndGet(indexOf(us));
+		count.increment();
+		totalMicros.add(us);
+		maxMicros.accumulate(us);
+		if(error) {
+			errors.increment();
+		}
+	}
+
+	static int indexOf(long us) {
+		if(us < LinearBuckets) {
+			return (int)us;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(us);
+		if(exp >= MaxExponent + 1) {
+			return BucketCount - 1;
+		}
+		int sub = (int)(us >>> (exp - SubBits)) & (SubBuckets - 1);
+		return LinearBuckets + (exp - 4) * SubBuckets + sub;
+	}
+
+	/**
+	 * @return 该桶能容纳的最大微秒数
+	 */
+	static long upperBoundOf(int idx) {
+		if(idx < LinearBuckets) {
+			return idx;
+		}
+		int exp = (idx - LinearBuckets) / SubBuckets + 4;
+		int sub = (idx - LinearBuckets) % SubBuckets;
+		long width = 1L << (exp - SubBits);
+		return ((SubBuckets + sub) * width) + width - 1;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getErrorCount() {
+		return errors.sum();
+	}
+
+	/**
+	 * @param p 0到1之间
+	 * @return 不小于该百分位的最小桶上界，微秒
+	 */
+	public long percentileMicros(double p) {
+		long[] snapshot = new long[BucketCount];
+		long total = 0;
+		for(int i=0; i<BucketCount; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long)Math.ceil(total * p));
+		long acc = 0;
+		for(int i=0; i<snapshot.length; i++) {
+			acc += snapshot[i];
+			if(acc >= rank) {
+				return Math.min(upperBoundOf(i), maxMicros.get());
+			}
+		}
+		return maxMicros.get();
+	}
+
+	/**
+	 * @param p 0到1之间
+	 * @return 不小于该百分位的最小桶上界，毫秒，向上取整
+	 */
+	public long percentile(double p) {
+		return (percentileMicros(p) + 999) / 1000;
+	}
+
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		long cnt = count.sum();
+		map.put("count", cnt);
+		map.put("errors", errors.sum());
+		map.put("meanMs", cnt == 0 ? 0 : toMs(totalMicros.sum() / cnt));
+		map.put("p50Ms", toMs(percentileMicros(0.5)));
+		map.put("p90Ms", toMs(percentileMicros(0.9)));
+		map.put("p99Ms", toMs(percentileMicros(0.99)));
+		map.put("p999Ms", toMs(percentileMicros(0.999)));
+		map.put("maxMs", toMs(maxMicros.get()));
+		return map;
+	}
+
+	/**
+	 * @return 非空桶，键为桶上界（毫秒），值为该桶计数
+	 */
+	public Map<String, Long> buckets() {
+		Map<String, Long> dist = new LinkedHashMap<String, Long>();
+		for(int i=0; i<BucketCount; i++) {
+			long v = buckets.get(i);
+			if(v > 0) {
+				dist.put("le" + toMs(upperBoundOf(i)), v);
+			}
+		}
+		return dist;
+	}
+
+	private static double toMs(long us) {
+		return us / 1000.0;
+	}
+
+}
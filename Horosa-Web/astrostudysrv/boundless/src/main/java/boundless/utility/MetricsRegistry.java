@@ -0,0 +1,248 @@
+package boundless.utility;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+import boundless.spring.help.PropertyPlaceholder;
+
+/**
+ * 进程内的指标登记处：按交易码统计请求数、错误数与耗时直方图，另有按名字登记的耗时与计数，
+ * 以及各组件自行登记的状态来源。记录全部无锁，快照通过JMX与http输出
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+	public static final String OtherEndpoint = "_other";
+	public static final String UnmatchedEndpoint = "_unmatched";
+
+	private static final int MaxEndpoints = PropertyPlaceholder.getPropertyAsInt("metrics.endpoints.max", 512);
+	private static final int MaxNames = PropertyPlaceholder.getPropertyAsInt("metrics.names.max", 2048);
+
+	/**
+	 * 单个交易码的统计
+	 */
+	public static class Endpoint {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder inflight = new LongAdder();
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		public void begin() {
+			inflight.increment();
+		}
+
+		public void end(long elapsedNanos, boolean error) {
+			inflight.decrement();
+			count.increment();
+			if(error) {
+				errors.increment();
+			}
+			latency.recordNanos(elapsedNanos, error);
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		public Map<String, Object> toMap() {
+			Map<String, Object> map = latency.toMap();
+			map.put("count", count.sum());
+			map.put("errors", errors.sum());
+			map.put("inflight", inflight.sum());
+			return map;
+		}
+	}
+
+	private static final MetricsRegistry Instance = new MetricsRegistry();
+
+	private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+	private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+	private final ConcurrentHashMap<String, Supplier<Map<String, Object>>> sources = new ConcurrentHashMap<String, Supplier<Map<String, Object>>>();
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder requestsToday = new LongAdder();
+	private final LongAdder requestErrors = new LongAdder();
+	private final LongAdder inflight = new LongAdder();
+	private volatile long nextDayAt = nextMidnight();
+
+	static {
+		MBeanUtility.registerMBean(Instance, "boundless.utility:type=MetricsRegistry");
+		Instance.sources.put("queuelog", QueueLog::stats);
+		Instance.sources.put("calculatepool", CalculatePool::stats);
+	}
+
+	private MetricsRegistry() {
+	}
+
+	/**
+	 * 请求开始时调用
+	 */
+	public static Endpoint beginRequest(String transcode) {
+		Instance.rollDay();
+		Instance.requests.increment();
+		Instance.requestsToday.increment();
+		Instance.inflight.increment();
+		Endpoint ep = endpoint(transcode);
+		ep.begin();
+		return ep;
+	}
+
+	/**
+	 * 请求结束时调用，与beginRequest成对
+	 */
+	public static void endRequest(Endpoint ep, long elapsedNanos, boolean error) {
+		Instance.inflight.decrement();
+		if(error) {
+			Instance.requestErrors.increment();
+		}
+		ep.end(elapsedNanos, error);
+	}
+
+	/**
+	 * 交易码数量超过metrics.endpoints.max后，新的交易码都计入_other
+	 */
+	public static Endpoint endpoint(String transcode) {
+		String key = StringUtility.isNullOrEmpty(transcode) ? "/" : transcode;
+		Endpoint ep = Instance.endpoints.get(key);
+		if(ep != null) {
+			return ep;
+		}
+		if(Instance.endpoints.size() >= MaxEndpoints) {
+			key = OtherEndpoint;
+		}
+		return Instance.endpoints.computeIfAbsent(key, (k)->new Endpoint());
+	}
+
+	public static LatencyHistogram latency(String name) {
+		LatencyHistogram h = Instance.latencies.get(name);
+		if(h != null) {
+			return h;
+		}
+		if(Instance.latencies.size() >= MaxNames) {
+			name = OtherEndpoint;
+		}
+		return Instance.latencies.computeIfAbsent(name, (k)->new LatencyHistogram());
+	}
+
+	public static LongAdder counter(String name) {
+		LongAdder c = Instance.counters.get(name);
+		if(c != null) {
+			return c;
+		}
+		if(Instance.counters.size() >= MaxNames) {
+			name = OtherEndpoint;
+		}
+		return Instance.counters.computeIfAbsent(name, (k)->new LongAdder());
+	}
+
+	/**
+	 * 登记一个状态来源，快照时调用，同名覆盖
+	 */
+	public static void registerSource(String name, Supplier<Map<String, Object>> source) {
+		Instance.sources.put(name, source);
+	}
+
+	public static long requestCount() {
+		return Instance.requests.sum();
+	}
+
+	public static long todayRequestCount() {
+		Instance.rollDay();
+		return Instance.requestsToday.sum();
+	}
+
+	public static Map<String, Object> snapshot() {
+		return Instance.buildSnapshot();
+	}
+
+	private void rollDay() {
+		long now = System.currentTimeMillis();
+		if(now >= nextDayAt) {
+			synchronized(this) {
+				if(now >= nextDayAt) {
+					nextDayAt = nextMidnight();
+					requestsToday.reset();
+				}
+			}
+		}
+	}
+
+	private static long nextMidnight() {
+		return LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private Map<String, Object> buildSnapshot() {
+		Map<String, Object> map = new TreeMap<String, Object>();
+		Map<String, Object> req = new TreeMap<String, Object>();
+		req.put("total", getRequestCount());
+		req.put("today", getTodayRequestCount());
+		req.put("errors", getErrorCount());
+		req.put("inflight", getInflightCount());
+		map.put("requests", req);
+
+		Map<String, Object> eps = new TreeMap<String, Object>();
+		for(Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+			eps.put(entry.getKey(), entry.getValue().toMap());
+		}
+		map.put("endpoints", eps);
+
+		Map<String, Object> lats = new TreeMap<String, Object>();
+		for(Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			lats.put(entry.getKey(), entry.getValue().toMap());
+		}
+		map.put("latencies", lats);
+
+		Map<String, Object> cnts = new TreeMap<String, Object>();
+		for(Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+			cnts.put(entry.getKey(), entry.getValue().sum());
+		}
+		map.put("counters", cnts);
+
+		for(Map.Entry<String, Supplier<Map<String, Object>>> entry : sources.entrySet()) {
+			try {
+				map.put(entry.getKey(), entry.getValue().get());
+			}catch(Exception e) {
+				QueueLog.error(AppLoggers.ErrorLogger, "metrics source {} failed: {}", entry.getKey(), e.getMessage());
+			}
+		}
+		return map;
+	}
+
+	@Override
+	public long getRequestCount() {
+		return requests.sum();
+	}
+
+	@Override
+	public long getTodayRequestCount() {
+		rollDay();
+		return requestsToday.sum();
+	}
+
+	@Override
+	public long getInflightCount() {
+		return inflight.sum();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return requestErrors.sum();
+	}
+
+	@Override
+	public int getEndpointCount() {
+		return endpoints.size();
+	}
+
+	@Override
+	public String getSnapshotJson() {
+		return JsonUtility.encode(buildSnapshot());
+	}
+
+}
@@ -0,0 +1,15 @@
+package boundless.utility;
+
+public interface MetricsRegistryMXBean {
+	public long getRequestCount();
+
+	public long getTodayRequestCount();
+
+	public long getInflightCount();
+
+	public long getErrorCount();
+
+	public int getEndpointCount();
+
+	public String getSnapshotJson();
+}
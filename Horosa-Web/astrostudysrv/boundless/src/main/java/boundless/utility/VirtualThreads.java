@@ -0,0 +1,137 @@
+package boundless.utility;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import boundless.log.AppLoggers;
+import boundless.log.QueueLog;
+
+/**
+ * 虚拟线程开关。工程按java 17编译，虚拟线程通过反射取得，
+ * 只有运行在java 21及以上且设置了-Dvirtualthreads.enabled=true时才启用，否则各方法返回null/false，调用方退回平台线程
+ */
+public class VirtualThreads {
+	private static final boolean Enabled = Boolean.getBoolean("virtualthreads.enabled");
+
+	private static final Method OfVirtual;
+	private static final Method BuilderFactory;
+	private static final Method IsVirtual;
+	private static final Method PerTaskExecutor;
+
+	static {
+		Method ofVirtual = null;
+		Method builderFactory = null;
+		Method isVirtual = null;
+		Method perTask = null;
+		try {
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			builderFactory = ofVirtual.getReturnType().getMethod("factory");
+			isVirtual = Thread.class.getMethod("isVirtual");
+			perTask = java.util.concurrent.Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+		}catch(Exception e) {
+			ofVirtual = null;
+		}
+		OfVirtual = ofVirtual;
+		BuilderFactory = builderFactory;
+		IsVirtual = isVirtual;
+		PerTaskExecutor = perTask;
+	}
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return 当前运行时是否提供虚拟线程
+	 */
+	public static boolean isSupported() {
+		return OfVirtual != null;
+	}
+
+	public static boolean isEnabled() {
+		return Enabled && OfVirtual != null;
+	}
+
+	public static boolean isVirtual(Thread t) {
+		if(IsVirtual == null || t == null) {
+			return false;
+		}
+		try {
+			return (Boolean)IsVirtual.invoke(t);
+		}catch(Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 不检查开关，只要运行时支持就返回虚拟线程工厂
+	 * @param namePrefix 线程名前缀，后接序号
+	 * @return 不支持时返回null
+	 */
+	public static ThreadFactory factory(String namePrefix) {
+		if(OfVirtual == null) {
+			return null;
+		}
+		try {
+			ThreadFactory base = (ThreadFactory)BuilderFactory.invoke(OfVirtual.invoke(null));
+			AtomicLong seq = new AtomicLong(1);
+			return (r)->{
+				Thread t = base.newThread(r);
+				t.setName(namePrefix + seq.getAndIncrement());
+				return t;
+			};
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return 未启用时返回null
+	 */
+	public static Thread newThread(String name, Runnable r) {
+		if(!isEnabled()) {
+			return null;
+		}
+		ThreadFactory factory = factory(name);
+		if(factory == null) {
+			return null;
+		}
+		Thread t = factory.newThread(r);
+		t.setName(name);
+		return t;
+	}
+
+	/**
+	 * 每个任务一个虚拟线程的执行器，用于tomcat请求处理等以阻塞io为主的场景
+	 * @return 未启用时返回null
+	 */
+	public static ExecutorService newPerTaskExecutor(String namePrefix) {
+		if(!isEnabled()) {
+			return null;
+		}
+		return perTaskExecutor(namePrefix);
+	}
+
+	static ExecutorService perTaskExecutor(String namePrefix) {
+		return perTaskExecutor(factory(namePrefix));
+	}
+
+	/**
+	 * 不检查开关，每个任务用factory新建一个线程的执行器
+	 * @return factory为null或运行时不支持时返回null
+	 */
+	public static ExecutorService perTaskExecutor(ThreadFactory factory) {
+		if(factory == null || PerTaskExecutor == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService)PerTaskExecutor.invoke(null, factory);
+		}catch(Exception e) {
+			QueueLog.error(AppLoggers.ErrorLogger, e);
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package boundless.log;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+public class QueueLogTest {
+
+	private final List<Object[]> lines = new CopyOnWriteArrayList<Object[]>();
+
+	@After
+	public void cleanup() {
+		QueueLog.setCallerMode("walker");
+	}
+
+	@Test
+	public void appendsCallerAndFormatsOnDispatcher() throws Exception{
+		Logger log = logger();
+		QueueLog.info(log, "chart {} in {}ms", "abc", 12);
+		Object[] line = await(1);
+		assertEquals("info", line[0]);
+		String fmt = (String)line[1];
+		assertTrue(fmt, fmt.startsWith("chart {} in {}ms \t(boundless.log.QueueLogTest.appendsCallerAndFormatsOnDispatcher:"));
+		assertArrayEquals(new Object[] {"abc", 12}, (Object[])line[2]);
+		assertTrue(!((String)line[3]).startsWith("main"));
+
+		QueueLog.setCallerMode("off");
+		QueueLog.warn(log, "plain");
+		line = await(2);
+		assertEquals("warn", line[0]);
+		assertEquals("plain", line[1]);
+	}
+
+	@Test
+	public void ringRejectsWhenFullAndKeepsOrder() {
+		LogRing ring = new LogRing(3);
+		assertEquals(4, ring.capacity());
+		for(int i=0; i<4; i++) {
+			assertTrue(ring.offer(null, "info", "m" + i, null, null, null, null));
+		}
+		assertFalse(ring.offer(null, "info", "m4", null, null, null, null));
+		List<String> seen = new CopyOnWriteArrayList<String>();
+		while(ring.poll((ev)->seen.add(ev.format))) {
+		}
+		assertEquals(List.of("m0", "m1", "m2", "m3"), seen);
+		assertTrue(ring.offer(null, "info", "m5", null, null, null, null));
+		assertEquals(1, ring.size());
+	}
+
+	private Object[] await(int count) throws Exception{
+		long deadline = System.currentTimeMillis() + 5000;
+		while(lines.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(count, lines.size());
+		return lines.get(count - 1);
+	}
+
+	private Logger logger() {
+		return (Logger)Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] {Logger.class}, (proxy, method, args)->{
+			String name = method.getName();
+			if(name.startsWith("is")) {
+				return true;
+			}
+			if(name.equals("getName")) {
+				return "test";
+			}
+			if(args != null && args.length > 0 && args[0] instanceof String) {
+				Object[] params = args.length > 1 ? (Object[])args[1] : null;
+				lines.add(new Object[] {name, args[0], params, Thread.currentThread().getName()});
+			}
+			return null;
+		});
+	}
+
+}
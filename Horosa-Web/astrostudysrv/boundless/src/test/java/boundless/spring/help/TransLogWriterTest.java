@@ -0,0 +1,117 @@
+package boundless.spring.help;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import boundless.types.ICache;
+
+public class TransLogWriterTest {
+
+	@Test
+	public void writesInBatchesAndFlushesOnClose() throws Exception{
+		BatchCache cache = new BatchCache();
+		TransLogWriter writer = new TransLogWriter(cache, 1024, 50, 60000, TransLogWriter.ResultMode.Full, 0);
+		for(int i=0; i<120; i++) {
+			assertTrue(writer.offer(log("/a", i), null));
+		}
+		writer.close();
+		assertEquals(120, cache.docs.size());
+		assertEquals(3, cache.batches.size());
+		assertEquals(50, (int)cache.batches.get(0));
+		assertEquals(20, (int)cache.batches.get(2));
+		assertFalse(writer.offer(log("/a", 0), null));
+		assertEquals(1L, writer.stats().get("dropped"));
+	}
+
+	@Test
+	public void flushesPartialBatchAfterInterval() throws Exception{
+		BatchCache cache = new BatchCache();
+		TransLogWriter writer = new TransLogWriter(cache, 1024, 100, 50, TransLogWriter.ResultMode.Full, 0);
+		writer.offer(log("/a", 1), new IllegalStateException("boom"));
+		long st = System.currentTimeMillis();
+		while(cache.docs.isEmpty() && System.currentTimeMillis() - st < 5000) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, cache.docs.size());
+		assertTrue(cache.docs.get(0).get(TransLogField.errstack.toString()).toString().contains("boom"));
+		writer.close();
+	}
+
+	@Test
+	public void truncatesOrHashesLargeResults() throws Exception{
+		BatchCache cache = new BatchCache();
+		TransLogWriter writer = new TransLogWriter(cache, 16, 10, 60000, TransLogWriter.ResultMode.Truncate, 8);
+		Map<String, Object> small = log("/a", 1);
+		small.put(TransLogField.result.toString(), "tiny");
+		Map<String, Object> large = log("/a", 2);
+		large.put(TransLogField.result.toString(), "0123456789abcdef");
+		writer.offer(small, null);
+		writer.offer(large, null);
+		writer.close();
+		assertEquals("tiny", cache.docs.get(0).get(TransLogField.result.toString()));
+		assertEquals("01234567", cache.docs.get(1).get(TransLogField.result.toString()));
+		assertEquals(16, cache.docs.get(1).get(TransLogField.resultlen.toString()));
+		assertEquals(32, cache.docs.get(1).get(TransLogField.resulthash.toString()).toString().length());
+
+		cache = new BatchCache();
+		writer = new TransLogWriter(cache, 16, 10, 60000, TransLogWriter.ResultMode.Hash, 0);
+		large = log("/a", 3);
+		large.put(TransLogField.result.toString(), "0123456789abcdef");
+		writer.offer(large, null);
+		writer.close();
+		assertNull(cache.docs.get(0).get(TransLogField.result.toString()));
+		assertEquals(16, cache.docs.get(0).get(TransLogField.resultlen.toString()));
+	}
+
+	private static Map<String, Object> log(String path, int seq){
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put(TransLogField.transcode.toString(), path);
+		map.put(TransLogField.tm.toString(), seq);
+		return map;
+	}
+
+	private static class BatchCache implements ICache {
+		final List<Map<String, Object>> docs = new CopyOnWriteArrayList<Map<String, Object>>();
+		final List<Integer> batches = new ArrayList<Integer>();
+
+		@Override
+		public void addAll(List<Map<String, Object>> maps){
+			batches.add(maps.size());
+			docs.addAll(maps);
+		}
+
+		@Override
+		public void put(String key, Object value){
+		}
+
+		@Override
+		public Object get(String key){
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(String key){
+			return false;
+		}
+
+		@Override
+		public long remove(String key){
+			return 0;
+		}
+
+		@Override
+		public void clear(){
+		}
+	}
+
+}
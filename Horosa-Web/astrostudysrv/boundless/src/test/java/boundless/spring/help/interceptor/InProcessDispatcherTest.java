@@ -0,0 +1,154 @@
+package boundless.spring.help.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import boundless.security.ShaUtility;
+import boundless.spring.help.PropertyPlaceholder;
+import boundless.utility.ConvertUtility;
+
+public class InProcessDispatcherTest {
+	private static final String ResultKey = PropertyPlaceholder.getProperty("response.unified.result.key", KeyConstants.ResultMessage);
+	private static final String App = "test";
+	private static final String SigKey = "5A1B2C3D4E5F";
+
+	public static class EchoController {
+		final AtomicInteger calls = new AtomicInteger();
+
+		public void echo(HttpServletRequest request, HttpServletResponse response) {
+			calls.incrementAndGet();
+			TransData.set("name", TransData.getValueAsString("name"));
+			TransData.setResponseHead("Echo", "1");
+		}
+
+		public void writeBody(HttpServletRequest request, HttpServletResponse response) throws Exception {
+			calls.incrementAndGet();
+			response.getWriter().write("raw");
+		}
+	}
+
+	@After
+	public void cleanup(){
+		TransData.pureClearTransData();
+	}
+
+	@Test
+	public void signedRequestRoundTrips() throws Exception {
+		EchoController ctrl = new EchoController();
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("name", "horosa");
+
+		InProcessDispatcher.Result res = InProcessDispatcher.dispatch(target(ctrl, "echo"), "/test/echo", signedHead(), params, null);
+
+		assertEquals(1, ctrl.calls.get());
+		assertEquals(KeyConstants.SuccessCode, ConvertUtility.getValueAsInt(res.getResult().get(KeyConstants.ResultCode)));
+		Map<String, Object> body = (Map<String, Object>) res.getResult().get(ResultKey);
+		assertEquals("horosa", body.get("name"));
+		assertEquals("1", res.getHead().get("Echo"));
+	}
+
+	@Test
+	public void badSignatureIsRejectedBeforeHandler() throws Exception {
+		EchoController ctrl = new EchoController();
+		Map<String, Object> head = signedHead();
+		head.put(KeyConstants.Signature, "0000");
+
+		InProcessDispatcher.Result res = InProcessDispatcher.dispatch(target(ctrl, "echo"), "/test/echo", head, new HashMap<String, Object>(), null);
+
+		assertEquals(0, ctrl.calls.get());
+		assertEquals("signature.error", res.getResult().get(ResultKey));
+		assertFalse(KeyConstants.SuccessCode == ConvertUtility.getValueAsInt(res.getResult().get(KeyConstants.ResultCode)));
+	}
+
+	@Test
+	public void deniedByInterceptorUsesItsStatus() throws Exception {
+		EchoController ctrl = new EchoController();
+		HandlerInterceptor unauthorized = new HandlerInterceptor() {
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+				return false;
+			}
+		};
+		HandlerInterceptor silent = new HandlerInterceptor() {
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				return false;
+			}
+		};
+
+		InProcessDispatcher.Result res = InProcessDispatcher.dispatch(target(ctrl, "echo", unauthorized), "/test/echo", signedHead(), null, null);
+		assertEquals(HttpServletResponse.SC_UNAUTHORIZED, ConvertUtility.getValueAsInt(res.getResult().get(KeyConstants.ResultCode)));
+		assertEquals(HttpServletResponse.SC_UNAUTHORIZED + "", res.getHead().get(KeyConstants.ResultCode));
+
+		res = InProcessDispatcher.dispatch(target(ctrl, "echo", silent), "/test/echo", signedHead(), null, null);
+		assertEquals(HttpServletResponse.SC_FORBIDDEN, ConvertUtility.getValueAsInt(res.getResult().get(KeyConstants.ResultCode)));
+		assertEquals(0, ctrl.calls.get());
+	}
+
+	@Test
+	public void interceptorsSeeMappingPattern() throws Exception {
+		EchoController ctrl = new EchoController();
+		Object[] seen = new Object[2];
+		HandlerInterceptor capture = new HandlerInterceptor() {
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				seen[0] = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+				seen[1] = MonitorInterceptor.transcode(request);
+				return true;
+			}
+		};
+
+		InProcessDispatcher.dispatch(target(ctrl, "echo", capture), "/test/echo", signedHead(), null, null);
+
+		assertEquals("/test/echo", seen[0]);
+		assertEquals("/test/echo", seen[1]);
+	}
+
+	@Test
+	public void writingResponseBodyBecomesErrorFrame() throws Exception {
+		EchoController ctrl = new EchoController();
+
+		InProcessDispatcher.Result res = InProcessDispatcher.dispatch(target(ctrl, "writeBody"), "/test/writeBody", signedHead(), null, null);
+
+		assertEquals(1, ctrl.calls.get());
+		assertEquals(HttpServletResponse.SC_NOT_IMPLEMENTED, ConvertUtility.getValueAsInt(res.getResult().get(KeyConstants.ResultCode)));
+	}
+
+	@Test
+	public void unknownTransCodeIsNotDispatched() {
+		assertFalse(InProcessDispatcher.canDispatch("/test/nosuch"));
+		assertNull(InProcessDispatcher.dispatch("/test/nosuch", signedHead(), null, null));
+	}
+
+	private static InProcessDispatcher.Target target(Object bean, String method, HandlerInterceptor... interceptors) throws Exception {
+		HandlerMethod handler = new HandlerMethod(bean, bean.getClass().getMethod(method, HttpServletRequest.class, HttpServletResponse.class));
+		return new InProcessDispatcher.Target(handler, "/test/" + method, interceptors, new RequestHeaderInterceptor());
+	}
+
+	private static Map<String, Object> signedHead() {
+		Map<String, Object> head = new HashMap<String, Object>();
+		head.put("ClientChannel", "web");
+		head.put("ClientApp", App);
+		head.put("ClientVer", "1");
+		head.put(KeyConstants.Token, "tk");
+		String text = String.format("%s%s%s%s%s%s", "tk", SigKey, "web", App, "1", "");
+		head.put(KeyConstants.Signature, ShaUtility.getSha256(text));
+		return head;
+	}
+
+}
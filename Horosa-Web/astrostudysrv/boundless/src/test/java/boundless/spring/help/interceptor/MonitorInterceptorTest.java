@@ -0,0 +1,104 @@
+package boundless.spring.help.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.springframework.web.servlet.HandlerMapping;
+
+import boundless.utility.MetricsRegistry;
+
+public class MonitorInterceptorTest {
+
+	private static HttpServletRequest mockRequest(String uri, String pattern){
+		Map<String, Object> attrs = new HashMap<String, Object>();
+		if(pattern != null) {
+			attrs.put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+		}
+		return (HttpServletRequest) Proxy.newProxyInstance(
+			MonitorInterceptorTest.class.getClassLoader(),
+			new Class[] { HttpServletRequest.class },
+			(proxy, method, args)->{
+				switch(method.getName()) {
+				case "getRequestURI":
+					return "/astrostudy" + uri;
+				case "getContextPath":
+					return "/astrostudy";
+				case "setAttribute":
+					attrs.put(String.valueOf(args[0]), args[1]);
+					return null;
+				case "getAttribute":
+					return attrs.get(String.valueOf(args[0]));
+				case "removeAttribute":
+					attrs.remove(String.valueOf(args[0]));
+					return null;
+				default:
+					return null;
+				}
+			}
+		);
+	}
+
+	private static HttpServletResponse mockResponse(int status){
+		return (HttpServletResponse) Proxy.newProxyInstance(
+			MonitorInterceptorTest.class.getClassLoader(),
+			new Class[] { HttpServletResponse.class },
+			(proxy, method, args)->"getStatus".equals(method.getName()) ? status : null
+		);
+	}
+
+	private static void request(MonitorInterceptor interceptor, String uri, String pattern, int status) throws Exception {
+		HttpServletRequest request = mockRequest(uri, pattern);
+		HttpServletResponse response = mockResponse(status);
+		interceptor.preHandle(request, response, null);
+		interceptor.afterCompletion(request, response, null, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> endpoint(String key) {
+		Map<String, Object> eps = (Map<String, Object>) MetricsRegistry.snapshot().get("endpoints");
+		return (Map<String, Object>) eps.get(key);
+	}
+
+	@Test
+	public void pathVariablesShareOneEndpoint() throws Exception {
+		MonitorInterceptor interceptor = new MonitorInterceptor();
+		String pattern = "/monitortest/chart/{id}";
+		int before = ((Map<?, ?>) MetricsRegistry.snapshot().get("endpoints")).size();
+		for(int i=0; i<1000; i++) {
+			request(interceptor, "/monitortest/chart/" + i, pattern, i % 10 == 0 ? 500 : 200);
+		}
+
+		Map<String, Object> ep = endpoint(pattern);
+		assertEquals(1000L, ep.get("count"));
+		assertEquals(100L, ep.get("errors"));
+		assertEquals(0L, ep.get("inflight"));
+		assertNull(endpoint("/monitortest/chart/1"));
+		assertTrue(((Map<?, ?>) MetricsRegistry.snapshot().get("endpoints")).size() <= before + 1);
+	}
+
+	@Test
+	public void unmappedRequestsAreCountedTogether() throws Exception {
+		MonitorInterceptor interceptor = new MonitorInterceptor();
+		Map<String, Object> ep = endpoint(MetricsRegistry.UnmatchedEndpoint);
+		long before = ep == null ? 0 : (Long) ep.get("count");
+		for(int i=0; i<100; i++) {
+			request(interceptor, "/monitortest/nosuch/" + i, null, 404);
+		}
+
+		ep = endpoint(MetricsRegistry.UnmatchedEndpoint);
+		assertEquals(before + 100, ((Long) ep.get("count")).longValue());
+		assertNull(endpoint("/monitortest/nosuch/1"));
+		assertFalse(((Map<?, ?>) MetricsRegistry.snapshot().get("endpoints")).containsKey(MetricsRegistry.OtherEndpoint));
+	}
+
+}
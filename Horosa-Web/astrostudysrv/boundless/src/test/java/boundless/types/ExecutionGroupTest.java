@@ -0,0 +1,158 @@
+package boundless.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import boundless.types.ExecutionGroup.RejectPolicy;
+
+public class ExecutionGroupTest {
+
+	@Test
+	public void callerRunsWhenQueueIsFull() throws Exception{
+		ExecutionGroup group = new ExecutionGroup(1, 1, RejectPolicy.CallerRuns, "test-callerruns");
+		CountDownLatch gate = new CountDownLatch(1);
+		try{
+			group.execute(()->await(gate));
+			group.execute(()->{});
+			List<String> threads = new CopyOnWriteArrayList<String>();
+			group.execute(()->threads.add(Thread.currentThread().getName()));
+			assertEquals(Thread.currentThread().getName(), threads.get(0));
+			assertEquals(1, group.getCallerRunsCount());
+			assertEquals(1, group.getQueueDepth());
+		}finally{
+			gate.countDown();
+			group.waitAllFinish(10);
+			group.close();
+		}
+		assertEquals(3, group.getCompletedCount());
+	}
+
+	@Test
+	public void dropOldestKeepsNewestTasks() throws Exception{
+		ExecutionGroup group = new ExecutionGroup(1, 2, RejectPolicy.DropOldest, "test-dropoldest");
+		CountDownLatch gate = new CountDownLatch(1);
+		List<Integer> ran = new CopyOnWriteArrayList<Integer>();
+		try{
+			group.execute(()->await(gate));
+			for(int i=0; i<4; i++){
+				int n = i;
+				group.execute(()->ran.add(n));
+			}
+			assertEquals(2, group.getDroppedCount());
+			assertEquals(2, group.getQueueDepth());
+		}finally{
+			gate.countDown();
+			group.waitAllFinish(10);
+			group.close();
+		}
+		assertEquals(List.of(2, 3), ran);
+		assertEquals(0, group.getRunning());
+	}
+
+	@Test
+	public void blockRejectsAfterTimeout() throws Exception{
+		ExecutionGroup group = new ExecutionGroup(1, 0, RejectPolicy.Block, "test-block");
+		group.setBlockTimeoutMS(50);
+		CountDownLatch gate = new CountDownLatch(1);
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		try{
+			group.execute(()->await(gate));
+			long st = System.currentTimeMillis();
+			group.execute(()->{}, error::set);
+			assertTrue(System.currentTimeMillis() - st >= 50);
+			assertTrue(error.get() instanceof RejectedExecutionException);
+			assertEquals(1, group.getRejectedCount());
+			assertEquals(1, group.getBlockedCount());
+
+			CountDownLatch done = new CountDownLatch(1);
+			new Thread(()->{
+				group.execute(done::countDown);
+			}).start();
+			Thread.sleep(10);
+			gate.countDown();
+			assertTrue(done.await(1, TimeUnit.SECONDS));
+		}finally{
+			gate.countDown();
+			group.close();
+		}
+	}
+
+	@Test
+	public void rejectHandlerFiresWhenPoolIsFull() throws Exception{
+		ExecutionGroup group = new ExecutionGroup(1, 1, RejectPolicy.Abort, "test-abort");
+		CountDownLatch gate = new CountDownLatch(1);
+		List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+		try{
+			group.execute(()->await(gate), errors::add);
+			group.execute(()->{}, errors::add);
+			assertTrue(errors.isEmpty());
+			group.execute(()->{}, errors::add);
+			assertEquals(1, errors.size());
+			assertTrue(errors.get(0) instanceof RejectedExecutionException);
+			assertEquals(1, group.getRejectedCount());
+		}finally{
+			gate.countDown();
+			group.waitAllFinish(10);
+			group.close();
+		}
+		group.execute(()->{}, errors::add);
+		assertEquals(2, errors.size());
+		assertTrue(errors.get(1) instanceof RejectedExecutionException);
+	}
+
+	@Test
+	public void droppedAndThresholdTasksReachHandler() throws Exception{
+		ExecutionGroup group = new ExecutionGroup(1, 1, RejectPolicy.DropOldest, "test-dropped");
+		CountDownLatch gate = new CountDownLatch(1);
+		List<String> errors = new CopyOnWriteArrayList<String>();
+		try{
+			group.execute(()->await(gate));
+			group.execute(()->{}, (e)->errors.add("old"));
+			group.execute(()->{}, (e)->errors.add("new"));
+			assertEquals(List.of("old"), errors);
+
+			group.setTaskThreshold(1);
+			group.execute(()->{}, (e)->errors.add("threshold"));
+			assertEquals(List.of("old", "threshold"), errors);
+		}finally{
+			gate.countDown();
+			group.waitAllFinish(10);
+			group.close();
+		}
+	}
+
+	@Test
+	public void closeDropsQueuedTasksThroughHandler() throws Exception{
+		ExecutionGroup group = new ExecutionGroup(1, 4, RejectPolicy.Abort, "test-close");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch gate = new CountDownLatch(1);
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		group.execute(()->{
+			started.countDown();
+			await(gate);
+		});
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		group.execute(()->{}, error::set);
+		group.close();
+		assertTrue(error.get() instanceof RejectedExecutionException);
+		assertEquals(1, group.getDroppedCount());
+	}
+
+	private static void await(CountDownLatch gate){
+		try{
+			gate.await();
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
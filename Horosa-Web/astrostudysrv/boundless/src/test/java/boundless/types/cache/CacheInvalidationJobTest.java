@@ -0,0 +1,78 @@
+package boundless.types.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CacheInvalidationJobTest {
+
+	private static CacheInvalidationJob await(CacheInvalidationJob job) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(!job.isFinished() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue("job did not finish", job.isFinished());
+		return job;
+	}
+
+	@Test
+	public void allStepsDone() throws Exception {
+		FakeJedis jedis = new FakeJedis(5000);
+		LinkedHashMap<String, CacheInvalidationJob.Step> steps = new LinkedHashMap<String, CacheInvalidationJob.Step>();
+		steps.put("local", (progress)->3);
+		steps.put("redis", (progress)->RedisKeyScanner.remove(jedis, "key*", progress));
+		CacheInvalidationJob job = await(CacheInvalidationJob.submit("ok", steps));
+
+		assertEquals(CacheInvalidationJob.State.Done, job.getState());
+		assertEquals(5003, job.getRemoved());
+		assertNull(job.toMap().get("error"));
+		assertTrue(jedis.keys.isEmpty());
+	}
+
+	@Test
+	public void failedPipelineFailsTheJob() throws Exception {
+		FakeJedis jedis = new FakeJedis(9000);
+		jedis.failAtSync = 2;
+		boolean[] ranAfter = new boolean[] {false};
+		LinkedHashMap<String, CacheInvalidationJob.Step> steps = new LinkedHashMap<String, CacheInvalidationJob.Step>();
+		steps.put("local", (progress)->3);
+		steps.put("redis", (progress)->RedisKeyScanner.remove(jedis, "key*", progress));
+		steps.put("after", (progress)->{
+			ranAfter[0] = true;
+			return 2;
+		});
+		CacheInvalidationJob job = await(CacheInvalidationJob.submit("fail", steps));
+
+		assertEquals(CacheInvalidationJob.State.Failed, job.getState());
+		Map<String, Object> map = job.toMap();
+		assertEquals("Failed", map.get("state"));
+		assertTrue((String) map.get("error"), ((String) map.get("error")).startsWith("redis: "));
+		assertTrue("later steps still run", ranAfter[0]);
+		assertFalse(jedis.keys.isEmpty());
+		assertEquals(3 + (9000 - jedis.keys.size()) + 2, job.getRemoved());
+	}
+
+	@Test
+	public void everyFailedStepIsReported() throws Exception {
+		LinkedHashMap<String, CacheInvalidationJob.Step> steps = new LinkedHashMap<String, CacheInvalidationJob.Step>();
+		steps.put("a", (progress)->{
+			throw new IllegalStateException("boom");
+		});
+		steps.put("b", (progress)->1);
+		steps.put("c", (progress)->{
+			throw new IllegalStateException("bang");
+		});
+		CacheInvalidationJob job = await(CacheInvalidationJob.submit("errors", steps));
+
+		assertEquals(CacheInvalidationJob.State.Failed, job.getState());
+		assertEquals("a: boom; c: bang", job.toMap().get("error"));
+		assertEquals(1, job.getRemoved());
+	}
+
+}
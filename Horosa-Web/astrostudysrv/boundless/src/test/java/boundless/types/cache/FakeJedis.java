@@ -0,0 +1,89 @@
+package boundless.types.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import redis.clients.jedis.BuilderFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 内存中的键集合，不连接redis。SCAN按页返回全部键（忽略模式），
+ * pipeline中的UNLINK/DEL在sync时执行；第failAtSync次及以后的sync抛出连接异常
+ */
+class FakeJedis extends Jedis {
+	final TreeSet<String> keys = new TreeSet<String>();
+	int pageSize = 300;
+	int failAtSync = 0;
+	int syncs = 0;
+
+	FakeJedis(int count) {
+		for(int i=0; i<count; i++) {
+			this.keys.add(String.format("key%06d", i));
+		}
+	}
+
+	@Override
+	public ScanResult<String> scan(String cursor, ScanParams params) {
+		String last = ScanParams.SCAN_POINTER_START.equals(cursor) ? null : cursor.substring(1);
+		List<String> page = new ArrayList<String>();
+		for(String key : last == null ? this.keys : this.keys.tailSet(last, false)) {
+			if(page.size() >= this.pageSize) {
+				break;
+			}
+			page.add(key);
+		}
+		boolean end = page.isEmpty() || page.get(page.size() - 1).equals(this.keys.last());
+		return new ScanResult<String>(end ? ScanParams.SCAN_POINTER_START : "k" + page.get(page.size() - 1), page);
+	}
+
+	@Override
+	public Pipeline pipelined() {
+		return new FakePipeline();
+	}
+
+	private class FakePipeline extends Pipeline {
+		private final List<String[]> batches = new ArrayList<String[]>();
+		private final List<Response<Long>> resps = new ArrayList<Response<Long>>();
+
+		@Override
+		public Response<Long> unlink(String... keys) {
+			Response<Long> resp = new Response<Long>(BuilderFactory.LONG);
+			this.batches.add(keys);
+			this.resps.add(resp);
+			return resp;
+		}
+
+		@Override
+		public Response<Long> del(String... keys) {
+			return unlink(keys);
+		}
+
+		@Override
+		public void sync() {
+			syncs++;
+			if(failAtSync > 0 && syncs >= failAtSync) {
+				throw new JedisConnectionException("Unexpected end of stream.");
+			}
+			for(int i=0; i<this.batches.size(); i++) {
+				long n = 0;
+				for(String key : this.batches.get(i)) {
+					if(FakeJedis.this.keys.remove(key)) {
+						n++;
+					}
+				}
+				this.resps.get(i).set(n);
+			}
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
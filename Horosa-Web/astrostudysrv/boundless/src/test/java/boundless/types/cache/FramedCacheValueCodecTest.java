@@ -0,0 +1,143 @@
+package boundless.types.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+public class FramedCacheValueCodecTest {
+	private static final int Threshold = 64;
+
+	private FramedCacheValueCodec codec = new FramedCacheValueCodec(Threshold, Deflater.BEST_SPEED, null);
+
+	private static String repeat(String str, int times) {
+		StringBuilder sb = new StringBuilder();
+		for(int i=0; i<times; i++) {
+			sb.append(str).append(i);
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void shortStringsAndNumbersStayPlainText() {
+		String str = "12345";
+		byte[] data = codec.encode(str);
+		assertArrayEquals(str.getBytes(StandardCharsets.UTF_8), data);
+		assertFalse(CacheValueCodec.isFrame(data));
+		assertEquals(str, codec.decode(data));
+
+		// INCRBY之类的命令要求值是十进制文本
+		assertArrayEquals("42".getBytes(StandardCharsets.UTF_8), codec.encode(42L));
+		assertArrayEquals("-7".getBytes(StandardCharsets.UTF_8), codec.encode(-7));
+		assertEquals("42", codec.decode(codec.encode(42L)));
+
+		String below = "x";
+		while(below.getBytes(StandardCharsets.UTF_8).length < Threshold - 3) {
+			below += "星";
+		}
+		assertFalse(CacheValueCodec.isFrame(codec.encode(below)));
+		assertEquals(below, codec.decode(codec.encode(below)));
+	}
+
+	@Test
+	public void longStringsAreFramedAndCompressed() {
+		String str = repeat("星盘chart", 200);
+		byte[] data = codec.encode(str);
+		assertTrue(CacheValueCodec.isFrame(data));
+		assertEquals(FramedCacheValueCodec.TypeString, data[2]);
+		assertEquals(FramedCacheValueCodec.FlagDeflate, data[3]);
+		assertTrue(data.length < str.getBytes(StandardCharsets.UTF_8).length / 2);
+		assertEquals(str, codec.decode(data));
+	}
+
+	@Test
+	public void mapsAndListsRoundTrip() {
+		Map<String, Object> small = new HashMap<String, Object>();
+		small.put("name", "甲子");
+		small.put("ord", 3);
+		small.put("ok", true);
+		byte[] data = codec.encode(small);
+		assertTrue(CacheValueCodec.isFrame(data));
+		assertEquals(FramedCacheValueCodec.TypeJson, data[2]);
+		assertEquals(0, data[3]);
+		assertEquals(small, codec.decode(data));
+
+		List<Object> list = new ArrayList<Object>();
+		for(int i=0; i<200; i++) {
+			Map<String, Object> item = new HashMap<String, Object>();
+			item.put("id", i);
+			item.put("title", "第" + i + "章");
+			item.put("tags", List.of("a", "b"));
+			list.add(item);
+		}
+		data = codec.encode(list);
+		assertEquals(FramedCacheValueCodec.TypeJson, data[2]);
+		assertEquals(FramedCacheValueCodec.FlagDeflate, data[3]);
+		assertEquals(list, codec.decode(data));
+	}
+
+	@Test
+	public void bytesRoundTrip() {
+		byte[] small = new byte[] {0, 1, 2, (byte) 0xC1, (byte) 0xFF};
+		byte[] data = codec.encode(small);
+		assertEquals(FramedCacheValueCodec.TypeBytes, data[2]);
+		assertArrayEquals(small, (byte[]) codec.decode(data));
+
+		byte[] large = repeat("0123456789", 100).getBytes(StandardCharsets.UTF_8);
+		data = codec.encode(large);
+		assertEquals(FramedCacheValueCodec.FlagDeflate, data[3]);
+		assertArrayEquals(large, (byte[]) codec.decode(data));
+
+		assertArrayEquals(new byte[0], (byte[]) codec.decode(codec.encode(new byte[0])));
+	}
+
+	@Test
+	public void incompressibleDataIsStoredUncompressed() {
+		byte[] raw = new byte[4096];
+		new Random(22).nextBytes(raw);
+		byte[] data = codec.encode(raw);
+		assertEquals(0, data[3]);
+		assertEquals(raw.length + 4, data.length);
+		assertArrayEquals(raw, (byte[]) codec.decode(data));
+	}
+
+	@Test
+	public void legacyValuesReadAsText() {
+		String json = "{\"name\":\"甲子\",\"ord\":3}";
+		assertEquals(json, codec.decode(json.getBytes(StandardCharsets.UTF_8)));
+		assertEquals("旧条目", codec.decode("旧条目".getBytes(StandardCharsets.UTF_8)));
+		assertEquals("", codec.decode(new byte[0]));
+	}
+
+	@Test
+	public void dictionaryMismatchFails() {
+		byte[] dict = repeat("\"chartId\":\"houses\":", 20).getBytes(StandardCharsets.UTF_8);
+		FramedCacheValueCodec withDict = new FramedCacheValueCodec(Threshold, Deflater.BEST_SPEED, dict);
+		String str = repeat("\"chartId\":\"houses\":", 40);
+		byte[] data = withDict.encode(str);
+		assertEquals(FramedCacheValueCodec.FlagDeflate | FramedCacheValueCodec.FlagDict, data[3]);
+		assertEquals(str, withDict.decode(data));
+
+		FramedCacheValueCodec otherDict = new FramedCacheValueCodec(Threshold, Deflater.BEST_SPEED, "other".getBytes(StandardCharsets.UTF_8));
+		for(FramedCacheValueCodec reader : new FramedCacheValueCodec[] {otherDict, codec}) {
+			try {
+				reader.decode(data);
+				fail("frame written with another dictionary must not decode");
+			}catch(IllegalStateException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("dictionary"));
+			}
+		}
+	}
+
+}
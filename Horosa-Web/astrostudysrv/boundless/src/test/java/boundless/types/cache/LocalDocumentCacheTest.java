@@ -0,0 +1,250 @@
+package boundless.types.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import boundless.types.cache.FilterCond.CondOperator;
+import boundless.types.cache.SortCond.SortType;
+
+public class LocalDocumentCacheTest {
+
+	private Path dir;
+
+	@Before
+	public void setup() throws Exception{
+		dir = Files.createTempDirectory("localdoccache");
+	}
+
+	@After
+	public void cleanup() throws Exception{
+		try(Stream<Path> stream = Files.walk(dir)){
+			stream.sorted(Comparator.reverseOrder()).forEach((path)->path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void recoversFromJournalWithoutSnapshot() throws Exception{
+		Path store = dir.resolve("chart.json");
+		LocalDocumentCache cache = new LocalDocumentCache("chart", "cid", "v", store);
+		cache.setMap("c1", chart("alice"));
+		cache.setMap("c2", chart("bob"));
+		cache.setMap("c1", chart("alice2"));
+		cache.remove("c2");
+
+		assertFalse(Files.exists(store));
+
+		LocalDocumentCache reopened = new LocalDocumentCache("chart", "cid", "v", store);
+		assertEquals("alice2", reopened.getMap("c1").get("name"));
+		assertNull(reopened.getMap("c2"));
+	}
+
+	@Test
+	public void compactsJournalIntoSnapshot() throws Exception{
+		Path store = dir.resolve("translog.json");
+		LocalDocumentCache cache = new LocalDocumentCache("translog", "_id", "v", store);
+		for(int i=0; i<3000; i++){
+			cache.put("k" + (i % 10), i);
+		}
+		for(int i=0; i<50 && !Files.exists(store); i++){
+			Thread.sleep(100);
+		}
+		assertTrue(Files.exists(store));
+
+		LocalDocumentCache reopened = new LocalDocumentCache("translog", "_id", "v", store);
+		for(int i=0; i<10; i++){
+			assertEquals(2990 + i, ((Number)reopened.get("k" + i)).intValue());
+		}
+	}
+
+	@Test
+	public void ignoresTornJournalTail() throws Exception{
+		Path store = dir.resolve("user.json");
+		LocalDocumentCache cache = new LocalDocumentCache("user", "uid", "v", store);
+		cache.setMap("u1", chart("carol"));
+		Path journal = store.resolveSibling("user.json.journal.1");
+		Files.writeString(journal, Files.readString(journal) + "{\"op\":\"put\",\"k\":\"u2\",\"doc\":{\"ui");
+
+		LocalDocumentCache reopened = new LocalDocumentCache("user", "uid", "v", store);
+		assertEquals("carol", reopened.getMap("u1").get("name"));
+		assertNull(reopened.getMap("u2"));
+		reopened.setMap("u3", chart("dave"));
+
+		LocalDocumentCache again = new LocalDocumentCache("user", "uid", "v", store);
+		assertEquals("dave", again.getMap("u3").get("name"));
+	}
+
+	@Test
+	public void batchWritesRecoverFromJournal() throws Exception{
+		Path store = dir.resolve("book.json");
+		LocalDocumentCache cache = new LocalDocumentCache("book", "chapterId", "v", store);
+		Map<Object, Map<String, Object>> chapters = new LinkedHashMap<Object, Map<String, Object>>();
+		for(int i=0; i<20; i++){
+			chapters.put("b_" + i, chart("chapter" + i));
+		}
+		cache.setMaps(chapters);
+		cache.setMaps(Collections.singletonMap("b_3", chart("chapter3v2")));
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		values.put("k1", 1);
+		values.put("k2", "two");
+		cache.putAll(values);
+		Map<String, Object> doc = chart("extra");
+		doc.put("chapterId", "b_extra");
+		cache.addAll(Arrays.asList(doc));
+
+		LocalDocumentCache reopened = new LocalDocumentCache("book", "chapterId", "v", store);
+		assertEquals(23, reopened.countValues());
+		assertEquals("chapter0", reopened.getMap("b_0").get("name"));
+		assertEquals("chapter3v2", reopened.getMap("b_3").get("name"));
+		assertEquals("chapter19", reopened.getMap("b_19").get("name"));
+		assertEquals("extra", reopened.getMap("b_extra").get("name"));
+		assertEquals(1, ((Number)reopened.get("k1")).intValue());
+		assertEquals("two", reopened.get("k2"));
+	}
+
+	@Test
+	public void indexedQueriesMatchFullScan() throws Exception{
+		LocalDocumentCache plain = new LocalDocumentCache("chart", "cid", "v", null);
+		LocalDocumentCache indexed = new LocalDocumentCache("chart", "cid", "v", null);
+		indexed.createIndex("creator");
+		indexed.createIndex("updateTime", true);
+		for(int i=0; i<500; i++){
+			Map<String, Object> map = chart("n" + i);
+			map.put("creator", "u" + (i % 7));
+			map.put("updateTime", 1000 + (i * 37) % 400);
+			map.put("isPub", i % 3 == 0 ? 1 : 0);
+			plain.setMap("c" + i, map);
+			indexed.setMap("c" + i, map);
+		}
+		indexed.remove("c11");
+		plain.remove("c11");
+		indexed.setMap("c12", chart("moved"));
+		plain.setMap("c12", chart("moved"));
+
+		FilterCond user = new FilterCond("creator", CondOperator.Eq, "u3");
+		FilterCond after = new FilterCond("updateTime", CondOperator.Gt, 1200);
+		FilterCond before = new FilterCond("updateTime", CondOperator.Lte, 1100L);
+		FilterCond pub = new FilterCond("isPub", CondOperator.Eq, 1);
+		FilterCond users = new FilterCond("creator", CondOperator.In, Arrays.asList("u1", "u5"));
+		FilterOrCond pubOrUser = new FilterOrCond(pub, user);
+		SortCond asc = new SortCond("updateTime", SortType.Asc);
+		SortCond desc = new SortCond("updateTime", SortType.Desc);
+
+		assertSameResult(plain.findValues(user), indexed.findValues(user));
+		assertSameResult(plain.findValues(users, before), indexed.findValues(users, before));
+		assertSameResult(plain.findValues(pubOrUser, after), indexed.findValues(pubOrUser, after));
+		assertSameResult(plain.findValues(new FilterCond("cid", CondOperator.Eq, "c42")), indexed.findValues(new FilterCond("cid", CondOperator.Eq, "c42")));
+		assertEquals(plain.countValues(user, after), indexed.countValues(user, after));
+		assertSortedPrefix(plain.findValues(asc, user, after), indexed.findValues(20, asc, user, after), 20, asc);
+		assertSortedPrefix(plain.findValues(desc, pub), indexed.findValues(10, desc, pub), 10, desc);
+		assertSortedPrefix(plain.findValues(asc, after), indexed.findValues(5, asc, after), 5, asc);
+
+		assertEquals(plain.remove(user, before), indexed.remove(user, before));
+		assertSameResult(plain.findValues(user), indexed.findValues(user));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void readsReturnDetachedCopiesAndViewsAreReadOnly() throws Exception{
+		LocalDocumentCache cache = new LocalDocumentCache("chart", "cid", "v", null);
+		Map<String, Object> map = chart("alice");
+		map.put("tags", new ArrayList<Object>(Arrays.asList("a", "b")));
+		cache.setMap("c1", map);
+		cache.put("k1", map);
+
+		Map<String, Object> copy = cache.getMap("c1");
+		copy.put("name", "changed");
+		((List<Object>)copy.get("tags")).add("c");
+		((Map<String, Object>)cache.get("k1")).put("name", "changed");
+		assertEquals("alice", cache.getMap("c1").get("name"));
+		assertEquals(2, ((List<?>)cache.getMap("c1").get("tags")).size());
+		assertEquals("alice", ((Map<?, ?>)cache.get("k1")).get("name"));
+
+		Map<String, Object> view = cache.getMapView("c1");
+		assertSame(view, cache.findValuesView(1, null, new FilterCond("cid", CondOperator.Eq, "c1")).get(0));
+		try{
+			((List<Object>)view.get("tags")).add("c");
+			fail("view should be read-only");
+		}catch(UnsupportedOperationException e){
+		}
+
+		cache.putFieldValue((Object)"c1", "name", "bob");
+		assertEquals("alice", view.get("name"));
+		assertEquals("bob", cache.getMapView("c1").get("name"));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void projectionCopiesOnlyKeptFields() throws Exception{
+		LocalDocumentCache cache = new LocalDocumentCache("chart", "cid", "v", null);
+		for(int i=0; i<5; i++){
+			Map<String, Object> map = chart("n" + i);
+			map.put("creator", "u1");
+			map.put("memoAstro", "memo" + i);
+			map.put("tags", new ArrayList<Object>(Arrays.asList("a")));
+			cache.setMap("c" + i, map);
+		}
+		SortCond asc = new SortCond("name", SortType.Asc);
+		FilterCond user = new FilterCond("creator", CondOperator.Eq, "u1");
+
+		List<Map<String, Object>> list = cache.findValues(3, asc, Projection.include("cid", "name", "tags"), user);
+		assertEquals(3, list.size());
+		assertEquals(Arrays.asList("cid", "name", "tags"), list.get(0).keySet().stream().sorted().toList());
+		assertEquals("n0", list.get(0).get("name"));
+		((List<Object>)list.get(0).get("tags")).add("b");
+		assertEquals(1, ((List<?>)cache.getMap("c0").get("tags")).size());
+
+		Map<String, Object> doc = cache.getMap("c1", Projection.exclude("memoAstro", "tags"));
+		assertFalse(doc.containsKey("memoAstro"));
+		assertFalse(doc.containsKey("tags"));
+		assertEquals("n1", doc.get("name"));
+		assertEquals("u1", doc.get("creator"));
+		assertNull(cache.getMap("c9", Projection.include("name")));
+	}
+
+	private static void assertSameResult(List<Map<String, Object>> expected, List<Map<String, Object>> actual){
+		assertEquals(cids(expected).stream().sorted().toList(), cids(actual).stream().sorted().toList());
+	}
+
+	private static void assertSortedPrefix(List<Map<String, Object>> all, List<Map<String, Object>> page, int limit, SortCond sort){
+		assertEquals(Math.min(all.size(), limit), page.size());
+		for(int i=0; i<page.size(); i++){
+			assertEquals(((Number)all.get(i).get(sort.getField())).longValue(), ((Number)page.get(i).get(sort.getField())).longValue());
+		}
+	}
+
+	private static List<String> cids(List<Map<String, Object>> list){
+		List<String> ids = new ArrayList<String>();
+		for(Map<String, Object> map : list){
+			ids.add((String)map.get("cid"));
+		}
+		return ids;
+	}
+
+	private static Map<String, Object> chart(String name){
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("name", name);
+		map.put("updateTime", System.currentTimeMillis());
+		return map;
+	}
+
+}
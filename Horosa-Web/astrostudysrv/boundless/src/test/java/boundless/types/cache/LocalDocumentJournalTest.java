@@ -0,0 +1,259 @@
+package boundless.types.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalDocumentJournalTest {
+
+	/**
+	 * 转发给真实文件的FileChannel：tearAt之后的那次write只写一半就抛IOException，并统计force次数
+	 */
+	private static class TearingChannel extends FileChannel {
+		private final FileChannel ch;
+		private final int tearAt;
+		private int writes = 0;
+		private int forces = 0;
+
+		TearingChannel(FileChannel ch, int tearAt) {
+			this.ch = ch;
+			this.tearAt = tearAt;
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			if(++writes == tearAt) {
+				ByteBuffer half = src.duplicate();
+				half.limit(half.position() + half.remaining() / 2);
+				ch.write(half);
+				throw new IOException("disk full");
+			}
+			return ch.write(src);
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			forces++;
+			ch.force(metaData);
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			return ch.read(dst);
+		}
+
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			return ch.read(dsts, offset, length);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			return ch.write(srcs, offset, length);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return ch.position();
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			ch.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return ch.size();
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			ch.truncate(size);
+			return this;
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return ch.transferTo(position, count, target);
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			return ch.transferFrom(src, position, count);
+		}
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			return ch.read(dst, position);
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException {
+			return ch.write(src, position);
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return ch.map(mode, position, size);
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return ch.lock(position, size, shared);
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return ch.tryLock(position, size, shared);
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			ch.close();
+		}
+	}
+
+	private static class TearingJournal extends LocalDocumentJournal {
+		private final Map<Path, TearingChannel> channels = new LinkedHashMap<Path, TearingChannel>();
+		private final Map<String, Integer> tearAt = new HashMap<String, Integer>();
+
+		TearingJournal(Path storeFile) {
+			super(storeFile, "user", "uid", "v");
+		}
+
+		@Override
+		FileChannel openJournal(Path path) throws IOException {
+			Integer at = tearAt.get(path.getFileName().toString());
+			TearingChannel ch = new TearingChannel(super.openJournal(path), at == null ? -1 : at);
+			channels.put(path, ch);
+			return ch;
+		}
+
+		int forces() {
+			int n = 0;
+			for(TearingChannel ch : channels.values()) {
+				n += ch.forces;
+			}
+			return n;
+		}
+	}
+
+	private Path dir;
+
+	@Before
+	public void setup() throws Exception{
+		dir = Files.createTempDirectory("localdocjournal");
+	}
+
+	@After
+	public void cleanup() throws Exception{
+		try(Stream<Path> stream = Files.walk(dir)){
+			stream.sorted(Comparator.reverseOrder()).forEach((path)->path.toFile().delete());
+		}
+	}
+
+	private static Map<String, Object> user(String uid, String name){
+		Map<String, Object> doc = new LinkedHashMap<String, Object>();
+		doc.put("uid", uid);
+		doc.put("name", name);
+		return doc;
+	}
+
+	private static Map<String, Map<String, Object>> reload(Path store){
+		Map<String, Map<String, Object>> docs = new HashMap<String, Map<String, Object>>();
+		new LocalDocumentJournal(store, "user", "uid", "v").load(docs);
+		return docs;
+	}
+
+	@Test
+	public void failedAppendRollsToNewGeneration() throws Exception{
+		Path store = dir.resolve("user.json");
+		TearingJournal journal = new TearingJournal(store);
+		journal.tearAt.put("user.json.journal.1", 2);
+		journal.load(new HashMap<String, Map<String, Object>>());
+
+		journal.appendPut("u1", user("u1", "carol"));
+		assertFalse(journal.needCompact(1));
+		journal.appendPut("u2", user("u2", "dave"));
+		assertTrue("a lost write must be compacted back", journal.needCompact(2));
+		journal.appendPut("u3", user("u3", "erin"));
+		journal.close();
+
+		String torn = Files.readString(store.resolveSibling("user.json.journal.1"));
+		assertFalse("journal 1 must end in the torn line", torn.endsWith("\n"));
+		assertTrue(Files.exists(store.resolveSibling("user.json.journal.2")));
+
+		Map<String, Map<String, Object>> docs = reload(store);
+		assertEquals("carol", docs.get("u1").get("name"));
+		assertNull(docs.get("u2"));
+		assertEquals("erin", docs.get("u3").get("name"));
+	}
+
+	@Test
+	public void snapshotAfterFailedAppendRestoresLostWrite() throws Exception{
+		Path store = dir.resolve("user.json");
+		TearingJournal journal = new TearingJournal(store);
+		journal.tearAt.put("user.json.journal.1", 2);
+		journal.load(new HashMap<String, Map<String, Object>>());
+
+		journal.appendPut("u1", user("u1", "carol"));
+		journal.appendPut("u2", user("u2", "dave"));
+		assertTrue(journal.needCompact(2));
+		long gen = journal.rotate();
+		assertFalse(journal.needCompact(2));
+		journal.writeSnapshot(Arrays.asList(user("u1", "carol"), user("u2", "dave")), gen);
+		journal.appendPut("u3", user("u3", "erin"));
+		journal.close();
+
+		assertFalse(Files.exists(store.resolveSibling("user.json.journal.1")));
+		Map<String, Map<String, Object>> docs = reload(store);
+		assertEquals(3, docs.size());
+		assertEquals("dave", docs.get("u2").get("name"));
+	}
+
+	@Test
+	public void forcesEachAppendAndEachBatchOnce() throws Exception{
+		Path store = dir.resolve("user.json");
+		TearingJournal journal = new TearingJournal(store);
+		journal.load(new HashMap<String, Map<String, Object>>());
+
+		journal.appendPut("u1", user("u1", "carol"));
+		journal.appendRemove("u1");
+		assertEquals(2, journal.forces());
+
+		journal.beginBatch();
+		for(int i=0; i<50; i++){
+			journal.appendPut("b" + i, user("b" + i, "batch" + i));
+		}
+		assertEquals(2, journal.forces());
+		journal.endBatch();
+		assertEquals(3, journal.forces());
+		journal.close();
+
+		assertEquals(50, reload(store).size());
+	}
+
+}
@@ -0,0 +1,83 @@
+package boundless.types.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MemCacheTierTest {
+
+	@Test
+	public void evictsByWeightAndKeepsHotEntries() throws Exception{
+		MemCacheTier tier = new MemCacheTier("test", 20000, 3600);
+		tier.put("hot", "h", 0);
+		for(int i=0; i<500; i++){
+			tier.put("k" + i, "0123456789012345678901234567890123456789", 0);
+			assertEquals("h", tier.get("hot"));
+		}
+		assertTrue(tier.getWeight() <= tier.getMaxWeight());
+		assertTrue(tier.getEvictionCount() > 0);
+		assertEquals("h", tier.get("hot"));
+		assertNull(tier.get("k0"));
+		assertTrue(tier.getMissCount() > 0);
+
+		tier.put("huge", new byte[20000], 0);
+		assertNull(tier.get("huge"));
+	}
+
+	@Test
+	public void expiresEntriesByTheirOwnTTL() throws Exception{
+		MemCacheTier tier = new MemCacheTier("test", 1 << 20, 3600);
+		tier.put("short", "v", 1);
+		tier.put("long", "v", 0);
+		tier.refresh("gone", "v");
+		assertFalse(tier.containsKey("gone"));
+		Thread.sleep(1100);
+		assertNull(tier.get("short"));
+		assertEquals("v", tier.get("long"));
+		assertEquals(1, tier.getExpiredCount());
+	}
+
+	@Test
+	public void claimsOneRefreshPerInterval() throws Exception{
+		MemCacheTier tier = new MemCacheTier("test", 1 << 20, 3600, 1);
+		tier.put("k", "v", 0);
+		assertFalse(tier.claimRefresh("k"));
+		assertFalse(tier.claimRefresh("missing"));
+		Thread.sleep(1100);
+		assertTrue(tier.claimRefresh("k"));
+		assertFalse(tier.claimRefresh("k"));
+		tier.refresh("k", "v2");
+		assertFalse(tier.claimRefresh("k"));
+		assertEquals("v2", tier.get("k"));
+
+		tier.put("short", "v", 1);
+		Thread.sleep(850);
+		assertTrue(tier.claimRefresh("short"));
+	}
+
+	@Test
+	public void matchesGlobPatterns() throws Exception{
+		MemCacheTier tier = new MemCacheTier("test", 1 << 20, 3600);
+		tier.put("astrostudy_paramhash_a1", 1, 0);
+		tier.put("astrostudy_paramhash_b2", 2, 0);
+		tier.put("astrostudy_chart_a1", 3, 0);
+		tier.put("other_paramhash_a1", 4, 0);
+
+		Map<String, Object> map = tier.getMany("astrostudy_paramhash_*");
+		assertEquals(2, map.size());
+		assertEquals(2, tier.countMany("astrostudy_*_a1"));
+		assertEquals(2, tier.countMany("paramhash_a1"));
+		assertEquals(1, tier.countMany("astrostudy_paramhash_?2"));
+
+		assertEquals(2, tier.removeMany("astrostudy_paramhash_*"));
+		assertNull(tier.get("astrostudy_paramhash_a1"));
+		assertEquals(3, tier.get("astrostudy_chart_a1"));
+		assertEquals(2, tier.getSize());
+	}
+
+}
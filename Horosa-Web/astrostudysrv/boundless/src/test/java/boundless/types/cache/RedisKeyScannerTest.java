@@ -0,0 +1,55 @@
+package boundless.types.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class RedisKeyScannerTest {
+
+	@Test
+	public void removesEveryKeyAndReportsProgress() {
+		FakeJedis jedis = new FakeJedis(9000);
+		List<Long> progress = new ArrayList<Long>();
+		long n = RedisKeyScanner.remove(jedis, "key*", progress::add);
+
+		assertEquals(9000, n);
+		assertTrue(jedis.keys.isEmpty());
+		assertTrue("several pipelines expected", progress.size() > 1);
+		for(int i=1; i<progress.size(); i++) {
+			assertTrue(progress.get(i) > progress.get(i - 1));
+		}
+		assertEquals(9000L, progress.get(progress.size() - 1).longValue());
+	}
+
+	@Test
+	public void failedPipelineIsRaised() {
+		FakeJedis jedis = new FakeJedis(9000);
+		jedis.failAtSync = 2;
+		List<Long> progress = new ArrayList<Long>();
+		try {
+			RedisKeyScanner.remove(jedis, "key*", progress::add);
+			fail("a failed pipeline must not be reported as removed");
+		}catch(JedisConnectionException e) {
+		}
+
+		assertEquals(1, progress.size());
+		assertEquals(9000 - progress.get(0), jedis.keys.size());
+	}
+
+	@Test
+	public void unlinkListCountsRemovedKeys() {
+		FakeJedis jedis = new FakeJedis(100);
+		List<String> keys = new ArrayList<String>(jedis.keys.headSet("key000040"));
+		keys.add("missing");
+		assertEquals(40, RedisKeyScanner.unlink(jedis, keys));
+		assertEquals(60, jedis.keys.size());
+	}
+
+}
@@ -0,0 +1,48 @@
+package boundless.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsCoverEveryValueWithBoundedError() throws Exception{
+		long[] samples = new long[] {0, 1, 15, 16, 17, 23, 24, 1000, 1023, 1024, 999999, 123456789L, 1L << 42, Long.MAX_VALUE / 2};
+		for(long us : samples) {
+			int idx = LatencyHistogram.indexOf(us);
+			long upper = LatencyHistogram.upperBoundOf(idx);
+			if(idx == LatencyHistogram.indexOf(Long.MAX_VALUE)) {
+				continue;
+			}
+			assertTrue(upper >= us);
+			assertTrue(upper - us <= Math.max(0, us / 8));
+			if(idx > 0) {
+				assertTrue(LatencyHistogram.upperBoundOf(idx - 1) < us);
+			}
+		}
+	}
+
+	@Test
+	public void percentilesTrackRecordedDistribution() throws Exception{
+		LatencyHistogram h = new LatencyHistogram();
+		for(int i=1; i<=1000; i++) {
+			h.recordMicros(i * 100L, i > 990);
+		}
+		assertEquals(1000, h.getCount());
+		assertEquals(10, h.getErrorCount());
+		long p50 = h.percentileMicros(0.5);
+		long p99 = h.percentileMicros(0.99);
+		assertTrue(p50 >= 50000 && p50 <= 50000 * 9 / 8);
+		assertTrue(p99 >= 99000 && p99 <= 99000 * 9 / 8);
+		assertEquals(100000, h.percentileMicros(1));
+		assertEquals((p50 + 999) / 1000, h.percentile(0.5));
+		Map<String, Object> map = h.toMap();
+		assertEquals(100.0, map.get("maxMs"));
+		assertEquals(50.05, map.get("meanMs"));
+	}
+
+}
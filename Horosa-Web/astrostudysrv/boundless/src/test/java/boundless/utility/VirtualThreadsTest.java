@@ -0,0 +1,128 @@
+package boundless.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import boundless.types.ExecutionGroup;
+
+public class VirtualThreadsTest {
+
+	private static final int Tasks = 2000;
+
+	@Test
+	public void executionGroupRunsOnVirtualWorkers() throws Exception{
+		if(!VirtualThreads.isSupported()) {
+			return;
+		}
+		ExecutionGroup.ExeGroupThreadFactory factory = new ExecutionGroup.ExeGroupThreadFactory("vt-test");
+		factory.setVirtual(true);
+		ExecutionGroup group = new ExecutionGroup(4, factory);
+		AtomicBoolean virtual = new AtomicBoolean();
+		CountDownLatch done = new CountDownLatch(1);
+		group.execute(()->{
+			virtual.set(VirtualThreads.isVirtual(Thread.currentThread()));
+			done.countDown();
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(virtual.get());
+		group.close();
+	}
+
+	/**
+	 * 虚拟线程模式下ExecutionGroup不复用工作线程，每个任务一个虚拟线程，size只限制同时执行的任务数
+	 */
+	@Test
+	public void executionGroupStartsOneVirtualThreadPerTaskUpToSize() throws Exception{
+		if(!VirtualThreads.isSupported()) {
+			return;
+		}
+		ExecutionGroup.ExeGroupThreadFactory factory = new ExecutionGroup.ExeGroupThreadFactory("vt-pertask");
+		factory.setVirtual(true);
+		ExecutionGroup group = new ExecutionGroup(4, 100, ExecutionGroup.RejectPolicy.Abort, factory);
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		AtomicInteger platform = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(4);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			for(int i=0; i<50; i++) {
+				group.execute(()->{
+					threads.add(Thread.currentThread());
+					if(!VirtualThreads.isVirtual(Thread.currentThread())) {
+						platform.incrementAndGet();
+					}
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+					started.countDown();
+					try {
+						release.await();
+					}catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					running.decrementAndGet();
+				});
+			}
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			Thread.sleep(100);
+			assertEquals(4, group.getActiveCount());
+			assertEquals(46, group.getQueueDepth());
+		}finally {
+			release.countDown();
+		}
+		group.waitAllFinish(10);
+		group.close();
+		assertEquals(50, group.getCompletedCount());
+		assertEquals(4, maxRunning.get());
+		assertEquals(50, threads.size());
+		assertEquals(0, platform.get());
+	}
+
+	/**
+	 * 每个任务一个虚拟线程：远超平台线程池大小的阻塞任务能同时挂起，且都跑在虚拟线程上
+	 */
+	@Test
+	public void perTaskExecutorRunsEveryBlockedTaskAtOnce() throws Exception{
+		if(!VirtualThreads.isSupported()) {
+			return;
+		}
+		ExecutorService executor = VirtualThreads.perTaskExecutor("vt-load-");
+		CountDownLatch started = new CountDownLatch(Tasks);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(Tasks);
+		AtomicInteger platform = new AtomicInteger();
+		for(int i=0; i<Tasks; i++) {
+			executor.execute(()->{
+				try {
+					if(!VirtualThreads.isVirtual(Thread.currentThread())) {
+						platform.incrementAndGet();
+					}
+					started.countDown();
+					release.await();
+				}catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}finally {
+					done.countDown();
+				}
+			});
+		}
+		try {
+			assertTrue(started.await(30, TimeUnit.SECONDS));
+		}finally {
+			release.countDown();
+		}
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		assertEquals(0, platform.get());
+		executor.shutdown();
+	}
+
+}
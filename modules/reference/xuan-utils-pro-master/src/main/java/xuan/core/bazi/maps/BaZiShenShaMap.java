@@ -2,6 +2,9 @@ package xuan.core.bazi.maps;
 
 import java.util.*;
 
+import xuan.utils.GanZhiCode;
+import xuan.utils.GanZhiTable;
+
 /**
  * 八字 - 神煞常量
  *
@@ -2344,5 +2347,281 @@ public class BaZiShenShaMap {
      */
     public static final String[] JIN_SHEN = {"乙丑", "己巳", "癸酉"};
 
+//*******************************************************************************************************************************
+
+    /**
+     * 太极贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TAI_JI_GUI_REN_TABLE = GanZhiTable.of(TAI_JI_GUI_REN, 2);
+
+    /**
+     * 天乙贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_YI_GUI_REN_TABLE = GanZhiTable.of(TIAN_YI_GUI_REN, 2);
+
+    /**
+     * 福星贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable FU_XING_GUI_REN_TABLE = GanZhiTable.of(FU_XING_GUI_REN, 2);
+
+    /**
+     * 文昌贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable WEN_CHANG_GUI_REN_TABLE = GanZhiTable.of(WEN_CHANG_GUI_REN, 2);
+
+    /**
+     * 天厨贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_CHU_GUI_REN_TABLE = GanZhiTable.of(TIAN_CHU_GUI_REN, 2);
+
+    /**
+     * 国印（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable GUO_YIN_TABLE = GanZhiTable.of(GUO_YIN, 2);
+
+    /**
+     * 金舆（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable JIN_YU_TABLE = GanZhiTable.of(JIN_YU, 2);
+
+    /**
+     * 红艳煞（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable HONG_YAN_SHA_TABLE = GanZhiTable.of(HONG_YAN_SHA, 2);
+
+    /**
+     * 羊刃（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable YANG_REN_TABLE = GanZhiTable.of(YANG_REN, 2);
+
+    /**
+     * 飞刃（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable FEI_REN_TABLE = GanZhiTable.of(FEI_REN, 2);
+
+    /**
+     * 流霞（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable LIU_XIA_TABLE = GanZhiTable.of(LIU_XIA, 2);
+
+    /**
+     * 禄神（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable LU_SHEN_TABLE = GanZhiTable.of(LU_SHEN, 2);
+
+    /**
+     * 驿马（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable YI_MA_TABLE = GanZhiTable.of(YI_MA, 2);
+
+    /**
+     * 劫煞（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable JIE_SHA_TABLE = GanZhiTable.of(JIE_SHA, 2);
+
+    /**
+     * 将星（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable JIANG_XING_TABLE = GanZhiTable.of(JIANG_XING, 2);
+
+    /**
+     * 桃花（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TAO_HUA_TABLE = GanZhiTable.of(TAO_HUA, 2);
+
+    /**
+     * 亡神（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable WANG_SHEN_TABLE = GanZhiTable.of(WANG_SHEN, 2);
+
+    /**
+     * 吊客（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable DIAO_KE_TABLE = GanZhiTable.of(DIAO_KE, 2);
+
+    /**
+     * 披麻（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable PI_MA_TABLE = GanZhiTable.of(PI_MA, 2);
+
+    /**
+     * 天官贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_GUAN_GUI_REN_TABLE = GanZhiTable.of(TIAN_GUAN_GUI_REN, 2);
+
+    /**
+     * 天喜（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_XI_TABLE = GanZhiTable.of(TIAN_XI, 2);
+
+    /**
+     * 勾绞煞（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable GOU_JIAO_SHA_TABLE = GanZhiTable.of(GOU_JIAO_SHA, 2);
+
+    /**
+     * 红鸾（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable HONG_LUAN_TABLE = GanZhiTable.of(HONG_LUAN, 2);
+
+    /**
+     * 丧门（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable SANG_MEN_TABLE = GanZhiTable.of(SANG_MEN, 2);
+
+    /**
+     * 灾煞（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable ZAI_SHA_TABLE = GanZhiTable.of(ZAI_SHA, 2);
+
+    /**
+     * 孤辰（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable GU_CHEN_TABLE = GanZhiTable.of(GU_CHEN, 2);
+
+    /**
+     * 寡宿（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable GUA_XIU_TABLE = GanZhiTable.of(GUA_XIU, 2);
+
+    /**
+     * 元辰（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable YUAN_CHEN_YANG_NAN_TABLE = GanZhiTable.of(YUAN_CHEN_YANG_NAN, 2);
+
+    /**
+     * 元辰（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable YUAN_CHEN_YIN_NAN_TABLE = GanZhiTable.of(YUAN_CHEN_YIN_NAN, 2);
+
+    /**
+     * 血刃（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable XUE_REN_TABLE = GanZhiTable.of(XUE_REN, 2);
+
+    /**
+     * 天医（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_YI_TABLE = GanZhiTable.of(TIAN_YI, 2);
+
+    /**
+     * 天德合（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_DE_HE_TABLE = GanZhiTable.of(TIAN_DE_HE, 2);
+
+    /**
+     * 天赦（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_SHE_TABLE = GanZhiTable.of(TIAN_SHE, 3);
+
+    /**
+     * 天转（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_ZHUAN_TABLE = GanZhiTable.of(TIAN_ZHUAN, 3);
+
+    /**
+     * 地转（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable DI_ZHUAN_TABLE = GanZhiTable.of(DI_ZHUAN, 3);
+
+    /**
+     * 月德贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable YUE_DE_GUI_REN_TABLE = GanZhiTable.of(YUE_DE_GUI_REN, 2);
+
+    /**
+     * 德秀贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable DE_XIU_GUI_REN_TABLE = GanZhiTable.of(DE_XIU_GUI_REN, 2);
+
+    /**
+     * 天德贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_DE_GUI_REN_TABLE = GanZhiTable.of(TIAN_DE_GUI_REN, 2);
+
+    /**
+     * 月德合（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable YUE_DE_HE_TABLE = GanZhiTable.of(YUE_DE_HE, 2);
+
+    /**
+     * 华盖（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable HUA_GAI_TABLE = GanZhiTable.of(HUA_GAI, 2);
+
+    /**
+     * 四废日（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable SI_FEI_RI_TABLE = GanZhiTable.of(SI_FEI_RI, 3);
+
+    /**
+     * 阴注阳受（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable YIN_ZHU_YANG_SHOU_TABLE = GanZhiTable.of(YIN_ZHU_YANG_SHOU, 2);
+
+    /**
+     * 天罗地网（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable TIAN_LUO_DI_WANG_TABLE = GanZhiTable.of(TIAN_LUO_DI_WANG, 2);
+
+    /**
+     * 空亡（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable KONG_WANG_TABLE = GanZhiTable.of(KONG_WANG, 3);
+
+    /**
+     * 截空（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable JIE_KONG_TABLE = GanZhiTable.of(JIE_KONG, 2);
+
+    /**
+     * 三奇贵人（数组形式，按符号编码查询）
+     */
+    public static final GanZhiTable SAN_QI_GUI_REN_TABLE = GanZhiTable.of(SAN_QI_GUI_REN, 3);
+
+    /**
+     * 十恶大败（六十甲子位集）
+     */
+    public static final long SHI_E_DA_BAI_MASK = GanZhiCode.jiaZiMask(SHI_E_DA_BAI);
+
+    /**
+     * 阴差阳错（六十甲子位集）
+     */
+    public static final long YIN_CHA_YANG_CUO_MASK = GanZhiCode.jiaZiMask(YIN_CHA_YANG_CUO);
+
+    /**
+     * 孤鸾煞（六十甲子位集）
+     */
+    public static final long GU_LUAN_SHA_MASK = GanZhiCode.jiaZiMask(GU_LUAN_SHA);
+
+    /**
+     * 六秀日（六十甲子位集）
+     */
+    public static final long LIU_XIU_RI_MASK = GanZhiCode.jiaZiMask(LIU_XIU_RI);
+
+    /**
+     * 十灵日（六十甲子位集）
+     */
+    public static final long SHI_LING_RI_MASK = GanZhiCode.jiaZiMask(SHI_LING_RI);
+
+    /**
+     * 魁罡日（六十甲子位集）
+     */
+    public static final long KUI_GANG_RI_MASK = GanZhiCode.jiaZiMask(KUI_GANG_RI);
+
+    /**
+     * 八专日（六十甲子位集）
+     */
+    public static final long BA_ZHUAN_RI_MASK = GanZhiCode.jiaZiMask(BA_ZHUAN_RI);
+
+    /**
+     * 九丑日（六十甲子位集）
+     */
+    public static final long JIU_CHOU_RI_MASK = GanZhiCode.jiaZiMask(JIU_CHOU_RI);
+
+    /**
+     * 金神（六十甲子位集）
+     */
+    public static final long JIN_SHEN_MASK = GanZhiCode.jiaZiMask(JIN_SHEN);
 
 }
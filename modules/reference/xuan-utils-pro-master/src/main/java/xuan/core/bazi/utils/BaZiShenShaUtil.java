@@ -6,6 +6,8 @@ import java.util.ArrayList;
 
 import org.apache.commons.lang3.StringUtils;
 import xuan.utils.CommonUtil;
+import xuan.utils.GanZhiCode;
+import xuan.utils.GanZhiTable;
 import xuan.core.bazi.maps.BaZiJiChuMap;
 import xuan.core.bazi.maps.BaZiShenShaMap;
 import xuan.core.bazi.settings.BaZiShenShaSetting;
@@ -98,6 +100,19 @@ public class BaZiShenShaUtil {
      */
     private String arbitraryGanZhi;
 
+    /**
+     * 年干、月干、日干、时干、任意干的符号编码（非天干为-1）
+     */
+    private int yearGanCode, monthGanCode, dayGanCode, hourGanCode, arbitraryGanCode;
+    /**
+     * 年支、月支、日支、时支、任意支的符号编码（非地支为-1）
+     */
+    private int yearZhiCode, monthZhiCode, dayZhiCode, hourZhiCode, arbitraryZhiCode;
+    /**
+     * 日干支、时干支的六十甲子编码（非干支为-1）
+     */
+    private int dayJiaZi, hourJiaZi;
+
     /**
      * 年干支神煞
      */
@@ -158,6 +173,18 @@ public class BaZiShenShaUtil {
         this.dayZhi = this.dayGanZhi.substring(1, 2); // 日支
         this.hourZhi = this.hourGanZhi.substring(1, 2); // 时支
         this.arbitraryZhi = this.arbitraryGanZhi.substring(1, 2); // 任意支，除四柱之外
+        this.yearGanCode = GanZhiCode.symbol(this.yearGanZhi, 0); // 年干编码
+        this.monthGanCode = GanZhiCode.symbol(this.monthGanZhi, 0); // 月干编码
+        this.dayGanCode = GanZhiCode.symbol(this.dayGanZhi, 0); // 日干编码
+        this.hourGanCode = GanZhiCode.symbol(this.hourGanZhi, 0); // 时干编码
+        this.arbitraryGanCode = GanZhiCode.symbol(this.arbitraryGanZhi, 0); // 任意干编码
+        this.yearZhiCode = GanZhiCode.symbol(this.yearGanZhi, 1); // 年支编码
+        this.monthZhiCode = GanZhiCode.symbol(this.monthGanZhi, 1); // 月支编码
+        this.dayZhiCode = GanZhiCode.symbol(this.dayGanZhi, 1); // 日支编码
+        this.hourZhiCode = GanZhiCode.symbol(this.hourGanZhi, 1); // 时支编码
+        this.arbitraryZhiCode = GanZhiCode.symbol(this.arbitraryGanZhi, 1); // 任意支编码
+        this.dayJiaZi = GanZhiCode.jiaZi(this.dayGanZhi); // 日干支六十甲子编码
+        this.hourJiaZi = GanZhiCode.jiaZi(this.hourGanZhi); // 时干支六十甲子编码
 
         // 3、初始化数据
         initializeShenSha(); // 初始化神煞
@@ -294,19 +321,19 @@ public class BaZiShenShaUtil {
      */
     private void taiJiGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.TAI_JI_GUI_REN; // 太极贵人（年干\日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TAI_JI_GUI_REN_TABLE; // 太极贵人（年干\日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -315,19 +342,19 @@ public class BaZiShenShaUtil {
      */
     private void tianYiGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_YI_GUI_REN; // 天乙贵人（年干\日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_YI_GUI_REN_TABLE; // 天乙贵人（年干\日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -336,19 +363,19 @@ public class BaZiShenShaUtil {
      */
     private void fuXingGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.FU_XING_GUI_REN; // 福星贵人（年干\日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.FU_XING_GUI_REN_TABLE; // 福星贵人（年干\日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -357,19 +384,19 @@ public class BaZiShenShaUtil {
      */
     private void wenChangGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.WEN_CHANG_GUI_REN; // 文昌贵人（年干\日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.WEN_CHANG_GUI_REN_TABLE; // 文昌贵人（年干\日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -378,19 +405,19 @@ public class BaZiShenShaUtil {
      */
     private void tianChuGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_CHU_GUI_REN; // 天厨贵人（年干\日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_CHU_GUI_REN_TABLE; // 天厨贵人（年干\日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -399,19 +426,19 @@ public class BaZiShenShaUtil {
      */
     private void guoYin() {
 
-        Map<String, String> map = BaZiShenShaMap.GUO_YIN; // 国印（年干\日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.GUO_YIN_TABLE; // 国印（年干\日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -420,19 +447,19 @@ public class BaZiShenShaUtil {
      */
     private void jinYu() {
 
-        Map<String, String> map = BaZiShenShaMap.JIN_YU; // 金舆（年干\日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.JIN_YU_TABLE; // 金舆（年干\日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -441,13 +468,13 @@ public class BaZiShenShaUtil {
      */
     private void hongYanSha() {
 
-        Map<String, String> map = BaZiShenShaMap.HONG_YAN_SHA; // 红艳煞（日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.HONG_YAN_SHA_TABLE; // 红艳煞（日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -456,13 +483,13 @@ public class BaZiShenShaUtil {
      */
     private void yangRen() {
 
-        Map<String, String> map = BaZiShenShaMap.YANG_REN; // 羊刃（日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.YANG_REN_TABLE; // 羊刃（日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -471,13 +498,13 @@ public class BaZiShenShaUtil {
      */
     private void feiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.FEI_REN; // 飞刃（日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.FEI_REN_TABLE; // 飞刃（日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -486,13 +513,13 @@ public class BaZiShenShaUtil {
      */
     private void liuXia() {
 
-        Map<String, String> map = BaZiShenShaMap.LIU_XIA; // 流霞（日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.LIU_XIA_TABLE; // 流霞（日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -501,13 +528,13 @@ public class BaZiShenShaUtil {
      */
     private void luShen() {
 
-        Map<String, String> map = BaZiShenShaMap.LU_SHEN; // 禄神（日干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.LU_SHEN_TABLE; // 禄神（日干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.dayGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -516,19 +543,19 @@ public class BaZiShenShaUtil {
      */
     private void yiMa() {
 
-        Map<String, String> map = BaZiShenShaMap.YI_MA; // 驿马（年支\日支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.YI_MA_TABLE; // 驿马（年支\日支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -537,19 +564,19 @@ public class BaZiShenShaUtil {
      */
     private void jieSha() {
 
-        Map<String, String> map = BaZiShenShaMap.JIE_SHA; // 劫煞（年支\日支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.JIE_SHA_TABLE; // 劫煞（年支\日支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhiCode, this.arbitraryZhiCode));
     }
 
     /**
@@ -557,19 +584,19 @@ public class BaZiShenShaUtil {
      */
     private void jiangXing() {
 
-        Map<String, String> map = BaZiShenShaMap.JIANG_XING; // 将星（年支\日支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.JIANG_XING_TABLE; // 将星（年支\日支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -578,19 +605,19 @@ public class BaZiShenShaUtil {
      */
     private void taoHua() {
 
-        Map<String, String> map = BaZiShenShaMap.TAO_HUA; // 桃花（年支\日支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TAO_HUA_TABLE; // 桃花（年支\日支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -599,19 +626,19 @@ public class BaZiShenShaUtil {
      */
     private void wangShen() {
 
-        Map<String, String> map = BaZiShenShaMap.WANG_SHEN; // 亡神（年支\日支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.WANG_SHEN_TABLE; // 亡神（年支\日支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -620,13 +647,13 @@ public class BaZiShenShaUtil {
      */
     private void diaoKe() {
 
-        Map<String, String> map = BaZiShenShaMap.DIAO_KE; // 吊客（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.DIAO_KE_TABLE; // 吊客（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -635,13 +662,13 @@ public class BaZiShenShaUtil {
      */
     private void piMa() {
 
-        Map<String, String> map = BaZiShenShaMap.PI_MA; // 披麻（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.PI_MA_TABLE; // 披麻（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -650,13 +677,13 @@ public class BaZiShenShaUtil {
      */
     private void tianGuanGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_GUAN_GUI_REN; // 天官贵人（年干+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_GUAN_GUI_REN_TABLE; // 天官贵人（年干+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.yearGan + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGan + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGan + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGan + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGan + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.arbitraryZhiCode));
 
     }
 
@@ -665,13 +692,13 @@ public class BaZiShenShaUtil {
      */
     private void tianXi() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_XI; // 天喜（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_XI_TABLE; // 天喜（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -680,13 +707,13 @@ public class BaZiShenShaUtil {
      */
     private void gouJiaoSha() {
 
-        Map<String, String> map = BaZiShenShaMap.GOU_JIAO_SHA; // 勾绞煞（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.GOU_JIAO_SHA_TABLE; // 勾绞煞（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -695,13 +722,13 @@ public class BaZiShenShaUtil {
      */
     private void hongLuan() {
 
-        Map<String, String> map = BaZiShenShaMap.HONG_LUAN; // 红鸾（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.HONG_LUAN_TABLE; // 红鸾（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -710,13 +737,13 @@ public class BaZiShenShaUtil {
      */
     private void sangMen() {
 
-        Map<String, String> map = BaZiShenShaMap.SANG_MEN; // 丧门（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.SANG_MEN_TABLE; // 丧门（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -725,13 +752,13 @@ public class BaZiShenShaUtil {
      */
     private void zaiSha() {
 
-        Map<String, String> map = BaZiShenShaMap.ZAI_SHA; // 灾煞（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.ZAI_SHA_TABLE; // 灾煞（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -740,13 +767,13 @@ public class BaZiShenShaUtil {
      */
     private void guChen() {
 
-        Map<String, String> map = BaZiShenShaMap.GU_CHEN; // 孤辰（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.GU_CHEN_TABLE; // 孤辰（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -755,13 +782,13 @@ public class BaZiShenShaUtil {
      */
     private void guaXiu() {
 
-        Map<String, String> map = BaZiShenShaMap.GUA_XIU; // 寡宿（年支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.GUA_XIU_TABLE; // 寡宿（年支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -770,10 +797,10 @@ public class BaZiShenShaUtil {
      */
     private void yuanChen() {
 
-        Map<String, String> map1 = BaZiShenShaMap.YUAN_CHEN_YANG_NAN; // 元辰（年支+其余地支），阳男阴女
-        Map<String, String> map2 = BaZiShenShaMap.YUAN_CHEN_YIN_NAN; // 元辰（年支+其余地支），阴男阳女
+        GanZhiTable map1 = BaZiShenShaMap.YUAN_CHEN_YANG_NAN_TABLE; // 元辰（年支+其余地支），阳男阴女
+        GanZhiTable map2 = BaZiShenShaMap.YUAN_CHEN_YIN_NAN_TABLE; // 元辰（年支+其余地支），阴男阳女
 
-        Map<String, String> map;
+        GanZhiTable map;
         String sex = this.sex == 0 ? "女" : "男";
         String yearGanYinYangSex = BaZiJiChuMap.TIAN_GAN_YIN_YANG.get(this.yearGan) + sex;
         if ("阳男".equals(yearGanYinYangSex) || "阴女".equals(yearGanYinYangSex)) {
@@ -782,11 +809,11 @@ public class BaZiShenShaUtil {
             map = map2;
         }
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -795,13 +822,13 @@ public class BaZiShenShaUtil {
      */
     private void xueRen() {
 
-        Map<String, String> map = BaZiShenShaMap.XUE_REN; // 血刃（月支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.XUE_REN_TABLE; // 血刃（月支+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -810,13 +837,13 @@ public class BaZiShenShaUtil {
      */
     private void tianYi() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_YI; // 天医（月支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_YI_TABLE; // 天医（月支+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearZhi));
-//        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearZhiCode));
+//        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -825,19 +852,19 @@ public class BaZiShenShaUtil {
      */
     private void tianDeHe() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_DE_HE; // 天德合（月支+其余天干或地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_DE_HE_TABLE; // 天德合（月支+其余天干或地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearGan));
-        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthGan));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGan));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourGan));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryGan));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearGanCode));
+        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthGanCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourGanCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryGanCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearZhi));
-//        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearZhiCode));
+//        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -846,13 +873,13 @@ public class BaZiShenShaUtil {
      */
     private void yueDeHe() {
 
-        Map<String, String> map = BaZiShenShaMap.YUE_DE_HE; // 月德合（月支+其余天干为键）
+        GanZhiTable map = BaZiShenShaMap.YUE_DE_HE_TABLE; // 月德合（月支+其余天干为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearGan));
-        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthGan));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGan));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourGan));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryGan));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearGanCode));
+        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthGanCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourGanCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryGanCode));
 
     }
 
@@ -939,9 +966,9 @@ public class BaZiShenShaUtil {
      */
     private void tianShe() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_SHE; // 天赦（月支+日干支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_SHE_TABLE; // 天赦（月支+日干支为键）
 
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGanZhi));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode, this.dayZhiCode));
 
     }
 
@@ -950,9 +977,9 @@ public class BaZiShenShaUtil {
      */
     private void tianZhuan() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_ZHUAN; // 天转（月支+日干支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_ZHUAN_TABLE; // 天转（月支+日干支为键）
 
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGanZhi));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode, this.dayZhiCode));
 
     }
 
@@ -961,9 +988,9 @@ public class BaZiShenShaUtil {
      */
     private void diZhuan() {
 
-        Map<String, String> map = BaZiShenShaMap.DI_ZHUAN; // 地转（月支+日干支为键）
+        GanZhiTable map = BaZiShenShaMap.DI_ZHUAN_TABLE; // 地转（月支+日干支为键）
 
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGanZhi));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode, this.dayZhiCode));
 
     }
 
@@ -972,13 +999,13 @@ public class BaZiShenShaUtil {
      */
     private void yueDeGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.YUE_DE_GUI_REN; // 月德贵人（月支+其余天干为键）
+        GanZhiTable map = BaZiShenShaMap.YUE_DE_GUI_REN_TABLE; // 月德贵人（月支+其余天干为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearGan));
-        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthGan));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGan));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourGan));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryGan));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearGanCode));
+        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthGanCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourGanCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryGanCode));
 
     }
 
@@ -987,13 +1014,13 @@ public class BaZiShenShaUtil {
      */
     private void deXiuGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.DE_XIU_GUI_REN; // 德秀贵人（月支+其余天干为键）
+        GanZhiTable map = BaZiShenShaMap.DE_XIU_GUI_REN_TABLE; // 德秀贵人（月支+其余天干为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearGan));
-        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthGan));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGan));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourGan));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryGan));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearGanCode));
+        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthGanCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourGanCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryGanCode));
 
     }
 
@@ -1002,19 +1029,19 @@ public class BaZiShenShaUtil {
      */
     private void tianDeGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_DE_GUI_REN; // 天德贵人（月支+其余天干或地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_DE_GUI_REN_TABLE; // 天德贵人（月支+其余天干或地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearGan));
-        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthGan));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGan));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourGan));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryGan));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearGanCode));
+        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthGanCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourGanCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryGanCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearZhi));
-//        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearZhiCode));
+//        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -1038,19 +1065,19 @@ public class BaZiShenShaUtil {
      */
     private void huaGai() {
 
-        Map<String, String> map = BaZiShenShaMap.HUA_GAI; // 华盖（年支\日支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.HUA_GAI_TABLE; // 华盖（年支\日支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -1093,9 +1120,9 @@ public class BaZiShenShaUtil {
      */
     private void siFeiRi() {
 
-        Map<String, String> map = BaZiShenShaMap.SI_FEI_RI; // 四废日（月支+日干支为键）
+        GanZhiTable map = BaZiShenShaMap.SI_FEI_RI_TABLE; // 四废日（月支+日干支为键）
 
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayGanZhi));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayGanCode, this.dayZhiCode));
 
     }
 
@@ -1104,13 +1131,13 @@ public class BaZiShenShaUtil {
      */
     private void yinZhuYangShou() {
 
-        Map<String, String> map = BaZiShenShaMap.YIN_ZHU_YANG_SHOU; // 阴注阳受（月支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.YIN_ZHU_YANG_SHOU_TABLE; // 阴注阳受（月支+其余地支为键）
 
-        this.yearGanZhiShenSha.add(map.get(this.monthZhi + this.yearZhi));
-//        this.monthGanZhiShenSha.add(map.get(this.monthZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.monthZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.monthZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.monthZhiCode, this.yearZhiCode));
+//        this.monthGanZhiShenSha.add(map.get(this.monthZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.monthZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.monthZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.monthZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -1119,19 +1146,19 @@ public class BaZiShenShaUtil {
      */
     private void tianLuoDiWang() {
 
-        Map<String, String> map = BaZiShenShaMap.TIAN_LUO_DI_WANG; // 天罗地网（年支\日支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.TIAN_LUO_DI_WANG_TABLE; // 天罗地网（年支\日支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -1140,19 +1167,19 @@ public class BaZiShenShaUtil {
      */
     private void kongWang() {
 
-        Map<String, String> map = BaZiShenShaMap.KONG_WANG; // 空亡（年干支\日干支+其余地支为键）
+        GanZhiTable map = BaZiShenShaMap.KONG_WANG_TABLE; // 空亡（年干支\日干支+其余地支为键）
 
-//        this.yearGanZhiShenSha.add(map.get(this.yearGanZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.yearGanZhi + this.monthZhi));
-        this.dayGanZhiShenSha.add(map.get(this.yearGanZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.yearGanZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanZhi + this.arbitraryZhi));
+//        this.yearGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode, this.monthZhiCode));
+        this.dayGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.yearGanCode, this.yearZhiCode, this.arbitraryZhiCode));
 
-        this.yearGanZhiShenSha.add(map.get(this.dayGanZhi + this.yearZhi));
-        this.monthGanZhiShenSha.add(map.get(this.dayGanZhi + this.monthZhi));
-//        this.dayGanZhiShenSha.add(map.get(this.dayGanZhi + this.dayZhi));
-        this.hourGanZhiShenSha.add(map.get(this.dayGanZhi + this.hourZhi));
-        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanZhi + this.arbitraryZhi));
+        this.yearGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode, this.yearZhiCode));
+        this.monthGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode, this.monthZhiCode));
+//        this.dayGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode, this.dayZhiCode));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode, this.hourZhiCode));
+        this.arbitraryGanZhiShenSha.add(map.get(this.dayGanCode, this.dayZhiCode, this.arbitraryZhiCode));
 
     }
 
@@ -1161,9 +1188,9 @@ public class BaZiShenShaUtil {
      */
     private void jieKong() {
 
-        Map<String, String> map = BaZiShenShaMap.JIE_KONG; // 截空（日干+时支为键）
+        GanZhiTable map = BaZiShenShaMap.JIE_KONG_TABLE; // 截空（日干+时支为键）
 
-        this.hourGanZhiShenSha.add(map.get(this.dayGan + this.hourZhi));
+        this.hourGanZhiShenSha.add(map.get(this.dayGanCode, this.hourZhiCode));
 
     }
 
@@ -1187,10 +1214,10 @@ public class BaZiShenShaUtil {
      */
     private void sanQiGuiRen() {
 
-        Map<String, String> map = BaZiShenShaMap.SAN_QI_GUI_REN; // 三奇贵人（年干+月干+日干\月干+日干+时干为键）
+        GanZhiTable map = BaZiShenShaMap.SAN_QI_GUI_REN_TABLE; // 三奇贵人（年干+月干+日干\月干+日干+时干为键）
 
-        String yearMonthDayGan = map.get(this.yearGan + this.monthGan + this.dayGan); // 年干+月干+日干
-        String monthDayHourGan = map.get(this.monthGan + this.dayGan + this.hourGan); // 月干+日干+时干
+        String yearMonthDayGan = map.get(this.yearGanCode, this.monthGanCode, this.dayGanCode); // 年干+月干+日干
+        String monthDayHourGan = map.get(this.monthGanCode, this.dayGanCode, this.hourGanCode); // 月干+日干+时干
         if (null != yearMonthDayGan) this.dayGanZhiShenSha.add("三奇贵人");
         if (null != monthDayHourGan) this.dayGanZhiShenSha.add("三奇贵人");
 
@@ -1201,11 +1228,9 @@ public class BaZiShenShaUtil {
      */
     private void shiEDaBai() {
 
-        String[] strings = BaZiShenShaMap.SHI_E_DA_BAI; // 十恶大败（日干支）
+        long mask = BaZiShenShaMap.SHI_E_DA_BAI_MASK; // 十恶大败（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("十恶大败");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("十恶大败");
 
     }
 
@@ -1214,11 +1239,9 @@ public class BaZiShenShaUtil {
      */
     private void yinChaYangCuo() {
 
-        String[] strings = BaZiShenShaMap.YIN_CHA_YANG_CUO; // 阴差阳错（日干支）
+        long mask = BaZiShenShaMap.YIN_CHA_YANG_CUO_MASK; // 阴差阳错（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("阴差阳错");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("阴差阳错");
 
     }
 
@@ -1227,11 +1250,9 @@ public class BaZiShenShaUtil {
      */
     private void guLuanSha() {
 
-        String[] strings = BaZiShenShaMap.GU_LUAN_SHA; // 孤鸾煞（日干支）
+        long mask = BaZiShenShaMap.GU_LUAN_SHA_MASK; // 孤鸾煞（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("孤鸾煞");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("孤鸾煞");
 
     }
 
@@ -1240,11 +1261,9 @@ public class BaZiShenShaUtil {
      */
     private void liuXiuRi() {
 
-        String[] strings = BaZiShenShaMap.LIU_XIU_RI; // 六秀日（日干支）
+        long mask = BaZiShenShaMap.LIU_XIU_RI_MASK; // 六秀日（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("六秀日");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("六秀日");
 
     }
 
@@ -1253,11 +1272,9 @@ public class BaZiShenShaUtil {
      */
     private void shiLingRi() {
 
-        String[] strings = BaZiShenShaMap.SHI_LING_RI; // 十灵日（日干支）
+        long mask = BaZiShenShaMap.SHI_LING_RI_MASK; // 十灵日（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("十灵日");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("十灵日");
 
     }
 
@@ -1266,11 +1283,9 @@ public class BaZiShenShaUtil {
      */
     private void kuiGangRi() {
 
-        String[] strings = BaZiShenShaMap.KUI_GANG_RI; // 魁罡日（日干支）
+        long mask = BaZiShenShaMap.KUI_GANG_RI_MASK; // 魁罡日（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("魁罡日");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("魁罡日");
 
     }
 
@@ -1279,11 +1294,9 @@ public class BaZiShenShaUtil {
      */
     private void baZhuanRi() {
 
-        String[] strings = BaZiShenShaMap.BA_ZHUAN_RI; // 八专日（日干支）
+        long mask = BaZiShenShaMap.BA_ZHUAN_RI_MASK; // 八专日（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("八专日");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("八专日");
 
     }
 
@@ -1292,11 +1305,9 @@ public class BaZiShenShaUtil {
      */
     private void jiuChouRi() {
 
-        String[] strings = BaZiShenShaMap.JIU_CHOU_RI; // 九丑日（日干支）
+        long mask = BaZiShenShaMap.JIU_CHOU_RI_MASK; // 九丑日（日干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("九丑日");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("九丑日");
 
     }
 
@@ -1305,14 +1316,10 @@ public class BaZiShenShaUtil {
      */
     private void jinShen() {
 
-        String[] strings = BaZiShenShaMap.JIN_SHEN; // 金神（日干支\时干支）
+        long mask = BaZiShenShaMap.JIN_SHEN_MASK; // 金神（日干支\时干支）
 
-        for (String value : strings) {
-            if (this.dayGanZhi.equals(value)) this.dayGanZhiShenSha.add("金神");
-        }
-        for (String value : strings) {
-            if (this.hourGanZhi.equals(value)) this.hourGanZhiShenSha.add("金神");
-        }
+        if (GanZhiCode.inMask(mask, this.dayJiaZi)) this.dayGanZhiShenSha.add("金神");
+        if (GanZhiCode.inMask(mask, this.hourJiaZi)) this.hourGanZhiShenSha.add("金神");
 
     }
 
@@ -0,0 +1,143 @@
+package xuan.utils;
+
+/**
+ * 干支编码：天干0~9，地支0~11，六十甲子0~59
+ * <p>
+ * 查表时天干与地支共用一套符号编码：天干为0~9，地支为10~21，非干支字符为-1
+ */
+public class GanZhiCode {
+
+    /**
+     * 天干
+     */
+    public static final String GAN = "甲乙丙丁戊己庚辛壬癸";
+
+    /**
+     * 地支
+     */
+    public static final String ZHI = "子丑寅卯辰巳午未申酉戌亥";
+
+    /**
+     * 符号编码的个数（天干+地支）
+     */
+    public static final int SYMBOLS = 22;
+
+    /**
+     * 六十甲子
+     */
+    private static final String[] JIA_ZI = new String[60];
+
+    static {
+        for (int i = 0; i < 60; i++) {
+            JIA_ZI[i] = String.valueOf(GAN.charAt(i % 10)) + ZHI.charAt(i % 12);
+        }
+    }
+
+    private GanZhiCode() {
+    }
+
+    /**
+     * 获取天干编码
+     *
+     * @param c 天干（如：甲）
+     * @return 0~9，非天干为-1
+     */
+    public static int gan(char c) {
+        return GAN.indexOf(c);
+    }
+
+    /**
+     * 获取地支编码
+     *
+     * @param c 地支（如：子）
+     * @return 0~11，非地支为-1
+     */
+    public static int zhi(char c) {
+        return ZHI.indexOf(c);
+    }
+
+    /**
+     * 获取符号编码
+     *
+     * @param c 天干或地支
+     * @return 天干0~9，地支10~21，其余为-1
+     */
+    public static int symbol(char c) {
+        int gan = GAN.indexOf(c);
+        if (gan >= 0) return gan;
+        int zhi = ZHI.indexOf(c);
+        return zhi >= 0 ? 10 + zhi : -1;
+    }
+
+    /**
+     * 获取字符串中指定位置字符的符号编码
+     *
+     * @param s     字符串
+     * @param index 位置
+     * @return 符号编码，字符串为空或长度不足时为-1
+     */
+    public static int symbol(String s, int index) {
+        return (null == s || s.length() <= index) ? -1 : symbol(s.charAt(index));
+    }
+
+    /**
+     * 由天干、地支编码获取六十甲子编码
+     *
+     * @param gan 天干编码（0~9）
+     * @param zhi 地支编码（0~11）
+     * @return 0~59，阴阳不同或编码无效时为-1
+     */
+    public static int jiaZi(int gan, int zhi) {
+        if (gan < 0 || zhi < 0 || gan > 9 || zhi > 11 || (gan & 1) != (zhi & 1)) return -1;
+        return (6 * gan - 5 * zhi + 60) % 60;
+    }
+
+    /**
+     * 获取干支的六十甲子编码
+     *
+     * @param ganZhi 干支（如：甲子）
+     * @return 0~59，非干支为-1
+     */
+    public static int jiaZi(String ganZhi) {
+        if (null == ganZhi || ganZhi.length() != 2) return -1;
+        return jiaZi(gan(ganZhi.charAt(0)), zhi(ganZhi.charAt(1)));
+    }
+
+    /**
+     * 获取六十甲子编码对应的干支
+     *
+     * @param jiaZi 六十甲子编码（0~59）
+     * @return 干支（如：甲子）
+     */
+    public static String ganZhi(int jiaZi) {
+        return JIA_ZI[jiaZi];
+    }
+
+    /**
+     * 把一组干支编成位集，第n位表示六十甲子编码为n的干支
+     *
+     * @param ganZhi 干支（如：["甲辰", "乙巳"]）
+     * @return 位集
+     */
+    public static long jiaZiMask(String... ganZhi) {
+        long mask = 0;
+        for (String value : ganZhi) {
+            int code = jiaZi(value);
+            if (code < 0) throw new IllegalArgumentException("非六十甲子：" + value);
+            mask |= 1L << code;
+        }
+        return mask;
+    }
+
+    /**
+     * 判断六十甲子编码是否在位集中
+     *
+     * @param mask  位集
+     * @param jiaZi 六十甲子编码，-1时为false
+     * @return true:在。false:不在
+     */
+    public static boolean inMask(long mask, int jiaZi) {
+        return jiaZi >= 0 && (mask & (1L << jiaZi)) != 0;
+    }
+
+}
@@ -0,0 +1,126 @@
+package xuan.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以干支字符串为键的常量表的数组形式
+ * <p>
+ * 键由width个天干或地支组成，按GanZhiCode的符号编码展开为下标，值编码为byte，0表示无值。
+ * 只收录长度为width的键，其它长度的键用width个字符查询本就查不到，结果与原表一致
+ */
+public class GanZhiTable {
+
+    /**
+     * 键的字符数
+     */
+    private final int width;
+
+    /**
+     * 值编码（下标为各字符符号编码的22进制数）
+     */
+    private final byte[] codes;
+
+    /**
+     * 值（下标为值编码，0为null）
+     */
+    private final String[] values;
+
+    private GanZhiTable(int width, byte[] codes, String[] values) {
+        this.width = width;
+        this.codes = codes;
+        this.values = values;
+    }
+
+    /**
+     * 编译常量表
+     *
+     * @param map   常量表（如：{"甲子":"太极贵人"}）
+     * @param width 键的字符数（2或3）
+     * @return 数组形式的常量表
+     */
+    public static GanZhiTable of(Map<String, String> map, int width) {
+
+        if (width < 1 || width > 3) throw new IllegalArgumentException("键的字符数只能为1~3：" + width);
+
+        int size = 1;
+        for (int i = 0; i < width; i++) size *= GanZhiCode.SYMBOLS;
+        byte[] codes = new byte[size];
+        List<String> values = new ArrayList<>();
+        values.add(null);
+
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            String key = entry.getKey();
+            if (key.length() != width || null == entry.getValue()) continue;
+            int index = 0;
+            for (int i = 0; i < width; i++) {
+                int symbol = GanZhiCode.symbol(key.charAt(i));
+                if (symbol < 0) throw new IllegalArgumentException("键中含有非干支字符：" + key);
+                index = index * GanZhiCode.SYMBOLS + symbol;
+            }
+            int code = values.indexOf(entry.getValue());
+            if (code < 0) {
+                code = values.size();
+                if (code > 255) throw new IllegalArgumentException("不同的值超过255个");
+                values.add(entry.getValue());
+            }
+            codes[index] = (byte) code;
+        }
+
+        return new GanZhiTable(width, codes, values.toArray(new String[0]));
+
+    }
+
+    /**
+     * 按两个符号编码查询
+     *
+     * @param a 第一个字符的符号编码
+     * @param b 第二个字符的符号编码
+     * @return 值，无值或编码为-1时为null
+     */
+    public String get(int a, int b) {
+        if (a < 0 || b < 0) return null;
+        return this.values[this.codes[a * GanZhiCode.SYMBOLS + b] & 0xFF];
+    }
+
+    /**
+     * 按三个符号编码查询
+     *
+     * @param a 第一个字符的符号编码
+     * @param b 第二个字符的符号编码
+     * @param c 第三个字符的符号编码
+     * @return 值，无值或编码为-1时为null
+     */
+    public String get(int a, int b, int c) {
+        if (a < 0 || b < 0 || c < 0) return null;
+        return this.values[this.codes[(a * GanZhiCode.SYMBOLS + b) * GanZhiCode.SYMBOLS + c] & 0xFF];
+    }
+
+    /**
+     * 按字符串键查询，与原常量表的get相同
+     *
+     * @param key 键（如：甲子）
+     * @return 值
+     */
+    public String get(String key) {
+        if (null == key || key.length() != this.width) return null;
+        int index = 0;
+        for (int i = 0; i < this.width; i++) {
+            int symbol = GanZhiCode.symbol(key.charAt(i));
+            if (symbol < 0) return null;
+            index = index * GanZhiCode.SYMBOLS + symbol;
+        }
+        return this.values[this.codes[index] & 0xFF];
+    }
+
+    /**
+     * 获取键的字符数
+     *
+     * @return 键的字符数
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+}
@@ -0,0 +1,96 @@
+package xuan.core.bazi.utils;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import xuan.core.bazi.settings.BaZiShenShaSetting;
+import xuan.utils.GanZhiCode;
+
+/**
+ * 八字神煞测试
+ */
+public class BaZiShenShaUtilTest {
+
+    /**
+     * 空、格式错误及非六十甲子的干支
+     */
+    private static final String[] BAD_GAN_ZHI = {null, "", "  ", "--", "甲", "甲子丑", "子甲", "甲丑", "ab", "甲x"};
+
+    private static final String[] JI_JIE = {"春", "夏", "秋", "冬", "", null};
+
+    private static final String[] NA_YIN = {"金", "木", "水", "火", "土", "海中金", "", null};
+
+    private static String ganZhi(Random random) {
+        int x = random.nextInt(100);
+        if (x < 10) return BAD_GAN_ZHI[random.nextInt(BAD_GAN_ZHI.length)];
+        if (x < 15) return String.valueOf(GanZhiCode.GAN.charAt(random.nextInt(10))) + GanZhiCode.ZHI.charAt(random.nextInt(12));
+        return GanZhiCode.ganZhi(random.nextInt(60));
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * 随机关闭部分神煞（0:显示。1:关闭）
+     */
+    private static BaZiShenShaSetting setting(Random random) throws Exception {
+        BaZiShenShaSetting setting = new BaZiShenShaSetting();
+        for (Method method : BaZiShenShaSetting.class.getMethods()) {
+            if (method.getName().startsWith("set") && method.getParameterCount() == 1 && method.getParameterTypes()[0] == int.class) {
+                method.invoke(setting, random.nextInt(5) == 0 ? 1 : 0);
+            }
+        }
+        return setting;
+    }
+
+    private static List<List<String>> shenSha(LegacyBaZiShenShaUtil util) {
+        return Arrays.asList(util.getYearGanZhiShenSha(), util.getMonthGanZhiShenSha(), util.getDayGanZhiShenSha(), util.getHourGanZhiShenSha(), util.getArbitraryGanZhiShenSha());
+    }
+
+    private static List<List<String>> shenSha(BaZiShenShaUtil util) {
+        return Arrays.asList(util.getYearGanZhiShenSha(), util.getMonthGanZhiShenSha(), util.getDayGanZhiShenSha(), util.getHourGanZhiShenSha(), util.getArbitraryGanZhiShenSha());
+    }
+
+    /**
+     * 查表实现与原实现的全部神煞相同（含空柱与格式错误的柱）
+     */
+    @Test
+    public void sameAsLegacy() throws Exception {
+
+        Random random = new Random(20);
+        for (int i = 0; i < 50000; i++) {
+            BaZiShenShaSetting setting = i % 3 == 0 ? new BaZiShenShaSetting() : setting(random);
+            int sex = random.nextInt(2);
+            String jiJie = pick(random, JI_JIE);
+            String naYin = pick(random, NA_YIN);
+            String[] pillars = new String[5];
+            for (int k = 0; k < pillars.length; k++) pillars[k] = ganZhi(random);
+
+            LegacyBaZiShenShaUtil expected = new LegacyBaZiShenShaUtil(setting, sex, jiJie, naYin, pillars[0], pillars[1], pillars[2], pillars[3], pillars[4]);
+            BaZiShenShaUtil actual = new BaZiShenShaUtil(setting, sex, jiJie, naYin, pillars[0], pillars[1], pillars[2], pillars[3], pillars[4]);
+            Assert.assertEquals(sex + jiJie + naYin + Arrays.toString(pillars), shenSha(expected), shenSha(actual));
+        }
+
+    }
+
+    /**
+     * 四柱全空或全部格式错误
+     */
+    @Test
+    public void emptyPillars() {
+
+        BaZiShenShaSetting setting = new BaZiShenShaSetting();
+        for (String bad : BAD_GAN_ZHI) {
+            LegacyBaZiShenShaUtil expected = new LegacyBaZiShenShaUtil(setting, 1, "春", "金", bad, bad, bad, bad, bad);
+            BaZiShenShaUtil actual = new BaZiShenShaUtil(setting, 1, "春", "金", bad, bad, bad, bad, bad);
+            Assert.assertEquals(bad, shenSha(expected), shenSha(actual));
+        }
+
+    }
+
+}
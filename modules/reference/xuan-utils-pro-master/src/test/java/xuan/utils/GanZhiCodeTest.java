@@ -0,0 +1,133 @@
+package xuan.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import xuan.core.bazi.maps.BaZiShenShaMap;
+
+/**
+ * 干支编码测试
+ */
+public class GanZhiCodeTest {
+
+    /**
+     * 六十甲子编码
+     */
+    @Test
+    public void jiaZi() {
+
+        for (int i = 0; i < 60; i++) {
+            String ganZhi = GanZhiCode.ganZhi(i);
+            Assert.assertEquals(i, GanZhiCode.jiaZi(ganZhi));
+        }
+        Assert.assertEquals("甲子", GanZhiCode.ganZhi(0));
+        Assert.assertEquals("癸亥", GanZhiCode.ganZhi(59));
+        Assert.assertEquals(-1, GanZhiCode.jiaZi("甲丑")); // 阴阳不同
+        Assert.assertEquals(-1, GanZhiCode.jiaZi("--"));
+
+        long mask = BaZiShenShaMap.KUI_GANG_RI_MASK; // 魁罡日
+        Assert.assertTrue(GanZhiCode.inMask(mask, GanZhiCode.jiaZi("庚辰")));
+        Assert.assertFalse(GanZhiCode.inMask(mask, GanZhiCode.jiaZi("甲子")));
+        Assert.assertFalse(GanZhiCode.inMask(mask, -1));
+
+    }
+
+    /**
+     * 数组形式的常量表与原表查询结果相同
+     */
+    @Test
+    public void table() {
+
+        String symbols = GanZhiCode.GAN + GanZhiCode.ZHI + "-";
+        GanZhiTable table = BaZiShenShaMap.TAI_JI_GUI_REN_TABLE;
+        for (char a : symbols.toCharArray()) {
+            for (char b : symbols.toCharArray()) {
+                String key = String.valueOf(a) + b;
+                Assert.assertEquals(key, BaZiShenShaMap.TAI_JI_GUI_REN.get(key), table.get(key));
+                Assert.assertEquals(key, BaZiShenShaMap.TAI_JI_GUI_REN.get(key), table.get(GanZhiCode.symbol(a), GanZhiCode.symbol(b)));
+            }
+        }
+
+        table = BaZiShenShaMap.KONG_WANG_TABLE;
+        for (int i = 0; i < 60; i++) {
+            String ganZhi = GanZhiCode.ganZhi(i);
+            for (char c : GanZhiCode.ZHI.toCharArray()) {
+                String key = ganZhi + c;
+                Assert.assertEquals(key, BaZiShenShaMap.KONG_WANG.get(key), table.get(GanZhiCode.symbol(key, 0), GanZhiCode.symbol(key, 1), GanZhiCode.symbol(c)));
+            }
+        }
+
+    }
+
+    /**
+     * 全部*_TABLE与对应原表的查询结果相同：宽度内的所有干支组合（含非干支字符），以及原表中的每个键
+     */
+    @Test
+    public void allTables() throws Exception {
+
+        String symbols = GanZhiCode.GAN + GanZhiCode.ZHI + "-";
+        int count = 0;
+        for (Field field : BaZiShenShaMap.class.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != GanZhiTable.class) continue;
+            String name = field.getName();
+            Assert.assertTrue(name, name.endsWith("_TABLE"));
+            GanZhiTable table = (GanZhiTable) field.get(null);
+            Map<String, String> map = (Map<String, String>) BaZiShenShaMap.class.getField(name.substring(0, name.length() - "_TABLE".length())).get(null);
+
+            int width = table.getWidth();
+            int size = 1;
+            for (int i = 0; i < width; i++) size *= symbols.length();
+            int[] codes = new int[width];
+            for (int n = 0; n < size; n++) {
+                StringBuilder key = new StringBuilder();
+                for (int i = width - 1, k = n; i >= 0; i--, k /= symbols.length()) {
+                    char c = symbols.charAt(k % symbols.length());
+                    key.insert(0, c);
+                    codes[i] = GanZhiCode.symbol(c);
+                }
+                String expected = map.get(key.toString());
+                String actual = width == 2 ? table.get(codes[0], codes[1]) : table.get(codes[0], codes[1], codes[2]);
+                Assert.assertEquals(name + " " + key, expected, table.get(key.toString()));
+                Assert.assertEquals(name + " " + key, expected, actual);
+            }
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                Assert.assertEquals(name + " " + entry.getKey(), entry.getKey().length() == width ? entry.getValue() : null, table.get(entry.getKey()));
+            }
+            count++;
+        }
+        Assert.assertEquals(46, count);
+
+    }
+
+    /**
+     * 全部*_MASK与对应原干支列表的包含关系相同
+     */
+    @Test
+    public void allMasks() throws Exception {
+
+        String symbols = GanZhiCode.GAN + GanZhiCode.ZHI + "-";
+        int count = 0;
+        for (Field field : BaZiShenShaMap.class.getFields()) {
+            String name = field.getName();
+            if (!Modifier.isStatic(field.getModifiers()) || !name.endsWith("_MASK")) continue;
+            long mask = field.getLong(null);
+            List<String> list = Arrays.asList((String[]) BaZiShenShaMap.class.getField(name.substring(0, name.length() - "_MASK".length())).get(null));
+            Assert.assertEquals(name, list.size(), Long.bitCount(mask));
+            for (char a : symbols.toCharArray()) {
+                for (char b : symbols.toCharArray()) {
+                    String key = String.valueOf(a) + b;
+                    Assert.assertEquals(name + " " + key, list.contains(key), GanZhiCode.inMask(mask, GanZhiCode.jiaZi(key)));
+                }
+            }
+            count++;
+        }
+        Assert.assertEquals(9, count);
+
+    }
+
+}